@@ -14,7 +14,6 @@ package games.stendhal.client;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -42,14 +41,39 @@ class EntityViewManager {
 	 * Comparator used to sort entities to display.
 	 */
 	private static final EntityViewComparator entityViewComparator = new EntityViewComparator();
+	/** Width and height of the view culling grid cells in pixels. */
+	private static final int BUCKET_SIZE = 8 * IGameScreen.SIZE_UNIT_PIXELS;
 
 	/**
 	 * The entity views. Modified in the game loop and read in the EDT.
 	 * Remember to synchronize.
 	 */
 	private final List<EntityView<IEntity>> views = new ArrayList<EntityView<IEntity>>();
-	/** Entities on the screen. */
+	/**
+	 * Views that have been removed, but not yet dropped from the culling grid.
+	 * Modified in the game loop and read in the EDT. Synchronized with
+	 * <code>views</code>.
+	 */
+	private final List<EntityView<IEntity>> removedViews = new ArrayList<EntityView<IEntity>>();
+	/**
+	 * Entities on the screen. Kept in drawing order between the frames, so
+	 * that only the views that moved or appeared need to be sorted.
+	 */
 	private final List<EntityView<IEntity>> visibleViews = new ArrayList<EntityView<IEntity>>();
+	/** Views that became visible in the frame being prepared. */
+	private final List<EntityView<IEntity>> newlyVisible = new ArrayList<EntityView<IEntity>>();
+	/**
+	 * Grid cells of views, for finding the views in the visible area. May be
+	 * accessed only in the EDT.
+	 */
+	private final Map<Long, List<EntityView<IEntity>>> grid = new HashMap<Long, List<EntityView<IEntity>>>();
+	/**
+	 * Placement of the views in the culling grid. May be accessed only in the
+	 * EDT.
+	 */
+	private final Map<EntityView<IEntity>, Placement> placements = new HashMap<EntityView<IEntity>, Placement>();
+	/** Counter of prepared frames. Used for marking the visible views. */
+	private int frame;
 
 	/**
 	 * The entity to view map. May be accessed only in the game loop thread.
@@ -80,7 +104,7 @@ class EntityViewManager {
 	 *
 	 * @param view new view
 	 */
-	private void addEntityView(EntityView<IEntity> view) {
+	void addEntityView(EntityView<IEntity> view) {
 		synchronized (views) {
 			views.add(view);
 		}
@@ -232,9 +256,10 @@ class EntityViewManager {
 	 *
 	 * @param view removed view
 	 */
-	private void removeEntityView(EntityView<IEntity> view) {
+	void removeEntityView(EntityView<IEntity> view) {
 		synchronized (views) {
 			views.remove(view);
+			removedViews.add(view);
 			view.release();
 		}
 	}
@@ -260,20 +285,147 @@ class EntityViewManager {
 	 * 	should be only done when the whole screen is drawn
 	 */
 	void prepareViews(Rectangle area, boolean setVisibleArea) {
-		visibleViews.clear();
+		frame++;
 		synchronized (views) {
+			for (EntityView<IEntity> view : removedViews) {
+				Placement placement = placements.remove(view);
+				if (placement != null) {
+					placement.remove(view);
+				}
+			}
+			removedViews.clear();
 			for (EntityView<IEntity> view : views) {
 				view.applyChanges();
-				if (area.intersects(view.getArea())) {
-					visibleViews.add(view);
-					if (setVisibleArea) {
-						view.setVisibleScreenArea(area);
+				place(view);
+			}
+		}
+
+		// Find the visible views from the grid cells overlapping the area
+		final int minX = Math.floorDiv(area.x, BUCKET_SIZE);
+		final int maxX = Math.floorDiv(area.x + area.width, BUCKET_SIZE);
+		final int minY = Math.floorDiv(area.y, BUCKET_SIZE);
+		final int maxY = Math.floorDiv(area.y + area.height, BUCKET_SIZE);
+		for (int by = minY; by <= maxY; by++) {
+			for (int bx = minX; bx <= maxX; bx++) {
+				List<EntityView<IEntity>> bucket = grid.get(bucketKey(bx, by));
+				if (bucket == null) {
+					continue;
+				}
+				for (EntityView<IEntity> view : bucket) {
+					Placement placement = placements.get(view);
+					if ((placement.visible != frame) && area.intersects(placement.bounds)) {
+						placement.visible = frame;
+						if (!placement.listed) {
+							placement.listed = true;
+							newlyVisible.add(view);
+						}
 					}
 				}
 			}
 		}
 
-		Collections.sort(visibleViews, entityViewComparator);
+		// Drop the views that are no longer visible, keeping the order of
+		// the rest
+		int size = 0;
+		for (int i = 0; i < visibleViews.size(); i++) {
+			EntityView<IEntity> view = visibleViews.get(i);
+			Placement placement = placements.get(view);
+			if ((placement != null) && (placement.visible == frame)) {
+				visibleViews.set(size, view);
+				size++;
+			} else if (placement != null) {
+				placement.listed = false;
+			}
+		}
+		visibleViews.subList(size, visibleViews.size()).clear();
+		visibleViews.addAll(newlyVisible);
+		newlyVisible.clear();
+
+		sort(visibleViews);
+
+		if (setVisibleArea) {
+			for (EntityView<IEntity> view : visibleViews) {
+				view.setVisibleScreenArea(area);
+			}
+		}
+	}
+
+	/**
+	 * Place a view in the culling grid, or move it to the correct cells if
+	 * its area has changed. Views can change their area without the entity
+	 * changing, so the area is checked instead of relying on entity change
+	 * events.
+	 *
+	 * @param view view
+	 */
+	private void place(EntityView<IEntity> view) {
+		Rectangle r = view.getArea();
+		Placement placement = placements.get(view);
+		if (placement == null) {
+			placement = new Placement();
+			placements.put(view, placement);
+		} else if (placement.bounds.equals(r)) {
+			return;
+		}
+		placement.bounds.setBounds(r);
+		int minX = Math.floorDiv(r.x, BUCKET_SIZE);
+		int maxX = Math.floorDiv(r.x + r.width, BUCKET_SIZE);
+		int minY = Math.floorDiv(r.y, BUCKET_SIZE);
+		int maxY = Math.floorDiv(r.y + r.height, BUCKET_SIZE);
+		if (placement.placed && (minX == placement.minX) && (maxX == placement.maxX)
+				&& (minY == placement.minY) && (maxY == placement.maxY)) {
+			return;
+		}
+		placement.remove(view);
+		placement.minX = minX;
+		placement.maxX = maxX;
+		placement.minY = minY;
+		placement.maxY = maxY;
+		for (int by = minY; by <= maxY; by++) {
+			for (int bx = minX; bx <= maxX; bx++) {
+				Long key = bucketKey(bx, by);
+				List<EntityView<IEntity>> bucket = grid.get(key);
+				if (bucket == null) {
+					bucket = new ArrayList<EntityView<IEntity>>();
+					grid.put(key, bucket);
+				}
+				bucket.add(view);
+			}
+		}
+		placement.placed = true;
+	}
+
+	/**
+	 * Get the key of a grid cell.
+	 *
+	 * @param bx cell x coordinate
+	 * @param by cell y coordinate
+	 * @return key
+	 */
+	private static Long bucketKey(int bx, int by) {
+		return (((long) bx) << 32) | (by & 0xffffffffL);
+	}
+
+	/**
+	 * Sort views to drawing order. The list is expected to be mostly in order
+	 * already, so that only the views that moved, or became visible, need to
+	 * be moved.
+	 *
+	 * @param list views to sort
+	 */
+	private static void sort(List<EntityView<IEntity>> list) {
+		for (int i = 1; i < list.size(); i++) {
+			EntityView<IEntity> view = list.get(i);
+			int j = i - 1;
+			if (entityViewComparator.compare(list.get(j), view) <= 0) {
+				continue;
+			}
+			do {
+				list.set(j + 1, list.get(j));
+				j--;
+			} while ((j >= 0) && (entityViewComparator.compare(list.get(j), view) > 0));
+			list.set(j + 1, view);
+		}
 	}
 
 	/**
@@ -306,10 +458,19 @@ class EntityViewManager {
 		}
 	}
 
+	/**
+	 * Get the views prepared for drawing. May be accessed only in the EDT.
+	 *
+	 * @return visible views in drawing order
+	 */
+	List<EntityView<IEntity>> getVisibleViews() {
+		return visibleViews;
+	}
+
 	/**
 	 * Comparator for sorting the views.
 	 */
-	private static class EntityViewComparator implements
+	static class EntityViewComparator implements
 			Comparator<EntityView<IEntity>> {
 		@Override
 		public int compare(final EntityView<IEntity> view1,
@@ -340,4 +501,42 @@ class EntityViewManager {
 			return rv;
 		}
 	}
+
+	/**
+	 * Location of a view in the culling grid.
+	 */
+	private class Placement {
+		/** Area of the view when it was last placed. */
+		final Rectangle bounds = new Rectangle();
+		/** Cell range of the view. */
+		int minX, maxX, minY, maxY;
+		/** <code>true</code>, if the view is in the grid cells. */
+		boolean placed;
+		/** The last frame where the view was visible. */
+		int visible;
+		/** <code>true</code>, if the view is in the visible view list. */
+		boolean listed;
+
+		/**
+		 * Remove the view from the grid cells it is in.
+		 *
+		 * @param view view
+		 */
+		void remove(EntityView<IEntity> view) {
+			if (!placed) {
+				return;
+			}
+			for (int by = minY; by <= maxY; by++) {
+				for (int bx = minX; bx <= maxX; bx++) {
+					Long key = bucketKey(bx, by);
+					List<EntityView<IEntity>> bucket = grid.get(key);
+					bucket.remove(view);
+					if (bucket.isEmpty()) {
+						grid.remove(key);
+					}
+				}
+			}
+			placed = false;
+		}
+	}
 }
@@ -0,0 +1,86 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.client;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.util.Locale;
+
+/**
+ * Measures the frame rate and the time used for drawing the game screen, and
+ * draws them at the top left corner of the screen. The values are updated
+ * once a second.
+ */
+class FrameRateOverlay {
+	/** Length of a measurement period in nanoseconds. */
+	private static final long PERIOD = 1000000000L;
+	/** Distance of the text from the screen borders in pixels. */
+	private static final int MARGIN = 4;
+
+	/** Start of the current period, or 0 if no frame has been drawn yet. */
+	private long periodStart;
+	/** Number of frames drawn in the current period. */
+	private int frames;
+	/** Total time of drawing the frames of the current period. */
+	private long totalTime;
+	/** Longest time of drawing a frame in the current period. */
+	private long maxTime;
+	/** Text showing the values of the last period. */
+	private String text = "";
+
+	/**
+	 * Record a drawn frame.
+	 *
+	 * @param now current time as given by {@link System#nanoTime()}
+	 * @param duration time used for drawing the frame in nanoseconds
+	 */
+	void frameDrawn(long now, long duration) {
+		if (periodStart == 0) {
+			periodStart = now;
+		}
+		frames++;
+		totalTime += duration;
+		maxTime = Math.max(maxTime, duration);
+
+		final long elapsed = now - periodStart;
+		if (elapsed >= PERIOD) {
+			text = String.format(Locale.ENGLISH, "%.1f fps, frame %.2f ms, max %.2f ms",
+					frames * (double) PERIOD / elapsed, totalTime / 1e6 / frames, maxTime / 1e6);
+			periodStart = now;
+			frames = 0;
+			totalTime = 0;
+			maxTime = 0;
+		}
+	}
+
+	/**
+	 * Get the text showing the values of the last full period.
+	 *
+	 * @return frame rate and frame times
+	 */
+	String getText() {
+		return text;
+	}
+
+	/**
+	 * Draw the values of the last full period.
+	 *
+	 * @param g graphics
+	 */
+	void draw(Graphics g) {
+		final int y = MARGIN + g.getFontMetrics().getAscent();
+		g.setColor(Color.BLACK);
+		g.drawString(text, MARGIN + 1, y + 1);
+		g.setColor(Color.WHITE);
+		g.drawString(text, MARGIN, y);
+	}
+}
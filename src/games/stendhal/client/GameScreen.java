@@ -52,6 +52,8 @@ import games.stendhal.client.gui.j2d.RemovableSprite;
 import games.stendhal.client.gui.j2d.entity.Entity2DView;
 import games.stendhal.client.gui.j2d.entity.EntityView;
 import games.stendhal.client.gui.spellcasting.SpellCastingGroundContainerMouseState;
+import games.stendhal.client.gui.wt.core.SettingChangeAdapter;
+import games.stendhal.client.gui.wt.core.WtWindowManager;
 import games.stendhal.client.sprite.Sprite;
 import games.stendhal.client.sprite.SpriteStore;
 import games.stendhal.common.MathHelper;
@@ -100,6 +102,9 @@ public final class GameScreen extends JComponent implements IGameScreen, DropTar
 	 */
 	private static final int OFFLINE_MARGIN = 10;
 
+	/** Setting for showing the frame rate. */
+	private static final String FRAME_RATE_PROPERTY = "gamescreen.fps";
+
 	private static final Sprite offlineIcon;
 
 	/**
@@ -171,6 +176,10 @@ public final class GameScreen extends JComponent implements IGameScreen, DropTar
 	 * Buffer for drawing the ground layers when the screen is scaled.
 	 */
 	private VolatileImage buffer;
+	/** Frame rate and frame time display. */
+	private final FrameRateOverlay frameRate = new FrameRateOverlay();
+	/** Flag for telling if the frame rate should be shown. */
+	private boolean showFrameRate;
 
 	static {
 		offlineIcon = SpriteStore.get().getSprite("data/gui/offline.png");
@@ -256,6 +265,14 @@ public final class GameScreen extends JComponent implements IGameScreen, DropTar
 		 */
 		setIgnoreRepaint(true);
 		client.getGameObjects().addGameObjectListener(this);
+
+		WtWindowManager.getInstance().registerSettingChangeListener(FRAME_RATE_PROPERTY,
+				new SettingChangeAdapter(FRAME_RATE_PROPERTY, "false") {
+			@Override
+			public void changed(String newValue) {
+				showFrameRate = Boolean.parseBoolean(newValue);
+			}
+		});
 	}
 
 	/**
@@ -536,6 +553,7 @@ public final class GameScreen extends JComponent implements IGameScreen, DropTar
 
 	@Override
 	public void paintComponent(final Graphics g) {
+		final long frameStart = System.nanoTime();
 		g.setColor(Color.BLACK);
 		g.fillRect(0, 0, getWidth(), getHeight());
 		if (StendhalClient.get().isInTransfer()) {
@@ -593,6 +611,12 @@ public final class GameScreen extends JComponent implements IGameScreen, DropTar
 
 		paintOffLineIfNeeded(g2d);
 
+		if (showFrameRate) {
+			final long now = System.nanoTime();
+			frameRate.frameDrawn(now, now - frameStart);
+			frameRate.draw(g2d);
+		}
+
 		// Ask window manager to not skip frame drawing
 		Toolkit.getDefaultToolkit().sync();
 
@@ -13,11 +13,19 @@
 package games.stendhal.client;
 
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 
+import games.stendhal.client.gui.TransparencyMode;
+import games.stendhal.client.sprite.EmptySprite;
 import games.stendhal.client.sprite.Sprite;
 import games.stendhal.client.sprite.Tileset;
 import games.stendhal.common.tiled.LayerDefinition;
@@ -29,12 +37,29 @@ import games.stendhal.common.tiled.LayerDefinition;
 class TileRenderer extends LayerRenderer {
 	/** the logger instance. */
 	private static final Logger logger = Logger.getLogger(TileRenderer.class);
+	/** Width and height of the pre-rendered chunks in world units. */
+	static final int CHUNK_SIZE = 16;
+	/**
+	 * Maximum number of cached chunks. The largest screen covers at most 9
+	 * chunks, so this leaves room for moving back and forth.
+	 */
+	private static final int MAX_CHUNKS = 18;
 	/** Tileset used for the map data */
 	protected Tileset tileset;
 	/** Raw map data. Indices of tiles in the tileset. */
 	protected int[] map;
 	/** The map data converted to tile references */
 	protected Sprite[] spriteMap;
+	/**
+	 * Pre-rendered chunks of the layer. The least recently used chunks are
+	 * dropped, when the view has moved away from them.
+	 */
+	private final Map<Integer, Chunk> chunks = new LinkedHashMap<Integer, Chunk>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, Chunk> eldest) {
+			return size() > MAX_CHUNKS;
+		}
+	};
 
 	public TileRenderer() {
 		map = null;
@@ -102,8 +127,35 @@ class TileRenderer extends LayerRenderer {
 		}
 
 		final int endX = Math.min(x + w, getWidth());
-		final int endY= Math.min(y + h, getHeight());
+		final int endY = Math.min(y + h, getHeight());
+		if ((x >= endX) || (y >= endY)) {
+			return;
+		}
+
+		if (!(g instanceof Graphics2D)) {
+			drawTiles(g, x, y, endX, endY);
+			return;
+		}
 
+		final int endChunkX = (endX - 1) / CHUNK_SIZE;
+		final int endChunkY = (endY - 1) / CHUNK_SIZE;
+		for (int cy = y / CHUNK_SIZE; cy <= endChunkY; cy++) {
+			for (int cx = x / CHUNK_SIZE; cx <= endChunkX; cx++) {
+				getChunk((Graphics2D) g, cx, cy).draw(g);
+			}
+		}
+	}
+
+	/**
+	 * Draw the tiles of an area one by one.
+	 *
+	 * @param g graphics
+	 * @param x left x coordinate in world units
+	 * @param y top y coordinate in world units
+	 * @param endX right x coordinate in world units (exclusive)
+	 * @param endY bottom y coordinate in world units (exclusive)
+	 */
+	private void drawTiles(Graphics g, int x, int y, int endX, int endY) {
 		int sy = y * IGameScreen.SIZE_UNIT_PIXELS;
 		for (int j = y; j < endY; j++) {
 			int mapidx = (j * width) + x;
@@ -117,4 +169,96 @@ class TileRenderer extends LayerRenderer {
 			sy += IGameScreen.SIZE_UNIT_PIXELS;
 		}
 	}
+
+	/**
+	 * Get a chunk, creating it if it is not in the cache.
+	 *
+	 * @param g graphics the chunk will be drawn to
+	 * @param cx x coordinate of the chunk
+	 * @param cy y coordinate of the chunk
+	 * @return chunk
+	 */
+	private Chunk getChunk(Graphics2D g, int cx, int cy) {
+		final Integer key = (cy * ((width + CHUNK_SIZE - 1) / CHUNK_SIZE)) + cx;
+		Chunk chunk = chunks.get(key);
+		if (chunk == null) {
+			chunk = new Chunk(g.getDeviceConfiguration(), cx * CHUNK_SIZE, cy * CHUNK_SIZE);
+			chunks.put(key, chunk);
+		}
+		return chunk;
+	}
+
+	/**
+	 * A block of tiles, whose constant tiles are pre-rendered to one image.
+	 * Animated tiles are drawn on every frame.
+	 */
+	private class Chunk {
+		/** Left x coordinate in world units. */
+		private final int x;
+		/** Top y coordinate in world units. */
+		private final int y;
+		/**
+		 * Image of the constant tiles, or <code>null</code> if all constant
+		 * tiles are empty.
+		 */
+		private final Image image;
+		/** Map indices of the tiles that need to be drawn on every frame. */
+		private final int[] animated;
+
+		/**
+		 * Create a new chunk.
+		 *
+		 * @param gc graphics configuration for the image
+		 * @param x left x coordinate in world units
+		 * @param y top y coordinate in world units
+		 */
+		Chunk(GraphicsConfiguration gc, int x, int y) {
+			this.x = x;
+			this.y = y;
+
+			final int endX = Math.min(x + CHUNK_SIZE, width);
+			final int endY = Math.min(y + CHUNK_SIZE, height);
+			int[] tmp = new int[CHUNK_SIZE * CHUNK_SIZE];
+			int numAnimated = 0;
+			Image img = null;
+			Graphics g = null;
+			for (int j = y; j < endY; j++) {
+				for (int i = x; i < endX; i++) {
+					final int mapidx = (j * width) + i;
+					final Sprite sprite = spriteMap[mapidx];
+					if (!sprite.isConstant()) {
+						tmp[numAnimated] = mapidx;
+						numAnimated++;
+					} else if (!(sprite instanceof EmptySprite)) {
+						if (img == null) {
+							img = gc.createCompatibleImage(CHUNK_SIZE * IGameScreen.SIZE_UNIT_PIXELS,
+									CHUNK_SIZE * IGameScreen.SIZE_UNIT_PIXELS, TransparencyMode.TRANSPARENCY);
+							g = img.getGraphics();
+						}
+						sprite.draw(g, (i - x) * IGameScreen.SIZE_UNIT_PIXELS, (j - y) * IGameScreen.SIZE_UNIT_PIXELS);
+					}
+				}
+			}
+			if (g != null) {
+				g.dispose();
+			}
+			image = img;
+			animated = Arrays.copyOf(tmp, numAnimated);
+		}
+
+		/**
+		 * Draw the chunk.
+		 *
+		 * @param g graphics
+		 */
+		void draw(Graphics g) {
+			if (image != null) {
+				g.drawImage(image, x * IGameScreen.SIZE_UNIT_PIXELS, y * IGameScreen.SIZE_UNIT_PIXELS, null);
+			}
+			for (int mapidx : animated) {
+				spriteMap[mapidx].draw(g, (mapidx % width) * IGameScreen.SIZE_UNIT_PIXELS,
+						(mapidx / width) * IGameScreen.SIZE_UNIT_PIXELS);
+			}
+		}
+	}
 }
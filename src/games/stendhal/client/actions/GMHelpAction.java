@@ -97,7 +97,9 @@ class GMHelpAction implements SlashAction {
 				"- /destroy <entity> \tDestroy an entity completely.",
 				"* MISC:",
 				"- /jailreport [<player>]",
-				"\t\tList the jailed players and their sentences.");
+				"\t\tList the jailed players and their sentences.",
+				"- /tickprofile [phase|zone|listener]",
+				"\t\tShow where the server has spent its turn time recently.");
 		} else if ((params.length == 1) && (params[0] != null)) {
 			if ("alter".equals(params[0])) {
 				lines = Arrays.asList(
@@ -170,6 +170,10 @@ class VisualSettings {
 										"Show creature speech bubbles", "Show creature speech bubbles in the client display");
 		page.add(showCreatureSpeechToggle);
 
+		JCheckBox frameRateToggle = SettingsComponentFactory.createSettingsToggle("gamescreen.fps", false,
+				"Show frame rate", "Show the frame rate and the time used for drawing a frame");
+		page.add(frameRateToggle);
+
 		final JCheckBox scaleScreenToggle = SettingsComponentFactory.createSettingsToggle(SCALE_SCREEN_PROPERTY,
 				true, "Scale view to fit window", "<html>If selected, the game view will scale to fit the available space,<br>otherwise the default sized graphics are used.</html>");
 		page.add(scaleScreenToggle);
@@ -160,6 +160,19 @@ public class CompositeSprite implements Sprite {
 		}
 	}
 
+	@Override
+	public boolean isConstant() {
+		if (!composited) {
+			composite();
+		}
+		for (int i = 0; i < slaves.size(); i++) {
+			if (!slaves.get(i).isConstant()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	@Override
 	public int getHeight() {
 		return slaves.get(0).getHeight();
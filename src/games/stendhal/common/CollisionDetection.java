@@ -28,6 +28,9 @@ public class CollisionDetection {
 
 	private int height;
 
+	/** Counter that changes every time the collision data is modified. */
+	private int version;
+
 	/**
 	 * Clear the collision map.
 	 */
@@ -52,6 +55,7 @@ public class CollisionDetection {
 
 		this.width = width;
 		this.height = height;
+		version++;
 
 		clear();
 	}
@@ -67,6 +71,7 @@ public class CollisionDetection {
 			return;
 		}
 		map.set(x, y);
+		version++;
 	}
 
 	/**
@@ -90,6 +95,7 @@ public class CollisionDetection {
 				}
 			}
 		}
+		version++;
 	}
 
 	/**
@@ -211,4 +217,15 @@ public class CollisionDetection {
 	public int getHeight() {
 		return height;
 	}
+
+	/**
+	 * Get the modification counter of the collision data. Data derived from
+	 * the collision map can compare it to find out if it needs to be
+	 * recalculated.
+	 *
+	 * @return a value that changes whenever the collision data changes
+	 */
+	public int getVersion() {
+		return version;
+	}
 }
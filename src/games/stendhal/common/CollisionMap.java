@@ -15,24 +15,47 @@ package games.stendhal.common;
 
 
 import java.awt.geom.Rectangle2D;
-import java.util.BitSet;
+import java.util.Arrays;
 
 import games.stendhal.common.tiled.LayerDefinition;
 
+/**
+ * A binary collision map. The tiles are stored as a packed row major bitmap,
+ * so that testing a rectangle needs only a few word operations and no
+ * allocations. Large rectangles are answered from a summed area table, that
+ * is built when it is needed for the first time after the map has changed.
+ * <p>
+ * Like the earlier BitSet based map, tiles set below the bottom of the map
+ * are ignored, as they can never collide.
+ */
 public class CollisionMap {
+	/** Rectangles with more rows than this are checked with the summed area table. */
+	private static final int MAX_DIRECT_ROWS = 4;
 
 	private final int width;
 	private final int height;
-	private final BitSet[] colls;
+	/** Number of long words in a row. */
+	private final int rowWords;
+	/** Collision bits, row by row. */
+	private final long[] bits;
+	/**
+	 * Number of modifications of the map. A summed area table is valid only
+	 * for the count it was built at, so that a change made while the table is
+	 * being built is not lost.
+	 */
+	private volatile int modCount;
+	/**
+	 * The last built summed area table, or <code>null</code>. Volatile, so
+	 * that zone logic running on other threads never sees a partly built
+	 * table.
+	 */
+	private volatile SumTable sums;
 
 	public CollisionMap(final int width, final int height) {
 		this.width = width;
 		this.height = height;
-		colls = new BitSet[width];
-		for (int i = 0; i < width; i++) {
-			colls[i] = new BitSet();
-		}
-
+		rowWords = (width + 63) >>> 6;
+		bits = new long[rowWords * height];
 	}
 
 	public CollisionMap(final LayerDefinition layer) {
@@ -55,15 +78,25 @@ public class CollisionMap {
 	}
 
 	public boolean get(final int i, final int j) {
-		return colls[i].get(j);
+		if ((j < 0) || (j >= height)) {
+			return false;
+		}
+		return (bits[index(i, j)] & (1L << i)) != 0;
 	}
 
 	public void set(final int i, final int j) {
-
-		colls[i].set(j);
+		if (j >= height) {
+			return;
+		}
+		bits[index(i, j)] |= 1L << i;
+		modCount++;
 	}
 
 	public boolean collides(final int x, final int y, final int width, final int height) {
+		if ((width <= 0) || (height <= 0)) {
+			return false;
+		}
+
 		if (x < 0 || x - 1 + width >= this.width) {
 			return true;
 		}
@@ -72,19 +105,81 @@ public class CollisionMap {
 			return true;
 		}
 
-		final BitSet result = new BitSet();
-		for (int i = x; i < x + width; i++) {
-			result.or(colls[i]);
+		if (height > MAX_DIRECT_ROWS) {
+			return countCollisions(x, y, width, height) != 0;
 		}
 
-		return !result.get(y, y + height).isEmpty();
+		final int firstWord = x >>> 6;
+		final int lastWord = (x + width - 1) >>> 6;
+		// bits from x to the end of the first word, and from the start of
+		// the last word to x + width - 1
+		final long firstMask = -1L << x;
+		final long lastMask = -1L >>> (63 - ((x + width - 1) & 63));
+		for (int row = y; row < y + height; row++) {
+			final int offset = row * rowWords;
+			if (firstWord == lastWord) {
+				if ((bits[offset + firstWord] & firstMask & lastMask) != 0) {
+					return true;
+				}
+			} else {
+				if ((bits[offset + firstWord] & firstMask) != 0) {
+					return true;
+				}
+				for (int word = firstWord + 1; word < lastWord; word++) {
+					if (bits[offset + word] != 0) {
+						return true;
+					}
+				}
+				if ((bits[offset + lastWord] & lastMask) != 0) {
+					return true;
+				}
+			}
+		}
+
+		return false;
 	}
 
-	public void clear() {
-		for (int i = 0; i < this.width; i++) {
-			colls[i].clear();
+	/**
+	 * Count the collision tiles within a rectangle that is inside the map.
+	 *
+	 * @param x left edge
+	 * @param y top edge
+	 * @param width width of the rectangle
+	 * @param height height of the rectangle
+	 * @return number of collision tiles
+	 */
+	private int countCollisions(final int x, final int y, final int width, final int height) {
+		final int count = modCount;
+		SumTable current = sums;
+		if ((current == null) || (current.modCount != count)) {
+			current = new SumTable(buildSums(), count);
+			sums = current;
 		}
+		final int[] table = current.table;
+		final int stride = this.width + 1;
+		final int top = y * stride;
+		final int bottom = (y + height) * stride;
+		return table[bottom + x + width] - table[bottom + x] - table[top + x + width] + table[top + x];
+	}
 
+	private int[] buildSums() {
+		final int stride = width + 1;
+		final int[] table = new int[stride * (height + 1)];
+		for (int y = 0; y < height; y++) {
+			int rowSum = 0;
+			for (int x = 0; x < width; x++) {
+				if (get(x, y)) {
+					rowSum++;
+				}
+				table[(y + 1) * stride + x + 1] = table[y * stride + x + 1] + rowSum;
+			}
+		}
+		return table;
+	}
+
+	public void clear() {
+		Arrays.fill(bits, 0L);
+		modCount++;
 	}
 	public static CollisionMap create(final LayerDefinition layer) {
 
@@ -101,17 +196,50 @@ public class CollisionMap {
 	}
 
 	public void unset(final int i, final int k) {
-		colls[i].clear(k);
-
+		if (k >= height) {
+			return;
+		}
+		bits[index(i, k)] &= ~(1L << i);
+		modCount++;
 	}
 
 	public void set(final Rectangle2D shape) {
 		int y = (int) shape.getY();
+		final int endY = Math.min((int) (y + shape.getHeight()), height);
 		for (int x = (int) shape.getX(); x < shape.getX() + shape.getWidth(); x++) {
-
-			colls[x].set(y, (int) (y + shape.getHeight()));
+			for (int row = y; row < endY; row++) {
+				set(x, row);
+			}
 		}
 
 	}
 
+	/**
+	 * Get the index of the word containing a tile.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return index in the bitmap
+	 */
+	private int index(final int x, final int y) {
+		if ((x < 0) || (x >= width)) {
+			throw new IndexOutOfBoundsException("x=" + x + " outside width " + width);
+		}
+		return y * rowWords + (x >>> 6);
+	}
+
+	/**
+	 * A summed area table, and the modification count of the map it was built
+	 * for. <code>table[y * (width + 1) + x]</code> is the number of collision
+	 * tiles above and left of (x, y).
+	 */
+	private static final class SumTable {
+		private final int[] table;
+		private final int modCount;
+
+		SumTable(final int[] table, final int modCount) {
+			this.table = table;
+			this.modCount = modCount;
+		}
+	}
 }
@@ -12,6 +12,7 @@
  ***************************************************************************/
 package games.stendhal.common.tiled;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -69,6 +70,9 @@ public class LayerDefinition implements Serializable {
 	 */
 	private byte[] raw;
 
+	/** The compressed serialization of the layer, once it has been encoded. */
+	private byte[] encoded;
+
 	/**
 	 * Constructor.
 	 *
@@ -120,6 +124,8 @@ public class LayerDefinition implements Serializable {
 	 * @return the allocated raw array so it can be modified.
 	 */
 	public byte[] exposeRaw() {
+		// the caller may change the data
+		encoded = null;
 		return raw;
 	}
 
@@ -149,6 +155,7 @@ public class LayerDefinition implements Serializable {
 		raw[3 + offset] = (byte) ((tileId >>> 24) & 0xFF);
 
 		data[y * width + x] = tileId;
+		encoded = null;
 	}
 
 	/**
@@ -165,19 +172,24 @@ public class LayerDefinition implements Serializable {
 	}
 
 	/**
+	 * Encodes the layer. The result is kept until the layer is modified, so
+	 * that encoding the same layer again is free.
 	 *
 	 * @return the encode byte array
 	 * @throws IOException
 	 */
 	public byte[] encode() throws IOException {
-		final ByteArrayOutputStream array = new ByteArrayOutputStream();
-		final DeflaterOutputStream out_stream = new DeflaterOutputStream(array);
-		final OutputSerializer out = new OutputSerializer(out_stream);
+		if (encoded == null) {
+			final ByteArrayOutputStream array = new ByteArrayOutputStream();
+			final DeflaterOutputStream out_stream = new DeflaterOutputStream(array);
+			final OutputSerializer out = new OutputSerializer(out_stream);
 
-		writeObject(out);
-		out_stream.close();
+			writeObject(out);
+			out_stream.close();
 
-		return array.toByteArray();
+			encoded = array.toByteArray();
+		}
+		return encoded;
 	}
 
 	/**
@@ -201,6 +213,23 @@ public class LayerDefinition implements Serializable {
 		return layer;
 	}
 
+	/**
+	 * Deserializes a layer definition from the result of {@link #encode()}.
+	 * The encoded data is kept, so that the layer does not need to be encoded
+	 * again.
+	 *
+	 * @param data encoded layer
+	 * @return an instance of a layer definition
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	public static LayerDefinition decode(final byte[] data) throws IOException,
+			ClassNotFoundException {
+		final LayerDefinition layer = decode(new ByteArrayInputStream(data));
+		layer.encoded = data;
+		return layer;
+	}
+
 	/**
 	 * Returns the width of the layer.
 	 *
@@ -268,6 +297,7 @@ public class LayerDefinition implements Serializable {
 		width = in.readInt();
 		height = in.readInt();
 		raw = in.readByteArray();
+		encoded = null;
 	}
 
 	@Override
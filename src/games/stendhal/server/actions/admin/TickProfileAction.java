@@ -0,0 +1,48 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.actions.admin;
+
+import static games.stendhal.common.constants.Actions.TARGET;
+
+import java.util.Arrays;
+
+import games.stendhal.server.actions.CommandCenter;
+import games.stendhal.server.core.engine.TickProfiler;
+import games.stendhal.server.entity.player.Player;
+import marauroa.common.game.RPAction;
+
+/**
+ * Shows where the server has spent its turn time since the last tick
+ * profile summary.
+ */
+public class TickProfileAction extends AdministrationAction {
+	private static final String TICKPROFILE = "tickprofile";
+	/** Number of contributors listed per category. */
+	private static final int SIZE = 10;
+
+	public static void register() {
+		CommandCenter.register(TICKPROFILE, new TickProfileAction(), 500);
+	}
+
+	@Override
+	protected void perform(final Player player, final RPAction action) {
+		final String category = action.get(TARGET);
+		if ((category != null) && !Arrays.asList(TickProfiler.PHASES, TickProfiler.ZONES,
+				TickProfiler.LISTENERS).contains(category)) {
+			player.sendPrivateText("Usage: /tickprofile [" + TickProfiler.PHASES + "|"
+					+ TickProfiler.ZONES + "|" + TickProfiler.LISTENERS + "]");
+			return;
+		}
+
+		player.sendPrivateText(TickProfiler.get().getSummary(category, SIZE));
+	}
+}
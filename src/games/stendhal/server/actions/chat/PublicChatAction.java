@@ -44,6 +44,9 @@ public class PublicChatAction implements ActionListener {
 
 		player.notifyWorldAboutChanges();
 		SingletonRepository.getRuleProcessor().removePlayerText(player);
+		if (player.getZone() != null) {
+			player.getZone().notifySpeech(player);
+		}
 	}
 
 	/**
@@ -18,12 +18,15 @@ package games.stendhal.server.core.config;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.log4j.Logger;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
+import games.stendhal.server.core.config.zone.ZoneMapLoader;
+
 /**
  * Load and configure zones via an XML configuration file.
  */
@@ -46,7 +49,9 @@ public class ZoneGroupsXMLLoader extends DefaultHandler {
 	}
 
 	/**
-	 * Load zones into a world.
+	 * Load zones into a world. The maps of all zones are loaded in parallel,
+	 * while the zones are created and added to the world one after another in
+	 * the order of the configuration files.
 	 *
 	 * @throws SAXException
 	 *             If a SAX error occurred.
@@ -54,22 +59,41 @@ public class ZoneGroupsXMLLoader extends DefaultHandler {
 	 *             If an I/O error occurred.
 	 */
 	public void load() throws SAXException, IOException {
+		final long start = System.currentTimeMillis();
 		final GroupsXMLLoader groupsLoader = new GroupsXMLLoader(uri);
 		final List<URI> zoneGroups = groupsLoader.load();
 
-		// Load each group
-		for (final URI tempUri : zoneGroups) {
-			LOGGER.debug("Loading zone group [" + tempUri + "]");
+		final ZoneMapLoader maps = ZoneMapLoader.create();
+		try {
+			// Read each group, and start loading the maps
+			final List<ZonesXMLLoader> groups = new ArrayList<ZonesXMLLoader>();
+			for (final URI tempUri : zoneGroups) {
+				LOGGER.debug("Loading zone group [" + tempUri + "]");
+
+				final ZonesXMLLoader loader = new ZonesXMLLoader(tempUri);
 
-			final ZonesXMLLoader loader = new ZonesXMLLoader(tempUri);
+				try {
+					loader.prepare(maps);
+					groups.add(loader);
+				} catch (final SAXException ex) {
+					LOGGER.error("Error loading zone group: " + tempUri, ex);
+				} catch (final IOException ex) {
+					LOGGER.error("Error loading zone group: " + tempUri, ex);
+				}
+			}
+			final long prepared = System.currentTimeMillis();
 
-			try {
-				loader.load();
-			} catch (final SAXException ex) {
-				LOGGER.error("Error loading zone group: " + tempUri, ex);
-			} catch (final IOException ex) {
-				LOGGER.error("Error loading zone group: " + tempUri, ex);
+			// Create the zones in order
+			for (final ZonesXMLLoader loader : groups) {
+				loader.register();
 			}
+			final long end = System.currentTimeMillis();
+
+			LOGGER.info("Loaded zones in " + (end - start) + " ms: reading zone groups "
+					+ (prepared - start) + " ms, creating zones " + (end - prepared) + " ms");
+			LOGGER.info("Loaded zone maps: " + maps.getStatistics());
+		} finally {
+			maps.shutdown();
 		}
 	}
 }
@@ -23,6 +23,7 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -43,7 +44,7 @@ import games.stendhal.server.core.config.zone.PortalSetupXMLReader;
 import games.stendhal.server.core.config.zone.RegionNameSubstitutionHelper;
 import games.stendhal.server.core.config.zone.SetupDescriptor;
 import games.stendhal.server.core.config.zone.SetupXMLReader;
-import games.stendhal.server.core.config.zone.TMXLoader;
+import games.stendhal.server.core.config.zone.ZoneMapLoader;
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPWorld;
 import games.stendhal.server.core.engine.StendhalRPZone;
@@ -80,6 +81,16 @@ public final class ZonesXMLLoader {
 	 */
 	private final URI uri;
 
+	/**
+	 * Zones whose maps are being loaded.
+	 */
+	private List<ZoneDesc> pending = Collections.emptyList();
+
+	/**
+	 * Loader of the maps of the pending zones.
+	 */
+	private ZoneMapLoader maps;
+
 	/**
 	 * Create an XML based loader of zones.
 	 * @param uri the zone group file
@@ -103,6 +114,29 @@ public final class ZonesXMLLoader {
 	 *             If the resource was not found.
 	 */
 	public void load() throws SAXException, IOException {
+		final ZoneMapLoader maps = ZoneMapLoader.create();
+		try {
+			prepare(maps);
+			register();
+		} finally {
+			maps.shutdown();
+		}
+	}
+
+	/**
+	 * Reads the zone group file, and starts loading the maps of its zones.
+	 * The zones are created by {@link #register()}.
+	 *
+	 * @param maps loader for the maps
+	 *
+	 * @throws SAXException
+	 *             If a SAX error occurred.
+	 * @throws IOException
+	 *             If an I/O error occurred.
+	 * @throws FileNotFoundException
+	 *             If the resource was not found.
+	 */
+	void prepare(final ZoneMapLoader maps) throws SAXException, IOException {
 		final InputStream in = ZonesXMLLoader.class.getResourceAsStream(uri.getPath());
 
 		if (in == null) {
@@ -110,24 +144,29 @@ public final class ZonesXMLLoader {
 		}
 
 		try {
-			load(in);
+			pending = prepare(in, maps);
+			this.maps = maps;
 		} finally {
 			in.close();
 		}
 	}
 
 	/**
-	 * Loads a group of zones into a world using a config file.
+	 * Reads a group of zones from a config file, and starts loading the maps
+	 * of the zones.
 	 *
 	 * @param in
 	 *            The config file stream.
+	 * @param maps
+	 *            loader for the maps
+	 * @return zones in the order of the config file
 	 *
 	 * @throws SAXException
 	 *             If a SAX error occurred.
 	 * @throws IOException
 	 *             If an I/O error occurred.
 	 */
-	protected void load(final InputStream in) throws SAXException, IOException {
+	private List<ZoneDesc> prepare(final InputStream in, final ZoneMapLoader maps) throws SAXException, IOException {
 		final Document doc = XMLUtil.parse(in);
 
 		// just to speed up starting of the server in while developing
@@ -137,9 +176,7 @@ public final class ZonesXMLLoader {
 		// if there is a problem with the zone
 		final String regex = System.getProperty("stendhal.zone.regex", ".*");
 
-		/*
-		 * Load each zone
-		 */
+		final List<ZoneDesc> zones = new ArrayList<ZoneDesc>();
 		for (final Element element : XMLUtil.getElements(doc.getDocumentElement(), "zone")) {
 			final ZoneDesc zdesc = readZone(element);
 
@@ -152,11 +189,27 @@ public final class ZonesXMLLoader {
 				continue;
 			}
 
+			maps.add(StendhalRPWorld.MAPS_FOLDER + zdesc.getFile());
+			zones.add(zdesc);
+		}
+		return zones;
+	}
+
+	/**
+	 * Creates and sets up the zones read by {@link #prepare(ZoneMapLoader)},
+	 * when their maps have been loaded. The zones are added to the world in
+	 * the order of the zone group file.
+	 */
+	void register() {
+		final List<ZoneDesc> zones = pending;
+		pending = Collections.emptyList();
+		for (final ZoneDesc zdesc : zones) {
+			final String name = zdesc.getName();
 			logger.info("Loading zone: " + name);
 
 			try {
-				final StendhalMapStructure zonedata = TMXLoader.load(StendhalRPWorld.MAPS_FOLDER
-						+ zdesc.getFile());
+				// maps must be taken in the order they were added
+				final StendhalMapStructure zonedata = maps.take();
 
 				if (verifyMap(zdesc, zonedata)) {
 					final StendhalRPZone zone = load(zdesc, zonedata);
@@ -14,6 +14,7 @@ package games.stendhal.server.core.config.zone;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -250,10 +251,40 @@ public class TMXLoader {
 	}
 
 	public StendhalMapStructure readMap(final String filename) throws Exception {
+		return readMap(filename, open(filename));
+	}
+
+	/**
+	 * Reads a map from a stream.
+	 *
+	 * @param filename name of the map file
+	 * @param in contents of the map file
+	 * @return map
+	 * @throws Exception if the map could not be read
+	 */
+	StendhalMapStructure readMap(final String filename, final InputStream in) throws Exception {
 		xmlPath = filename.substring(0,
 				filename.lastIndexOf(File.separatorChar) + 1);
 
-		InputStream is = getClass().getClassLoader().getResourceAsStream(
+		InputStream is = in;
+
+		// Wrap with GZIP decoder for .tmx.gz files
+		if (filename.endsWith(".gz")) {
+			is = new GZIPInputStream(is);
+		}
+
+		return unmarshal(is);
+	}
+
+	/**
+	 * Opens a map file, either from the class path or from a file or URL.
+	 *
+	 * @param filename name of the map file
+	 * @return stream of the map file
+	 * @throws IOException if the file could not be opened
+	 */
+	static InputStream open(final String filename) throws IOException {
+		final InputStream is = TMXLoader.class.getClassLoader().getResourceAsStream(
 				filename);
 
 		if (is == null) {
@@ -261,15 +292,10 @@ public class TMXLoader {
 			// xmlPath = makeUrl(xmlPath);
 
 			final URL url = new URL(xmlFile);
-			is = url.openStream();
+			return url.openStream();
 		}
 
-		// Wrap with GZIP decoder for .tmx.gz files
-		if (filename.endsWith(".gz")) {
-			is = new GZIPInputStream(is);
-		}
-
-		return unmarshal(is);
+		return is;
 	}
 
 	public static void main(final String[] args) throws Exception {
@@ -0,0 +1,395 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.config.zone;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.common.tiled.LayerDefinition;
+import games.stendhal.common.tiled.StendhalMapStructure;
+import games.stendhal.common.tiled.TileSetDefinition;
+import marauroa.common.Configuration;
+import marauroa.common.crypto.Hash;
+import marauroa.common.net.InputSerializer;
+import marauroa.common.net.OutputSerializer;
+
+/**
+ * Loads the map files of zones in background threads. The layers of the maps
+ * are encoded for the clients right away, so that adding them to the zones
+ * is cheap.
+ * <p>
+ * If a cache directory is configured, the loaded maps are stored there in
+ * their encoded form, keyed by the hash of the map file. Unchanged maps are
+ * read from the cache on the next start instead of parsing and encoding the
+ * map file again.
+ */
+public final class ZoneMapLoader {
+	private static final Logger logger = Logger.getLogger(ZoneMapLoader.class);
+
+	/**
+	 * Version of the cache files. It must be increased when the format of
+	 * the cache files or of the encoded layers changes.
+	 */
+	static final int CACHE_VERSION = 1;
+
+	/** Marks the start of a cache file. */
+	private static final int CACHE_MAGIC = 0x53544d43;
+
+	private final ExecutorService executor;
+
+	/** Directory of the cache files, or <code>null</code> if there is no cache. */
+	private final File cacheDirectory;
+
+	/**
+	 * Maximum number of maps loading or waiting to be taken. The loaded maps
+	 * contain the decoded layers too, so keeping all of them in memory at
+	 * once would need a lot of memory.
+	 */
+	private final int window;
+	/** Names of the queued map files. */
+	private final List<String> queued = new ArrayList<String>();
+	/** Index of the next queued map file, that has not been started. */
+	private int nextQueued;
+	/** Started maps in the order they were queued. */
+	private final Queue<Future<StendhalMapStructure>> running = new ArrayDeque<Future<StendhalMapStructure>>();
+
+	/** Time spent reading map files, in nanoseconds summed over all threads. */
+	private final AtomicLong readTime = new AtomicLong();
+	/** Time spent parsing map files. */
+	private final AtomicLong parseTime = new AtomicLong();
+	/** Time spent encoding layers. */
+	private final AtomicLong encodeTime = new AtomicLong();
+	/** Time spent reading and writing cache files. */
+	private final AtomicLong cacheTime = new AtomicLong();
+	/** Number of loaded maps. */
+	private final AtomicInteger maps = new AtomicInteger();
+	/** Number of maps read from the cache. */
+	private final AtomicInteger cacheHits = new AtomicInteger();
+
+	/**
+	 * Creates a new ZoneMapLoader.
+	 *
+	 * @param threads number of threads loading maps
+	 * @param cacheDirectory directory for cache files, or <code>null</code> to not use a cache
+	 */
+	public ZoneMapLoader(final int threads, final File cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+		window = 4 * Math.max(1, threads);
+		executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "ZoneMapLoader-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Creates a ZoneMapLoader configured by server.ini. The number of threads
+	 * is read from zone_loader_threads and defaults to the number of
+	 * processors. The cache directory is read from zone_cache_dir. Without
+	 * it, no cache is used.
+	 *
+	 * @return ZoneMapLoader
+	 */
+	public static ZoneMapLoader create() {
+		int threads = Runtime.getRuntime().availableProcessors();
+		File cacheDirectory = null;
+		try {
+			final Configuration config = Configuration.getConfiguration();
+			threads = config.getInt("zone_loader_threads", threads);
+			if (config.has("zone_cache_dir")) {
+				cacheDirectory = new File(config.get("zone_cache_dir"));
+			}
+		} catch (final IOException e) {
+			logger.error(e, e);
+		}
+
+		if ((cacheDirectory != null) && !cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+			logger.warn("Cannot create zone cache directory " + cacheDirectory + ", not using a cache");
+			cacheDirectory = null;
+		}
+		return new ZoneMapLoader(threads, cacheDirectory);
+	}
+
+	/**
+	 * Queues a map file for loading. The maps are returned by {@link #take()}
+	 * in the order they were queued.
+	 *
+	 * @param filename name of the map file
+	 */
+	public synchronized void add(final String filename) {
+		queued.add(filename);
+		fill();
+	}
+
+	/**
+	 * Gets the next queued map, waiting for it to be loaded if needed.
+	 *
+	 * @return the map with encoded layers
+	 * @throws Exception if the map could not be loaded
+	 */
+	public StendhalMapStructure take() throws Exception {
+		final Future<StendhalMapStructure> next;
+		synchronized (this) {
+			next = running.poll();
+			fill();
+		}
+		if (next == null) {
+			throw new IllegalStateException("No map queued");
+		}
+
+		try {
+			return next.get();
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Starts loading queued maps, until the number of loaded maps waiting to
+	 * be taken reaches the limit.
+	 */
+	private void fill() {
+		while ((running.size() < window) && (nextQueued < queued.size())) {
+			final String filename = queued.get(nextQueued);
+			queued.set(nextQueued, null);
+			nextQueued++;
+			running.add(executor.submit(new Callable<StendhalMapStructure>() {
+				@Override
+				public StendhalMapStructure call() throws Exception {
+					return load(filename);
+				}
+			}));
+		}
+	}
+
+	/**
+	 * Loads a map file, and encodes its layers.
+	 *
+	 * @param filename name of the map file
+	 * @return map
+	 * @throws Exception if the map could not be loaded
+	 */
+	StendhalMapStructure load(final String filename) throws Exception {
+		long start = System.nanoTime();
+		final byte[] data = read(filename);
+		long now = System.nanoTime();
+		readTime.addAndGet(now - start);
+		maps.incrementAndGet();
+
+		File cacheFile = null;
+		if (cacheDirectory != null) {
+			start = now;
+			cacheFile = new File(cacheDirectory, Hash.toHexString(hash(data)) + ".map");
+			final StendhalMapStructure map = readCache(cacheFile);
+			now = System.nanoTime();
+			cacheTime.addAndGet(now - start);
+			if (map != null) {
+				cacheHits.incrementAndGet();
+				return map;
+			}
+		}
+
+		start = now;
+		final StendhalMapStructure map = new TMXLoader().readMap(filename, new ByteArrayInputStream(data));
+		now = System.nanoTime();
+		parseTime.addAndGet(now - start);
+
+		start = now;
+		for (final LayerDefinition layer : map.getLayers()) {
+			layer.encode();
+		}
+		now = System.nanoTime();
+		encodeTime.addAndGet(now - start);
+
+		if (cacheFile != null) {
+			start = now;
+			writeCache(cacheFile, map);
+			cacheTime.addAndGet(System.nanoTime() - start);
+		}
+		return map;
+	}
+
+	private static byte[] read(final String filename) throws IOException {
+		final InputStream in = TMXLoader.open(filename);
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[8192];
+			int count;
+			while ((count = in.read(buffer)) != -1) {
+				out.write(buffer, 0, count);
+			}
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+
+	private static byte[] hash(final byte[] data) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(data);
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Reads a map from a cache file.
+	 *
+	 * @param file cache file
+	 * @return map, or <code>null</code> if the file does not exist or is not usable
+	 */
+	private static StendhalMapStructure readCache(final File file) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			final InputStream stream = new BufferedInputStream(new FileInputStream(file));
+			try {
+				final InputSerializer in = new InputSerializer(stream);
+				if ((in.readInt() != CACHE_MAGIC) || (in.readInt() != CACHE_VERSION)) {
+					return null;
+				}
+				final StendhalMapStructure map = new StendhalMapStructure(in.readInt(), in.readInt());
+				final int tilesets = in.readInt();
+				for (int i = 0; i < tilesets; i++) {
+					map.addTileset((TileSetDefinition) in.readObject(new TileSetDefinition(null, null, 0)));
+				}
+				final int layers = in.readInt();
+				for (int i = 0; i < layers; i++) {
+					map.addLayer(LayerDefinition.decode(in.readByteArray()));
+				}
+				return map;
+			} finally {
+				stream.close();
+			}
+		} catch (final IOException e) {
+			logger.warn("Ignoring zone cache file " + file + ": " + e);
+		} catch (final ClassNotFoundException e) {
+			logger.warn("Ignoring zone cache file " + file + ": " + e);
+		}
+		return null;
+	}
+
+	/**
+	 * Writes a map to a cache file. The file is written under a temporary
+	 * name first, so that other servers sharing the directory never see an
+	 * incomplete file.
+	 *
+	 * @param file cache file
+	 * @param map map with encoded layers
+	 */
+	private static void writeCache(final File file, final StendhalMapStructure map) {
+		File temp = null;
+		try {
+			temp = File.createTempFile("zone", ".tmp", file.getParentFile());
+			final OutputStream stream = new BufferedOutputStream(new FileOutputStream(temp));
+			try {
+				final OutputSerializer out = new OutputSerializer(stream);
+				out.write(CACHE_MAGIC);
+				out.write(CACHE_VERSION);
+				out.write(map.getWidth());
+				out.write(map.getHeight());
+				out.write(map.getTilesets().size());
+				for (final TileSetDefinition set : map.getTilesets()) {
+					set.writeObject(out);
+				}
+				out.write(map.getLayers().size());
+				for (final LayerDefinition layer : map.getLayers()) {
+					out.write(layer.encode());
+				}
+			} finally {
+				stream.close();
+			}
+			// some systems do not replace existing files, like outdated ones
+			if (temp.renameTo(file) || (file.delete() && temp.renameTo(file))) {
+				temp = null;
+			}
+		} catch (final IOException e) {
+			logger.warn("Cannot write zone cache file " + file + ": " + e);
+		} finally {
+			if ((temp != null) && !temp.delete()) {
+				temp.deleteOnExit();
+			}
+		}
+	}
+
+	/**
+	 * Stops the loader threads, after all started maps have been loaded.
+	 * Queued maps that have not been started are not loaded.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Gets a summary of the time spent in each stage of loading the maps.
+	 *
+	 * @return summary
+	 */
+	public String getStatistics() {
+		return maps.get() + " maps (" + cacheHits.get() + " from cache): read "
+				+ toMillis(readTime) + " ms, parse " + toMillis(parseTime)
+				+ " ms, encode " + toMillis(encodeTime) + " ms, cache "
+				+ toMillis(cacheTime) + " ms (summed over all threads)";
+	}
+
+	/**
+	 * Gets the number of maps read from the cache.
+	 *
+	 * @return number of maps
+	 */
+	int getCacheHits() {
+		return cacheHits.get();
+	}
+
+	private static long toMillis(final AtomicLong nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos.get());
+	}
+}
@@ -0,0 +1,176 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import games.stendhal.server.entity.RPEntity;
+import games.stendhal.server.entity.creature.Creature;
+
+/**
+ * Keeps track of the sleeping creatures of a zone.
+ * <p>
+ * A creature that has nothing to do, and no enemies within its aggro range,
+ * falls asleep and is skipped by the zone logic. Instead of the creatures
+ * searching for enemies every turn, the zone reports the movements of the
+ * players and their friends here, and the creatures that get an enemy within
+ * range are woken up. Creatures wake up also when they are attacked or
+ * damaged.
+ * <p>
+ * The creatures are kept in a grid of cells by their upper left corner, so
+ * that a movement needs to check only the creatures of the cells within the
+ * largest aggro range.
+ */
+final class AggroTracker {
+	/** Width and height of a cell in tiles. */
+	static final int CELL_SIZE = 16;
+
+	/** Sleeping creatures, keyed by the packed cell coordinates. */
+	private final Map<Long, List<Creature>> cells = new HashMap<Long, List<Creature>>();
+	/** The cell of each sleeping creature. */
+	private final Map<Creature, Long> cellOf = new IdentityHashMap<Creature, Long>();
+	/** Largest aggro range of the creatures added since the tracker was last empty. */
+	private int maxRange;
+	/** Largest width or height of the creatures added since the tracker was last empty. */
+	private int maxSize;
+
+	/**
+	 * Add a creature that fell asleep.
+	 *
+	 * @param creature creature
+	 */
+	void add(final Creature creature) {
+		if (cellOf.containsKey(creature)) {
+			return;
+		}
+		maxRange = Math.max(maxRange, creature.getAggroRange());
+		maxSize = Math.max(maxSize, (int) Math.ceil(Math.max(creature.getWidth(), creature.getHeight())));
+		put(creature);
+	}
+
+	/**
+	 * Remove a creature that woke up.
+	 *
+	 * @param creature creature
+	 */
+	void remove(final Creature creature) {
+		final Long key = cellOf.remove(creature);
+		if (key == null) {
+			return;
+		}
+		final List<Creature> list = cells.get(key);
+		list.remove(creature);
+		if (list.isEmpty()) {
+			cells.remove(key);
+		}
+		if (cellOf.isEmpty()) {
+			maxRange = 0;
+			maxSize = 0;
+		}
+	}
+
+	/**
+	 * Called when a sleeping creature has been moved, to keep it in the
+	 * right cell.
+	 *
+	 * @param creature creature
+	 */
+	void onCreatureMoved(final Creature creature) {
+		final Long key = cellOf.get(creature);
+		if ((key != null) && !key.equals(key(creature.getX(), creature.getY()))) {
+			final List<Creature> list = cells.get(key);
+			list.remove(creature);
+			if (list.isEmpty()) {
+				cells.remove(key);
+			}
+			put(creature);
+		}
+	}
+
+	/**
+	 * Get the number of sleeping creatures.
+	 *
+	 * @return number of creatures
+	 */
+	int size() {
+		return cellOf.size();
+	}
+
+	/**
+	 * Called when a player, or a friend of players, enters the zone, moves or
+	 * becomes visible to creatures.
+	 *
+	 * @param entity player or a friend of players
+	 */
+	void onMoved(final RPEntity entity) {
+		if (cellOf.isEmpty() || entity.isInvisibleToCreatures()) {
+			return;
+		}
+		/*
+		 * A creature within the range of the entity has its upper left corner
+		 * at most maxRange + maxSize tiles to the left of, or above the
+		 * entity, and at most maxRange tiles to the right of, or below it.
+		 */
+		final Rectangle2D area = entity.getArea();
+		final int minX = cell((int) Math.floor(area.getMinX()) - maxRange - maxSize);
+		final int minY = cell((int) Math.floor(area.getMinY()) - maxRange - maxSize);
+		final int maxX = cell((int) Math.ceil(area.getMaxX()) + maxRange);
+		final int maxY = cell((int) Math.ceil(area.getMaxY()) + maxRange);
+
+		List<Creature> awakened = null;
+		for (int cx = minX; cx <= maxX; cx++) {
+			for (int cy = minY; cy <= maxY; cy++) {
+				final List<Creature> list = cells.get(ZoneIndex.key(cx, cy));
+				if (list == null) {
+					continue;
+				}
+				for (final Creature creature : list) {
+					if (creature.isAggroCandidate(entity)) {
+						if (awakened == null) {
+							awakened = new ArrayList<Creature>();
+						}
+						awakened.add(creature);
+					}
+				}
+			}
+		}
+		if (awakened != null) {
+			for (final Creature creature : awakened) {
+				creature.wakeUp();
+			}
+		}
+	}
+
+	private void put(final Creature creature) {
+		final Long key = key(creature.getX(), creature.getY());
+		List<Creature> list = cells.get(key);
+		if (list == null) {
+			list = new ArrayList<Creature>();
+			cells.put(key, list);
+		}
+		list.add(creature);
+		cellOf.put(creature, key);
+	}
+
+	private static int cell(final int coordinate) {
+		return Math.floorDiv(coordinate, CELL_SIZE);
+	}
+
+	private static Long key(final int x, final int y) {
+		return ZoneIndex.key(cell(x), cell(y));
+	}
+}
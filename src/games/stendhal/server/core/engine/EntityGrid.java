@@ -0,0 +1,329 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import games.stendhal.server.entity.Entity;
+
+/**
+ * A uniform grid index of the entities in a zone. The zone is divided in
+ * square cells of <code>CELL_SIZE</code> tiles, and every entity is
+ * registered in all the cells its area overlaps. Point and rectangle queries
+ * then only need to look at the entities of the cells they touch, instead of
+ * every object of the zone.
+ *
+ * Entities lying outside the zone bounds are kept in the border cells, so the
+ * index stays correct for any coordinates.
+ */
+public class EntityGrid {
+	/** Cell size as a power of two. */
+	private static final int CELL_SHIFT = 3;
+	/** Width and height of a cell in tiles. */
+	public static final int CELL_SIZE = 1 << CELL_SHIFT;
+
+	/** Number of cell columns. */
+	private int columns;
+	/** Number of cell rows. */
+	private int rows;
+	/** Width of the indexed area in tiles. */
+	private int width;
+	/** Height of the indexed area in tiles. */
+	private int height;
+	/** Cells in row major order. */
+	private List<List<Entry>> cells;
+	/** Cell ranges of the indexed entities. */
+	private final Map<Entity, Entry> entries = new IdentityHashMap<Entity, Entry>();
+	/** Scratch entry for calculating cell ranges of moved entities. */
+	private final Entry probe = new Entry(null);
+
+	/**
+	 * Create an empty grid. Until it is resized, the grid has only one cell.
+	 */
+	public EntityGrid() {
+		resize(0, 0);
+	}
+
+	/**
+	 * Get the width of the indexed area.
+	 *
+	 * @return width in tiles
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Get the height of the indexed area.
+	 *
+	 * @return height in tiles
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Get the number of indexed entities.
+	 *
+	 * @return entity count
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Change the dimensions of the indexed area. All indexed entities are
+	 * redistributed to the new cells.
+	 *
+	 * @param width new width in tiles
+	 * @param height new height in tiles
+	 */
+	public void resize(final int width, final int height) {
+		this.width = width;
+		this.height = height;
+		columns = Math.max(1, (width + CELL_SIZE - 1) >> CELL_SHIFT);
+		rows = Math.max(1, (height + CELL_SIZE - 1) >> CELL_SHIFT);
+		cells = new ArrayList<List<Entry>>(columns * rows);
+		for (int i = columns * rows; i > 0; i--) {
+			cells.add(new ArrayList<Entry>(2));
+		}
+		for (final Entry entry : entries.values()) {
+			locate(entry);
+			link(entry);
+		}
+	}
+
+	/**
+	 * Add an entity to the index.
+	 *
+	 * @param entity added entity
+	 */
+	public void add(final Entity entity) {
+		if (entries.containsKey(entity)) {
+			update(entity);
+			return;
+		}
+		final Entry entry = new Entry(entity);
+		locate(entry);
+		link(entry);
+		entries.put(entity, entry);
+	}
+
+	/**
+	 * Remove an entity from the index.
+	 *
+	 * @param entity removed entity
+	 */
+	public void remove(final Entity entity) {
+		final Entry entry = entries.remove(entity);
+		if (entry != null) {
+			unlink(entry);
+		}
+	}
+
+	/**
+	 * Update the cells of an entity after its position or size changed.
+	 * Entities that are not in the index are ignored.
+	 *
+	 * @param entity changed entity
+	 */
+	public void update(final Entity entity) {
+		final Entry entry = entries.get(entity);
+		if (entry == null) {
+			return;
+		}
+		probe.entity = entity;
+		locate(probe);
+		if (!probe.hasSameRange(entry)) {
+			unlink(entry);
+			entry.setRange(probe.minCol, probe.minRow, probe.maxCol, probe.maxRow);
+			link(entry);
+		}
+		probe.entity = null;
+	}
+
+	/**
+	 * Find an entity whose area contains a point.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return an entity at (x, y), or <code>null</code> if there is none
+	 */
+	public Entity getEntityAt(final double x, final double y) {
+		for (final Entry entry : cells.get(cellIndex(x, y))) {
+			if (entry.entity.getArea().contains(x, y)) {
+				return entry.entity;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Find all entities of a given type whose area contains a point.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @param clazz required entity type
+	 * @return list of matching entities
+	 */
+	public <T extends Entity> List<T> getEntitiesAt(final double x, final double y, final Class<T> clazz) {
+		final List<T> result = new LinkedList<T>();
+		for (final Entry entry : cells.get(cellIndex(x, y))) {
+			final Entity entity = entry.entity;
+			if (clazz.isInstance(entity) && entity.getArea().contains(x, y)) {
+				result.add(clazz.cast(entity));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Find all entities of a given type whose area intersects a rectangle.
+	 * Every entity is reported only once, even if it spans several cells.
+	 *
+	 * @param area searched area
+	 * @param clazz required entity type
+	 * @return list of matching entities
+	 */
+	public <T extends Entity> List<T> getEntitiesIn(final Rectangle2D area, final Class<T> clazz) {
+		final List<T> result = new LinkedList<T>();
+		final int minCol = column(Math.floor(area.getX()));
+		final int maxCol = column(Math.ceil(area.getMaxX()) - 1);
+		final int minRow = row(Math.floor(area.getY()));
+		final int maxRow = row(Math.ceil(area.getMaxY()) - 1);
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int col = minCol; col <= maxCol; col++) {
+				for (final Entry entry : cells.get(row * columns + col)) {
+					// Report entities spanning several cells only in the
+					// first cell that both ranges share
+					if ((col != Math.max(minCol, entry.minCol)) || (row != Math.max(minRow, entry.minRow))) {
+						continue;
+					}
+					final Entity entity = entry.entity;
+					if (clazz.isInstance(entity) && area.intersects(entity.getArea())) {
+						result.add(clazz.cast(entity));
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Find an entity that would block another entity placed on an area.
+	 *
+	 * @param entity entity to be placed. It is never reported as its own
+	 * 	obstacle
+	 * @param area area the entity would occupy
+	 * @return a blocking entity, or <code>null</code> if there is none
+	 */
+	public Entity getObstacle(final Entity entity, final Rectangle2D area) {
+		final int minCol = column(Math.floor(area.getX()));
+		final int maxCol = column(Math.ceil(area.getMaxX()) - 1);
+		final int minRow = row(Math.floor(area.getY()));
+		final int maxRow = row(Math.ceil(area.getMaxY()) - 1);
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int col = minCol; col <= maxCol; col++) {
+				for (final Entry entry : cells.get(row * columns + col)) {
+					final Entity other = entry.entity;
+					if ((other != entity)
+							&& area.intersects(other.getX(), other.getY(), other.getWidth(), other.getHeight())
+							&& other.isObstacle(entity)) {
+						return other;
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Calculate the cell range an entity currently occupies.
+	 *
+	 * @param entry entry of the entity
+	 */
+	private void locate(final Entry entry) {
+		final Rectangle2D area = entry.entity.getArea();
+		final double x = Math.floor(area.getX());
+		final double y = Math.floor(area.getY());
+		entry.setRange(column(x), row(y),
+				column(Math.max(x, Math.ceil(area.getMaxX()) - 1)),
+				row(Math.max(y, Math.ceil(area.getMaxY()) - 1)));
+	}
+
+	private void link(final Entry entry) {
+		for (int row = entry.minRow; row <= entry.maxRow; row++) {
+			for (int col = entry.minCol; col <= entry.maxCol; col++) {
+				cells.get(row * columns + col).add(entry);
+			}
+		}
+	}
+
+	private void unlink(final Entry entry) {
+		for (int row = entry.minRow; row <= entry.maxRow; row++) {
+			for (int col = entry.minCol; col <= entry.maxCol; col++) {
+				cells.get(row * columns + col).remove(entry);
+			}
+		}
+	}
+
+	private int cellIndex(final double x, final double y) {
+		return row(Math.floor(y)) * columns + column(Math.floor(x));
+	}
+
+	private int column(final double x) {
+		return clamp(((int) x) >> CELL_SHIFT, columns);
+	}
+
+	private int row(final double y) {
+		return clamp(((int) y) >> CELL_SHIFT, rows);
+	}
+
+	private static int clamp(final int value, final int limit) {
+		if (value < 0) {
+			return 0;
+		}
+		return Math.min(value, limit - 1);
+	}
+
+	/**
+	 * An indexed entity and the range of cells it is registered in.
+	 */
+	private static final class Entry {
+		private Entity entity;
+		private int minCol;
+		private int minRow;
+		private int maxCol;
+		private int maxRow;
+
+		Entry(final Entity entity) {
+			this.entity = entity;
+		}
+
+		void setRange(final int minCol, final int minRow, final int maxCol, final int maxRow) {
+			this.minCol = minCol;
+			this.minRow = minRow;
+			this.maxCol = maxCol;
+			this.maxRow = maxRow;
+		}
+
+		boolean hasSameRange(final Entry other) {
+			return (minCol == other.minCol) && (minRow == other.minRow)
+					&& (maxCol == other.maxCol) && (maxRow == other.maxRow);
+		}
+	}
+}
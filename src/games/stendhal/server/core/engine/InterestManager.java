@@ -0,0 +1,284 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.entity.creature.Creature;
+import games.stendhal.server.entity.creature.DomesticAnimal;
+import games.stendhal.server.entity.item.Corpse;
+import games.stendhal.server.entity.item.Item;
+import marauroa.common.Configuration;
+import marauroa.common.game.IRPZone;
+import marauroa.common.game.Perception;
+import marauroa.common.game.RPObject;
+
+/**
+ * Area of interest filtering of the perceptions of a zone.
+ * <p>
+ * Creatures, items and corpses are sent to a client only while they are
+ * near the player. They are added to the perception when they come within
+ * the view radius, and removed when they get farther than the radius plus
+ * the hysteresis, so that entities moving at the edge do not flicker in and
+ * out. Changes of the entities the client does not know about are dropped.
+ * All other objects are sent as marauroa would send them.
+ * <p>
+ * Marauroa caches the serialized perceptions by zone ID, assuming that every
+ * player in a zone gets the same one. Each filtered perception therefore gets
+ * a zone ID of its own that equals only itself, but is sent as the normal
+ * zone name.
+ */
+final class InterestManager {
+	private static final Logger logger = Logger.getLogger(InterestManager.class);
+
+	/** View radius read from the configuration, or -1 if not read yet. */
+	private static int configuredRadius = -1;
+	/** Hysteresis read from the configuration. */
+	private static int configuredHysteresis;
+
+	private final StendhalRPZone zone;
+	/** Distance in tiles where the entities are added. */
+	private final int radius;
+	/** Distance in tiles where the entities are removed. */
+	private final int leaveRadius;
+	/** Filtered objects known by the client of each player. */
+	private final Map<RPObject, Set<RPObject.ID>> known = new IdentityHashMap<RPObject, Set<RPObject.ID>>();
+
+	/**
+	 * Create a new InterestManager.
+	 *
+	 * @param zone filtered zone
+	 * @param radius distance in tiles where the entities are added
+	 * @param hysteresis additional distance in tiles before the entities are
+	 * 	removed
+	 */
+	InterestManager(final StendhalRPZone zone, final int radius, final int hysteresis) {
+		this.zone = zone;
+		this.radius = radius;
+		this.leaveRadius = radius + hysteresis;
+	}
+
+	/**
+	 * Create an InterestManager for a zone, if it has been enabled with
+	 * perception_radius in the configuration. perception_hysteresis sets the
+	 * additional distance before entities are removed, 5 by default.
+	 *
+	 * @param zone zone
+	 * @return manager, or <code>null</code> if filtering is disabled, or the
+	 * 	zone is too small to benefit from it
+	 */
+	static InterestManager create(final StendhalRPZone zone) {
+		synchronized (InterestManager.class) {
+			if (configuredRadius < 0) {
+				configuredRadius = 0;
+				configuredHysteresis = 5;
+				try {
+					final Configuration config = Configuration.getConfiguration();
+					configuredRadius = config.getInt("perception_radius", 0);
+					configuredHysteresis = config.getInt("perception_hysteresis", configuredHysteresis);
+				} catch (final IOException e) {
+					logger.error(e, e);
+				}
+			}
+		}
+		final int size = 2 * (configuredRadius + configuredHysteresis) + 1;
+		if ((configuredRadius <= 0) || ((zone.getWidth() <= size) && (zone.getHeight() <= size))) {
+			return null;
+		}
+		return new InterestManager(zone, configuredRadius, configuredHysteresis);
+	}
+
+	/**
+	 * Check if an object is subject to filtering.
+	 *
+	 * @param object object
+	 * @return <code>true</code> if the object is sent only to the nearby
+	 * 	players
+	 */
+	private static boolean isFiltered(final RPObject object) {
+		if (object instanceof Creature) {
+			return !(object instanceof DomesticAnimal);
+		}
+		return (object instanceof Item) || (object instanceof Corpse);
+	}
+
+	/**
+	 * Get the area around a player.
+	 *
+	 * @param player player
+	 * @param distance distance from the player in tiles
+	 * @return area
+	 */
+	private static Rectangle2D getArea(final Entity player, final int distance) {
+		return new Rectangle2D.Double(player.getX() - distance, player.getY() - distance,
+				2 * distance + 1, 2 * distance + 1);
+	}
+
+	/**
+	 * Filter a perception for a player.
+	 *
+	 * @param player player receiving the perception
+	 * @param perception perception built by marauroa for the whole zone
+	 * @return perception for the player
+	 */
+	Perception filter(final RPObject player, final Perception perception) {
+		final Perception result = new Perception(perception.type, new PerceptionZoneID(zone.getName()));
+		if (!(player instanceof Entity)) {
+			copy(perception, result);
+			return result;
+		}
+
+		final Rectangle2D enterArea = getArea((Entity) player, radius);
+		if (perception.type == Perception.SYNC) {
+			final Set<RPObject.ID> ids = new HashSet<RPObject.ID>();
+			for (final RPObject object : perception.addedList) {
+				if (!isFiltered(object)) {
+					result.addedList.add(object);
+				} else if (((Entity) object).getArea().intersects(enterArea)) {
+					result.addedList.add(object);
+					ids.add(object.getID());
+				}
+			}
+			known.put(player, ids);
+			return result;
+		}
+
+		Set<RPObject.ID> ids = known.get(player);
+		if (ids == null) {
+			// Should not happen, as marauroa sends a sync perception first.
+			// Assume the client has everything.
+			ids = new HashSet<RPObject.ID>();
+			for (final RPObject object : zone) {
+				if (isFiltered(object) && !object.isHidden()) {
+					ids.add(object.getID());
+				}
+			}
+			known.put(player, ids);
+		}
+
+		// Objects removed from the zone
+		for (final RPObject object : perception.deletedList) {
+			if (!isFiltered(object) || ids.remove(object.getID())) {
+				result.deletedList.add(object);
+			}
+		}
+
+		// Objects that went out of range
+		final Rectangle2D leaveArea = getArea((Entity) player, leaveRadius);
+		for (final Iterator<RPObject.ID> it = ids.iterator(); it.hasNext();) {
+			final RPObject object = zone.get(it.next());
+			if (object == null) {
+				continue;
+			}
+			if (object.isHidden() || !((Entity) object).getArea().intersects(leaveArea)) {
+				result.deletedList.add(object);
+				it.remove();
+			}
+		}
+
+		// Objects that came into range. These include the new objects in the
+		// zone
+		final Set<RPObject.ID> entered = new HashSet<RPObject.ID>();
+		for (final Entity entity : zone.getEntitiesIn(enterArea, Entity.class)) {
+			if (isFiltered(entity) && !entity.isHidden() && ids.add(entity.getID())) {
+				result.addedList.add(entity);
+				entered.add(entity.getID());
+			}
+		}
+		for (final RPObject object : perception.addedList) {
+			if (!isFiltered(object)) {
+				result.addedList.add(object);
+			}
+		}
+
+		// Changes of the known objects
+		for (final RPObject changes : perception.modifiedAddedList) {
+			if (isSent(changes, ids, entered)) {
+				result.modifiedAddedList.add(changes);
+			}
+		}
+		for (final RPObject changes : perception.modifiedDeletedList) {
+			if (isSent(changes, ids, entered)) {
+				result.modifiedDeletedList.add(changes);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Check if changes to an object should be sent to the client.
+	 *
+	 * @param changes changed attributes
+	 * @param ids filtered objects known by the client
+	 * @param entered filtered objects that are sent whole in this perception
+	 * @return <code>true</code> if the changes should be sent
+	 */
+	private boolean isSent(final RPObject changes, final Set<RPObject.ID> ids, final Set<RPObject.ID> entered) {
+		final RPObject object = zone.get(changes.getID());
+		if ((object == null) || !isFiltered(object)) {
+			return true;
+		}
+		return ids.contains(changes.getID()) && !entered.contains(changes.getID());
+	}
+
+	/**
+	 * Copy the contents of a perception.
+	 *
+	 * @param from source
+	 * @param to target
+	 */
+	private void copy(final Perception from, final Perception to) {
+		to.addedList.addAll(from.addedList);
+		to.modifiedAddedList.addAll(from.modifiedAddedList);
+		to.modifiedDeletedList.addAll(from.modifiedDeletedList);
+		to.deletedList.addAll(from.deletedList);
+	}
+
+	/**
+	 * Forget the state of a player that left the zone.
+	 *
+	 * @param player player
+	 */
+	void removePlayer(final RPObject player) {
+		known.remove(player);
+	}
+
+	/**
+	 * Zone ID that is equal only to itself. This keeps marauroa from using
+	 * the cached serialization of another player's perception.
+	 */
+	private static final class PerceptionZoneID extends IRPZone.ID {
+		PerceptionZoneID(final String id) {
+			super(id);
+		}
+
+		@Override
+		public boolean equals(final Object other) {
+			return this == other;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(this);
+		}
+	}
+}
@@ -0,0 +1,288 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.server.core.engine.dbcommand.AbstractLogItemEventCommand;
+import games.stendhal.server.core.engine.dbcommand.LogItemEventBatchCommand;
+import marauroa.common.Configuration;
+import marauroa.server.db.command.DBCommandPriority;
+import marauroa.server.db.command.DBCommandQueue;
+import marauroa.server.game.Statistics;
+
+/**
+ * Buffers item log events, and writes them to the database in batches.
+ * <p>
+ * The events are collected in a bounded ring. A batch is handed to the
+ * database queue when enough events have been collected, or when the oldest
+ * buffered event has waited for the flush interval. While a batch is still
+ * being written, new events are kept in the ring, so that a slow database
+ * results in fewer, larger batches instead of a growing queue. Only if the
+ * ring fills up, the events are handed over regardless. Events are never
+ * dropped. If a batch fails, its events are retried one by one.
+ * <p>
+ * {@link #flush()} must be called on shutdown, before the database queue is
+ * finished.
+ */
+public class ItemLogWriter {
+	private static final Logger logger = Logger.getLogger(ItemLogWriter.class);
+
+	private static ItemLogWriter instance;
+
+	/** Buffered events. */
+	private final AbstractLogItemEventCommand[] ring;
+	/** Index of the oldest buffered event. */
+	private int head;
+	/** Number of buffered events. */
+	private int size;
+	/** Number of events that trigger a flush. */
+	private final int batchSize;
+	/** Maximum time an event is buffered in milliseconds. */
+	private final long flushInterval;
+	/** Time of adding the oldest buffered event. */
+	private long oldestEventTime;
+
+	/** Number of batches handed to the database queue, but not written yet. */
+	private int pendingBatches;
+	/** Total number of logged events. */
+	private long events;
+	/** Total number of written batches. */
+	private long writtenBatches;
+	/** Number of times the ring was full. */
+	private long overflows;
+	/** Number of batches that failed and were retried event by event. */
+	private long failedBatches;
+	/** Largest number of buffered events. */
+	private int maxBuffered;
+	/** Time spent writing batches in nanoseconds. */
+	private long writeTime;
+
+	/**
+	 * Creates a new ItemLogWriter.
+	 *
+	 * @param capacity maximum number of buffered events
+	 * @param batchSize number of events that trigger a flush
+	 * @param flushInterval maximum time an event is buffered in milliseconds
+	 */
+	ItemLogWriter(final int capacity, final int batchSize, final long flushInterval) {
+		this.ring = new AbstractLogItemEventCommand[Math.max(1, capacity)];
+		this.batchSize = Math.max(1, Math.min(batchSize, ring.length));
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * Gets the ItemLogWriter. The limits are read from the configuration:
+	 * server_item_log_buffer_size, server_item_log_batch_size and
+	 * server_item_log_flush_interval in milliseconds.
+	 *
+	 * @return ItemLogWriter
+	 */
+	public static synchronized ItemLogWriter get() {
+		if (instance == null) {
+			int capacity = 4096;
+			int batchSize = 256;
+			int flushInterval = 1000;
+			try {
+				final Configuration config = Configuration.getConfiguration();
+				capacity = config.getInt("server_item_log_buffer_size", capacity);
+				batchSize = config.getInt("server_item_log_batch_size", batchSize);
+				flushInterval = config.getInt("server_item_log_flush_interval", flushInterval);
+			} catch (final IOException e) {
+				logger.error(e, e);
+			}
+			instance = new ItemLogWriter(capacity, batchSize, flushInterval);
+		}
+		return instance;
+	}
+
+	/**
+	 * Adds an item event.
+	 *
+	 * @param command event
+	 */
+	public synchronized void add(final AbstractLogItemEventCommand command) {
+		final long now = System.currentTimeMillis();
+		command.setEnqueueTime(new Timestamp(now));
+		if (size == ring.length) {
+			overflows++;
+			logger.warn("Item log buffer full with " + pendingBatches + " batches pending");
+			flush();
+		}
+		if (size == 0) {
+			oldestEventTime = now;
+		}
+		ring[(head + size) % ring.length] = command;
+		size++;
+		events++;
+		maxBuffered = Math.max(maxBuffered, size);
+		if ((size >= batchSize) && (pendingBatches == 0)) {
+			flush();
+		}
+	}
+
+	/**
+	 * Flushes the buffered events, if the oldest of them has waited long
+	 * enough. Called at the end of each turn.
+	 */
+	public synchronized void flushIfDue() {
+		if ((size > 0) && (pendingBatches == 0)
+				&& (System.currentTimeMillis() - oldestEventTime >= flushInterval)) {
+			flush();
+		}
+		final Statistics stats = Statistics.getStatistics();
+		stats.set("Item log buffered", size);
+		stats.set("Item log pending batches", pendingBatches);
+		stats.set("Item log overflows", (int) overflows);
+		stats.set("Item log failed batches", (int) failedBatches);
+	}
+
+	/**
+	 * Hands all buffered events to the database queue.
+	 */
+	public synchronized void flush() {
+		if (size == 0) {
+			return;
+		}
+		final List<AbstractLogItemEventCommand> commands = new ArrayList<AbstractLogItemEventCommand>(size);
+		while (size > 0) {
+			commands.add(ring[head]);
+			ring[head] = null;
+			head = (head + 1) % ring.length;
+			size--;
+		}
+		pendingBatches++;
+		enqueue(new LogItemEventBatchCommand(commands, this));
+	}
+
+	/**
+	 * Hands a batch to the database queue.
+	 *
+	 * @param command batch
+	 */
+	void enqueue(final LogItemEventBatchCommand command) {
+		DBCommandQueue.get().enqueue(command, DBCommandPriority.LOW);
+	}
+
+	/**
+	 * Called by the database thread if a batch could not be written. The
+	 * events are written again, each in its own transaction, so that a
+	 * single bad event does not lose the whole batch.
+	 *
+	 * @param commands events of the failed batch, in the order they happened
+	 */
+	public void retry(final List<AbstractLogItemEventCommand> commands) {
+		synchronized (this) {
+			failedBatches++;
+		}
+		logger.warn("Item log batch of " + commands.size() + " events failed, retrying them one by one");
+		for (final AbstractLogItemEventCommand command : commands) {
+			enqueue(new LogItemEventBatchCommand(Collections.singletonList(command), null));
+		}
+	}
+
+	/**
+	 * Called by the database thread after a batch has been written, or
+	 * writing it failed.
+	 *
+	 * @param count number of events in the batch
+	 * @param time time spent writing in nanoseconds
+	 */
+	public synchronized void onBatchWritten(final int count, final long time) {
+		pendingBatches--;
+		writtenBatches++;
+		writeTime += time;
+		if (logger.isDebugEnabled()) {
+			logger.debug("Wrote " + count + " item log events in " + time / 1000000.0 + " ms");
+		}
+	}
+
+	/**
+	 * Gets the number of buffered events.
+	 *
+	 * @return number of events waiting for the next batch
+	 */
+	public synchronized int getBuffered() {
+		return size;
+	}
+
+	/**
+	 * Gets the largest number of buffered events so far.
+	 *
+	 * @return largest number of events waiting at once
+	 */
+	public synchronized int getMaxBuffered() {
+		return maxBuffered;
+	}
+
+	/**
+	 * Gets the number of batches waiting in the database queue.
+	 *
+	 * @return number of pending batches
+	 */
+	public synchronized int getPendingBatches() {
+		return pendingBatches;
+	}
+
+	/**
+	 * Gets the total number of logged events.
+	 *
+	 * @return number of events
+	 */
+	public synchronized long getEvents() {
+		return events;
+	}
+
+	/**
+	 * Gets the number of written batches.
+	 *
+	 * @return number of batches
+	 */
+	public synchronized long getWrittenBatches() {
+		return writtenBatches;
+	}
+
+	/**
+	 * Gets the number of times the buffer was full and had to be flushed
+	 * while the database was still busy with earlier batches.
+	 *
+	 * @return number of overflows
+	 */
+	public synchronized long getOverflows() {
+		return overflows;
+	}
+
+	/**
+	 * Gets the number of batches that failed, and were retried event by
+	 * event.
+	 *
+	 * @return number of failed batches
+	 */
+	public synchronized long getFailedBatches() {
+		return failedBatches;
+	}
+
+	/**
+	 * Gets the time spent writing batches.
+	 *
+	 * @return time in nanoseconds
+	 */
+	public synchronized long getWriteTime() {
+		return writeTime;
+	}
+}
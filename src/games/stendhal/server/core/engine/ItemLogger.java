@@ -17,6 +17,7 @@ import games.stendhal.server.core.engine.dbcommand.AbstractLogItemEventCommand;
 import games.stendhal.server.core.engine.dbcommand.LogMergeItemEventCommand;
 import games.stendhal.server.core.engine.dbcommand.LogSimpleItemEventCommand;
 import games.stendhal.server.core.engine.dbcommand.LogSplitItemEventCommand;
+import games.stendhal.server.core.engine.dbcommand.LogTradeEventCommand;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.PassiveEntity;
 import games.stendhal.server.entity.RPEntity;
@@ -24,8 +25,6 @@ import games.stendhal.server.entity.item.Item;
 import games.stendhal.server.entity.player.Player;
 import marauroa.common.game.RPObject;
 import marauroa.common.game.RPSlot;
-import marauroa.server.db.command.DBCommandPriority;
-import marauroa.server.db.command.DBCommandQueue;
 
 /**
  * Item Logger.
@@ -36,7 +35,7 @@ public class ItemLogger {
 
 
 	public void addLogItemEventCommand(final AbstractLogItemEventCommand command) {
-		DBCommandQueue.get().enqueue(command, DBCommandPriority.LOW);
+		ItemLogWriter.get().add(command);
 	}
 
 
@@ -74,6 +73,22 @@ public class ItemLogger {
 				slotName));
 	}
 
+	/**
+	 * Log an item offered at the trading center.
+	 *
+	 * @param player
+	 *   Player offering the item.
+	 * @param item
+	 *   Offered item.
+	 * @param quantity
+	 *   Offered quantity.
+	 * @param price
+	 *   Asked price.
+	 */
+	public void trade(final Player player, final Item item, final int quantity, final int price) {
+		addLogItemEventCommand(new LogTradeEventCommand(player, item, quantity, price));
+	}
+
 	/**
 	 * Log a summoned item.
 	 *
@@ -0,0 +1,188 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.server.core.engine.db.StendhalKillLogDAO;
+import games.stendhal.server.core.engine.db.StendhalKillLogDAO.KillKey;
+import games.stendhal.server.core.engine.dbcommand.LogKillBatchCommand;
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.entity.Killer;
+import marauroa.common.Configuration;
+import marauroa.server.db.command.DBCommandPriority;
+import marauroa.server.db.command.DBCommandQueue;
+import marauroa.server.game.Statistics;
+import marauroa.server.game.db.DAORegister;
+
+/**
+ * Counts kills in memory, and adds the counts to the kills table
+ * periodically.
+ * <p>
+ * Kills of the same combination of killed, killer and day are summed up, so
+ * that one statement per combination replaces one per kill. The final counts
+ * are the same as with logging every kill on its own. {@link #flush()} must
+ * be called on shutdown, before the database queue is finished.
+ */
+public class KillLogWriter {
+	private static final Logger logger = Logger.getLogger(KillLogWriter.class);
+
+	private static KillLogWriter instance;
+
+	/** Maximum time a kill is kept in memory in milliseconds. */
+	private final long flushInterval;
+	/** Counted kills, that have not been handed to the database queue. */
+	private Map<KillKey, Integer> counts = new HashMap<KillKey, Integer>();
+	/** Number of kills in counts. */
+	private int buffered;
+	/** Time of the oldest counted kill. */
+	private long oldestKillTime;
+	/** Number of kills handed to the database queue, but not written yet. */
+	private int writing;
+
+	/**
+	 * Creates a new KillLogWriter.
+	 *
+	 * @param flushInterval maximum time a kill is kept in memory in milliseconds
+	 */
+	KillLogWriter(final long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * Gets the KillLogWriter. The flush interval is read from
+	 * server_kill_log_flush_interval in milliseconds.
+	 *
+	 * @return KillLogWriter
+	 */
+	public static synchronized KillLogWriter get() {
+		if (instance == null) {
+			int flushInterval = 60000;
+			try {
+				flushInterval = Configuration.getConfiguration().getInt("server_kill_log_flush_interval", flushInterval);
+			} catch (final IOException e) {
+				logger.error(e, e);
+			}
+			instance = new KillLogWriter(flushInterval);
+		}
+		return instance;
+	}
+
+	/**
+	 * Counts a kill.
+	 *
+	 * @param killed killed entity
+	 * @param killer killer
+	 */
+	public void add(final Entity killed, final Killer killer) {
+		final StendhalKillLogDAO killLog = DAORegister.get().get(StendhalKillLogDAO.class);
+		add(killLog.createKey(killed, killer, new Timestamp(System.currentTimeMillis())));
+	}
+
+	/**
+	 * Counts a kill.
+	 *
+	 * @param key combination of killed, killer and day
+	 */
+	synchronized void add(final KillKey key) {
+		if (buffered == 0) {
+			oldestKillTime = System.currentTimeMillis();
+		}
+		final Integer count = counts.get(key);
+		counts.put(key, Integer.valueOf((count == null) ? 1 : count.intValue() + 1));
+		buffered++;
+	}
+
+	/**
+	 * Flushes the counted kills, if the oldest of them has waited long enough.
+	 * Called at the end of each turn.
+	 */
+	public synchronized void flushIfDue() {
+		if ((buffered > 0) && (System.currentTimeMillis() - oldestKillTime >= flushInterval)) {
+			flush();
+		}
+		Statistics.getStatistics().set("Kills pending", getPendingKills());
+	}
+
+	/**
+	 * Hands all counted kills to the database queue.
+	 */
+	public synchronized void flush() {
+		if (buffered == 0) {
+			return;
+		}
+		final LogKillBatchCommand command = new LogKillBatchCommand(counts, buffered, this);
+		counts = new HashMap<KillKey, Integer>();
+		writing += buffered;
+		buffered = 0;
+		enqueue(command);
+	}
+
+	/**
+	 * Hands a batch to the database queue.
+	 *
+	 * @param command batch
+	 */
+	void enqueue(final LogKillBatchCommand command) {
+		DBCommandQueue.get().enqueue(command, DBCommandPriority.LOW);
+	}
+
+	/**
+	 * Called by the database thread if a batch could not be written. The
+	 * counts are written once more in a batch of their own.
+	 *
+	 * @param failed counts of the failed batch
+	 * @param kills number of kills in the batch
+	 */
+	public void retry(final Map<KillKey, Integer> failed, final int kills) {
+		logger.warn("Logging " + kills + " kills failed, retrying");
+		synchronized (this) {
+			writing += kills;
+		}
+		enqueue(new LogKillBatchCommand(failed, kills, this, true));
+	}
+
+	/**
+	 * Called by the database thread after a batch has been written, or
+	 * writing it failed.
+	 *
+	 * @param kills number of kills in the batch
+	 */
+	public synchronized void onBatchWritten(final int kills) {
+		writing -= kills;
+	}
+
+	/**
+	 * Gets the number of kills that have not been written to the database
+	 * yet, including the ones waiting in the database queue.
+	 *
+	 * @return number of kills
+	 */
+	public synchronized int getPendingKills() {
+		return buffered + writing;
+	}
+
+	/**
+	 * Gets the number of kills counted in memory, that have not been handed
+	 * to the database queue yet.
+	 *
+	 * @return number of kills
+	 */
+	public synchronized int getBufferedKills() {
+		return buffered;
+	}
+}
@@ -17,6 +17,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -28,6 +29,7 @@ import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
 import games.stendhal.common.Debug;
+import games.stendhal.common.MathHelper;
 import games.stendhal.common.NotificationType;
 import games.stendhal.common.filter.FilterCriteria;
 import games.stendhal.server.actions.CommandCenter;
@@ -106,6 +108,14 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 
 	private LinkedList<marauroa.server.game.rp.GameEvent> gameEvents = new LinkedList<>();
 
+	/** Runs the zone logic at the end of each turn */
+	private ZoneLogicExecutor zoneLogic = new ZoneLogicExecutor(0);
+	/**
+	 * End time of the last beginTurn as given by System.nanoTime(), or 0 if
+	 * endTurn has been called after it.
+	 */
+	private long endOfBeginTurn;
+
 
 	/**
 	 * gets the singleton instance of StendhalRPRuleProcessor
@@ -125,6 +135,14 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 		return instance;
 	}
 
+	/**
+	 * Stop the threads of the zone logic. Called when the server is shut
+	 * down.
+	 */
+	void shutdownZoneLogic() {
+		zoneLogic.shutdown();
+	}
+
 	/**
 	 * creates a new StendhalRPRuleProcessor
 	 */
@@ -189,6 +207,9 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 				logger.info("No server extensions configured in ini file.");
 			}
 
+			zoneLogic = new ZoneLogicExecutor(MathHelper.parseIntDefault(
+					config.get("server_zone_logic_threads", "0"), 0));
+
 			// Remove online info from database.
 			DAORegister.get().get(StendhalWebsiteDAO.class).clearOnlineStatus();
 		} catch (final Exception e) {
@@ -223,6 +244,14 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	 * @param killer
 	 */
 	public void killRPEntity(final RPEntity entity, final Entity killer) {
+		if (ZoneLogicExecutor.defer(new Runnable() {
+			@Override
+			public void run() {
+				killRPEntity(entity, killer);
+			}
+		})) {
+			return;
+		}
 		entityToKill.add(new Pair<RPEntity, Entity>(entity, killer));
 	}
 
@@ -281,44 +310,53 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	/** Notify it when a new turn happens. */
 	@Override
 	public synchronized void beginTurn() {
+		final TickProfiler profiler = TickProfiler.get();
+		profiler.beginTurn();
 		final long start = System.nanoTime();
+		long phaseStart = start;
 
 		try {
 			destroyObsoleteZones();
 		} catch (final Exception e) {
 			logger.error("error in beginTurn", e);
 		}
+		phaseStart = profiler.phase("destroy zones", phaseStart);
 
 		try {
 			logNumberOfPlayersOnline();
 		} catch (final Exception e) {
 			logger.error("error in beginTurn", e);
 		}
+		phaseStart = profiler.phase("count players", phaseStart);
 
 		try {
 			handleKilledEntities();
 		} catch (final Exception e) {
 			logger.error("error in beginTurn", e);
 		}
+		phaseStart = profiler.phase("killed entities", phaseStart);
 
 		try {
 			executePlayerLogic();
 		} catch (final Exception e) {
 			logger.error("error in beginTurn", e);
 		}
+		phaseStart = profiler.phase("player logic", phaseStart);
 
 		try {
 			executeNPCsPreLogic();
 		} catch (final Exception e) {
 			logger.error("error in beginTurn", e);
 		}
+		phaseStart = profiler.phase("npc prelogic", phaseStart);
 
 		try {
 			handlePlayersRmTexts();
 		} catch (final Exception e) {
 			logger.error("error in beginTurn", e);
 		}
-		logger.debug("Begin turn: " + (System.nanoTime() - start) / 1000000.0);
+		endOfBeginTurn = profiler.phase("remove texts", phaseStart);
+		logger.debug("Begin turn: " + (endOfBeginTurn - start) / 1000000.0);
 	}
 
 	private void destroyObsoleteZones() {
@@ -389,20 +427,40 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	@Override
 	public synchronized void endTurn() {
 		final int currentTurn = getTurn();
+		final TickProfiler profiler = TickProfiler.get();
 		try {
+			// Time spent by marauroa between beginTurn and endTurn, mostly
+			// executing the player actions
+			long phaseStart = System.nanoTime();
+			if (endOfBeginTurn != 0) {
+				profiler.phase("actions", endOfBeginTurn);
+				endOfBeginTurn = 0;
+			}
 
+			final long start = phaseStart;
 			SingletonRepository.getTurnNotifier().logic(currentTurn);
+			phaseStart = profiler.phase("turn notifier", phaseStart);
+			final long notifierTime = phaseStart - start;
 
+			final List<StendhalRPZone> zones = new ArrayList<StendhalRPZone>();
 			for (final IRPZone zoneI : SingletonRepository.getRPWorld()) {
-				final StendhalRPZone zone = (StendhalRPZone) zoneI;
-				zone.logic();
+				zones.add((StendhalRPZone) zoneI);
+			}
+			zoneLogic.logic(zones);
+			phaseStart = profiler.phase("zone logic", phaseStart);
+			ItemLogWriter.get().flushIfDue();
+			KillLogWriter.get().flushIfDue();
+			profiler.phase("log writers", phaseStart);
+
+			if (logger.isDebugEnabled()) {
+				logger.debug("End turn: turn notifier " + notifierTime / 1000000.0
+						+ " zone logic " + zoneLogic.getLogicTime() / 1000000.0
+						+ " commit " + zoneLogic.getCommitTime() / 1000000.0);
 			}
-
-			// run registered object's logic method for this turn
-
 		} catch (final Exception e) {
 			logger.error("error in endTurn", e);
 		}
+		profiler.endTurn(currentTurn);
 	}
 
 	/**
@@ -793,7 +851,15 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	 * @param event  event
 	 * @param params parameters
 	 */
-	public void logGameEvent(String source, String event, String... params) {
+	public void logGameEvent(final String source, final String event, final String... params) {
+		if (ZoneLogicExecutor.defer(new Runnable() {
+			@Override
+			public void run() {
+				logGameEvent(source, event, params);
+			}
+		})) {
+			return;
+		}
 		this.gameEvents.add(new marauroa.server.game.rp.GameEvent(source, event, params));
 
 		// we collect one second of game events and write them as batch to the database
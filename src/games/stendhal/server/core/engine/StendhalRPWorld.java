@@ -50,6 +50,8 @@ public class StendhalRPWorld extends RPWorld {
 
 	private final Map<String, Set<StendhalRPZone>> regionMap = new HashMap<String, Set<StendhalRPZone>>();
 
+	/** Exterior zones by world coordinates, built on demand. */
+	private ZoneIndex zoneIndex;
 
 	/**
 	 * Singleton access method.
@@ -72,6 +74,12 @@ public class StendhalRPWorld extends RPWorld {
 		super();
 	}
 
+	@Override
+	public void addRPZone(final IRPZone zone) {
+		super.addRPZone(zone);
+		invalidateZoneIndex();
+	}
+
 	@Override
 	public IRPZone removeRPZone(final ID zoneid) throws Exception {
 		final StendhalRPZone zone = (StendhalRPZone) super.getRPZone(zoneid);
@@ -80,7 +88,9 @@ public class StendhalRPWorld extends RPWorld {
 				zones.remove(zone);
 			}
 		}
-		return super.removeRPZone(zoneid);
+		final IRPZone removed = super.removeRPZone(zoneid);
+		invalidateZoneIndex();
+		return removed;
 	}
 
 	public void removeZone(final StendhalRPZone toBeRemoved) {
@@ -171,6 +181,9 @@ public class StendhalRPWorld extends RPWorld {
 	public void onFinish() {
 		super.onFinish();
 		new GameEvent("server system", "shutdown").raise();
+		ItemLogWriter.get().flush();
+		KillLogWriter.get().flush();
+		StendhalRPRuleProcessor.get().shutdownZoneLogic();
 		try {
 			//TODO: find a more appropriate way to do this
 			// give gameevents a chance to be processed;
@@ -252,24 +265,41 @@ public class StendhalRPWorld extends RPWorld {
 	 * @return The matching zone, or <code>null</code> if not found.
 	 */
 	public StendhalRPZone getZoneAt(final int level, final int wx, final int wy, final Entity entity) {
-		for (final IRPZone izone : this) {
-			final StendhalRPZone zone = (StendhalRPZone) izone;
+		final StendhalRPZone zone = getZoneIndex().find(level, entity.getArea(wx, wy));
+		if ((zone != null) && logger.isDebugEnabled()) {
+			logger.debug("Contained at :" + zone.getID());
+		}
+		return zone;
+	}
 
-			if (zone.isInterior()) {
-				continue;
-			}
+	/**
+	 * Gets the index of the exterior zones, and builds it if the zones have
+	 * changed since it was last used.
+	 *
+	 * @return zone index
+	 */
+	private synchronized ZoneIndex getZoneIndex() {
+		if ((zoneIndex == null) || (zoneIndex.size() != size())) {
+			zoneIndex = new ZoneIndex(this);
+		}
+		return zoneIndex;
+	}
 
-			if (zone.getLevel() != level) {
-				continue;
-			}
+	/**
+	 * Discards the zone index, so that it gets rebuilt on the next lookup.
+	 */
+	private synchronized void invalidateZoneIndex() {
+		zoneIndex = null;
+	}
 
-			if (zone.intersects(entity.getArea(wx, wy))) {
-				logger.debug("Contained at :" + zone.getID());
-				return zone;
-			}
+	/**
+	 * Called by zones when their position or size changes.
+	 */
+	static void onZoneAreaChanged() {
+		final StendhalRPWorld world = instance;
+		if (world != null) {
+			world.invalidateZoneIndex();
 		}
-
-		return null;
 	}
 
 	/**
@@ -278,7 +308,7 @@ public class StendhalRPWorld extends RPWorld {
 	 * @param zone
 	 */
 	public void addRPZone(final String region, final StendhalRPZone zone) {
-		super.addRPZone(zone);
+		addRPZone(zone);
 		if(!regionMap.containsKey(region)) {
 			regionMap.put(region, new HashSet<StendhalRPZone>());
 		}
@@ -302,77 +332,41 @@ public class StendhalRPWorld extends RPWorld {
 	 */
 	public Collection<StendhalRPZone> getAllZonesFromRegion(final String region, final Boolean exterior, final Boolean aboveGround, final Boolean accessible) {
 		final Set<StendhalRPZone> zonesInRegion = new HashSet<StendhalRPZone>();
-		if(regionMap.containsKey(region)) {
-			zonesInRegion.addAll(regionMap.get(region));
-			if(exterior != null) {
-				filterOutInteriorOrExteriorZones(zonesInRegion, exterior);
-			}
-			if(aboveGround != null && exterior != null && exterior) {
-				filterOutAboveOrBelowGround(zonesInRegion, aboveGround);
-			}
-			if(accessible != null) {
-				filterByAccessibility(zonesInRegion, accessible);
-			}
-		}
-		return zonesInRegion;
-	}
-
-	/**
-	 * Filter out exterior or interior zones from the given set
-	 * @param zonesInRegion the set to filter
-	 * @param exterior if true only exterior zones stay in the set
-	 */
-	private void filterOutInteriorOrExteriorZones(final Set<StendhalRPZone> zonesInRegion, final Boolean exterior) {
-		final Set<StendhalRPZone> removals = new HashSet<StendhalRPZone>();
-		for (StendhalRPZone zone : zonesInRegion) {
-			if(exterior) {
-				if(zone.isInterior()) {
-					removals.add(zone);
-				}
-			} else {
-				if(!zone.isInterior()) {
-					removals.add(zone);
+		final Set<StendhalRPZone> zones = regionMap.get(region);
+		if (zones != null) {
+			for (final StendhalRPZone zone : zones) {
+				if (matches(zone, exterior, aboveGround, accessible)) {
+					zonesInRegion.add(zone);
 				}
 			}
 		}
-		zonesInRegion.removeAll(removals);
+		return zonesInRegion;
 	}
 
 	/**
-	 * Filter out zones above or below ground
+	 * Checks if a zone has the flags requested from
+	 * {@link #getAllZonesFromRegion(String, Boolean, Boolean, Boolean)}.
 	 *
-	 * @param zonesInRegion
-	 * @param aboveGround
+	 * @param zone zone to check
+	 * @param exterior only exterior zones(true), interior zones(false) or all zones (null)
+	 * @param aboveGround only zones above ground(true), zones below ground(false) or all (null).
+	 * 	Used only when looking for exterior zones
+	 * @param accessible true for zones accessible for everyone, false for the others, or null for all
+	 * @return <code>true</code> if the zone matches all flags
 	 */
-	private void filterOutAboveOrBelowGround(final Set<StendhalRPZone> zonesInRegion, final Boolean aboveGround) {
-		final Set<StendhalRPZone> removals = new HashSet<StendhalRPZone>();
-		for (StendhalRPZone zone : zonesInRegion) {
-			if(aboveGround.booleanValue()) {
-				if(zone.getLevel() < 0) {
-					removals.add(zone);
-				}
-			} else {
-				if(zone.getLevel() >= 0) {
-					removals.add(zone);
-				}
+	private static boolean matches(final StendhalRPZone zone, final Boolean exterior, final Boolean aboveGround, final Boolean accessible) {
+		if (exterior != null) {
+			if (exterior.booleanValue() == zone.isInterior()) {
+				return false;
 			}
-		}
-		zonesInRegion.removeAll(removals);
-	}
-
-	private void filterByAccessibility(final Set<StendhalRPZone> zonesInRegion, final Boolean accessible) {
-		final Set<StendhalRPZone> removals = new HashSet<StendhalRPZone>();
-		for (StendhalRPZone zone : zonesInRegion) {
-			boolean addToRemovals = false;
-			if(accessible.booleanValue()) {
-				addToRemovals = !zone.isPublicAccessible();
-			} else {
-				addToRemovals = zone.isPublicAccessible();
-			}
-			if (addToRemovals) {
-				removals.add(zone);
+			if ((aboveGround != null) && exterior.booleanValue()
+					&& (aboveGround.booleanValue() != (zone.getLevel() >= 0))) {
+				return false;
 			}
 		}
-		zonesInRegion.removeAll(removals);
+		if ((accessible != null) && (accessible.booleanValue() != zone.isPublicAccessible())) {
+			return false;
+		}
+		return true;
 	}
 }
@@ -17,10 +17,10 @@ import static games.stendhal.common.constants.Actions.MOVE_CONTINUOUS;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.Rectangle2D;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -33,7 +33,6 @@ import java.util.regex.Pattern;
 
 import org.apache.log4j.Logger;
 
-import games.stendhal.common.CRC;
 import games.stendhal.common.CollisionDetection;
 import games.stendhal.common.Debug;
 import games.stendhal.common.Direction;
@@ -74,9 +73,9 @@ import games.stendhal.server.entity.npc.TrainingDummyFactory;
 import games.stendhal.server.entity.player.Player;
 import games.stendhal.server.util.StringUtils;
 import marauroa.common.game.IRPZone;
+import marauroa.common.game.Perception;
 import marauroa.common.game.RPObject;
 import marauroa.common.game.RPSlot;
-import marauroa.common.net.OutputSerializer;
 import marauroa.common.net.message.TransferContent;
 import marauroa.server.game.rp.MarauroaRPZone;
 
@@ -121,6 +120,9 @@ public class StendhalRPZone extends MarauroaRPZone {
 
 	private final List<Player> players;
 
+	/** Creatures that are not given logic turns until an enemy comes near. */
+	private final AggroTracker aggroTracker = new AggroTracker();
+
 	/**
 	 * The blood spills.
 	 */
@@ -151,6 +153,22 @@ public class StendhalRPZone extends MarauroaRPZone {
 	/** Contains data to verify is someone is in a PK-free area. */
 	public CollisionDetection protectionMap;
 
+	/** Spatial index of the entities in this zone. */
+	private final EntityGrid entityGrid = new EntityGrid();
+	/** Area of interest filter of the perceptions, or <code>null</code>. */
+	private InterestManager interestManager;
+	/** <code>true</code> if the need for interestManager has been checked. */
+	private boolean interestManagerChecked;
+
+	/**
+	 * Distance the speakers and listeners of public chat can move before the
+	 * speaker NPCs react to the chat.
+	 */
+	private static final int SPEECH_RANGE_MARGIN = 2;
+
+	/** Largest perception range of the speaker NPCs in this zone. */
+	private int speakerRange;
+
 	/** Position of this zone in the world map. */
 	private boolean interior = true;
 
@@ -370,26 +388,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 		/*
 		 * Serialize the tileset data to send it to client.
 		 */
-		final ByteArrayOutputStream array = new ByteArrayOutputStream();
-		final OutputSerializer out = new OutputSerializer(array);
-
-		int amount = 0;
-
-		for (final TileSetDefinition set : tilesets) {
-			if (!set.getSource().contains("logic/")) {
-				amount++;
-			}
-
-		}
-
-		out.write(amount);
-		for (final TileSetDefinition set : tilesets) {
-			if (!set.getSource().contains("logic/")) {
-				set.writeObject(out);
-			}
-		}
-
-		addToContent(name, array.toByteArray());
+		addToContent(name, TransferContentStore.get().encodeTilesets(tilesets));
 	}
 
 	/**
@@ -408,12 +407,8 @@ public class StendhalRPZone extends MarauroaRPZone {
 			}
 		}
 
-		final TransferContent content = new TransferContent();
-		content.name = name;
-		content.cacheable = true;
+		final TransferContent content = TransferContentStore.get().create(name, byteContents, true);
 		logger.debug("Layer timestamp: " + Integer.toString(content.timestamp));
-		content.data = byteContents;
-		content.timestamp = CRC.cmpCRC(content.data);
 
 		contents.add(content);
 	}
@@ -452,6 +447,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 			throws IOException {
 		addToContent(name, collisionLayer.encode());
 		collisionMap.setCollisionData(collisionLayer);
+		StendhalRPWorld.onZoneAreaChanged();
 	}
 
 	public void addProtectionLayer(final String name, final LayerDefinition protectionLayer)
@@ -465,10 +461,12 @@ public class StendhalRPZone extends MarauroaRPZone {
 		this.level = level;
 		this.x = x;
 		this.y = y;
+		StendhalRPWorld.onZoneAreaChanged();
 	}
 
 	public void setPosition() {
 		this.interior = true;
+		StendhalRPWorld.onZoneAreaChanged();
 	}
 
 	public int getX() {
@@ -890,6 +888,13 @@ public class StendhalRPZone extends MarauroaRPZone {
 		assignRPObjectID(object);
 		super.add(object);
 
+		if (object instanceof Entity) {
+			if ((entityGrid.getWidth() != getWidth()) || (entityGrid.getHeight() != getHeight())) {
+				entityGrid.resize(getWidth(), getHeight());
+			}
+			entityGrid.add((Entity) object);
+		}
+
 		notifyAdded(object);
 
 		// Needs to be before adding an item, in case Item.onPutOnGround()
@@ -935,6 +940,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 			playersAndFriends.add((BabyDragon) object);
 		} else if (object instanceof SpeakerNPC) {
 			SingletonRepository.getNPCList().add((SpeakerNPC) object);
+			updateSpeakerRange(((SpeakerNPC) object).getPerceptionRange());
 		} else if (object instanceof Portal) {
 			portals.add((Portal) object);
 		}
@@ -943,6 +949,13 @@ public class StendhalRPZone extends MarauroaRPZone {
 			npcs.add((NPC) object);
 		}
 
+		if (object instanceof Entity) {
+			notifyProximity((Entity) object);
+		}
+		if (object instanceof RPEntity) {
+			wakeCreaturesNear((RPEntity) object);
+		}
+
 		// TODO: Move up to MarauroaRPZone?
 		SingletonRepository.getRPWorld().requestSync(object);
 	}
@@ -955,6 +968,48 @@ public class StendhalRPZone extends MarauroaRPZone {
 	public void addToPlayersAndFriends(RPEntity object) {
 		if (!playersAndFriends.contains(object)) {
 			playersAndFriends.add(object);
+			wakeCreaturesNear(object);
+		}
+	}
+
+	/**
+	 * Register a creature that fell asleep. Sleeping creatures are skipped in
+	 * the zone logic until they are woken up.
+	 *
+	 * @param creature sleeping creature
+	 */
+	public void addSleepingCreature(final Creature creature) {
+		aggroTracker.add(creature);
+	}
+
+	/**
+	 * Unregister a creature that woke up.
+	 *
+	 * @param creature creature
+	 */
+	public void removeSleepingCreature(final Creature creature) {
+		aggroTracker.remove(creature);
+	}
+
+	/**
+	 * Get the number of sleeping creatures in the zone.
+	 *
+	 * @return number of sleeping creatures
+	 */
+	public int getSleepingCreatureCount() {
+		return aggroTracker.size();
+	}
+
+	/**
+	 * Wake up the sleeping creatures that can pick an entity as their target.
+	 * Called when a player, or a friend of players, enters the zone, moves, or
+	 * becomes visible to creatures. Does nothing for other entities.
+	 *
+	 * @param entity entity
+	 */
+	public void wakeCreaturesNear(final RPEntity entity) {
+		if ((aggroTracker.size() > 0) && playersAndFriends.contains(entity)) {
+			aggroTracker.onMoved(entity);
 		}
 	}
 
@@ -988,6 +1043,9 @@ public class StendhalRPZone extends MarauroaRPZone {
 		} else if (object instanceof Player) {
 			players.remove(object);
 			playersAndFriends.remove(object);
+			if (interestManager != null) {
+				interestManager.removePlayer(object);
+			}
 		} else if (object instanceof AttackableCreature) {
 			playersAndFriends.remove(object);
 		} else if (object instanceof Sheep) {
@@ -1009,6 +1067,9 @@ public class StendhalRPZone extends MarauroaRPZone {
 			removeMovementListener((MovementListener) object);
 		}
 
+		if (object instanceof Entity) {
+			entityGrid.remove((Entity) object);
+		}
 		super.remove(id);
 
 		if (object instanceof Item) {
@@ -1164,22 +1225,74 @@ public class StendhalRPZone extends MarauroaRPZone {
 	}
 
 	private Entity getCollidingObject(final Entity entity, final Rectangle2D area) {
-		for (final RPObject other : objects.values()) {
-			// Ignore same object
-			if (entity != other) {
-				final Entity otherEntity = (Entity) other;
-
-				// Check if the objects overlap
-				if (area.intersects(otherEntity.getX(), otherEntity.getY(), otherEntity.getWidth(), otherEntity.getHeight())) {
-					// Check if it's blocking
-					if (otherEntity.isObstacle(entity)) {
-						return otherEntity;
-					}
-				}
+		return entityGrid.getObstacle(entity, area);
+	}
+
+	/**
+	 * Update the spatial index after the position or size of an entity in
+	 * this zone has changed.
+	 *
+	 * @param entity changed entity
+	 */
+	public synchronized void updateEntityIndex(final Entity entity) {
+		entityGrid.update(entity);
+		notifyProximity(entity);
+	}
+
+	/**
+	 * Tell the speaker NPCs about players coming near them.
+	 *
+	 * @param entity entity that was placed or moved
+	 */
+	private void notifyProximity(final Entity entity) {
+		if (entity instanceof Player) {
+			final Player player = (Player) entity;
+			for (final SpeakerNPC npc : getSpeakerNPCsAround(player, speakerRange)) {
+				npc.onPlayerNearby(player);
 			}
+		} else if (entity instanceof SpeakerNPC) {
+			((SpeakerNPC) entity).lookForNearbyPlayers();
 		}
+	}
 
-		return null;
+	/**
+	 * Pass the public chat of a player to the speaker NPCs that can hear it.
+	 * The NPCs react to it in their next <code>preLogic()</code>. This should
+	 * be called whenever the "text" attribute of a player is set.
+	 *
+	 * @param speaker talking player
+	 */
+	public void notifySpeech(final Player speaker) {
+		for (final SpeakerNPC npc : getSpeakerNPCsAround(speaker, speakerRange + SPEECH_RANGE_MARGIN)) {
+			npc.hear(speaker);
+		}
+	}
+
+	/**
+	 * Update the largest perception range of the speaker NPCs, when the
+	 * range of one of them changes.
+	 *
+	 * @param range perception range of a speaker NPC in this zone
+	 */
+	public void updateSpeakerRange(final int range) {
+		speakerRange = Math.max(speakerRange, range);
+	}
+
+	/**
+	 * Get the speaker NPCs whose position is less than <code>range</code>
+	 * tiles away from an entity horizontally and vertically.
+	 *
+	 * @param entity center entity
+	 * @param range range
+	 * @return speaker NPCs near the entity
+	 */
+	private List<SpeakerNPC> getSpeakerNPCsAround(final Entity entity, final int range) {
+		if (range <= 0) {
+			return Collections.emptyList();
+		}
+		final Rectangle area = new Rectangle(entity.getX() - range + 1, entity.getY() - range + 1,
+				2 * range - 1, 2 * range - 1);
+		return getEntitiesIn(area, SpeakerNPC.class);
 	}
 
 	/**
@@ -1190,15 +1303,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 * @return the first entity found if there are more than one or null if there are none
 	 */
 	public synchronized Entity getEntityAt(final double x, final double y) {
-		for (final RPObject other : objects.values()) {
-			final Entity otherEntity = (Entity) other;
-
-			final Rectangle2D rect = otherEntity.getArea();
-			if (rect.contains(x, y)) {
-				return otherEntity;
-			}
-		}
-		return null;
+		return entityGrid.getEntityAt(x, y);
 	}
 
 	/**
@@ -1208,18 +1313,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 * @return list of entities at (x, y)
 	 */
 	public synchronized List<Entity> getEntitiesAt(final double x, final double y) {
-		List<Entity> entities = new LinkedList<Entity>();
-
-		for (final RPObject other : objects.values()) {
-			final Entity entity = (Entity) other;
-
-			final Rectangle2D rect = entity.getArea();
-			if (rect.contains(x, y)) {
-				entities.add(entity);
-			}
-		}
-
-		return entities;
+		return entityGrid.getEntitiesAt(x, y, Entity.class);
 	}
 
 
@@ -1230,21 +1324,18 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 * @return list of entities at (x, y)
 	 */
 	public synchronized <T extends Entity> List<T> getEntitiesAt(final double x, final double y, Class<T> clazz) {
-		List<T> entities = new LinkedList<T>();
-
-		for (final RPObject other : objects.values()) {
-			final Entity entity = (Entity) other;
-			if (!clazz.isInstance(entity)) {
-				continue;
-			}
-
-			final Rectangle2D rect = entity.getArea();
-			if (rect.contains(x, y)) {
-				entities.add(clazz.cast(entity));
-			}
-		}
+		return entityGrid.getEntitiesAt(x, y, clazz);
+	}
 
-		return entities;
+	/**
+	 * Finds all entities that overlap an area.
+	 *
+	 * @param area searched area
+	 * @param clazz required entity type
+	 * @return list of entities intersecting the area
+	 */
+	public synchronized <T extends Entity> List<T> getEntitiesIn(final Rectangle2D area, Class<T> clazz) {
+		return entityGrid.getEntitiesIn(area, clazz);
 	}
 
 	/**
@@ -1369,6 +1460,13 @@ public class StendhalRPZone extends MarauroaRPZone {
 		oeArea = entity.getArea(oldX, oldY);
 		neArea = entity.getArea(newX, newY);
 
+		if (entity instanceof RPEntity) {
+			wakeCreaturesNear((RPEntity) entity);
+		}
+		if ((entity instanceof Creature) && ((Creature) entity).isSleeping()) {
+			aggroTracker.onCreatureMoved((Creature) entity);
+		}
+
 		for (final MovementListener l : movementListeners) {
 			Rectangle2D area = l.getArea();
 
@@ -1499,6 +1597,28 @@ public class StendhalRPZone extends MarauroaRPZone {
 
 
 
+	/**
+	 * Get the perception of a player. If perception_radius is configured,
+	 * the perceptions on large zones include the creatures and items only
+	 * near the player.
+	 *
+	 * @param player player
+	 * @param type perception type
+	 * @return perception
+	 */
+	@Override
+	public synchronized Perception getPerception(final RPObject player, final byte type) {
+		final Perception perception = super.getPerception(player, type);
+		if (!interestManagerChecked) {
+			interestManager = InterestManager.create(this);
+			interestManagerChecked = true;
+		}
+		if (interestManager == null) {
+			return perception;
+		}
+		return interestManager.filter(player, perception);
+	}
+
 	@Override
 	@SuppressWarnings("unused")
 	public void nextTurn() {
@@ -1518,6 +1638,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 			os.append("portals: " + portals.size() + "\n");
 			os.append("respawnPoints: " + respawnPoints.size() + "\n");
 			os.append("sheepFoods: " + sheepFoods.size() + "\n");
+			os.append("sleepingCreatures: " + aggroTracker.size() + "\n");
 			os.append("objects: " + objects.size() + "\n");
 			logger.info(os);
 		}
@@ -1525,6 +1646,9 @@ public class StendhalRPZone extends MarauroaRPZone {
 
 	public void logic() {
 		for (final NPC npc : npcs) {
+			if ((npc instanceof Creature) && ((Creature) npc).isSleeping()) {
+				continue;
+			}
 			try {
 				npc.logic();
 			} catch (final Exception e) {
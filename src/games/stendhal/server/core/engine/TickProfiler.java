@@ -0,0 +1,361 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import marauroa.common.Configuration;
+
+/**
+ * Measures where the time of the turns is spent.
+ * <p>
+ * The rule processor reports the phases of each turn, the zone logic the
+ * time of each zone, and the turn notifier the time of each listener,
+ * grouped by the listener class. Turns that take longer than
+ * {@link StendhalRPWorld#MILLISECONDS_PER_TURN} are logged with their
+ * slowest contributors. The collected distributions are written to the log,
+ * and optionally to a CSV file, periodically and then started anew.
+ * <p>
+ * All methods must be called from the turn thread.
+ */
+public final class TickProfiler {
+	private static final Logger logger = Logger.getLogger(TickProfiler.class);
+
+	/** Category of the turn phases. */
+	public static final String PHASES = "phase";
+	/** Category of the zone logic times. */
+	public static final String ZONES = "zone";
+	/** Category of the turn listener times. */
+	public static final String LISTENERS = "listener";
+	/** Turn budget in nanoseconds. */
+	private static final long BUDGET = StendhalRPWorld.MILLISECONDS_PER_TURN * 1000000L;
+	/** Number of contributors included in the summaries. */
+	private static final int SUMMARY_SIZE = 5;
+	/**
+	 * Maximum number of names tracked per category and period. Zones created
+	 * at run time, like mazes, would otherwise grow the maps without limit
+	 * if the summaries are disabled.
+	 */
+	static final int MAX_NAMES = 1000;
+	/** Name under which the contributors beyond {@link #MAX_NAMES} are collected. */
+	static final String OTHER = "(other)";
+
+	private static TickProfiler instance;
+
+	/** Time between summaries in milliseconds, or 0 if disabled. */
+	private final long dumpInterval;
+	/** CSV file for the summaries, or <code>null</code>. */
+	private final File csvFile;
+
+	/** Start of the current summary period. */
+	private long periodStart = System.currentTimeMillis();
+	/** Distribution of the complete turn times. */
+	private TimingHistogram turns = new TimingHistogram();
+	/** Number of turns over the budget. */
+	private int overBudget;
+	/** Distributions by category and name. */
+	private Map<String, Map<String, TimingHistogram>> categories = createCategories();
+
+	/** Start of the current turn, or 0 if no turn is running. */
+	private long turnStart;
+	/** Phase times of the current turn. */
+	private final Map<String, Long> turnPhases = new LinkedHashMap<String, Long>();
+	/** Slowest zone of the current turn. */
+	private String slowestZone;
+	private long slowestZoneTime;
+	/** Slowest listener of the current turn. */
+	private String slowestListener;
+	private long slowestListenerTime;
+
+	/**
+	 * Create a new TickProfiler.
+	 *
+	 * @param dumpInterval time between summaries in milliseconds, or 0 to
+	 * 	disable the summaries
+	 * @param csvFile file where the summaries are appended, or
+	 * 	<code>null</code>
+	 */
+	TickProfiler(final long dumpInterval, final File csvFile) {
+		this.dumpInterval = dumpInterval;
+		this.csvFile = csvFile;
+	}
+
+	/**
+	 * Get the TickProfiler. The summary interval is read from
+	 * server_tick_profile_interval in seconds, and the optional CSV file from
+	 * server_tick_profile_csv.
+	 *
+	 * @return TickProfiler
+	 */
+	public static synchronized TickProfiler get() {
+		if (instance == null) {
+			int interval = 3600;
+			File csv = null;
+			try {
+				final Configuration config = Configuration.getConfiguration();
+				interval = config.getInt("server_tick_profile_interval", interval);
+				if (config.has("server_tick_profile_csv")) {
+					csv = new File(config.get("server_tick_profile_csv"));
+				}
+			} catch (final IOException e) {
+				logger.error(e, e);
+			}
+			instance = new TickProfiler(interval * 1000L, csv);
+		}
+		return instance;
+	}
+
+	private static Map<String, Map<String, TimingHistogram>> createCategories() {
+		final Map<String, Map<String, TimingHistogram>> map = new LinkedHashMap<String, Map<String, TimingHistogram>>();
+		map.put(PHASES, new LinkedHashMap<String, TimingHistogram>());
+		map.put(ZONES, new HashMap<String, TimingHistogram>());
+		map.put(LISTENERS, new HashMap<String, TimingHistogram>());
+		return map;
+	}
+
+	/**
+	 * Called at the start of a turn.
+	 */
+	public void beginTurn() {
+		turnStart = System.nanoTime();
+		turnPhases.clear();
+		slowestZone = null;
+		slowestZoneTime = 0;
+		slowestListener = null;
+		slowestListenerTime = 0;
+	}
+
+	/**
+	 * Record the end of a turn phase.
+	 *
+	 * @param name phase name
+	 * @param start start of the phase as given by {@link System#nanoTime()}
+	 * @return current time, which can be used as the start of the next phase
+	 */
+	public long phase(final String name, final long start) {
+		final long now = System.nanoTime();
+		final long time = now - start;
+		record(PHASES, name, time);
+		final Long previous = turnPhases.get(name);
+		turnPhases.put(name, (previous == null) ? time : previous + time);
+		return now;
+	}
+
+	/**
+	 * Record the logic time of a zone.
+	 *
+	 * @param zone zone name
+	 * @param time logic time in nanoseconds
+	 */
+	public void zone(final String zone, final long time) {
+		record(ZONES, zone, time);
+		if (time > slowestZoneTime) {
+			slowestZone = zone;
+			slowestZoneTime = time;
+		}
+	}
+
+	/**
+	 * Record the end of a turn listener call.
+	 *
+	 * @param listener listener class
+	 * @param start start of the call as given by {@link System#nanoTime()}
+	 * @return current time, which can be used as the start of the next call
+	 */
+	public long listener(final Class<?> listener, final long start) {
+		final long now = System.nanoTime();
+		final long time = now - start;
+		final String name = listener.getName();
+		record(LISTENERS, name, time);
+		if (time > slowestListenerTime) {
+			slowestListener = name;
+			slowestListenerTime = time;
+		}
+		return now;
+	}
+
+	private void record(final String category, final String name, final long time) {
+		final Map<String, TimingHistogram> map = categories.get(category);
+		TimingHistogram histogram = map.get(name);
+		if (histogram == null) {
+			String key = name;
+			if (map.size() >= MAX_NAMES) {
+				key = OTHER;
+				histogram = map.get(OTHER);
+			}
+			if (histogram == null) {
+				histogram = new TimingHistogram();
+				map.put(key, histogram);
+			}
+		}
+		histogram.record(time);
+	}
+
+	/**
+	 * Called at the end of a turn.
+	 *
+	 * @param turn number of the turn
+	 */
+	public void endTurn(final int turn) {
+		if (turnStart == 0) {
+			return;
+		}
+		final long time = System.nanoTime() - turnStart;
+		turnStart = 0;
+		turns.record(time);
+		if (time > BUDGET) {
+			overBudget++;
+			logger.warn(describeTurn(turn, time));
+		}
+
+		if ((dumpInterval > 0) && (System.currentTimeMillis() - periodStart >= dumpInterval)) {
+			dump();
+		}
+	}
+
+	/**
+	 * Describe the current turn.
+	 *
+	 * @param turn turn number
+	 * @param time turn time in nanoseconds
+	 * @return description
+	 */
+	private String describeTurn(final int turn, final long time) {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("Turn ").append(turn).append(" took ").append(format(time))
+			.append(" ms (budget ").append(StendhalRPWorld.MILLISECONDS_PER_TURN).append(" ms):");
+		for (final Map.Entry<String, Long> entry : turnPhases.entrySet()) {
+			sb.append(' ').append(entry.getKey()).append(' ').append(format(entry.getValue())).append(',');
+		}
+		sb.append(" slowest zone ").append(slowestZone).append(' ').append(format(slowestZoneTime));
+		sb.append(", slowest listener ").append(slowestListener).append(' ').append(format(slowestListenerTime));
+		return sb.toString();
+	}
+
+	/**
+	 * Write the summary of the current period to the log and the CSV file,
+	 * and start a new period.
+	 */
+	void dump() {
+		logger.info(getSummary(null, SUMMARY_SIZE));
+		if (csvFile != null) {
+			writeCsv();
+		}
+		periodStart = System.currentTimeMillis();
+		turns = new TimingHistogram();
+		overBudget = 0;
+		categories = createCategories();
+	}
+
+	/**
+	 * Append the distributions of the current period to the CSV file.
+	 */
+	private void writeCsv() {
+		final boolean header = !csvFile.exists();
+		try (PrintWriter out = new PrintWriter(new FileWriter(csvFile, true))) {
+			if (header) {
+				out.println("time,category,name,count,total_ms,mean_ms,p50_ms,p99_ms,max_ms");
+			}
+			final long now = System.currentTimeMillis();
+			writeCsvLine(out, now, "turn", "total", turns);
+			for (final Map.Entry<String, Map<String, TimingHistogram>> category : categories.entrySet()) {
+				for (final Map.Entry<String, TimingHistogram> entry : category.getValue().entrySet()) {
+					writeCsvLine(out, now, category.getKey(), entry.getKey(), entry.getValue());
+				}
+			}
+		} catch (final IOException e) {
+			logger.error("Failed to write tick profile to " + csvFile, e);
+		}
+	}
+
+	private void writeCsvLine(final PrintWriter out, final long time, final String category,
+			final String name, final TimingHistogram histogram) {
+		out.println(time + "," + category + "," + name + "," + histogram.getCount()
+			+ "," + format(histogram.getTotal()) + "," + format(histogram.getMean())
+			+ "," + format(histogram.getPercentile(50)) + "," + format(histogram.getPercentile(99))
+			+ "," + format(histogram.getMax()));
+	}
+
+	/**
+	 * Get a summary of the current period.
+	 *
+	 * @param category category to include, or <code>null</code> for all
+	 * @param size maximum number of contributors listed per category
+	 * @return summary
+	 */
+	public String getSummary(final String category, final int size) {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("Tick profile of the last ")
+			.append((System.currentTimeMillis() - periodStart) / 1000).append(" s: ")
+			.append(turns.getCount()).append(" turns, ").append(overBudget).append(" over budget, ")
+			.append(describe(turns));
+		for (final Map.Entry<String, Map<String, TimingHistogram>> entry : categories.entrySet()) {
+			if ((category == null) || category.equals(entry.getKey())) {
+				sb.append("\nSlowest ").append(entry.getKey()).append("s by total time:");
+				for (final Map.Entry<String, TimingHistogram> item : getSlowest(entry.getValue(), size)) {
+					sb.append("\n  ").append(item.getKey()).append(": ").append(describe(item.getValue()));
+				}
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Get the entries with the largest total time.
+	 *
+	 * @param map histograms by name
+	 * @param size maximum number of returned entries
+	 * @return slowest entries, slowest first
+	 */
+	private List<Map.Entry<String, TimingHistogram>> getSlowest(final Map<String, TimingHistogram> map, final int size) {
+		final List<Map.Entry<String, TimingHistogram>> list = new ArrayList<Map.Entry<String, TimingHistogram>>(map.entrySet());
+		Collections.sort(list, new Comparator<Map.Entry<String, TimingHistogram>>() {
+			@Override
+			public int compare(final Map.Entry<String, TimingHistogram> e1, final Map.Entry<String, TimingHistogram> e2) {
+				return Long.compare(e2.getValue().getTotal(), e1.getValue().getTotal());
+			}
+		});
+		if (list.size() > size) {
+			return list.subList(0, size);
+		}
+		return list;
+	}
+
+	private String describe(final TimingHistogram histogram) {
+		return "count " + histogram.getCount() + ", total " + format(histogram.getTotal())
+			+ " ms, mean " + format(histogram.getMean()) + " ms, p99 "
+			+ format(histogram.getPercentile(99)) + " ms, max " + format(histogram.getMax()) + " ms";
+	}
+
+	/**
+	 * Format nanoseconds as milliseconds.
+	 *
+	 * @param nanos time in nanoseconds
+	 * @return formatted time
+	 */
+	private static String format(final long nanos) {
+		return String.format(Locale.ENGLISH, "%.3f", nanos / 1000000.0);
+	}
+}
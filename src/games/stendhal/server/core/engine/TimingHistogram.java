@@ -0,0 +1,143 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+/**
+ * Distribution of durations with a bounded relative error.
+ * <p>
+ * Durations are counted in microseconds. Each power of two range is split
+ * to {@value #SUB_BUCKETS} equally sized buckets, so a percentile is off by
+ * at most 1/{@value #SUB_BUCKETS} of its value, while the histogram has a
+ * fixed size regardless of the number of recorded values.
+ */
+final class TimingHistogram {
+	/** log2 of SUB_BUCKETS. */
+	private static final int SUB_BUCKET_BITS = 3;
+	/** Number of buckets in each power of two range. */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	/** Total number of buckets needed for covering all long values. */
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final int[] counts = new int[BUCKETS];
+	/** Number of recorded values. */
+	private long count;
+	/** Sum of the recorded values in nanoseconds. */
+	private long total;
+	/** Largest recorded value in nanoseconds. */
+	private long max;
+
+	/**
+	 * Record a duration.
+	 *
+	 * @param nanos duration in nanoseconds
+	 */
+	void record(final long nanos) {
+		final long value = Math.max(0, nanos);
+		counts[bucketIndex(value / 1000)]++;
+		count++;
+		total += value;
+		max = Math.max(max, value);
+	}
+
+	/**
+	 * Get the number of recorded durations.
+	 *
+	 * @return count
+	 */
+	long getCount() {
+		return count;
+	}
+
+	/**
+	 * Get the sum of the recorded durations.
+	 *
+	 * @return total in nanoseconds
+	 */
+	long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Get the longest recorded duration.
+	 *
+	 * @return maximum in nanoseconds
+	 */
+	long getMax() {
+		return max;
+	}
+
+	/**
+	 * Get the mean of the recorded durations.
+	 *
+	 * @return mean in nanoseconds, or 0 if nothing has been recorded
+	 */
+	long getMean() {
+		if (count == 0) {
+			return 0;
+		}
+		return total / count;
+	}
+
+	/**
+	 * Get an upper bound of a percentile of the recorded durations.
+	 *
+	 * @param percentile percentile between 0 and 100
+	 * @return duration in nanoseconds, or 0 if nothing has been recorded
+	 */
+	long getPercentile(final double percentile) {
+		final long limit = Math.max(1, (long) Math.ceil(count * percentile / 100));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= limit) {
+				if (i + 1 == BUCKETS) {
+					return max;
+				}
+				// Highest value in the bucket, in nanoseconds
+				final long highest = bucketStart(i + 1) * 1000 - 1;
+				return Math.min(max, highest);
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Get the bucket of a value.
+	 *
+	 * @param value value in microseconds
+	 * @return bucket index
+	 */
+	static int bucketIndex(final long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		final int shift = exponent - SUB_BUCKET_BITS;
+		final int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+		return (shift + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * Get the smallest value of a bucket.
+	 *
+	 * @param index bucket index
+	 * @return value in microseconds
+	 */
+	static long bucketStart(final int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		final int shift = index / SUB_BUCKETS - 1;
+		final int sub = index % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + sub)) << shift;
+	}
+}
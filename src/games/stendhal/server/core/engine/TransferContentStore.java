@@ -0,0 +1,276 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import games.stendhal.common.CRC;
+import games.stendhal.common.tiled.TileSetDefinition;
+import marauroa.common.net.OutputSerializer;
+import marauroa.common.net.message.TransferContent;
+import marauroa.server.game.Statistics;
+
+/**
+ * Shared storage for the data sent to the clients as TransferContent.
+ * <p>
+ * Data is stored by its contents, so identical layers, tileset lists and
+ * attribute sets of different zones use the same array, and its checksum is
+ * calculated only once. TransferContent carries the layer name, so each zone
+ * still gets TransferContent objects of its own, but they refer to the
+ * shared arrays. The arrays must not be modified after they have been
+ * stored.
+ * <p>
+ * The store refers to the arrays weakly, so the data of removed zones, like
+ * generated mazes, is forgotten when no zone uses it any more.
+ */
+public final class TransferContentStore {
+	private static TransferContentStore instance;
+
+	/** Stored data by the hash of the contents. */
+	private final Map<Integer, List<Blob>> blobs = new HashMap<Integer, List<Blob>>();
+	/** Serialized tileset lists by the tileset descriptions. */
+	private final Map<String, Reference<byte[]>> tilesets = new HashMap<String, Reference<byte[]>>();
+	/** Stored data that is no longer used. */
+	private final ReferenceQueue<byte[]> released = new ReferenceQueue<byte[]>();
+
+	/** Number of times existing data was found. */
+	private int hits;
+	/** Number of times new data was stored. */
+	private int misses;
+	/** Total size of the data that has been stored. */
+	private long storedBytes;
+	/** Total size of the data that was found in the store. */
+	private long sharedBytes;
+
+	/**
+	 * Get the TransferContentStore.
+	 *
+	 * @return store
+	 */
+	public static synchronized TransferContentStore get() {
+		if (instance == null) {
+			instance = new TransferContentStore();
+		}
+		return instance;
+	}
+
+	/**
+	 * Create a TransferContent, sharing the data with the earlier contents
+	 * that had identical data.
+	 *
+	 * @param name content name
+	 * @param data content data. The array must not be modified afterwards
+	 * @param cacheable <code>true</code> if the client may cache the content
+	 * @return content
+	 */
+	public synchronized TransferContent create(final String name, final byte[] data, final boolean cacheable) {
+		final byte[][] stored = new byte[1][];
+		final Blob blob = store(data, stored);
+		// The constructor taking the data copies it, so set the fields directly
+		final TransferContent content = new TransferContent();
+		content.name = name;
+		content.timestamp = blob.crc;
+		content.data = stored[0];
+		content.cacheable = cacheable;
+		return content;
+	}
+
+	/**
+	 * Find stored data, or store it if it has not been stored before.
+	 *
+	 * @param data data
+	 * @param result array for returning the stored data. The caller must
+	 * 	keep it referenced for as long as it uses the blob
+	 * @return stored data
+	 */
+	private Blob store(final byte[] data, final byte[][] result) {
+		expunge();
+		final Integer hash = Integer.valueOf(Arrays.hashCode(data));
+		List<Blob> bucket = blobs.get(hash);
+		if (bucket != null) {
+			for (final Blob blob : bucket) {
+				final byte[] stored = blob.get();
+				if (Arrays.equals(data, stored)) {
+					hits++;
+					sharedBytes += data.length;
+					updateStatistics();
+					result[0] = stored;
+					return blob;
+				}
+			}
+		} else {
+			bucket = new ArrayList<Blob>(1);
+			blobs.put(hash, bucket);
+		}
+		final Blob blob = new Blob(data, hash, CRC.cmpCRC(data), released);
+		bucket.add(blob);
+		misses++;
+		storedBytes += data.length;
+		updateStatistics();
+		result[0] = data;
+		return blob;
+	}
+
+	/**
+	 * Forget the data that is no longer used by any zone.
+	 */
+	private void expunge() {
+		boolean removed = false;
+		for (Reference<? extends byte[]> ref = released.poll(); ref != null; ref = released.poll()) {
+			final Blob blob = (Blob) ref;
+			final List<Blob> bucket = blobs.get(blob.hash);
+			if (bucket != null) {
+				// compare by identity, the contents are gone
+				for (final Iterator<Blob> it = bucket.iterator(); it.hasNext();) {
+					if (it.next() == blob) {
+						it.remove();
+					}
+				}
+				if (bucket.isEmpty()) {
+					blobs.remove(blob.hash);
+				}
+			}
+			removed = true;
+		}
+		if (removed) {
+			for (final Iterator<Reference<byte[]>> it = tilesets.values().iterator(); it.hasNext();) {
+				if (it.next().get() == null) {
+					it.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the number of stored data arrays.
+	 *
+	 * @return number of arrays
+	 */
+	synchronized int getSize() {
+		expunge();
+		int size = 0;
+		for (final List<Blob> bucket : blobs.values()) {
+			size += bucket.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Serialize the tileset list that is sent to the clients. Tileset lists
+	 * used by several zones are serialized only once.
+	 *
+	 * @param sets tilesets of a zone
+	 * @return serialized tileset list. The array is shared and must not be
+	 * 	modified
+	 * @throws IOException on serialization errors
+	 */
+	public synchronized byte[] encodeTilesets(final List<TileSetDefinition> sets) throws IOException {
+		// TileSetDefinition.hashCode() is identity based, so describe the
+		// list as a string for the lookup
+		final StringBuilder description = new StringBuilder();
+		int amount = 0;
+		for (final TileSetDefinition set : sets) {
+			if (!set.getSource().contains("logic/")) {
+				amount++;
+				description.append(set.getName()).append('\n').append(set.getSource()).append('\n')
+					.append(set.getFirstGid()).append('\n');
+			}
+		}
+		final String key = description.toString();
+		final Reference<byte[]> ref = tilesets.get(key);
+		byte[] encoded = (ref != null) ? ref.get() : null;
+		if (encoded == null) {
+			final ByteArrayOutputStream array = new ByteArrayOutputStream();
+			final OutputSerializer out = new OutputSerializer(array);
+			out.write(amount);
+			for (final TileSetDefinition set : sets) {
+				if (!set.getSource().contains("logic/")) {
+					set.writeObject(out);
+				}
+			}
+			final byte[][] stored = new byte[1][];
+			store(array.toByteArray(), stored);
+			encoded = stored[0];
+			tilesets.put(key, new WeakReference<byte[]>(encoded));
+		}
+		return encoded;
+	}
+
+	private void updateStatistics() {
+		final Statistics stats = Statistics.getStatistics();
+		stats.set("Transfer content hits", hits);
+		stats.set("Transfer content misses", misses);
+	}
+
+	/**
+	 * Get the number of times existing data was found.
+	 *
+	 * @return hit count
+	 */
+	public synchronized int getHits() {
+		return hits;
+	}
+
+	/**
+	 * Get the number of times new data was stored.
+	 *
+	 * @return miss count
+	 */
+	public synchronized int getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Get the total size of the stored data.
+	 *
+	 * @return size in bytes
+	 */
+	public synchronized long getStoredBytes() {
+		return storedBytes;
+	}
+
+	/**
+	 * Get the total size of the data that was found in the store, and thus
+	 * did not need to be kept in memory again.
+	 *
+	 * @return size in bytes
+	 */
+	public synchronized long getSharedBytes() {
+		return sharedBytes;
+	}
+
+	/**
+	 * Stored data, referred weakly.
+	 */
+	private static final class Blob extends WeakReference<byte[]> {
+		/** Hash of the contents. */
+		private final Integer hash;
+		/** Checksum of the data. */
+		private final int crc;
+
+		Blob(final byte[] data, final Integer hash, final int crc, final ReferenceQueue<byte[]> queue) {
+			super(data, queue);
+			this.hash = hash;
+			this.crc = crc;
+		}
+	}
+}
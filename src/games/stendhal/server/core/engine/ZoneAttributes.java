@@ -19,7 +19,6 @@ import java.util.Map.Entry;
 
 import org.apache.log4j.Logger;
 
-import games.stendhal.common.CRC;
 import games.stendhal.server.core.rp.DaylightUpdater;
 import games.stendhal.server.core.rp.WeatherUpdater;
 import marauroa.common.game.RPObject;
@@ -32,8 +31,19 @@ import marauroa.common.net.message.TransferContent;
 public class ZoneAttributes {
 	private static final Logger logger = Logger.getLogger(ZoneAttributes.class);
 
+	/** Maximum number of remembered attribute variants. */
+	private static final int MAX_VARIANTS = 64;
+
+	/** Name of the attribute layer. */
+	private String name;
 	/** Container to wrap the contents to pass as a layer. */
-	private final TransferContent content = new TransferContent();
+	private TransferContent content;
+	/**
+	 * Encoded contents of the attribute sets used so far. Daylight and
+	 * weather changes cycle through a few sets, so the repeating sets are
+	 * encoded only once.
+	 */
+	private final Map<Map<String, String>, TransferContent> variants = new HashMap<Map<String, String>, TransferContent>();
 	/** An object for storing the attributes. */
 	private final RPObject attr = new RPObject();
 	/**
@@ -54,7 +64,6 @@ public class ZoneAttributes {
 	public ZoneAttributes(StendhalRPZone zone) {
 		attr.setID(RPObject.INVALID_ID);
 		setBaseName(zone.getName());
-		content.cacheable = false;
 		this.zone = zone;
 	}
 
@@ -70,7 +79,9 @@ public class ZoneAttributes {
 	 */
 	public final void setBaseName(String name) {
 		// old client ignore layers ending in _map, thus the odd choice of name
-		content.name = name + ".data_map";
+		this.name = name + ".data_map";
+		variants.clear();
+		invalidate();
 	}
 
 	/**
@@ -172,16 +183,23 @@ public class ZoneAttributes {
 	 * Regenerate the binary contents.
 	 */
 	private void validate() {
-		final ByteArrayOutputStream array = new ByteArrayOutputStream();
-		final OutputSerializer serializer = new OutputSerializer(array);
-		try {
-			attr.writeObject(serializer);
-		} catch (IOException e) {
-			logger.error("Failed to set attributes", e);
-		}
+		final Map<String, String> values = toMap();
+		content = variants.get(values);
+		if (content == null) {
+			final ByteArrayOutputStream array = new ByteArrayOutputStream();
+			final OutputSerializer serializer = new OutputSerializer(array);
+			try {
+				attr.writeObject(serializer);
+			} catch (IOException e) {
+				logger.error("Failed to set attributes", e);
+			}
 
-		content.data = array.toByteArray();
-		content.timestamp = CRC.cmpCRC(content.data);
+			content = TransferContentStore.get().create(name, array.toByteArray(), false);
+			if (variants.size() >= MAX_VARIANTS) {
+				variants.clear();
+			}
+			variants.put(values, content);
+		}
 		valid = true;
 	}
 
@@ -0,0 +1,144 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import marauroa.common.game.IRPZone;
+
+/**
+ * A grid of world coordinate cells per level, that lists the exterior zones
+ * overlapping each cell. The index is a snapshot of the zone positions and
+ * sizes, so it has to be rebuilt when zones are added, removed or moved.
+ */
+final class ZoneIndex {
+	/** Width and height of a cell in tiles. */
+	static final int CELL_SIZE = 64;
+
+	/** Cells of each level, keyed by the packed cell coordinates. */
+	private final Map<Integer, Map<Long, List<StendhalRPZone>>> levels = new HashMap<Integer, Map<Long, List<StendhalRPZone>>>();
+	/** Position of the zones in the iteration order of the world. */
+	private final Map<StendhalRPZone, Integer> order = new IdentityHashMap<StendhalRPZone, Integer>();
+
+	/**
+	 * Creates a new ZoneIndex.
+	 *
+	 * @param zones all zones of the world
+	 */
+	ZoneIndex(final Iterable<IRPZone> zones) {
+		for (final IRPZone izone : zones) {
+			final StendhalRPZone zone = (StendhalRPZone) izone;
+			order.put(zone, Integer.valueOf(order.size()));
+			if (!zone.isInterior()) {
+				add(zone);
+			}
+		}
+	}
+
+	private void add(final StendhalRPZone zone) {
+		final int width = zone.getWidth();
+		final int height = zone.getHeight();
+		if ((width <= 0) || (height <= 0)) {
+			return;
+		}
+
+		Map<Long, List<StendhalRPZone>> cells = levels.get(zone.getLevel());
+		if (cells == null) {
+			cells = new HashMap<Long, List<StendhalRPZone>>();
+			levels.put(zone.getLevel(), cells);
+		}
+
+		final int maxX = cell(zone.getX() + width - 1);
+		final int maxY = cell(zone.getY() + height - 1);
+		for (int cx = cell(zone.getX()); cx <= maxX; cx++) {
+			for (int cy = cell(zone.getY()); cy <= maxY; cy++) {
+				final Long key = key(cx, cy);
+				List<StendhalRPZone> list = cells.get(key);
+				if (list == null) {
+					list = new ArrayList<StendhalRPZone>(1);
+					cells.put(key, list);
+				}
+				list.add(zone);
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of zones the index was built from.
+	 *
+	 * @return number of zones
+	 */
+	int size() {
+		return order.size();
+	}
+
+	/**
+	 * Finds the exterior zone intersecting an area. If several zones
+	 * intersect it, the one that comes first in the iteration order of the
+	 * world is returned, like a scan of the world would do.
+	 *
+	 * @param level level
+	 * @param area area in world coordinates
+	 * @return zone, or <code>null</code> if none of the indexed zones intersects the area
+	 */
+	StendhalRPZone find(final int level, final Rectangle2D area) {
+		final Map<Long, List<StendhalRPZone>> cells = levels.get(level);
+		if (cells == null) {
+			return null;
+		}
+
+		final int minX = cell((int) Math.floor(area.getMinX()));
+		final int minY = cell((int) Math.floor(area.getMinY()));
+		final int maxX = Math.max(minX, cell((int) Math.ceil(area.getMaxX()) - 1));
+		final int maxY = Math.max(minY, cell((int) Math.ceil(area.getMaxY()) - 1));
+
+		StendhalRPZone result = null;
+		int resultOrder = Integer.MAX_VALUE;
+		for (int cx = minX; cx <= maxX; cx++) {
+			for (int cy = minY; cy <= maxY; cy++) {
+				final List<StendhalRPZone> list = cells.get(key(cx, cy));
+				if (list == null) {
+					continue;
+				}
+				for (final StendhalRPZone zone : list) {
+					final int zoneOrder = order.get(zone).intValue();
+					if ((zoneOrder < resultOrder) && zone.intersects(area)) {
+						result = zone;
+						resultOrder = zoneOrder;
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	private static int cell(final int coordinate) {
+		return Math.floorDiv(coordinate, CELL_SIZE);
+	}
+
+	/**
+	 * Pack cell coordinates to a map key. Shared with the other cell grids of
+	 * the package.
+	 *
+	 * @param cx cell x coordinate
+	 * @param cy cell y coordinate
+	 * @return key
+	 */
+	static Long key(final int cx, final int cy) {
+		return Long.valueOf(((long) cx << 32) | (cy & 0xffffffffL));
+	}
+}
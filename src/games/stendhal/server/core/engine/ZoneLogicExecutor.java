@@ -0,0 +1,212 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Runs the NPC, creature and portal logic of the zones at the end of a turn.
+ * <p>
+ * By default the zones are processed one after another on the turn thread.
+ * In parallel mode the zones are distributed over a pool of worker threads.
+ * Zones barely interact within a turn, but the few actions that do reach
+ * out of a zone are not safe to run concurrently. Code doing such actions
+ * passes them to {@link #defer(Runnable)}, which collects them per zone while
+ * the workers run. After all zones are done, the collected actions are run on
+ * the turn thread in zone order.
+ */
+public final class ZoneLogicExecutor {
+	private static final Logger logger = Logger.getLogger(ZoneLogicExecutor.class);
+
+	/**
+	 * Zone logic running on the current thread, or <code>null</code> if the
+	 * thread does not run parallel zone logic.
+	 */
+	private static final ThreadLocal<ZoneTask> running = new ThreadLocal<ZoneTask>();
+
+	/** Worker pool, or <code>null</code> in serial mode. */
+	private final ForkJoinPool pool;
+
+	/** Duration of the zone logic phase of the last turn in nanoseconds. */
+	private long logicTime;
+	/** Duration of the commit phase of the last turn in nanoseconds. */
+	private long commitTime;
+
+	/**
+	 * Create a new ZoneLogicExecutor.
+	 *
+	 * @param threads number of worker threads. Values below 2 select the
+	 * 	serial mode
+	 */
+	public ZoneLogicExecutor(final int threads) {
+		if (threads > 1) {
+			pool = new ForkJoinPool(threads);
+			logger.info("Running zone logic with " + threads + " threads");
+		} else {
+			pool = null;
+		}
+	}
+
+	/**
+	 * Postpone an action that affects more than the current zone, if it is
+	 * requested by parallel zone logic. Otherwise the caller should run the
+	 * action directly.
+	 *
+	 * @param action action to run in the commit phase
+	 * @return <code>true</code> if the action was deferred, <code>false</code>
+	 * 	if the caller needs to run it
+	 */
+	public static boolean defer(final Runnable action) {
+		final ZoneTask task = running.get();
+		if (task == null) {
+			return false;
+		}
+		task.actions.add(action);
+		return true;
+	}
+
+	/**
+	 * Get the zone whose logic is running in parallel on the current thread.
+	 * Changes that stay within that zone can be done directly.
+	 *
+	 * @return zone, or <code>null</code> if the current thread does not run
+	 * 	parallel zone logic
+	 */
+	public static StendhalRPZone getRunningZone() {
+		final ZoneTask task = running.get();
+		if (task == null) {
+			return null;
+		}
+		return task.zone;
+	}
+
+	/**
+	 * Run the logic of zones.
+	 *
+	 * @param zones zones to process
+	 */
+	public void logic(final Iterable<StendhalRPZone> zones) {
+		final TickProfiler profiler = TickProfiler.get();
+		final long start = System.nanoTime();
+		if (pool == null) {
+			long zoneStart = start;
+			for (final StendhalRPZone zone : zones) {
+				zone.logic();
+				final long now = System.nanoTime();
+				profiler.zone(zone.getName(), now - zoneStart);
+				zoneStart = now;
+			}
+			logicTime = System.nanoTime() - start;
+			commitTime = 0;
+			return;
+		}
+
+		final List<ZoneTask> tasks = new ArrayList<ZoneTask>();
+		for (final StendhalRPZone zone : zones) {
+			tasks.add(new ZoneTask(zone));
+		}
+		pool.invokeAll(tasks);
+		final long commitStart = System.nanoTime();
+		logicTime = commitStart - start;
+
+		Error error = null;
+		for (final ZoneTask task : tasks) {
+			profiler.zone(task.zone.getName(), task.time);
+			if (task.failure != null) {
+				// the logic of the zone was not completed, so its actions
+				// may be based on an inconsistent state
+				logger.error("Error in logic of zone " + task.zone.getName() + ", skipping "
+						+ task.actions.size() + " deferred actions", task.failure);
+				if ((task.failure instanceof Error) && (error == null)) {
+					error = (Error) task.failure;
+				}
+				continue;
+			}
+			for (final Runnable action : task.actions) {
+				try {
+					action.run();
+				} catch (final RuntimeException e) {
+					logger.error("Error in deferred action of zone " + task.zone.getName(), e);
+				}
+			}
+		}
+		commitTime = System.nanoTime() - commitStart;
+		if (error != null) {
+			// errors reach the rule processor, as they do in serial mode
+			throw error;
+		}
+	}
+
+	/**
+	 * Stop the worker threads. Called when the server is shut down.
+	 */
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Get the duration of the zone logic phase of the last turn.
+	 *
+	 * @return duration in nanoseconds
+	 */
+	public long getLogicTime() {
+		return logicTime;
+	}
+
+	/**
+	 * Get the duration of the commit phase of the last turn.
+	 *
+	 * @return duration in nanoseconds. Always 0 in serial mode
+	 */
+	public long getCommitTime() {
+		return commitTime;
+	}
+
+	/**
+	 * Logic of one zone, and the actions it deferred.
+	 */
+	private static final class ZoneTask implements Callable<Void> {
+		private final StendhalRPZone zone;
+		private final List<Runnable> actions = new ArrayList<Runnable>();
+		/** Logic time of the zone in nanoseconds. */
+		private long time;
+		/** Exception or error thrown by the zone logic, or <code>null</code>. */
+		private Throwable failure;
+
+		ZoneTask(final StendhalRPZone zone) {
+			this.zone = zone;
+		}
+
+		@Override
+		public Void call() {
+			running.set(this);
+			final long start = System.nanoTime();
+			try {
+				zone.logic();
+			} catch (final RuntimeException | Error e) {
+				// the futures are not checked, so keep it for the turn thread
+				failure = e;
+			} finally {
+				time = System.nanoTime() - start;
+				running.remove();
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,252 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.db;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import games.stendhal.server.entity.RPEntity;
+import games.stendhal.server.util.StringUtils;
+import marauroa.common.game.RPObject;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.game.db.DAORegister;
+
+/**
+ * Collects rows for the item and itemlog tables, and writes them with JDBC
+ * batch inserts. Item log ids are handed out by {@link StendhalItemDAO}
+ * without a database round-trip, so that any number of events can be written
+ * with two statements.
+ */
+public class ItemLogBatch {
+	private final DBTransaction transaction;
+	private final StendhalItemDAO stendhalItemDAO;
+	private final List<ItemRow> items = new ArrayList<ItemRow>();
+	private final List<EntryRow> entries = new ArrayList<EntryRow>();
+	/** Objects that got their logid from this batch. */
+	private final List<RPObject> assigned = new ArrayList<RPObject>();
+
+	/**
+	 * Creates a new ItemLogBatch.
+	 *
+	 * @param transaction transaction to write the rows in
+	 */
+	public ItemLogBatch(final DBTransaction transaction) {
+		this.transaction = transaction;
+		this.stendhalItemDAO = DAORegister.get().get(StendhalItemDAO.class);
+	}
+
+	/**
+	 * Assigns the next logid to the specified item in case it does not already
+	 * have one, and logs its registration.
+	 *
+	 * @param item item
+	 * @param timestamp timestamp
+	 * @throws SQLException in case of a database error
+	 */
+	public void assignIDIfNotPresent(final RPObject item, final Timestamp timestamp) throws SQLException {
+		if (item.has(StendhalItemDAO.ATTR_ITEM_LOGID)) {
+			return;
+		}
+		final int id = stendhalItemDAO.itemLogNextID(transaction);
+		items.add(new ItemRow(id, item.get("name"), timestamp));
+		item.put(StendhalItemDAO.ATTR_ITEM_LOGID, id);
+		assigned.add(item);
+		addEntry(timestamp, id, null, "register", getAttribute(item, "name"), getAttribute(item, "quantity"),
+				getAttribute(item, "itemdata"), getAttribute(item, "bound"));
+	}
+
+	/**
+	 * adds a log entry
+	 *
+	 * @param timestamp timestamp
+	 * @param item item with a logid
+	 * @param player player object
+	 * @param event  name of event
+	 * @param param1 param 1
+	 * @param param2 param 2
+	 * @param param3 param 3
+	 * @param param4 param 4
+	 */
+	public void addEntry(final Timestamp timestamp, final RPObject item, final RPEntity player, final String event,
+			final String param1, final String param2, final String param3, final String param4) {
+		addEntry(timestamp, item.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), player, event, param1, param2, param3, param4);
+	}
+
+	/**
+	 * adds a log entry
+	 *
+	 * @param timestamp timestamp
+	 * @param itemid itemid of item
+	 * @param player player object
+	 * @param event  name of event
+	 * @param param1 param 1
+	 * @param param2 param 2
+	 * @param param3 param 3
+	 * @param param4 param 4
+	 */
+	public void addEntry(final Timestamp timestamp, final int itemid, final RPEntity player, final String event,
+			final String param1, final String param2, final String param3, final String param4) {
+		String playerName = null;
+		if (player != null) {
+			playerName = player.getName();
+		}
+		entries.add(new EntryRow(itemid, playerName, event, param1, param2, param3, param4, timestamp));
+	}
+
+	/**
+	 * Gets the transaction the rows are written in, for events that write to
+	 * other tables as well.
+	 *
+	 * @return transaction
+	 */
+	public DBTransaction getTransaction() {
+		return transaction;
+	}
+
+	/**
+	 * Removes the logids assigned by this batch from the items. Called if
+	 * the batch could not be written, so that the items are registered again
+	 * when their events are retried.
+	 */
+	public void revertIDs() {
+		for (final RPObject item : assigned) {
+			item.remove(StendhalItemDAO.ATTR_ITEM_LOGID);
+		}
+		assigned.clear();
+	}
+
+	/**
+	 * Gets the number of collected log entries.
+	 *
+	 * @return number of itemlog rows
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Writes the collected rows, and clears the batch.
+	 *
+	 * @throws SQLException in case of a database error
+	 */
+	public void write() throws SQLException {
+		if (!items.isEmpty()) {
+			final PreparedStatement stmt = transaction.prepareStatement(
+					"INSERT INTO item (id, name, timedate) VALUES (?, ?, ?)", null);
+			try {
+				for (final ItemRow row : items) {
+					stmt.setInt(1, row.id);
+					stmt.setString(2, row.name);
+					stmt.setTimestamp(3, row.timestamp);
+					stmt.addBatch();
+				}
+				stmt.executeBatch();
+			} finally {
+				stmt.close();
+			}
+			items.clear();
+		}
+
+		if (!entries.isEmpty()) {
+			final PreparedStatement stmt = transaction.prepareStatement("INSERT INTO itemlog (itemid, source, event, "
+					+ "param1, param2, param3, param4, timedate) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", null);
+			try {
+				for (final EntryRow row : entries) {
+					stmt.setInt(1, row.itemid);
+					stmt.setString(2, trim(row.source));
+					stmt.setString(3, trim(row.event));
+					stmt.setString(4, trim(row.param1));
+					stmt.setString(5, trim(row.param2));
+					stmt.setString(6, trim(row.param3));
+					stmt.setString(7, trim(row.param4));
+					stmt.setTimestamp(8, row.timestamp);
+					stmt.addBatch();
+				}
+				stmt.executeBatch();
+			} finally {
+				stmt.close();
+			}
+			entries.clear();
+		}
+		assigned.clear();
+	}
+
+	/**
+	 * Trims a column value the same way as the single row inserts do. Missing
+	 * values are stored as empty strings.
+	 */
+	private static String trim(final String value) {
+		if (value == null) {
+			return "";
+		}
+		return StringUtils.trimTo(value, 64);
+	}
+
+	/**
+	 * gets an optional attribute .
+	 *
+	 * @param object object to read the optional attribute from
+	 * @param attribute
+	 * @return attribute name of attribute
+	 */
+	private static String getAttribute(final RPObject object, final String attribute) {
+		if (object.has(attribute)) {
+			return object.get(attribute);
+		} else {
+			return "null";
+		}
+	}
+
+	/**
+	 * A row of the item table.
+	 */
+	private static final class ItemRow {
+		private final int id;
+		private final String name;
+		private final Timestamp timestamp;
+
+		ItemRow(final int id, final String name, final Timestamp timestamp) {
+			this.id = id;
+			this.name = name;
+			this.timestamp = timestamp;
+		}
+	}
+
+	/**
+	 * A row of the itemlog table.
+	 */
+	private static final class EntryRow {
+		private final int itemid;
+		private final String source;
+		private final String event;
+		private final String param1;
+		private final String param2;
+		private final String param3;
+		private final String param4;
+		private final Timestamp timestamp;
+
+		EntryRow(final int itemid, final String source, final String event, final String param1,
+				final String param2, final String param3, final String param4, final Timestamp timestamp) {
+			this.itemid = itemid;
+			this.source = source;
+			this.event = event;
+			this.param1 = param1;
+			this.param2 = param2;
+			this.param3 = param3;
+			this.param4 = param4;
+			this.timestamp = timestamp;
+		}
+	}
+}
@@ -40,6 +40,9 @@ public class StendhalItemDAO {
 	public static final String ATTR_ITEM_LOGID = "logid";
 	private static final Logger logger = Logger.getLogger(StendhalItemDAO.class);
 
+	/** next free logid, or 0 if it has not been read from the database yet */
+	private int nextLogId;
+
 	/**
 	 * Assigns the next logid to the specified item in case it does not already have one.
 	 *
@@ -54,17 +57,35 @@ public class StendhalItemDAO {
 		}
 
 		// insert row into
-		String sql = "INSERT INTO item (name, timedate) VALUES ('[name]', '[timedate]')";
+		int id = itemLogNextID(transaction);
+		String sql = "INSERT INTO item (id, name, timedate) VALUES ([id], '[name]', '[timedate]')";
 		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("id", id);
 		params.put("name", item.get("name"));
 		params.put("timedate", timestamp);
 		transaction.execute(sql, params);
 
-		// get the insert id and store it into the item
-		item.put(ATTR_ITEM_LOGID, transaction.getLastInsertId("item", "id"));
+		// store the id into the item
+		item.put(ATTR_ITEM_LOGID, id);
 		itemLogInsertName(transaction, item, timestamp);
 	}
 
+	/**
+	 * Reserves the next logid. The highest id in use is read from the item
+	 * table only once, later ids are counted up from it. This requires that
+	 * all rows of the item table are created through this DAO.
+	 *
+	 * @param transaction database transaction
+	 * @return unused logid
+	 * @throws SQLException in case of a database error
+	 */
+	public synchronized int itemLogNextID(final DBTransaction transaction) throws SQLException {
+		if (nextLogId <= 0) {
+			nextLogId = transaction.querySingleCellInt("SELECT MAX(id) FROM item", null) + 1;
+		}
+		return nextLogId++;
+	}
+
 
 	/**
 	 * Logs the name of the item on first.
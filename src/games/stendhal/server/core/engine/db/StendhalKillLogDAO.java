@@ -11,11 +11,17 @@
  ***************************************************************************/
 package games.stendhal.server.core.engine.db;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.Killer;
@@ -63,6 +69,100 @@ public class StendhalKillLogDAO {
 
 	}
 
+	/**
+	 * Adds aggregated kill counts. The result is the same as calling
+	 * {@link #logKill(DBTransaction, Entity, Killer, Timestamp)} for each
+	 * single kill, but needs only a few batched statements.
+	 *
+	 * @param transaction transaction
+	 * @param counts number of kills by combination of killed, killer and day
+	 * @throws SQLException in case of an database error
+	 */
+	public void logKills(final DBTransaction transaction, final Map<KillKey, Integer> counts) throws SQLException {
+		if (counts.isEmpty()) {
+			return;
+		}
+		final List<KillKey> keys = new ArrayList<KillKey>(counts.keySet());
+
+		// try update in case we already have the combinations
+		int[] rowCounts;
+		PreparedStatement stmt = transaction.prepareStatement("UPDATE kills SET cnt = cnt + ?"
+				+ " WHERE killed = ? AND killed_type = ? AND killer = ? AND killer_type = ? AND day = ?", null);
+		try {
+			for (final KillKey key : keys) {
+				stmt.setInt(1, counts.get(key).intValue());
+				setKey(stmt, 2, key);
+				stmt.addBatch();
+			}
+			rowCounts = stmt.executeBatch();
+		} finally {
+			stmt.close();
+		}
+
+		// insert the combinations we did not have yet
+		stmt = transaction.prepareStatement("INSERT INTO kills (killed, killed_type, killer, killer_type, day, cnt)"
+				+ " VALUES (?, ?, ?, ?, ?, ?)", null);
+		try {
+			boolean inserts = false;
+			for (int i = 0; i < keys.size(); i++) {
+				final KillKey key = keys.get(i);
+				if ((rowCounts[i] == 0)
+						|| ((rowCounts[i] == Statement.SUCCESS_NO_INFO) && !exists(transaction, key))) {
+					setKey(stmt, 1, key);
+					stmt.setInt(6, counts.get(key).intValue());
+					stmt.addBatch();
+					inserts = true;
+				}
+			}
+			if (inserts) {
+				stmt.executeBatch();
+			}
+		} finally {
+			stmt.close();
+		}
+	}
+
+	/**
+	 * Checks if there is a row for a combination. Only needed for drivers
+	 * that do not report the number of updated rows in batches.
+	 */
+	private boolean exists(final DBTransaction transaction, final KillKey key) throws SQLException {
+		final PreparedStatement stmt = transaction.prepareStatement("SELECT cnt FROM kills"
+				+ " WHERE killed = ? AND killed_type = ? AND killer = ? AND killer_type = ? AND day = ?", null);
+		try {
+			setKey(stmt, 1, key);
+			final ResultSet resultSet = stmt.executeQuery();
+			try {
+				return resultSet.next();
+			} finally {
+				resultSet.close();
+			}
+		} finally {
+			stmt.close();
+		}
+	}
+
+	private void setKey(final PreparedStatement stmt, final int first, final KillKey key) throws SQLException {
+		stmt.setString(first, key.killed);
+		stmt.setString(first + 1, key.killedType);
+		stmt.setString(first + 2, key.killer);
+		stmt.setString(first + 3, key.killerType);
+		stmt.setString(first + 4, key.day);
+	}
+
+	/**
+	 * Creates the key of a kill for aggregated logging.
+	 *
+	 * @param killed killed entity
+	 * @param killer killer
+	 * @param timestamp time of the kill
+	 * @return key
+	 */
+	public KillKey createKey(final Entity killed, final Killer killer, final Timestamp timestamp) {
+		return new KillKey(killed.getName(), entityToType(killed), killer.getName(), entityToType(killer),
+				new SimpleDateFormat("yyyy-MM-dd").format(timestamp));
+	}
+
 	/**
 	 * Creates a one letter type string based on the class of the entity.
 	 *
@@ -79,4 +179,58 @@ public class StendhalKillLogDAO {
 		}
 	}
 
+	/**
+	 * A combination of killed, killer and day, which is counted in one row of
+	 * the kills table.
+	 */
+	public static final class KillKey {
+		private final String killed;
+		private final String killedType;
+		private final String killer;
+		private final String killerType;
+		private final String day;
+
+		/**
+		 * Creates a new KillKey.
+		 *
+		 * @param killed name of the killed entity
+		 * @param killedType type of the killed entity
+		 * @param killer name of the killer
+		 * @param killerType type of the killer
+		 * @param day day in yyyy-MM-dd format
+		 */
+		public KillKey(final String killed, final String killedType, final String killer, final String killerType, final String day) {
+			// missing names are stored as empty strings, like in logKill
+			this.killed = (killed != null) ? killed : "";
+			this.killedType = killedType;
+			this.killer = (killer != null) ? killer : "";
+			this.killerType = killerType;
+			this.day = day;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(killed, killedType, killer, killerType, day);
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof KillKey)) {
+				return false;
+			}
+			final KillKey other = (KillKey) obj;
+			return killed.equals(other.killed) && killedType.equals(other.killedType)
+					&& killer.equals(other.killer) && killerType.equals(other.killerType)
+					&& day.equals(other.day);
+		}
+
+		@Override
+		public String toString() {
+			return killed + "/" + killedType + " by " + killer + "/" + killerType + " on " + day;
+		}
+	}
+
 }
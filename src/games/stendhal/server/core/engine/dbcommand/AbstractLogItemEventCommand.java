@@ -13,6 +13,7 @@ package games.stendhal.server.core.engine.dbcommand;
 
 import java.sql.SQLException;
 
+import games.stendhal.server.core.engine.db.ItemLogBatch;
 import marauroa.common.game.RPObject;
 import marauroa.server.db.DBTransaction;
 import marauroa.server.db.command.AbstractDBCommand;
@@ -27,17 +28,19 @@ public abstract class AbstractLogItemEventCommand extends AbstractDBCommand {
 
 	@Override
 	public void execute(DBTransaction transaction) throws SQLException {
-		log(transaction);
+		ItemLogBatch batch = new ItemLogBatch(transaction);
+		log(batch);
+		batch.write();
 	}
 
 
 	/**
-	 * logs the event to the database.
+	 * adds the event to a batch of log entries.
 	 *
-	 * @param transaction DBTransaction
+	 * @param batch ItemLogBatch
 	 * @throws SQLException in case of an database error
 	 */
-	protected abstract void log(DBTransaction transaction) throws SQLException;
+	protected abstract void log(ItemLogBatch batch) throws SQLException;
 
 	/**
 	 * gets the quantity from an item; correctly handles non stackable items
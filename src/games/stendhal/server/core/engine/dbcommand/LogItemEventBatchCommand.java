@@ -0,0 +1,92 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.dbcommand;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import games.stendhal.server.core.engine.ItemLogWriter;
+import games.stendhal.server.core.engine.db.ItemLogBatch;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.command.AbstractDBCommand;
+
+/**
+ * logs a batch of item events in one transaction. If the batch fails, the
+ * logids it assigned are removed again, and the events are handed back to
+ * the writer to be retried one by one.
+ */
+public class LogItemEventBatchCommand extends AbstractDBCommand {
+	private final List<AbstractLogItemEventCommand> commands;
+	private final ItemLogWriter writer;
+	/** set after the writer has been notified, the queue may execute a command repeatedly */
+	private boolean done;
+
+	/**
+	 * creates a new LogItemEventBatchCommand
+	 *
+	 * @param commands item events in the order they happened
+	 * @param writer writer to notify when the batch is done, may be null for
+	 *  retries of single events
+	 */
+	public LogItemEventBatchCommand(final List<AbstractLogItemEventCommand> commands, final ItemLogWriter writer) {
+		this.commands = commands;
+		this.writer = writer;
+	}
+
+	@Override
+	public void execute(final DBTransaction transaction) throws SQLException {
+		final long start = System.nanoTime();
+		final ItemLogBatch batch = new ItemLogBatch(transaction);
+		try {
+			for (final AbstractLogItemEventCommand command : commands) {
+				command.log(batch);
+			}
+			batch.write();
+		} catch (final SQLException e) {
+			batch.revertIDs();
+			// deadlocks and lost connections are retried by the queue
+			if (!transaction.isDeadlockError(e) && !transaction.isConnectionError(e)) {
+				retry();
+			}
+			throw e;
+		} catch (final RuntimeException e) {
+			batch.revertIDs();
+			retry();
+			throw e;
+		} finally {
+			if ((writer != null) && !done) {
+				done = true;
+				writer.onBatchWritten(commands.size(), System.nanoTime() - start);
+			}
+		}
+	}
+
+	/**
+	 * hands the events back to the writer, so that one bad event does not
+	 * lose the others.
+	 */
+	private void retry() {
+		if ((writer != null) && (commands.size() > 1)) {
+			writer.retry(commands);
+		}
+	}
+
+	/**
+	 * returns a string suitable for debug output of this DBCommand.
+	 *
+	 * @return debug string
+	 */
+	@Override
+	public String toString() {
+		return "LogItemEventBatchCommand [events=" + commands.size() + "]";
+	}
+}
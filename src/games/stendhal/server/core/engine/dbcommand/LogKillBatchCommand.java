@@ -0,0 +1,115 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.dbcommand;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.server.core.engine.KillLogWriter;
+import games.stendhal.server.core.engine.db.StendhalKillLogDAO;
+import games.stendhal.server.core.engine.db.StendhalKillLogDAO.KillKey;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.command.AbstractDBCommand;
+import marauroa.server.game.db.DAORegister;
+
+/**
+ * logs aggregated kill counts. If the batch fails, the counts are handed
+ * back to the writer for one more attempt.
+ */
+public class LogKillBatchCommand extends AbstractDBCommand {
+	private static final Logger logger = Logger.getLogger(LogKillBatchCommand.class);
+
+	private final Map<KillKey, Integer> counts;
+	private final int kills;
+	private final KillLogWriter writer;
+	/** true, if this batch is already a retry of a failed one */
+	private final boolean retry;
+	/** set after the writer has been notified, the queue may execute a command repeatedly */
+	private boolean done;
+
+	/**
+	 * creates a new LogKillBatchCommand
+	 *
+	 * @param counts number of kills by combination
+	 * @param kills total number of kills
+	 * @param writer writer to notify when the batch is done, may be null
+	 */
+	public LogKillBatchCommand(final Map<KillKey, Integer> counts, final int kills, final KillLogWriter writer) {
+		this(counts, kills, writer, false);
+	}
+
+	/**
+	 * creates a new LogKillBatchCommand
+	 *
+	 * @param counts number of kills by combination
+	 * @param kills total number of kills
+	 * @param writer writer to notify when the batch is done, may be null
+	 * @param retry true, if the batch is a retry of a failed one
+	 */
+	public LogKillBatchCommand(final Map<KillKey, Integer> counts, final int kills, final KillLogWriter writer,
+			final boolean retry) {
+		this.counts = counts;
+		this.kills = kills;
+		this.writer = writer;
+		this.retry = retry;
+	}
+
+	@Override
+	public void execute(final DBTransaction transaction) throws SQLException {
+		try {
+			StendhalKillLogDAO killLog = DAORegister.get().get(StendhalKillLogDAO.class);
+			killLog.logKills(transaction, counts);
+		} catch (final SQLException e) {
+			// deadlocks and lost connections are retried by the queue
+			if (!transaction.isDeadlockError(e) && !transaction.isConnectionError(e)) {
+				onFailure();
+			}
+			throw e;
+		} catch (final RuntimeException e) {
+			onFailure();
+			throw e;
+		} finally {
+			if ((writer != null) && !done) {
+				done = true;
+				writer.onBatchWritten(kills);
+			}
+		}
+	}
+
+	/**
+	 * hands the counts back to the writer, or logs them if they have
+	 * already been retried.
+	 */
+	private void onFailure() {
+		if (done) {
+			// already handled in an earlier attempt
+			return;
+		}
+		if ((writer != null) && !retry) {
+			writer.retry(counts, kills);
+		} else {
+			logger.error("Dropping " + kills + " kills that could not be logged: " + counts);
+		}
+	}
+
+	/**
+	 * returns a string suitable for debug output of this DBCommand.
+	 *
+	 * @return debug string
+	 */
+	@Override
+	public String toString() {
+		return "LogKillBatchCommand [combinations=" + counts.size() + ", kills=" + kills + "]";
+	}
+}
@@ -11,27 +11,27 @@
  ***************************************************************************/
 package games.stendhal.server.core.engine.dbcommand;
 
-import java.io.IOException;
 import java.sql.SQLException;
 
+import games.stendhal.server.core.engine.db.ItemLogBatch;
 import games.stendhal.server.core.engine.db.StendhalItemDAO;
 import games.stendhal.server.core.engine.db.StendhalWebsiteDAO;
 import games.stendhal.server.entity.item.Item;
 import games.stendhal.server.entity.player.Player;
-import marauroa.server.db.DBTransaction;
-import marauroa.server.db.command.AbstractDBCommand;
 import marauroa.server.game.db.DAORegister;
 
 /**
- * Logs a Harold trade event
+ * Logs a Harold trade event. It is written together with the item events,
+ * so that the item is registered in the same order as its other events.
  *
  * @author hendrik
  */
-public class LogTradeEventCommand extends AbstractDBCommand {
+public class LogTradeEventCommand extends AbstractLogItemEventCommand {
 	private String charname;
 	private Item item;
 	private int quantity;
 	private int price;
+	private String stats;
 
 	/**
 	 * logs a trade event
@@ -46,21 +46,20 @@ public class LogTradeEventCommand extends AbstractDBCommand {
 		this.item = item;
 		this.quantity = quantity;
 		this.price = price;
+		String description = item.describe();
+		this.stats = "";
+		int start = description.indexOf("Stats are (");
+		if(start > -1) {
+			this.stats = description.substring(start);
+		}
 	}
 
 	@Override
-	public void execute(DBTransaction transaction) throws SQLException, IOException {
-		StendhalItemDAO stendhalItemDao = DAORegister.get().get(StendhalItemDAO.class);
-		stendhalItemDao.itemLogAssignIDIfNotPresent(transaction, item, getEnqueueTime());
+	protected void log(ItemLogBatch batch) throws SQLException {
+		batch.assignIDIfNotPresent(item, getEnqueueTime());
 
 		StendhalWebsiteDAO stendhalWebsiteDao = DAORegister.get().get(StendhalWebsiteDAO.class);
-		String description = item.describe();
-		String stats = "";
-		int start = description.indexOf("Stats are (");
-		if(start > -1) {
-			stats = description.substring(start);
-		}
-		stendhalWebsiteDao.logTradeEvent(transaction, charname, item.getName(), item.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), quantity, price, stats, getEnqueueTime());
+		stendhalWebsiteDao.logTradeEvent(batch.getTransaction(), charname, item.getName(), item.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), quantity, price, stats, getEnqueueTime());
 	}
 
 }
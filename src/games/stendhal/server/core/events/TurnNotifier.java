@@ -12,10 +12,14 @@
  ***************************************************************************/
 package games.stendhal.server.core.events;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -24,9 +28,17 @@ import org.apache.log4j.Logger;
 
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPWorld;
+import games.stendhal.server.core.engine.TickProfiler;
+import games.stendhal.server.core.engine.ZoneLogicExecutor;
 
 /**
  * Other classes can register here to be notified at some time in the future.
+ * <p>
+ * The events are kept in a hashed timing wheel: every turn that has events
+ * gets a bucket in the wheel slot of its turn number, so that the events of
+ * a turn are found without searching. In addition each listener knows the
+ * turns it is registered for, which makes cancelling and remaining time
+ * queries independent of the number of other registered events.
  *
  * @author hendrik, daniel
  */
@@ -39,12 +51,24 @@ public final class TurnNotifier {
 
 	private int currentTurn = -1;
 
+	/** Number of slots in the timing wheel. Must be a power of two. */
+	private static final int WHEEL_SIZE = 1024;
+
 	/**
-	 * This Map maps each turn to the set of all events that will take place at
-	 * this turn. Turns at which no event should take place needn't be
-	 * registered here.
+	 * The timing wheel. Each slot contains a chain of buckets for the turns
+	 * that map to the slot. Turns at which no event should take place have
+	 * no bucket.
 	 */
-	private final Map<Integer, Set<TurnListener>> register = new HashMap<Integer, Set<TurnListener>>();
+	private final Bucket[] wheel = new Bucket[WHEEL_SIZE];
+
+	/** Number of buckets in the wheel. */
+	private int bucketCount;
+
+	/** The turns each registered listener will be notified at. */
+	private final Map<TurnListener, Schedule> schedules = new HashMap<TurnListener, Schedule>();
+
+	/** Read only view of the registered events. */
+	private final Map<Integer, Set<TurnListener>> eventView = new EventView();
 
 	/** Used for multi-threading synchronization. * */
 	private final Object sync = new Object();
@@ -88,12 +112,18 @@ public final class TurnNotifier {
 		// get and remove the set for this turn
 		Set<TurnListener> set = null;
 		synchronized (sync) {
-			set = register.remove(Integer.valueOf(currentTurn));
+			final Bucket bucket = removeBucket(currentTurn);
+			if (bucket != null) {
+				set = bucket.listeners;
+				for (final TurnListener turnListener : set) {
+					unschedule(turnListener, currentTurn);
+				}
+			}
 		}
 
 		if (logger.isDebugEnabled()) {
 			final StringBuilder os = new StringBuilder();
-			os.append("register: " + register.size() + "\n");
+			os.append("register: " + bucketCount + "\n");
 			int setSize;
 			if (set != null) {
 				setSize = set.size();
@@ -105,6 +135,8 @@ public final class TurnNotifier {
 		}
 
 		if (set != null) {
+			final TickProfiler profiler = TickProfiler.get();
+			long start = System.nanoTime();
 			for (final TurnListener turnListener : set) {
 
 				try {
@@ -112,6 +144,7 @@ public final class TurnNotifier {
 				} catch (final RuntimeException e) {
 					logger.error("Exception in " + turnListener, e);
 				}
+				start = profiler.listener(turnListener.getClass(), start);
 			}
 		}
 	}
@@ -156,6 +189,14 @@ public final class TurnNotifier {
 			logger.error("Trying to notify null-object", new Throwable());
 			return;
 		}
+		if (ZoneLogicExecutor.defer(new Runnable() {
+			@Override
+			public void run() {
+				notifyAtTurn(turn, turnListener);
+			}
+		})) {
+			return;
+		}
 
 		if (logger.isDebugEnabled()) {
 			logger.info("Notify at " + turn + " by " + turnListener);
@@ -178,14 +219,23 @@ public final class TurnNotifier {
 
 		synchronized (sync) {
 			// do we have other events for this turn?
-			final Integer turnInt = Integer.valueOf(turn);
-			Set<TurnListener> set = register.get(turnInt);
-			if (set == null) {
-				set = new HashSet<TurnListener>();
-				register.put(turnInt, set);
+			Bucket bucket = getBucket(turn);
+			if (bucket == null) {
+				bucket = new Bucket(turn);
+				final int slot = turn & (WHEEL_SIZE - 1);
+				bucket.next = wheel[slot];
+				wheel[slot] = bucket;
+				bucketCount++;
 			}
 			// add it to the list
-			set.add(turnListener);
+			if (bucket.listeners.add(turnListener)) {
+				Schedule schedule = schedules.get(turnListener);
+				if (schedule == null) {
+					schedule = new Schedule();
+					schedules.put(turnListener, schedule);
+				}
+				schedule.add(turn);
+			}
 		}
 	}
 
@@ -197,18 +247,27 @@ public final class TurnNotifier {
 	 */
 
 	public void dontNotify(final TurnListener turnListener) {
+		if (ZoneLogicExecutor.defer(new Runnable() {
+			@Override
+			public void run() {
+				dontNotify(turnListener);
+			}
+		})) {
+			return;
+		}
 		// all events that are equal to this one should be forgotten.
-		// TurnEvent turnEvent = new TurnEvent(turnListener);
-		for (final Map.Entry<Integer, Set<TurnListener>> mapEntry : register.entrySet()) {
-			final Set<TurnListener> set = mapEntry.getValue();
-			// We don't remove directly, but first store in this
-			// set. This is to avoid ConcurrentModificationExceptions.
-			final Set<TurnListener> toBeRemoved = new HashSet<TurnListener>();
-			if (set.contains(turnListener)) {
-					toBeRemoved.add(turnListener);
+		synchronized (sync) {
+			final Schedule schedule = schedules.remove(turnListener);
+			if (schedule == null) {
+				return;
 			}
-			for (final TurnListener event : toBeRemoved) {
-				set.remove(event);
+			for (int i = 0; i < schedule.size; i++) {
+				final int turn = schedule.turns[i];
+				final Bucket bucket = getBucket(turn);
+				bucket.listeners.remove(turnListener);
+				if (bucket.listeners.isEmpty()) {
+					removeBucket(turn);
+				}
 			}
 		}
 	}
@@ -224,23 +283,13 @@ public final class TurnNotifier {
 
 	public int getRemainingTurns(final TurnListener turnListener) {
 		// all events match that are equal to this.
-		// TurnEvent turnEvent = new TurnEvent(turnListener);
-		// the HashMap is unsorted, so we need to run through
-		// all of it.
-		final List<Integer> matchingTurns = new ArrayList<Integer>();
-		for (final Map.Entry<Integer, Set<TurnListener>> mapEntry : register.entrySet()) {
-			final Set<TurnListener> set = mapEntry.getValue();
-			for (final TurnListener currentEvent : set) {
-				if (currentEvent.equals(turnListener)) {
-					matchingTurns.add(mapEntry.getKey());
-				}
+		synchronized (sync) {
+			final Schedule schedule = schedules.get(turnListener);
+			if (schedule == null) {
+				return -1;
 			}
-		}
-		if (matchingTurns.size() > 0) {
-			Collections.sort(matchingTurns);
-			return matchingTurns.get(0).intValue() - currentTurn;
-		} else {
-			return -1;
+			// the turns are sorted, so the first is the next one
+			return schedule.turns[0] - currentTurn;
 		}
 	}
 
@@ -260,12 +309,13 @@ public final class TurnNotifier {
 
 	/**
 	 * Returns the list of events. Note this is only for debugging the
-	 * TurnNotifier
+	 * TurnNotifier. The returned map is a read only view, except that
+	 * clearing it forgets all registered events.
 	 *
 	 * @return eventList
 	 */
 	public Map<Integer, Set<TurnListener>> getEventListForDebugging() {
-		return register;
+		return eventView;
 	}
 
 	/**
@@ -276,4 +326,175 @@ public final class TurnNotifier {
 	public int getCurrentTurnForDebugging() {
 		return currentTurn;
 	}
+
+	/**
+	 * Find the bucket of a turn.
+	 *
+	 * @param turn turn number
+	 * @return bucket, or <code>null</code> if there are no events at the turn
+	 */
+	private Bucket getBucket(final int turn) {
+		for (Bucket bucket = wheel[turn & (WHEEL_SIZE - 1)]; bucket != null; bucket = bucket.next) {
+			if (bucket.turn == turn) {
+				return bucket;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Remove the bucket of a turn from the wheel.
+	 *
+	 * @param turn turn number
+	 * @return removed bucket, or <code>null</code> if there was none
+	 */
+	private Bucket removeBucket(final int turn) {
+		final int slot = turn & (WHEEL_SIZE - 1);
+		Bucket previous = null;
+		for (Bucket bucket = wheel[slot]; bucket != null; bucket = bucket.next) {
+			if (bucket.turn == turn) {
+				if (previous == null) {
+					wheel[slot] = bucket.next;
+				} else {
+					previous.next = bucket.next;
+				}
+				bucket.next = null;
+				bucketCount--;
+				return bucket;
+			}
+			previous = bucket;
+		}
+		return null;
+	}
+
+	/**
+	 * Remove a turn from the schedule of a listener.
+	 *
+	 * @param turnListener listener
+	 * @param turn removed turn
+	 */
+	private void unschedule(final TurnListener turnListener, final int turn) {
+		final Schedule schedule = schedules.get(turnListener);
+		if (schedule != null) {
+			schedule.remove(turn);
+			if (schedule.size == 0) {
+				schedules.remove(turnListener);
+			}
+		}
+	}
+
+	/**
+	 * Forget all registered events.
+	 */
+	private void clear() {
+		synchronized (sync) {
+			Arrays.fill(wheel, null);
+			bucketCount = 0;
+			schedules.clear();
+		}
+	}
+
+	/**
+	 * The listeners to be notified at a turn.
+	 */
+	private static final class Bucket {
+		private final int turn;
+		private final Set<TurnListener> listeners = new HashSet<TurnListener>();
+		/** Next bucket in the same wheel slot. */
+		private Bucket next;
+
+		Bucket(final int turn) {
+			this.turn = turn;
+		}
+	}
+
+	/**
+	 * The turns a listener is registered for, in ascending order. Listeners
+	 * are rarely registered for more than one turn at a time.
+	 */
+	private static final class Schedule {
+		private int[] turns = new int[1];
+		private int size;
+
+		void add(final int turn) {
+			if (size == turns.length) {
+				turns = Arrays.copyOf(turns, 2 * size);
+			}
+			int i = size;
+			while ((i > 0) && (turns[i - 1] > turn)) {
+				turns[i] = turns[i - 1];
+				i--;
+			}
+			turns[i] = turn;
+			size++;
+		}
+
+		void remove(final int turn) {
+			for (int i = 0; i < size; i++) {
+				if (turns[i] == turn) {
+					System.arraycopy(turns, i + 1, turns, i, size - i - 1);
+					size--;
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read only map view of the timing wheel.
+	 */
+	private final class EventView extends AbstractMap<Integer, Set<TurnListener>> {
+		@Override
+		public Set<TurnListener> get(final Object key) {
+			if (!(key instanceof Integer)) {
+				return null;
+			}
+			synchronized (sync) {
+				final Bucket bucket = getBucket(((Integer) key).intValue());
+				if (bucket == null) {
+					return null;
+				}
+				return Collections.unmodifiableSet(bucket.listeners);
+			}
+		}
+
+		@Override
+		public boolean containsKey(final Object key) {
+			return get(key) != null;
+		}
+
+		@Override
+		public int size() {
+			return bucketCount;
+		}
+
+		@Override
+		public void clear() {
+			TurnNotifier.this.clear();
+		}
+
+		@Override
+		public Set<Map.Entry<Integer, Set<TurnListener>>> entrySet() {
+			final List<Map.Entry<Integer, Set<TurnListener>>> entries = new ArrayList<Map.Entry<Integer, Set<TurnListener>>>(bucketCount);
+			synchronized (sync) {
+				for (Bucket bucket : wheel) {
+					for (; bucket != null; bucket = bucket.next) {
+						entries.add(new SimpleImmutableEntry<Integer, Set<TurnListener>>(Integer.valueOf(bucket.turn),
+								Collections.unmodifiableSet(bucket.listeners)));
+					}
+				}
+			}
+			return new AbstractSet<Map.Entry<Integer, Set<TurnListener>>>() {
+				@Override
+				public Iterator<Map.Entry<Integer, Set<TurnListener>>> iterator() {
+					return Collections.unmodifiableList(entries).iterator();
+				}
+
+				@Override
+				public int size() {
+					return entries.size();
+				}
+			};
+		}
+	}
 }
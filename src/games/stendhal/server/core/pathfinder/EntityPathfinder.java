@@ -14,6 +14,7 @@ package games.stendhal.server.core.pathfinder;
 
 import java.awt.Point;
 import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
 
 import games.stendhal.server.core.engine.StendhalRPZone;
 import games.stendhal.server.entity.Entity;
@@ -47,9 +48,17 @@ class EntityPathfinder extends games.stendhal.server.core.pathfinder.Pathfinder
 	 */
 	private ResistanceMap resistanceMap;
 
+	/** Resistance maps of each thread, reused between searches. */
+	private static final ThreadLocal<ResistanceMap> resistanceMaps = new ThreadLocal<ResistanceMap>() {
+		@Override
+		protected ResistanceMap initialValue() {
+			return new ResistanceMap();
+		}
+	};
+
 	EntityPathfinder(final Entity entity, final StendhalRPZone zone, final int startX, final int startY,
 			final Rectangle2D destination, final double maxDist, final boolean checkEntities) {
-		super(startX, startY, destination, maxDist);
+		super(zone.getWidth(), zone.getHeight(), startX, startY, destination, maxDist);
 		this.entity = entity;
 		this.zone = zone;
 		this.checkEntities = checkEntities;
@@ -60,6 +69,8 @@ class EntityPathfinder extends games.stendhal.server.core.pathfinder.Pathfinder
 		super.init();
 		if (checkEntities) {
 			createEntityCollisionMap();
+		} else {
+			resistanceMap = null;
 		}
 	}
 
@@ -71,12 +82,13 @@ class EntityPathfinder extends games.stendhal.server.core.pathfinder.Pathfinder
 	 * <li> have stopped
 	 */
 	private void createEntityCollisionMap() {
-		Point targetPoint = new Point(goalNode.getX(), goalNode.getY());
-		resistanceMap = new ResistanceMap(zone.getWidth(), zone.getHeight());
+		Point targetPoint = new Point(goalX, goalY);
+		resistanceMap = resistanceMaps.get();
+		resistanceMap.reset(zone.getWidth(), zone.getHeight());
 		for (final RPObject obj : zone) {
 			final Entity otherEntity = (Entity) obj;
 			if (!entity.getID().equals(otherEntity.getID())
-					&& (otherEntity.stopped()|| (otherEntity.squaredDistance(startNode.getX(), startNode.getY()) < COLLISION_DISTANCE_SQUARED))) {
+					&& (otherEntity.stopped()|| (otherEntity.squaredDistance(startX, startY) < COLLISION_DISTANCE_SQUARED))) {
 				final Rectangle2D area = otherEntity.getArea();
 				// Hack: Allow players to move onto portals as destination
 				if ((entity instanceof Player) && (otherEntity instanceof Portal) && area.contains(targetPoint)) {
@@ -89,58 +101,31 @@ class EntityPathfinder extends games.stendhal.server.core.pathfinder.Pathfinder
 	}
 
 	@Override
-	public TreeNode createNode(int x, int y) {
-		return new PathTreeNode(x, y);
-	}
-
-	/**
-	 * Pathfinder node
-	 */
-	private class PathTreeNode extends TreeNode {
-		private final double cost;
-
-		protected PathTreeNode(int x, int y) {
-			super(x, y);
-
-			/*
-			 * Modify movement cost by resistance
-			 */
-			if (resistanceMap != null) {
-				int resistance = resistanceMap.getResistance(x, y , entity.getWidth(), entity.getHeight());
-				cost = 100.0 / (100 - resistance);
-			} else {
-				cost = 1.0;
-			}
-		}
-
-		@Override
-		protected double getCost() {
-			return cost;
-		}
-
-		@Override
-		public TreeNode createNode(int x, int y) {
-			return new PathTreeNode(x, y);
+	protected double getCost(final int x, final int y) {
+		/*
+		 * Modify movement cost by resistance
+		 */
+		if (resistanceMap != null) {
+			int resistance = resistanceMap.getResistance(x, y , entity.getWidth(), entity.getHeight());
+			return 100.0 / (100 - resistance);
 		}
+		return 1.0;
+	}
 
-		@Override
-		protected int createNodeID(int x, int y) {
-			return x + y * zone.getWidth();
+	@Override
+	protected boolean isValid(int x, int y) {
+		boolean result = !zone.simpleCollides(entity, x, y, entity.getWidth(), entity.getHeight());
+		if (checkEntities && result) {
+			result = !resistanceMap.collides(x, y, entity.getWidth(), entity.getHeight());
 		}
 
-		@Override
-		public boolean isValid(int x, int y) {
-			boolean result = !zone.simpleCollides(entity, x, y, entity.getWidth(), entity.getHeight());
-			if (checkEntities && result) {
-				result = !resistanceMap.collides(x, y, entity.getWidth(), entity.getHeight());
-			}
-
-			return result;
-		}
+		return result;
 	}
 
 	/**
-	 * Resistance data for entities.
+	 * Resistance data for entities. The map is reused between searches, and
+	 * the resistance of a tile counts only if it was set during the current
+	 * search.
 	 */
 	private static class ResistanceMap {
 		/** Resistance that corresponds to collision */
@@ -148,19 +133,37 @@ class EntityPathfinder extends games.stendhal.server.core.pathfinder.Pathfinder
 		/** Minimum resistance that is considered a collision */
 		private static final int COLLIDE_THRESHOLD = 95;
 
-		private final int width, height;
-		private final int[][] map;
+		private int width, height;
+		/** Resistances in row major order. */
+		private int[] map = new int[0];
+		/** Search generation that set the resistance of each tile. */
+		private int[] stamp = new int[0];
+		/** Current search generation. */
+		private int generation;
 
 		/**
-		 * Create a new ResistanceMap.
+		 * Clear the map for a new search.
 		 *
 		 * @param width width of the area
 		 * @param height height of the area
 		 */
-		public ResistanceMap(int width, int height) {
+		void reset(int width, int height) {
 			this.width = width;
 			this.height = height;
-			map = new int[width][height];
+			if (map.length < width * height) {
+				map = new int[width * height];
+				stamp = new int[width * height];
+				generation = 0;
+			}
+			generation++;
+			if (generation == 0) {
+				Arrays.fill(stamp, 0);
+				generation = 1;
+			}
+		}
+
+		private int get(int index) {
+			return (stamp[index] == generation) ? map[index] : 0;
 		}
 
 		/**
@@ -204,14 +207,16 @@ class EntityPathfinder extends games.stendhal.server.core.pathfinder.Pathfinder
 					 * want to give something like corpses some resistance to
 					 * make it harder to wade through a pile of bodies.
 					 */
-					int old = map[k][i];
+					final int index = i * width + k;
+					int old = get(index);
 					/*
 					 * Add up like probabilities. Several slightly resistant
 					 * entities can still add up to a completely impassable
 					 * barrier, when the resistance grows over
 					 * COLLIDE_THRESHOLD.
 					 */
-					map[k][i] = 100 - ((100 - old) * (100 - resistance)) / 100;
+					map[index] = 100 - ((100 - old) * (100 - resistance)) / 100;
+					stamp[index] = generation;
 				}
 			}
 		}
@@ -243,7 +248,7 @@ class EntityPathfinder extends games.stendhal.server.core.pathfinder.Pathfinder
 			int resistance = 0;
 			for (int k = startx; k < endx; k++) {
 				for (int i = starty; i < endy; i++) {
-					int r = map[k][i];
+					int r = get(i * width + k);
 					if (r > COLLIDE_THRESHOLD) {
 						/*
 						 * A full collision is always collision, regardless of
@@ -0,0 +1,195 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import java.util.Arrays;
+
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.Entity;
+
+/**
+ * Breadth first search of the positions an entity can walk to from a
+ * starting point. Like {@link Path#searchPath(Entity, StendhalRPZone, int, int,
+ * java.awt.geom.Rectangle2D, double, boolean)} without entity checking, only
+ * the collisions of the map are considered, and the starting point itself
+ * need not be free.
+ * <p>
+ * The search is expanded only as far as needed for answering the queries,
+ * so checking several positions near the start costs at most one search of
+ * the area, instead of a path search for each position.
+ * <p>
+ * The search state is reused by the searches of each thread, so a thread
+ * can use only one FloodFill at a time.
+ */
+public final class FloodFill {
+	/** Search states of each thread, reused between searches. */
+	private static final ThreadLocal<SearchState> searchStates = new ThreadLocal<SearchState>() {
+		@Override
+		protected SearchState initialValue() {
+			return new SearchState();
+		}
+	};
+
+	private final Entity entity;
+	private final StendhalRPZone zone;
+	private final int width;
+	private final int height;
+	/** Maximum walking distance from the start. */
+	private final int maxSteps;
+	private final SearchState state;
+
+	/**
+	 * Create a new FloodFill.
+	 *
+	 * @param entity entity whose size is used for the collision checks
+	 * @param zone zone to search
+	 * @param startX x coordinate of the starting point
+	 * @param startY y coordinate of the starting point
+	 * @param maxSteps maximum walking distance from the starting point
+	 */
+	public FloodFill(final Entity entity, final StendhalRPZone zone, final int startX,
+			final int startY, final int maxSteps) {
+		this.entity = entity;
+		this.zone = zone;
+		this.width = zone.getWidth();
+		this.height = zone.getHeight();
+		this.maxSteps = maxSteps;
+		state = searchStates.get();
+		state.reset(width * height);
+
+		if (isInside(startX, startY)) {
+			state.visit(startX + startY * width, 0);
+		} else if (maxSteps > 0) {
+			// Path search allows starting outside the zone too
+			tryVisit(startX - 1, startY, 1);
+			tryVisit(startX + 1, startY, 1);
+			tryVisit(startX, startY - 1, 1);
+			tryVisit(startX, startY + 1, 1);
+		}
+	}
+
+	/**
+	 * Check if the entity can walk from the starting point to a position.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return <code>true</code> if the position can be reached within the
+	 * 	maximum walking distance
+	 */
+	public boolean isReachable(final int x, final int y) {
+		if (!isInside(x, y)) {
+			return false;
+		}
+		final int node = x + y * width;
+		while (!state.isVisited(node) && state.hasQueued()) {
+			expand(state.poll());
+		}
+		return state.isVisited(node);
+	}
+
+	/**
+	 * Add the walkable neighbours of a node to the search.
+	 *
+	 * @param node node index
+	 */
+	private void expand(final int node) {
+		final int steps = state.steps[node];
+		if (steps >= maxSteps) {
+			return;
+		}
+		final int x = node % width;
+		final int y = node / width;
+		tryVisit(x - 1, y, steps + 1);
+		tryVisit(x + 1, y, steps + 1);
+		tryVisit(x, y - 1, steps + 1);
+		tryVisit(x, y + 1, steps + 1);
+	}
+
+	/**
+	 * Add a position to the search, if it is walkable and not already
+	 * visited.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @param steps walking distance from the start
+	 */
+	private void tryVisit(final int x, final int y, final int steps) {
+		if (!isInside(x, y)) {
+			return;
+		}
+		final int node = x + y * width;
+		if (!state.isVisited(node)
+				&& !zone.simpleCollides(entity, x, y, entity.getWidth(), entity.getHeight())) {
+			state.visit(node, steps);
+		}
+	}
+
+	private boolean isInside(final int x, final int y) {
+		return (x >= 0) && (y >= 0) && (x < width) && (y < height);
+	}
+
+	/**
+	 * Search data. The arrays are reused between searches, and a node counts
+	 * as visited only if it was visited during the current search.
+	 */
+	private static final class SearchState {
+		/** Walking distance of each visited node. */
+		private int[] steps = new int[0];
+		/** Search generation that visited each node. */
+		private int[] stamp = new int[0];
+		/** Visited nodes in the order of visiting. */
+		private int[] queue = new int[0];
+		private int head;
+		private int tail;
+		/** Current search generation. */
+		private int generation;
+
+		/**
+		 * Clear the state for a new search.
+		 *
+		 * @param size number of nodes
+		 */
+		void reset(final int size) {
+			if (steps.length < size) {
+				steps = new int[size];
+				stamp = new int[size];
+				queue = new int[size];
+				generation = 0;
+			}
+			head = 0;
+			tail = 0;
+			generation++;
+			if (generation == 0) {
+				Arrays.fill(stamp, 0);
+				generation = 1;
+			}
+		}
+
+		boolean isVisited(final int node) {
+			return stamp[node] == generation;
+		}
+
+		void visit(final int node, final int distance) {
+			stamp[node] = generation;
+			steps[node] = distance;
+			queue[tail++] = node;
+		}
+
+		boolean hasQueued() {
+			return head < tail;
+		}
+
+		int poll() {
+			return queue[head++];
+		}
+	}
+}
@@ -14,6 +14,7 @@ package games.stendhal.server.core.pathfinder;
 
 import java.awt.Rectangle;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.log4j.Logger;
@@ -119,6 +120,14 @@ public abstract class Path {
 		// long startTimeNano = System.nanoTime();
 		final long startTime = System.currentTimeMillis();
 
+		if (!ZoneNavigation.mayReach(zone.collisionMap, x, y, destination)) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Pathfinding skipped, destination not reachable: " + zone.getID() + " "
+						+ sourceEntity.getTitle() + " (" + x + ", " + y + ") " + destination);
+			}
+			return new ArrayList<Node>(0);
+		}
+
 		final EntityPathfinder pathfinder = new EntityPathfinder(sourceEntity, zone, x, y,
 				destination, maxDistance, withEntities);
 
@@ -148,7 +157,11 @@ public abstract class Path {
 	 */
 	public static List<Node> searchPath(final StendhalRPZone zone, final int startX, final int startY, final int destX,
 			final int destY, final double maxDistance) {
-		final Pathfinder pathfinder = new SimplePathfinder(zone, startX, startY, new Rectangle(destX, destY, 1, 1), maxDistance);
+		final Rectangle destination = new Rectangle(destX, destY, 1, 1);
+		if (!ZoneNavigation.mayReach(zone.collisionMap, startX, startY, destination)) {
+			return new ArrayList<Node>(0);
+		}
+		final Pathfinder pathfinder = new SimplePathfinder(zone, startX, startY, destination, maxDistance);
 		return pathfinder.getPath();
 	}
 
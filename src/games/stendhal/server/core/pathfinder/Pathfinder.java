@@ -25,16 +25,18 @@ package games.stendhal.server.core.pathfinder;
 
 
 import java.awt.geom.Rectangle2D;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.PriorityQueue;
-import java.util.Stack;
 
 /**
  * Implements the A* algorithm. Pathing can be done on any class that implements
  * the <code>Navigable</code> interface. See org.generation5.ai.Navigable.
+ * <p>
+ * The search keeps its nodes in primitive arrays indexed by the map position
+ * instead of node objects. The arrays are reused by all searches of the same
+ * thread, and a generation counter tells which entries belong to the running
+ * search, so that nothing needs to be cleared between searches.
  *
  * @author James Matthews
  *
@@ -66,6 +68,17 @@ public abstract class Pathfinder {
 	 */
 	protected static final double STRAIGHT_PATH_PREFERENCE_FACTOR = 0.2;
 
+	/** Marker for a missing node. */
+	private static final int NONE = -1;
+
+	/** Search data of each thread. */
+	private static final ThreadLocal<SearchState> searchState = new ThreadLocal<SearchState>() {
+		@Override
+		protected SearchState initialValue() {
+			return new SearchState();
+		}
+	};
+
 	/**
 	 * The current status of the pathfinder.
 	 *
@@ -74,34 +87,15 @@ public abstract class Pathfinder {
 	 * @see #IN_PROGRESS
 	 */
 	private int pathStatus = IN_PROGRESS;
-	/**
-	 * The open list.
-	 */
-	private final PriorityQueue<TreeNode> openList = new PriorityQueue<TreeNode>(16,
-			new Comparator<TreeNode>() {
-		@Override
-		public int compare(final TreeNode o1, final TreeNode o2) {
-			return (int) Math.signum(o1.weight - o2.weight);
-		}
-	});
-
-	private final HashMap<Integer, TreeNode> nodeRegistry = new HashMap<Integer, TreeNode>();
-
-	/**
-	 * The goal node.
-	 */
-	protected TreeNode goalNode;
 
-	/**
-	 * The start node.
-	 */
-	protected TreeNode startNode;
+	/** Search data of the running search. */
+	private SearchState state;
 
 	/**
 	 * The current best node. The best node is taken from the open list after
 	 * every iteration of <code>doStep</code>.
 	 */
-	private TreeNode bestNode;
+	private int bestNode = NONE;
 
 	/**
 	 * The maximum distance for the path. It is compared with the f value of the
@@ -115,26 +109,41 @@ public abstract class Pathfinder {
 	 */
 	private final Rectangle2D goalArea;
 
-	/** Initialization data */
-	private final int startX, startY;
-	/** Initialization data */
-	private final Rectangle2D destination;
+	/** Width of the searched map. */
+	private final int width;
+	/** Height of the searched map. */
+	private final int height;
+	/** Start position. */
+	protected final int startX, startY;
+	/** Position used for the heuristic. */
+	protected final int goalX, goalY;
 	/** Initialization data */
 	private final double initMaxDist;
 
-	protected Pathfinder(final int startX, final int startY, final Rectangle2D destination, final double maxDist) {
+	/**
+	 * Create a new Pathfinder.
+	 *
+	 * @param width width of the searched map. Only positions within the map
+	 * 	can be valid
+	 * @param height height of the searched map
+	 * @param startX x coordinate of the start
+	 * @param startY y coordinate of the start
+	 * @param destination destination area
+	 * @param maxDist maximum search distance
+	 */
+	protected Pathfinder(final int width, final int height, final int startX, final int startY,
+			final Rectangle2D destination, final double maxDist) {
 		this.goalArea = destination;
+		this.width = width;
+		this.height = height;
 
 		// Setup the initialization data needed for node creation
 		this.startX = startX;
 		this.startY = startY;
-		this.destination = destination;
+		this.goalX = (int) destination.getCenterX();
+		this.goalY = (int) destination.getCenterY();
 		this.initMaxDist = maxDist;
 
-		openList.clear();
-		nodeRegistry.clear();
-
-		bestNode = null;
 		pathStatus = IN_PROGRESS;
 	}
 
@@ -142,18 +151,15 @@ public abstract class Pathfinder {
 	 * Initialization that can not be done safely in the constructor.
 	 */
 	protected void init() {
-		/*
-		 * createNode is defined in child classes, so it may require
-		 * work in the child's constructor.
-		 */
-		startNode = createNode(startX, startY);
-		goalNode = createNode((int) (destination.getCenterX()),
-				(int) (destination.getCenterY()));
-		openList.offer(startNode);
-		nodeRegistry.put(startNode.nodeNumber, startNode);
+		state = searchState.get();
+		state.reset(width * height + 1);
+
+		final int startNode = nodeIndex(startX, startY);
+		state.create(startNode, 1.0);
+		state.offer(startNode);
 
 		// calculate shortest distance and allow a variance of X percent
-		final double startF = 1.1 * startNode.getHeuristic(goalNode) + 1;
+		final double startF = 1.1 * getHeuristic(startX, startY) + 1;
 		this.maxDistance = Math.max(initMaxDist, startF);
 	}
 
@@ -169,10 +175,9 @@ public abstract class Pathfinder {
 
 	public final List<Node> getPath() {
 		init();
-		final List<Node> list = new LinkedList<Node>();
 
 		if (unreachableGoal()) {
-			return list;
+			return new ArrayList<Node>(0);
 		}
 
 		while (pathStatus == Pathfinder.IN_PROGRESS) {
@@ -180,60 +185,36 @@ public abstract class Pathfinder {
 		}
 
 		if (pathStatus == Pathfinder.PATH_FOUND) {
-			TreeNode node = bestNode;
-			while (node != null) {
-				list.add(0, new Node(node.getX(), node.getY()));
-				node = node.getParent();
+			int length = 0;
+			for (int node = bestNode; node != NONE; node = state.parent[node]) {
+				length++;
+			}
+			final Node[] nodes = new Node[length];
+			for (int node = bestNode; node != NONE; node = state.parent[node]) {
+				nodes[--length] = new Node(nodeX(node), nodeY(node));
 			}
+			return new ArrayList<Node>(Arrays.asList(nodes));
 		}
-		/* */
 
-		return list;
+		return new ArrayList<Node>(0);
 	}
 
 	/**
 	 * Iterate the pathfinder through one step.
 	 */
 	private void doStep() {
-		bestNode = getBest();
-		if (bestNode == null) {
+		bestNode = state.poll();
+		if (bestNode == NONE) {
 			pathStatus = PATH_NOT_FOUND;
 			return;
 		}
 
-		if (reachedGoal(bestNode)) {
+		if (goalArea.contains(nodeX(bestNode), nodeY(bestNode))) {
 			pathStatus = PATH_FOUND;
 			return;
 		}
 
-		bestNode.createChildren();
-	}
-
-	/**
-	 * Assigns the best node from the open list.
-	 *
-	 * @return the best node.
-	 */
-	private TreeNode getBest() {
-		if (openList.isEmpty()) {
-			return null;
-		}
-
-		final TreeNode first = openList.poll();
-		first.setOpen(false);
-
-		return first;
-	}
-
-	/**
-	 * Checks if the goal is reached.
-	 *
-	 * @param nodeBest
-	 *            the currently best node
-	 * @return true if the goal is reached
-	 */
-	private boolean reachedGoal(final TreeNode nodeBest) {
-		return goalArea.contains(nodeBest.getX(), nodeBest.getY());
+		createChildren(bestNode);
 	}
 
 	/**
@@ -251,7 +232,7 @@ public abstract class Pathfinder {
 		for (int i = 0; i <= w; i++) {
 			for (int j = 0; j <= h; j++) {
 				if ((i == 0) || (j == 0) || (i == w) || (j == h)) {
-					if (createNode(x + i, y + j).isValid()) {
+					if (isValid(x + i, y + j)) {
 						return false;
 					}
 				}
@@ -262,15 +243,46 @@ public abstract class Pathfinder {
 	}
 
 	/**
-	 * Create a new TreeNode
+	 * Checks if the entity could stand on the given by the coordinates.
+	 *
+	 * @param x coordinate of the position to be checked
+	 * @param y coordinate of the position to be checked
+	 * @return true if the the entity could stand on the position
+	 */
+	protected abstract boolean isValid(int x, int y);
+
+	/**
+	 * The cost of moving to a position.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return movement cost
+	 */
+	protected double getCost(final int x, final int y) {
+		return 1.0;
+	}
+
+	/**
+	 * Calculates the heuristic for the move from a position to the goal. <p> The right
+	 * heuristic is very important for A* - a over estimated heuristic will
+	 * turn A* in to bsf - a under estimated heuristic will turn A* in to
+	 * Dijkstra's so the manhattan distance seams to be the optimal
+	 * heuristic here. But it has one disadvantage. It will expand to much.
+	 * Several nodes will have the same f value It will search the area of
+	 * the size (abs(startX - goalX) + 1) * (abs(startY - goalY) + 1) So a
+	 * tie-breaker is needed. 1% square distace seems to work fine. A* will
+	 * prefer nodes closer to the goal.
 	 *
-	 * @param x x coordinate of the node
-	 * @param y y coordinate of the node
-	 * @return TreeNode
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return heuristic value for move
 	 */
-	// A workaround for java lacking proper generics
-	public abstract TreeNode createNode(final int x, final int y);
+	private double getHeuristic(final int x, final int y) {
+		final double heuristic = manhattanDistance(x, y, goalX, goalY);
+		final double tieBreaking = 0.01 * squareDistance(x, y, goalX, goalY);
 
+		return heuristic + tieBreaking;
+	}
 
 	/**
 	 * Calculates the manhattan distance between to positions.
@@ -306,334 +318,293 @@ public abstract class Pathfinder {
 		return (x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2);
 	}
 
-
 	/**
-	 * The pathfinder node.
+	 * Get the node index of a position. Children are always valid positions
+	 * within the map, but the start can be anywhere, so it gets the extra
+	 * index after the map positions if it is outside.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return node index
 	 */
-	protected abstract class TreeNode {
-
-		/**
-		 * The f-value.
-		 */
-		private double weight;
-
-		/**
-		 * The g-value.
-		 */
-		private double g;
-
-		/**
-		 * The x-position of the node.
-		 */
-		private final int x;
-
-		/**
-		 * The y-position of the node.
-		 */
-		private final int y;
-
-		/**
-		 * The number of children the node has.
-		 */
-		private int numChildren;
-
-		/**
-		 * The node identifier.
-		 */
-		private final Integer nodeNumber;
-
-		/**
-		 * The parent of the node.
-		 */
-		private TreeNode parent;
-
-		private final TreeNode[] children = new TreeNode[4];
+	private int nodeIndex(final int x, final int y) {
+		if ((x < 0) || (y < 0) || (x >= width) || (y >= height)) {
+			return width * height;
+		}
+		return x + y * width;
+	}
 
-		private boolean open = true;
+	private int nodeX(final int node) {
+		if (node == width * height) {
+			return startX;
+		}
+		return node % width;
+	}
 
-		/**
-		 * The default constructor with positional information.
-		 *
-		 * @param x
-		 *            the x-position of the node.
-		 * @param y
-		 *            the y-position of the node.
-		 */
-		protected TreeNode(final int x, final int y) {
-			this.x = x;
-			this.y = y;
+	private int nodeY(final int node) {
+		if (node == width * height) {
+			return startY;
+		}
+		return node / width;
+	}
 
-			this.nodeNumber = createNodeID(x, y);
+	/**
+	 * Creates valid child nodes.
+	 * <p>
+	 * The child nodes have to be
+	 * <ul>
+	 * <li> a valid position
+	 * <li> a f value less than maxDistance (checked against the given node)
+	 * </ul>
+	 *
+	 * @param node parent node
+	 */
+	private void createChildren(final int node) {
+		if (state.g[node] < maxDistance) {
+			final int x = nodeX(node);
+			final int y = nodeY(node);
+			linkChild(node, x - 1, y + 0);
+			linkChild(node, x + 1, y + 0);
+			linkChild(node, x + 0, y - 1);
+			linkChild(node, x + 0, y + 1);
+		}
+	}
 
-			init();
+	/**
+	 * Links the children to this parent node  and may also update the
+	 * parent path, if a shorter path is found.
+	 *
+	 * @param node parent node
+	 * @param x1 x coordinate of the child
+	 * @param y1 y coordinate of the child
+	 */
+	private void linkChild(final int node, final int x1, final int y1) {
+		if (!isValid(x1, y1)) {
+			return;
 		}
 
-		/**
-		 * Resets the node. This involves all f, g and h-values to 0 as well as
-		 * removing all children.
-		 */
-		private void init() {
-			this.weight = 0.0;
-			this.g = 0.0;
-			this.numChildren = 0;
-			for (int i = 0; i < 4; i++) {
-				this.children[i] = null;
+		final SearchState s = state;
+		final int child = nodeIndex(x1, y1);
+		if (!s.exists(child)) {
+			// if not found original child node then create a new one
+			s.create(child, getCost(x1, y1));
+			s.addChild(node, child);
+			updateChild(node, child);
+
+			s.offer(child);
+		} else {
+			// note:
+			// - working on closed nodes is stopped but they may own a better
+			// parent
+			// so they will also be added to this node (parent)
+			if (s.g[child] > (s.g[node] + s.cost[child])) {
+				updateChild(node, child);
 			}
 
-			this.open = true;
+			// update parents for closed nodes only
+			if (!s.open[child]) {
+				updateSubTree(child);
+			}
 		}
+	}
 
-		/**
-		 * Add a child to the node.
-		 *
-		 * @param child
-		 *            the child node.
-		 */
-		private void addChild(final TreeNode child) {
-			this.children[numChildren++] = child;
-
-			updateChild(child);
+	/**
+	 * Make a node the parent of a child node.
+	 *
+	 * @param node parent node
+	 * @param child child node
+	 */
+	private void updateChild(final int node, final int child) {
+		final SearchState s = state;
+		s.parent[child] = node;
+		s.g[child] = s.g[node] + s.cost[child];
+
+		final int childX = nodeX(child);
+		final int childY = nodeY(child);
+		double childweight = s.g[child] + getHeuristic(childX, childY);
+
+		// Prefer nodes that do not result in direction change
+		final int grandParent = s.parent[node];
+		if (grandParent != NONE) {
+			final int x = nodeX(node);
+			final int y = nodeY(node);
+			final int incx = nodeX(grandParent) - x;
+			final int incy = nodeY(grandParent) - y;
+
+			final int incx2 = x - childX;
+			final int incy2 = y - childY;
+
+			if ((incx == incx2) && (incy == incy2)) {
+				childweight -= STRAIGHT_PATH_PREFERENCE_FACTOR;
+			}
 		}
 
-		/**
-		 * Add a child to the node.
-		 *
-		 * @param child
-		 *            the child node.
-		 */
-		private void updateChild(final TreeNode child) {
-			child.parent = this;
-			child.g = this.g + child.getCost();
-
-			child.weight = calculateChildWeight(child);
-		}
+		s.weight[child] = childweight;
+	}
 
-		/**
-		 * Calculate node weight for a child node.
-		 *
-		 * @param child the child to be calculated
-		 * @return weight for the child node
-		 */
-		private double calculateChildWeight(final TreeNode child) {
-			double childweight = child.g + child.getHeuristic(goalNode);
+	/**
+	 * Update the parents for the new route.
+	 *
+	 * @param node
+	 *            the root node.
+	 */
+	private void updateSubTree(final int node) {
+		final SearchState s = state;
+		int top = 0;
+		s.push(top++, node);
 
-			// Prefer nodes that do not result in direction change
-			if (parent != null) {
-				final int incx = parent.x - x;
-				final int incy = parent.y - y;
+		while (top > 0) {
+			final int parentTemp = s.stack[--top];
+			final int c = s.numChildren[parentTemp];
+			for (int i = 0; i < c; i++) {
+				final int child = s.children[4 * parentTemp + i];
 
-				final int incx2 = x - child.x;
-				final int incy2 = y - child.y;
+				if (s.g[parentTemp] + s.cost[child] < s.g[child]) {
+					updateChild(parentTemp, child);
 
-				if ((incx == incx2) && (incy == incy2)) {
-					childweight -= STRAIGHT_PATH_PREFERENCE_FACTOR;
+					s.push(top++, child);
 				}
 			}
-
-			return childweight;
 		}
+	}
 
-		/**
-		 * Return the x-position of the node.
-		 *
-		 * @return the x-position of the node.
-		 */
-		public int getX() {
-			return x;
-		}
+	/**
+	 * Reusable node data of a search. The arrays are indexed by node index,
+	 * and grow to fit the largest map searched by the thread.
+	 */
+	private static final class SearchState {
+		/** Generation of the current search. */
+		private int generation;
+		/** Generation of the search that created each node. */
+		private int[] stamp = new int[0];
+		/** The g-value. */
+		private double[] g = new double[0];
+		/** The f-value. */
+		private double[] weight = new double[0];
+		/** Cost of moving to the node. */
+		private double[] cost = new double[0];
+		/** Parent node, or NONE. */
+		private int[] parent = new int[0];
+		/** Child nodes, four slots per node. */
+		private int[] children = new int[0];
+		/** Number of children of each node. */
+		private byte[] numChildren = new byte[0];
+		/** <code>true</code> for nodes in the open list. */
+		private boolean[] open = new boolean[0];
+		/** The open list as a binary heap of nodes. */
+		private int[] heap = new int[16];
+		private int heapSize;
+		/** Stack for updating sub trees. */
+		private int[] stack = new int[16];
 
 		/**
-		 * Return the y-position of the node.
+		 * Prepare for a new search.
 		 *
-		 * @return the y-position of the node.
+		 * @param nodes number of nodes needed
 		 */
-		public int getY() {
-			return y;
+		void reset(final int nodes) {
+			if (stamp.length < nodes) {
+				stamp = new int[nodes];
+				g = new double[nodes];
+				weight = new double[nodes];
+				cost = new double[nodes];
+				parent = new int[nodes];
+				children = new int[4 * nodes];
+				numChildren = new byte[nodes];
+				open = new boolean[nodes];
+				generation = 0;
+			}
+			generation++;
+			if (generation == 0) {
+				// wrapped around; old stamps could look current
+				Arrays.fill(stamp, 0);
+				generation = 1;
+			}
+			heapSize = 0;
 		}
 
-		/**
-		 * Return the parent node.
-		 *
-		 * @return the parent node.
-		 */
-		public TreeNode getParent() {
-			return parent;
+		boolean exists(final int node) {
+			return stamp[node] == generation;
 		}
 
-		/**
-		 * The cost of moving to this node.
-		 *
-		 * @return movement cost
-		 */
-		protected double getCost() {
-			return 1.0;
+		void create(final int node, final double nodeCost) {
+			stamp[node] = generation;
+			g[node] = 0.0;
+			weight[node] = 0.0;
+			cost[node] = nodeCost;
+			parent[node] = NONE;
+			numChildren[node] = 0;
+			open[node] = true;
 		}
 
-		/**
-		 * Calculates the heuristic for the move form node1 to node2. <p> The right
-		 * heuristic is very important for A* - a over estimated heuristic will
-		 * turn A* in to bsf - a under estimated heuristic will turn A* in to
-		 * Dijkstra's so the manhattan distance seams to be the optimal
-		 * heuristic here. But it has one disadvantage. It will expand to much.
-		 * Several nodes will have the same f value It will search the area of
-		 * the size (abs(startX - goalX) + 1) * (abs(startY - goalY) + 1) So a
-		 * tie-breaker is needed. 1% square distace seems to work fine. A* will
-		 * prefer nodes closer to the goal.
-		 * @param nodeGoal
-		 * @return heuristic value for move
-		 */
-		public double getHeuristic(final TreeNode nodeGoal) {
-			final double heuristic = manhattanDistance(x, y, nodeGoal.x, nodeGoal.y);
-			final double tieBreaking = 0.01 * squareDistance(x, y, nodeGoal.x,
-					nodeGoal.y);
-
-			return heuristic + tieBreaking;
+		void addChild(final int node, final int child) {
+			children[4 * node + numChildren[node]] = child;
+			numChildren[node]++;
 		}
 
-		/**
-		 * Checks if the entity could stand on the position of this node.
-		 *
-		 * @return true if the the entity could stand on the position
-		 */
-		public boolean isValid() {
-			return isValid(x, y);
+		void push(final int index, final int node) {
+			if (index == stack.length) {
+				stack = Arrays.copyOf(stack, 2 * index);
+			}
+			stack[index] = node;
 		}
 
-		/**
-		 * Checks if the entity could stand on the given by the coordinates.
-		 * @param x coordinate of the position to be checked
-		 * @param y coordinate of the position to be checked
-		 *
-		 * @return true if the the entity could stand on the position
-		 */
-		public abstract boolean isValid(int x, int y);
-
-		/**
-		 * Create a new <code>TreeNode</code>.
-		 *
-		 * @param x x coordinate of the created node
-		 * @param y y coordinate of the created node
-		 * @return a <code>TreeNode</code>
+		/*
+		 * The heap works exactly like java.util.PriorityQueue did with the
+		 * node objects, including when the weight of a node in the open list
+		 * changes, so that the search results stay the same.
 		 */
-		// A workaround for java lacking proper generics
-		public abstract TreeNode createNode(int x, int y);
 
-		/**
-		 * Creates valid child nodes.
-		 * <p>
-		 * The child nodes have to be
-		 * <ul>
-		 * <li> a valid position
-		 * <li> a f value less than maxDistance (checked against the given node)
-		 * </ul>
-		 *
-		 */
-		public void createChildren() {
-			if (g < maxDistance) {
-				linkChild(x - 1, y + 0);
-				linkChild(x + 1, y + 0);
-				linkChild(x + 0, y - 1);
-				linkChild(x + 0, y + 1);
-			}
+		private int compare(final int node1, final int node2) {
+			return (int) Math.signum(weight[node1] - weight[node2]);
 		}
 
-		/**
-		 * Links the children to this parent node  and may also update the
-		 * parent path, if a shorter path is found.
-		 * @param x1
-		 * @param y1
-		 */
-		private void linkChild(final int x1, final int y1) {
-			if (!isValid(x1, y1)) {
-				return;
+		void offer(final int node) {
+			if (heapSize == heap.length) {
+				heap = Arrays.copyOf(heap, 2 * heapSize);
 			}
-
-			// search for original child node
-			TreeNode child = nodeRegistry.get(createNodeID(x1, y1));
-			if (child == null) {
-				// if not found original child node then create a new one
-				child = createNode(x1, y1);
-
-				addChild(child);
-
-				openList.offer(child);
-				child.setOpen(true);
-
-				nodeRegistry.put(child.nodeNumber, child);
-			} else {
-				// note:
-				// - working on closed nodes is stopped but they may own a better
-				// parent
-				// so they will also be added to this node (parent)
-				if (child.g > (this.g + child.getCost())) {
-					updateChild(child);
-				}
-
-				// update parents for closed nodes only
-				if (!child.isOpen()) {
-					updateSubTree(child);
+			int k = heapSize++;
+			while (k > 0) {
+				final int parentIndex = (k - 1) >>> 1;
+				final int e = heap[parentIndex];
+				if (compare(node, e) >= 0) {
+					break;
 				}
+				heap[k] = e;
+				k = parentIndex;
 			}
+			heap[k] = node;
+			open[node] = true;
 		}
 
-		/**
-		 * Update the parents for the new route.
-		 *
-		 * @param node
-		 *            the root node.
-		 */
-		private void updateSubTree(final TreeNode node) {
-			int c = node.numChildren;
-			final Stack<TreeNode> nodeStack = new Stack<TreeNode>();
-
-			nodeStack.push(node);
-
-			TreeNode parentTemp;
-			TreeNode child;
-			while (nodeStack.size() > 0) {
-				parentTemp = nodeStack.pop();
-				c = parentTemp.numChildren;
-				for (int i = 0; i < c; i++) {
-					child = parentTemp.children[i];
-
-					if (parentTemp.g + child.getCost() < child.g) {
-						parentTemp.updateChild(child);
-
-						nodeStack.push(child);
+		int poll() {
+			if (heapSize == 0) {
+				return NONE;
+			}
+			final int result = heap[0];
+			final int n = --heapSize;
+			if (n > 0) {
+				final int x = heap[n];
+				int k = 0;
+				final int half = n >>> 1;
+				while (k < half) {
+					int child = (k << 1) + 1;
+					int c = heap[child];
+					final int right = child + 1;
+					if ((right < n) && (compare(c, heap[right]) > 0)) {
+						child = right;
+						c = heap[child];
 					}
+					if (compare(x, c) <= 0) {
+						break;
+					}
+					heap[k] = c;
+					k = child;
 				}
+				heap[k] = x;
 			}
-		}
-
-		/**
-		 * Calculates the node id.
-		 * @param x of the node
-		 * @param y of the node
-		 *
-		 * @return the id of the node
-		 */
-		protected abstract int createNodeID(int x, int y);
-
-		public final boolean isOpen() {
-			return open;
-		}
-
-		public final void setOpen(final boolean open) {
-			this.open = open;
-		}
-
-		@Override
-		public boolean equals(final Object obj) {
-			if (obj instanceof TreeNode) {
-				final TreeNode treeN = (TreeNode) obj;
-				return this.nodeNumber.intValue() == treeN.nodeNumber.intValue();
-			}
-			return false;
-		}
-
-		@Override
-		public int hashCode() {
-			return nodeNumber.hashCode();
+			open[result] = false;
+			return result;
 		}
 	}
 }
@@ -0,0 +1,295 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import games.stendhal.common.CollisionDetection;
+
+/**
+ * Navigation regions of a zone, derived from its collision map.
+ * <p>
+ * The zone is divided in square clusters, and the walkable tiles of each
+ * cluster are split in regions that are connected within the cluster. Regions
+ * of neighbouring clusters that touch each other are joined to areas, so that
+ * two tiles in the same area can reach each other, and tiles in different
+ * areas can not.
+ * <p>
+ * Entities can only make walking harder, never easier, so a destination that
+ * is not in the same area as the start can not be reached by any path search
+ * either. The path finders use that to give up on such destinations without
+ * exploring the whole search range first. As moving entities never affect
+ * the regions, they need to be recalculated only when the collision map
+ * itself changes.
+ */
+public final class ZoneNavigation {
+	/** Cluster size as a power of two. */
+	private static final int CLUSTER_SHIFT = 4;
+	/** Width and height of a cluster in tiles. */
+	private static final int CLUSTER_SIZE = 1 << CLUSTER_SHIFT;
+	/** Region value of tiles that can not be walked on. */
+	private static final int BLOCKED = -1;
+
+	/**
+	 * Navigation data of the collision maps in use. The values must not refer
+	 * to the collision maps, so that the entries of removed zones can be
+	 * collected.
+	 */
+	private static final Map<CollisionDetection, ZoneNavigation> navigations = new WeakHashMap<CollisionDetection, ZoneNavigation>();
+
+	/** Collision map version the regions were calculated for. */
+	private int version;
+	private int width;
+	private int height;
+	/** Region of each tile, or BLOCKED. */
+	private int[] regions;
+	/** Number of regions. */
+	private int regionCount;
+	/** Area of each region. */
+	private int[] areas;
+	private int clusterColumns;
+	/** Reusable flood fill stack. */
+	private int[] stack;
+
+	/**
+	 * Create navigation data for a collision map. The regions are calculated
+	 * when they are needed first.
+	 */
+	private ZoneNavigation() {
+		// regions are built by validate()
+	}
+
+	/**
+	 * Check if a destination can possibly be reached from a start position.
+	 * A <code>true</code> result does not guarantee that a path exists, but
+	 * <code>false</code> means that there is no walkable route at all.
+	 *
+	 * @param collision collision map
+	 * @param startX x coordinate of the start
+	 * @param startY y coordinate of the start
+	 * @param destination destination area
+	 * @return <code>false</code> if the destination certainly can not be
+	 * 	reached, otherwise <code>true</code>
+	 */
+	public static boolean mayReach(final CollisionDetection collision, final int startX, final int startY,
+			final Rectangle2D destination) {
+		final ZoneNavigation navigation = get(collision);
+		// zones sharing the collision map can run their logic in parallel
+		synchronized (navigation) {
+			return navigation.reaches(collision, startX, startY, destination);
+		}
+	}
+
+	/**
+	 * Get the navigation data of a collision map. Zones sharing a collision
+	 * map share the navigation data too.
+	 *
+	 * @param collision collision map
+	 * @return navigation data
+	 */
+	private static ZoneNavigation get(final CollisionDetection collision) {
+		synchronized (navigations) {
+			ZoneNavigation navigation = navigations.get(collision);
+			if (navigation == null) {
+				navigation = new ZoneNavigation();
+				navigations.put(collision, navigation);
+			}
+			return navigation;
+		}
+	}
+
+	/**
+	 * Check if a destination can possibly be reached from a start position,
+	 * updating the regions first if the collision map has changed.
+	 *
+	 * @param collision collision map the navigation data belongs to
+	 * @param startX x coordinate of the start
+	 * @param startY y coordinate of the start
+	 * @param destination destination area
+	 * @return <code>false</code> if the destination certainly can not be
+	 * 	reached, otherwise <code>true</code>
+	 */
+	private boolean reaches(final CollisionDetection collision, final int startX, final int startY,
+			final Rectangle2D destination) {
+		validate(collision);
+		final int start = regionAt(startX, startY);
+		if (start == BLOCKED) {
+			// Entities can be placed on collision, and walk out of it
+			return true;
+		}
+		final int area = areas[start];
+
+		final int minX = Math.max(0, (int) Math.ceil(destination.getX()));
+		final int minY = Math.max(0, (int) Math.ceil(destination.getY()));
+		final int maxX = Math.min(width, (int) Math.ceil(destination.getMaxX()));
+		final int maxY = Math.min(height, (int) Math.ceil(destination.getMaxY()));
+		for (int y = minY; y < maxY; y++) {
+			for (int x = minX; x < maxX; x++) {
+				final int region = regions[y * width + x];
+				if ((region != BLOCKED) && (areas[region] == area)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the region at a position.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return region number, or BLOCKED if the position is not walkable
+	 */
+	int regionAt(final int x, final int y) {
+		if ((x < 0) || (y < 0) || (x >= width) || (y >= height)) {
+			return BLOCKED;
+		}
+		return regions[y * width + x];
+	}
+
+	/**
+	 * Make sure the region data matches the current collision map.
+	 *
+	 * @param collision collision map
+	 */
+	private void validate(final CollisionDetection collision) {
+		if ((regions == null) || (version != collision.getVersion())) {
+			rebuild(collision);
+		}
+	}
+
+	/**
+	 * Recalculate all regions.
+	 *
+	 * @param collision collision map
+	 */
+	private void rebuild(final CollisionDetection collision) {
+		version = collision.getVersion();
+		width = collision.getWidth();
+		height = collision.getHeight();
+		regions = new int[width * height];
+		Arrays.fill(regions, BLOCKED);
+		regionCount = 0;
+		stack = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+		clusterColumns = (width + CLUSTER_SIZE - 1) >> CLUSTER_SHIFT;
+		final int clusterRows = (height + CLUSTER_SIZE - 1) >> CLUSTER_SHIFT;
+		for (int i = clusterColumns * clusterRows - 1; i >= 0; i--) {
+			buildCluster(collision, i);
+		}
+		joinAreas();
+	}
+
+	/**
+	 * Split the walkable tiles of a cluster to connected regions.
+	 *
+	 * @param collision collision map
+	 * @param cluster cluster index
+	 */
+	private void buildCluster(final CollisionDetection collision, final int cluster) {
+		final int minX = (cluster % clusterColumns) << CLUSTER_SHIFT;
+		final int minY = (cluster / clusterColumns) << CLUSTER_SHIFT;
+		final int maxX = Math.min(width, minX + CLUSTER_SIZE);
+		final int maxY = Math.min(height, minY + CLUSTER_SIZE);
+
+		for (int y = minY; y < maxY; y++) {
+			for (int x = minX; x < maxX; x++) {
+				if ((regions[y * width + x] == BLOCKED) && !collision.collides(x, y)) {
+					fill(collision, x, y, regionCount++, minX, minY, maxX, maxY);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Flood fill a region within cluster bounds.
+	 */
+	private void fill(final CollisionDetection collision, final int startX, final int startY, final int region, final int minX,
+			final int minY, final int maxX, final int maxY) {
+		int top = 0;
+		stack[top++] = startY * width + startX;
+		regions[startY * width + startX] = region;
+		while (top > 0) {
+			final int tile = stack[--top];
+			final int x = tile % width;
+			final int y = tile / width;
+			if (x > minX) {
+				top = push(collision, tile - 1, x - 1, y, region, top);
+			}
+			if (x < maxX - 1) {
+				top = push(collision, tile + 1, x + 1, y, region, top);
+			}
+			if (y > minY) {
+				top = push(collision, tile - width, x, y - 1, region, top);
+			}
+			if (y < maxY - 1) {
+				top = push(collision, tile + width, x, y + 1, region, top);
+			}
+		}
+	}
+
+	private int push(final CollisionDetection collision, final int tile, final int x, final int y, final int region, final int top) {
+		if ((regions[tile] == BLOCKED) && !collision.collides(x, y)) {
+			regions[tile] = region;
+			stack[top] = tile;
+			return top + 1;
+		}
+		return top;
+	}
+
+	/**
+	 * Join regions touching each other over cluster borders to areas.
+	 */
+	private void joinAreas() {
+		final int[] parent = new int[regionCount];
+		for (int i = 0; i < regionCount; i++) {
+			parent[i] = i;
+		}
+		for (int y = 0; y < height; y++) {
+			final int row = y * width;
+			for (int x = CLUSTER_SIZE - 1; x < width - 1; x += CLUSTER_SIZE) {
+				join(parent, regions[row + x], regions[row + x + 1]);
+			}
+		}
+		for (int y = CLUSTER_SIZE - 1; y < height - 1; y += CLUSTER_SIZE) {
+			final int row = y * width;
+			for (int x = 0; x < width; x++) {
+				join(parent, regions[row + x], regions[row + width + x]);
+			}
+		}
+		for (int i = 0; i < regionCount; i++) {
+			parent[i] = find(parent, i);
+		}
+		areas = parent;
+	}
+
+	private static void join(final int[] parent, final int region1, final int region2) {
+		if ((region1 != BLOCKED) && (region2 != BLOCKED)) {
+			final int root1 = find(parent, region1);
+			final int root2 = find(parent, region2);
+			if (root1 != root2) {
+				parent[Math.max(root1, root2)] = Math.min(root1, root2);
+			}
+		}
+	}
+
+	private static int find(final int[] parent, int region) {
+		while (parent[region] != region) {
+			parent[region] = parent[parent[region]];
+			region = parent[region];
+		}
+		return region;
+	}
+}
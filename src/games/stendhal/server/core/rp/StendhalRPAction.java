@@ -14,7 +14,6 @@ package games.stendhal.server.core.rp;
 import static games.stendhal.common.constants.Actions.MOVE_CONTINUOUS;
 
 import java.awt.Point;
-import java.awt.Rectangle;
 import java.awt.Shape;
 import java.util.ArrayList;
 import java.util.LinkedList;
@@ -29,10 +28,11 @@ import games.stendhal.server.core.engine.DataProvider;
 import games.stendhal.server.core.engine.GameEvent;
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.core.engine.ZoneLogicExecutor;
 import games.stendhal.server.core.engine.db.StendhalKillLogDAO;
 import games.stendhal.server.core.events.TutorialNotifier;
 import games.stendhal.server.core.events.ZoneNotifier;
-import games.stendhal.server.core.pathfinder.Node;
+import games.stendhal.server.core.pathfinder.FloodFill;
 import games.stendhal.server.core.pathfinder.Path;
 import games.stendhal.server.core.rp.group.Group;
 import games.stendhal.server.entity.Entity;
@@ -78,6 +78,18 @@ public class StendhalRPAction {
 	/** Server manager. */
 	private static RPServerManager rpman;
 
+	/**
+	 * Receives the outcome of placing an entity.
+	 */
+	public interface PlacementListener {
+		/**
+		 * Called after an entity has been placed, or placing it failed.
+		 *
+		 * @param placed <code>true</code> if the entity was placed
+		 */
+		void onPlaced(boolean placed);
+	}
+
 
 	/**
 	 * Initializes the StendhalRPAction.
@@ -606,6 +618,11 @@ public class StendhalRPAction {
 	 */
 	private static final int maxDisplacement = 36;
 
+	/**
+	 * Maximum walking distance from the center to an acceptable new location.
+	 */
+	private static final int MAX_PATH_LENGTH = 400;
+
 	/**
 	 * Places an entity at a specified position in a specified zone. This will
 	 * remove the entity from any existing zone and add it to the target zone if
@@ -624,8 +641,97 @@ public class StendhalRPAction {
 	 *     new position.
 	 * @return
 	 *     <code>true</code> if it was possible to place the entity, false otherwise.
+	 *     When called from parallel zone logic, moving the entity to another
+	 *     zone is deferred and <code>true</code> is returned before it is
+	 *     placed. Use {@link #placeat(StendhalRPZone, Entity, int, int, Shape, PlacementListener)}
+	 *     to learn the real outcome.
+	 */
+	public static boolean placeat(final StendhalRPZone zone, final Entity entity,
+			final int x, final int y, final Shape allowedArea) {
+		return placeat(zone, entity, x, y, allowedArea, null);
+	}
+
+	/**
+	 * Places an entity at a specified position in a specified zone, and
+	 * reports the outcome to a listener.
+	 * <p>
+	 * Zone changes can not be done while the zones run their logic in
+	 * parallel. If the entity would leave or enter another zone than the one
+	 * running its logic, placing it is deferred until the zone logic is done.
+	 * The listener is notified then, after the entity has been placed.
+	 *
+	 * @param zone
+	 *     Zone to place the entity in.
+	 * @param entity
+	 *     The entity to place.
+	 * @param x
+	 *     Zone X coordinate.
+	 * @param y
+	 *     Zone Y coordinate.
+	 * @param allowedArea
+	 *     If not <code>null</code>, only search within this area for a possible
+	 *     new position.
+	 * @param listener
+	 *     Listener notified of the outcome, or <code>null</code>.
+	 * @return
+	 *     <code>true</code> if it was possible to place the entity, or if
+	 *     placing it was deferred, false otherwise.
 	 */
 	public static boolean placeat(final StendhalRPZone zone, final Entity entity,
+			final int x, final int y, final Shape allowedArea, final PlacementListener listener) {
+		if ((zone != null) && mustDefer(zone, entity)) {
+			ZoneLogicExecutor.defer(new Runnable() {
+				@Override
+				public void run() {
+					final boolean placed = place(zone, entity, x, y, allowedArea);
+					if (!placed) {
+						logger.warn("Deferred placing of " + entity.getTitle() + " at "
+								+ zone.getName() + "[" + x + "," + y + "] failed");
+					}
+					if (listener != null) {
+						listener.onPlaced(placed);
+					}
+				}
+			});
+			return true;
+		}
+
+		final boolean placed = place(zone, entity, x, y, allowedArea);
+		if (listener != null) {
+			listener.onPlaced(placed);
+		}
+		return placed;
+	}
+
+	/**
+	 * Check if placing an entity needs to wait for the end of parallel zone
+	 * logic. That is the case if it affects any other zone than the one
+	 * running on the current thread.
+	 *
+	 * @param zone target zone
+	 * @param entity entity to place
+	 * @return <code>true</code> if placing must be deferred
+	 */
+	private static boolean mustDefer(final StendhalRPZone zone, final Entity entity) {
+		final StendhalRPZone running = ZoneLogicExecutor.getRunningZone();
+		if (running == null) {
+			return false;
+		}
+		final StendhalRPZone oldZone = entity.getZone();
+		return (zone != running) || ((oldZone != null) && (oldZone != zone));
+	}
+
+	/**
+	 * Places an entity, without checking for parallel zone logic.
+	 *
+	 * @param zone target zone
+	 * @param entity entity to place
+	 * @param x zone X coordinate
+	 * @param y zone Y coordinate
+	 * @param allowedArea area to search for a position, or <code>null</code>
+	 * @return <code>true</code> if it was possible to place the entity
+	 */
+	private static boolean place(final StendhalRPZone zone, final Entity entity,
 			int x, int y, final Shape allowedArea) {
 		if (zone == null) {
 			return false;
@@ -716,6 +822,10 @@ public class StendhalRPAction {
 		// Place in new zone (if needed)
 		if (zoneChanged) {
 			zone.add(entity);
+		} else if (entity instanceof RPEntity) {
+			// a new position is reported by setPosition, but a placement
+			// to the current one must wake the creatures too
+			zone.wakeCreaturesNear((RPEntity) entity);
 		}
 
 		// Player specific post-change handling
@@ -787,8 +897,15 @@ public class StendhalRPAction {
 	 *     Location of the new placement, or <code>null</code> if no
 	 *     suitable place was found.
 	 */
-	private static Point findLocation(final StendhalRPZone zone, final Entity entity,
+	static Point findLocation(final StendhalRPZone zone, final Entity entity,
 			final Shape allowedArea, final int x, final int y, final boolean checkPath) {
+		// One search of the walkable area serves all the candidate spots
+		final FloodFill reachable;
+		if (checkPath) {
+			reachable = new FloodFill(entity, zone, x, y, MAX_PATH_LENGTH);
+		} else {
+			reachable = null;
+		}
 
 		// Minimum Euclidean distance within minimum walking distance
 		for (int totalShift = 1; totalShift <= maxDisplacement; totalShift++) {
@@ -797,19 +914,19 @@ public class StendhalRPAction {
 
 				int tmpx = x - tilt;
 				int tmpy = y - spread;
-				if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+				if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 					return new Point(tmpx, tmpy);
 				}
 				tmpx = x + tilt;
-				if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+				if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 					return new Point(tmpx, tmpy);
 				}
 				tmpy = y + spread;
-				if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+				if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 					return new Point(tmpx, tmpy);
 				}
 				tmpx = x - tilt;
-				if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+				if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 					return new Point(tmpx, tmpy);
 				}
 
@@ -820,19 +937,19 @@ public class StendhalRPAction {
 
 				tmpx = x - spread;
 				tmpy = y - tilt;
-				if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+				if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 					return new Point(tmpx, tmpy);
 				}
 				tmpx = x + spread;
-				if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+				if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 					return new Point(tmpx, tmpy);
 				}
 				tmpy = y + tilt;
-				if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+				if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 					return new Point(tmpx, tmpy);
 				}
 				tmpx = x - spread;
-				if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+				if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 					return new Point(tmpx, tmpy);
 				}
 			}
@@ -840,20 +957,20 @@ public class StendhalRPAction {
 			// Do tilt = 0 case here, since it takes only 4 checks
 			int tmpx = x;
 			int tmpy = y - totalShift;
-			if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+			if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 				return new Point(tmpx, tmpy);
 			}
 			tmpy = y + totalShift;
-			if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+			if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 				return new Point(tmpx, tmpy);
 			}
 			tmpy = y;
 			tmpx = x - totalShift;
-			if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+			if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 				return new Point(tmpx, tmpy);
 			}
 			tmpx = x + totalShift;
-			if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+			if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 				return new Point(tmpx, tmpy);
 			}
 		}
@@ -872,24 +989,20 @@ public class StendhalRPAction {
 	 *     Only search within this area for a possible new position,
 	 *     or <code>null</code> if the whole normal search area should
 	 *     be used.
-	 * @param oldX
-	 *     The X coordinate from where the entity was displaced.
-	 * @param oldY
-	 *     The Y coordinate from where the entity was displaced.
 	 * @param newX
 	 *     The X coordinate of the new placement.
 	 * @param newY
 	 *     The Y coordinate of the new placement.
-	 * @param checkPath
-	 *     If <code>true</code>, check that there is a path from
-	 *     <code>(newX, newY)</code> to <code>(oldX, oldY)</code>.
+	 * @param reachable
+	 *     The area walkable from the spot where the entity was displaced,
+	 *     or <code>null</code> if the path does not need to be checked.
 	 * @return
 	 *     <code>true</code> if placing is possible,
 	 *     <code>false</code> otherwise.
 	 */
 	private static boolean isValidPlacement(final StendhalRPZone zone, final Entity entity,
-			final Shape allowedArea, final int oldX, final int oldY,
-			final int newX, final int newY, final boolean checkPath) {
+			final Shape allowedArea, final int newX, final int newY,
+			final FloodFill reachable) {
 
 		// allow admins in ghostmode to teleport to collision tiles
 		if (entity instanceof Player) {
@@ -904,7 +1017,7 @@ public class StendhalRPAction {
 			if ((allowedArea != null) && (!allowedArea.contains(newX, newY))) {
 				return false;
 			}
-			if (!checkPath) {
+			if (reachable == null) {
 				return true;
 			}
 
@@ -912,13 +1025,7 @@ public class StendhalRPAction {
 			// spot and the new destination. This is to prevent players to
 			// enter not allowed places by logging in on top of other players.
 			// Or monsters to spawn on the other side of a wall.
-			final List<Node> path = Path.searchPath(entity, zone,
-					oldX, oldY, new Rectangle(newX, newY, 1, 1),
-					400 /* maxDestination * maxDestination */, false);
-			if (!path.isEmpty()) {
-				// We found a place!
-				return true;
-			}
+			return reachable.isReachable(newX, newY);
 		}
 
 		return false;
@@ -12,6 +12,10 @@
  ***************************************************************************/
 package games.stendhal.server.core.rp.achievement;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
 import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
 /**
@@ -49,6 +53,8 @@ public class Achievement {
 
 	private final ChatCondition condition;
 
+	/** Progress the condition depends on, or <code>null</code> if it may depend on anything. */
+	private final Set<String> dependencies;
 
 
 	/**
@@ -70,6 +76,12 @@ public class Achievement {
 		this.description = description;
 		this.baseScore = baseScore;
 		this.active = active;
+		final Collection<String> temp = Dependencies.of(condition);
+		if (temp != null) {
+			this.dependencies = new HashSet<String>(temp);
+		} else {
+			this.dependencies = null;
+		}
 	}
 
 	/**
@@ -123,6 +135,20 @@ public class Achievement {
 		return condition.fire(p, null, null);
 	}
 
+	/**
+	 * Checks if a change of player progress can affect this achievement.
+	 *
+	 * @param key key of the changed progress as created by {@link Dependencies},
+	 * 	or <code>null</code> if unknown
+	 * @return <code>true</code> if the achievement should be checked
+	 */
+	public boolean dependsOn(final String key) {
+		if ((key == null) || (dependencies == null)) {
+			return true;
+		}
+		return dependencies.contains(key) || dependencies.contains(Dependencies.getKind(key));
+	}
+
 	@Override
 	public String toString() {
 		return "Achievement<id: "+identifier+", title: "+title+">";
@@ -43,6 +43,10 @@ import marauroa.server.game.db.DAORegister;
 
 /**
  * Checks for reached achievements and marks them as reached for a player if he has fulfilled them
+ * <p>
+ * Events that know which progress of the player changed, for example the
+ * creature that was killed, only check the achievements that depend on that
+ * progress. See {@link DependentCondition}.
  *
  * @author madmetzger
  */
@@ -179,7 +183,21 @@ public final class AchievementNotifier {
 	 * @param player
 	 */
 	public void onKill(final Player player) {
-		getAndCheckAchievementsInCategory(player, Category.FIGHTING);
+		onKill(player, null);
+	}
+
+	/**
+	 * checks the achievements for a player that depend on killing a creature
+	 *
+	 * @param player
+	 * @param creature name of the killed creature, or <code>null</code> to check all fighting achievements
+	 */
+	public void onKill(final Player player, final String creature) {
+		String key = null;
+		if (creature != null) {
+			key = Dependencies.kill(creature);
+		}
+		getAndCheckAchievementsInCategory(player, Category.FIGHTING, key);
 	}
 
 	/**
@@ -188,15 +206,29 @@ public final class AchievementNotifier {
 	 * @param player
 	 */
 	public void onFinishQuest(final Player player) {
-		getAndCheckAchievementsInCategory(player, Category.QUEST);
-		getAndCheckAchievementsInCategory(player, Category.QUEST_ADOS_ITEMS);
-		getAndCheckAchievementsInCategory(player, Category.QUEST_SEMOS_MONSTER);
-		getAndCheckAchievementsInCategory(player, Category.QUEST_KIRDNEH_ITEM);
-		getAndCheckAchievementsInCategory(player, Category.FRIEND);
-		getAndCheckAchievementsInCategory(player, Category.OBTAIN);
-		getAndCheckAchievementsInCategory(player, Category.PRODUCTION);
-		getAndCheckAchievementsInCategory(player, Category.QUEST_MITHRILBOURGH_ENEMY_ARMY);
-		getAndCheckAchievementsInCategory(player, Category.QUEST_KILL_BLORDROUGHS);
+		onFinishQuest(player, null);
+	}
+
+	/**
+	 * check the achievements for a player that depend on the state of a quest
+	 *
+	 * @param player
+	 * @param questSlot name of the changed quest slot, or <code>null</code> to check all quest related achievements
+	 */
+	public void onFinishQuest(final Player player, final String questSlot) {
+		String key = null;
+		if (questSlot != null) {
+			key = Dependencies.quest(questSlot);
+		}
+		getAndCheckAchievementsInCategory(player, Category.QUEST, key);
+		getAndCheckAchievementsInCategory(player, Category.QUEST_ADOS_ITEMS, key);
+		getAndCheckAchievementsInCategory(player, Category.QUEST_SEMOS_MONSTER, key);
+		getAndCheckAchievementsInCategory(player, Category.QUEST_KIRDNEH_ITEM, key);
+		getAndCheckAchievementsInCategory(player, Category.FRIEND, key);
+		getAndCheckAchievementsInCategory(player, Category.OBTAIN, key);
+		getAndCheckAchievementsInCategory(player, Category.PRODUCTION, key);
+		getAndCheckAchievementsInCategory(player, Category.QUEST_MITHRILBOURGH_ENEMY_ARMY, key);
+		getAndCheckAchievementsInCategory(player, Category.QUEST_KILL_BLORDROUGHS, key);
 	}
 
 	/**
@@ -234,8 +266,22 @@ public final class AchievementNotifier {
 	 * @param player
 	 */
 	public void onItemLoot(final Player player) {
-		getAndCheckAchievementsInCategory(player, Category.ITEM);
-		getAndCheckAchievementsInCategory(player, Category.OBTAIN);
+		onItemLoot(player, null);
+	}
+
+	/**
+	 * check the achievements for a player that depend on looting an item
+	 *
+	 * @param player
+	 * @param item name of the looted item, or <code>null</code> to check all item achievements
+	 */
+	public void onItemLoot(final Player player, final String item) {
+		String key = null;
+		if (item != null) {
+			key = Dependencies.loot(item);
+		}
+		getAndCheckAchievementsInCategory(player, Category.ITEM, key);
+		getAndCheckAchievementsInCategory(player, Category.OBTAIN, key);
 	}
 
 	/**
@@ -327,11 +373,33 @@ public final class AchievementNotifier {
 	 * @param category
 	 */
 	private void getAndCheckAchievementsInCategory(final Player player, final Category category) {
-		if(achievements.containsKey(category)) {
-			List<Achievement> toCheck = achievements.get(category);
-			List<Achievement> reached = checkAchievements(player, toCheck);
-			notifyPlayerAboutReachedAchievements(player, reached);
+		getAndCheckAchievementsInCategory(player, category, null);
+	}
+
+	/**
+	 * retrieve the achievements of a category that depend on some progress,
+	 * and check if player has reached each of them
+	 *
+	 * @param player
+	 * @param category
+	 * @param key key of the changed progress, or <code>null</code> to check all achievements of the category
+	 */
+	private void getAndCheckAchievementsInCategory(final Player player, final Category category, final String key) {
+		final List<Achievement> list = achievements.get(category);
+		if (list == null) {
+			return;
+		}
+		List<Achievement> toCheck = list;
+		if (key != null) {
+			toCheck = new ArrayList<Achievement>();
+			for (final Achievement achievement : list) {
+				if (achievement.dependsOn(key)) {
+					toCheck.add(achievement);
+				}
+			}
 		}
+		List<Achievement> reached = checkAchievements(player, toCheck);
+		notifyPlayerAboutReachedAchievements(player, reached);
 	}
 
 	/**
@@ -352,7 +420,8 @@ public final class AchievementNotifier {
 		}
 
 		for (Achievement achievement : toCheck) {
-			if(achievement.isFulfilled(player) && !player.hasReachedAchievement(achievement.getIdentifier())) {
+			// reached achievements are not checked again
+			if(!player.hasReachedAchievement(achievement.getIdentifier()) && achievement.isFulfilled(player)) {
 				logReachingOfAnAchievement(player, achievement);
 				if (achievement.isActive()) {
 					reached.add(achievement);
@@ -0,0 +1,129 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp.achievement;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import games.stendhal.server.entity.npc.ChatCondition;
+
+/**
+ * Keys for the player progress that achievement conditions depend on.
+ * A key is either specific, like the kills of one creature, or covers any
+ * progress of a kind, like the kills of any creature.
+ */
+public final class Dependencies {
+
+	/** Kills of any creature. */
+	public static final String ANY_KILL = "kill";
+
+	/** Changes of any quest state. */
+	public static final String ANY_QUEST = "quest";
+
+	/** Loot of any item. */
+	public static final String ANY_LOOT = "loot";
+
+	private Dependencies() {
+		// static helpers only
+	}
+
+	/**
+	 * Gets the key for the kills of a creature.
+	 *
+	 * @param creature name of creature
+	 * @return key
+	 */
+	public static String kill(final String creature) {
+		return ANY_KILL + ":" + creature;
+	}
+
+	/**
+	 * Gets the key for the state of a quest.
+	 *
+	 * @param slot name of the quest slot
+	 * @return key
+	 */
+	public static String quest(final String slot) {
+		return ANY_QUEST + ":" + slot;
+	}
+
+	/**
+	 * Gets the key for the loot of an item.
+	 *
+	 * @param item name of item
+	 * @return key
+	 */
+	public static String loot(final String item) {
+		return ANY_LOOT + ":" + item;
+	}
+
+	/**
+	 * Gets the dependencies of a condition, that checks the state of a quest.
+	 *
+	 * @param slot name of the quest slot
+	 * @return dependencies, or <code>null</code> if the slot name contains
+	 *         variables which are only known, when the quest is accessed
+	 */
+	public static Collection<String> ofQuest(final String slot) {
+		if ((slot == null) || (slot.indexOf('[') >= 0)) {
+			return null;
+		}
+		return Collections.singleton(quest(slot));
+	}
+
+	/**
+	 * Gets the dependencies of a condition.
+	 *
+	 * @param condition condition
+	 * @return dependencies, or <code>null</code> if the condition may depend on anything
+	 */
+	public static Collection<String> of(final ChatCondition condition) {
+		if (condition instanceof DependentCondition) {
+			return ((DependentCondition) condition).getDependencies();
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the combined dependencies of some conditions.
+	 *
+	 * @param conditions conditions
+	 * @return dependencies, or <code>null</code> if any of the conditions may depend on anything
+	 */
+	public static Collection<String> of(final Iterable<ChatCondition> conditions) {
+		final Set<String> res = new HashSet<String>();
+		for (final ChatCondition condition : conditions) {
+			final Collection<String> dependencies = of(condition);
+			if (dependencies == null) {
+				return null;
+			}
+			res.addAll(dependencies);
+		}
+		return res;
+	}
+
+	/**
+	 * Gets the key that covers all progress of the kind of a key.
+	 *
+	 * @param key specific key
+	 * @return key for any progress of that kind
+	 */
+	static String getKind(final String key) {
+		final int pos = key.indexOf(':');
+		if (pos < 0) {
+			return key;
+		}
+		return key.substring(0, pos);
+	}
+}
@@ -0,0 +1,35 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp.achievement;
+
+import java.util.Collection;
+
+import games.stendhal.server.entity.npc.ChatCondition;
+
+/**
+ * A condition that knows which player progress its result depends on, for
+ * example the kills of certain creatures or the state of certain quests.
+ * Achievements with such a condition are only checked when that progress
+ * changes.
+ *
+ * @see Dependencies
+ */
+public interface DependentCondition extends ChatCondition {
+
+	/**
+	 * Gets the progress this condition depends on.
+	 *
+	 * @return keys created by {@link Dependencies}, or <code>null</code> if
+	 *         the condition may depend on anything
+	 */
+	Collection<String> getDependencies();
+}
@@ -12,12 +12,14 @@
 package games.stendhal.server.core.rp.achievement.condition;
 
 import java.util.Collection;
+import java.util.Collections;
 
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.rp.achievement.Dependencies;
+import games.stendhal.server.core.rp.achievement.DependentCondition;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.creature.Creature;
-import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
 
 /**
@@ -25,7 +27,7 @@ import games.stendhal.server.entity.player.Player;
  *
  * @author kymara
  */
-public class KilledRareCreatureCondition implements ChatCondition {
+public class KilledRareCreatureCondition implements DependentCondition {
 	@Override
 	public boolean fire(final Player player, final Sentence sentence, final Entity entity) {
 		final Collection<Creature> creatures = SingletonRepository.getEntityManager().getCreatures();
@@ -39,6 +41,11 @@ public class KilledRareCreatureCondition implements ChatCondition {
 		return false;
 	}
 
+	@Override
+	public Collection<String> getDependencies() {
+		return Collections.singleton(Dependencies.ANY_KILL);
+	}
+
 	@Override
 	public String toString() {
 		return "KilledRareCreatureCondition";
@@ -12,30 +12,29 @@
 package games.stendhal.server.core.rp.achievement.condition;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
 
 import games.stendhal.common.parser.Sentence;
-import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.rp.achievement.Dependencies;
+import games.stendhal.server.core.rp.achievement.DependentCondition;
 import games.stendhal.server.entity.Entity;
-import games.stendhal.server.entity.creature.Creature;
-import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
 
 /**
  * Did the player kill all creatures, shared? (excluding rare)
  *
  */
-public class KilledSharedAllCreaturesCondition implements ChatCondition {
+public class KilledSharedAllCreaturesCondition implements DependentCondition {
 	@Override
 	public boolean fire(final Player player, final Sentence sentence, final Entity entity) {
-		final Collection<Creature> creatures = SingletonRepository.getEntityManager().getCreatures();
-		for (Creature creature : creatures) {
-			if (!creature.isAbnormal()) {
-				if (!player.hasKilledShared(creature.getName())) {
-					return false;
-				}
-			}
-		}
-		return true;
+		final Set<String> creatures = NormalCreatures.get();
+		return player.getNumberOfKilledShared(creatures) == creatures.size();
+	}
+
+	@Override
+	public Collection<String> getDependencies() {
+		return Collections.singleton(Dependencies.ANY_KILL);
 	}
 
 	@Override
@@ -12,12 +12,13 @@
 package games.stendhal.server.core.rp.achievement.condition;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
 
 import games.stendhal.common.parser.Sentence;
-import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.rp.achievement.Dependencies;
+import games.stendhal.server.core.rp.achievement.DependentCondition;
 import games.stendhal.server.entity.Entity;
-import games.stendhal.server.entity.creature.Creature;
-import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
 
 /**
@@ -25,18 +26,16 @@ import games.stendhal.server.entity.player.Player;
  *
  * @author kymara
  */
-public class KilledSoloAllCreaturesCondition implements ChatCondition {
+public class KilledSoloAllCreaturesCondition implements DependentCondition {
 	@Override
 	public boolean fire(final Player player, final Sentence sentence, final Entity entity) {
-		final Collection<Creature> creatures = SingletonRepository.getEntityManager().getCreatures();
-		for (Creature creature : creatures) {
-			if (!creature.isAbnormal()) {
-				if (!player.hasKilledSolo(creature.getName())) {
-					return false;
-				}
-			}
-		}
-		return true;
+		final Set<String> creatures = NormalCreatures.get();
+		return player.getNumberOfKilledSolo(creatures) == creatures.size();
+	}
+
+	@Override
+	public Collection<String> getDependencies() {
+		return Collections.singleton(Dependencies.ANY_KILL);
 	}
 
 	@Override
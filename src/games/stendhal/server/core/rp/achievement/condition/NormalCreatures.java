@@ -0,0 +1,61 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp.achievement.condition;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.rule.EntityManager;
+import games.stendhal.server.entity.creature.Creature;
+
+/**
+ * The names of the creatures a player has to kill for the "all creatures"
+ * achievements, that is all creatures that are not abnormal.
+ * <p>
+ * A new set is created when the entity manager has instantiated more
+ * creatures, so that players can use the identity of the set to check if
+ * their kill counts are still valid.
+ */
+public final class NormalCreatures {
+	private static EntityManager entityManager;
+	private static int creatureCount = -1;
+	private static Set<String> names = Collections.emptySet();
+
+	private NormalCreatures() {
+		// static helpers only
+	}
+
+	/**
+	 * Gets the names of the creatures that are not abnormal.
+	 *
+	 * @return unmodifiable set of names
+	 */
+	public static synchronized Set<String> get() {
+		final EntityManager manager = SingletonRepository.getEntityManager();
+		final Collection<Creature> creatures = manager.getCreatures();
+		if ((manager != entityManager) || (creatures.size() != creatureCount)) {
+			final Set<String> temp = new HashSet<String>();
+			for (final Creature creature : creatures) {
+				if (!creature.isAbnormal()) {
+					temp.add(creature.getName());
+				}
+			}
+			names = Collections.unmodifiableSet(temp);
+			entityManager = manager;
+			creatureCount = creatures.size();
+		}
+		return names;
+	}
+}
@@ -11,12 +11,15 @@
  ***************************************************************************/
 package games.stendhal.server.core.rp.achievement.condition;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.rp.achievement.Dependencies;
+import games.stendhal.server.core.rp.achievement.DependentCondition;
 import games.stendhal.server.entity.Entity;
-import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
 
 /**
@@ -24,7 +27,7 @@ import games.stendhal.server.entity.player.Player;
  *
  * @author kymara
  */
-public class QuestCountCompletedCondition implements ChatCondition {
+public class QuestCountCompletedCondition implements DependentCondition {
 
 	private final int count;
 
@@ -44,6 +47,11 @@ public class QuestCountCompletedCondition implements ChatCondition {
 		return (quests.size() >= count);
 	}
 
+	@Override
+	public Collection<String> getDependencies() {
+		return Collections.singleton(Dependencies.ANY_QUEST);
+	}
+
 	@Override
 	public String toString() {
 		return "QuestCountCompletedCondition <" + count + ">";
@@ -14,17 +14,20 @@ package games.stendhal.server.core.rp.achievement.condition;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import games.stendhal.common.parser.Sentence;
+import games.stendhal.server.core.rp.achievement.Dependencies;
+import games.stendhal.server.core.rp.achievement.DependentCondition;
 import games.stendhal.server.entity.Entity;
-import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
 
 /**
  * Was a quest with this prefix completed?
  */
-public class QuestWithPrefixCompletedCondition implements ChatCondition {
+public class QuestWithPrefixCompletedCondition implements DependentCondition {
 
 	private final String questname;
 
@@ -51,6 +54,11 @@ public class QuestWithPrefixCompletedCondition implements ChatCondition {
 		return false;
 	}
 
+	@Override
+	public Collection<String> getDependencies() {
+		return Collections.singleton(Dependencies.ANY_QUEST);
+	}
+
 	@Override
 	public String toString() {
 		return "QuestWithPrefixCompleted <" + questname + ">";
@@ -14,18 +14,21 @@ package games.stendhal.server.core.rp.achievement.condition;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.rp.achievement.Dependencies;
+import games.stendhal.server.core.rp.achievement.DependentCondition;
 import games.stendhal.server.entity.Entity;
-import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
 
 /**
  * Are all the quests in this region completed?
  */
-public class QuestsInRegionCompletedCondition implements ChatCondition {
+public class QuestsInRegionCompletedCondition implements DependentCondition {
 
 	private final String region;
 
@@ -45,6 +48,11 @@ public class QuestsInRegionCompletedCondition implements ChatCondition {
 		return quests.isEmpty();
 	}
 
+	@Override
+	public Collection<String> getDependencies() {
+		return Collections.singleton(Dependencies.ANY_QUEST);
+	}
+
 	@Override
 	public String toString() {
 		return "QuestsInRegionCompleted <" + region + ">";
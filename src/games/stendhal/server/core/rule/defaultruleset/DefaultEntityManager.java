@@ -184,6 +184,8 @@ public class DefaultEntityManager implements EntityManager {
 		}
 		classToCreature.put(clazz, creature);
 		idToClass.put(id, clazz);
+		// the prototype of a replaced definition is out of date
+		createdCreature.remove(clazz);
 
 		return true;
 	}
@@ -288,10 +290,14 @@ public class DefaultEntityManager implements EntityManager {
 		// Lookup the clazz in the creature table
 		final DefaultCreature creature = classToCreature.get(clazz);
 		if (creature != null) {
-			if (createdCreature.get(clazz) == null) {
-				createdCreature.put(clazz, creature.getCreature());
+			// Copy the prototype, instead of building the creature again from
+			// the definition
+			Creature prototype = createdCreature.get(clazz);
+			if (prototype == null) {
+				prototype = creature.getCreature();
+				createdCreature.put(clazz, prototype);
 			}
-			return creature.getCreature();
+			return prototype.getNewInstance();
 		}
 
 		return null;
@@ -14,6 +14,8 @@ package games.stendhal.server.core.rule.defaultruleset.creator;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.function.Function;
 
 import games.stendhal.server.core.rule.defaultruleset.DefaultItem;
 import games.stendhal.server.entity.item.Item;
@@ -23,13 +25,26 @@ import games.stendhal.server.entity.item.Item;
  */
 public class AttributesItemCreator extends AbstractItemCreator {
 
+	/** Compiled constructor, or <code>null</code> if reflection is used. */
+	private final Function<Map<String, String>, Object> factory;
+
 	public AttributesItemCreator(DefaultItem defaultItem, final Constructor< ? > construct) {
 		super(defaultItem, construct);
+		factory = ConstructorFactories.forAttributes(construct);
 	}
 
 	@Override
 	protected Item createObject() throws IllegalAccessException,
 			InstantiationException, InvocationTargetException {
-		return (Item) construct.newInstance(new Object[] { this.defaultItem.getAttributes() });
+		if (factory == null) {
+			return (Item) construct.newInstance(new Object[] { this.defaultItem.getAttributes() });
+		}
+		final Object item;
+		try {
+			item = factory.apply(this.defaultItem.getAttributes());
+		} catch (final RuntimeException e) {
+			throw new InvocationTargetException(e);
+		}
+		return (Item) item;
 	}
 }
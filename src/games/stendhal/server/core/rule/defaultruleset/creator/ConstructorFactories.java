@@ -0,0 +1,110 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rule.defaultruleset.creator;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Compiles constructors to plain factory objects, so that creating objects
+ * does not need to go through reflection.
+ * <p>
+ * The factories are generated with {@link LambdaMetafactory}, and calling
+ * them is an ordinary interface call to the constructor. If a constructor
+ * cannot be compiled (for example because it is not public), the creators
+ * fall back to calling it via reflection.
+ */
+final class ConstructorFactories {
+	private static final Logger logger = Logger.getLogger(ConstructorFactories.class);
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	/**
+	 * Factory for the <em>name, class, subclass, attributes</em> constructor.
+	 */
+	interface FullFactory {
+		Object create(String name, String clazz, String subclass, Map<String, String> attributes);
+	}
+
+	private ConstructorFactories() {
+		// static methods only
+	}
+
+	/**
+	 * Compile a constructor without parameters.
+	 *
+	 * @param construct constructor
+	 * @return factory, or <code>null</code> if the constructor could not be
+	 * 	compiled
+	 */
+	@SuppressWarnings("unchecked")
+	static Supplier<Object> forDefault(final Constructor<?> construct) {
+		return compile(construct, Supplier.class, "get", MethodType.methodType(Object.class));
+	}
+
+	/**
+	 * Compile an <em>attributes</em> constructor.
+	 *
+	 * @param construct constructor
+	 * @return factory, or <code>null</code> if the constructor could not be
+	 * 	compiled
+	 */
+	@SuppressWarnings("unchecked")
+	static Function<Map<String, String>, Object> forAttributes(final Constructor<?> construct) {
+		return compile(construct, Function.class, "apply", MethodType.methodType(Object.class, Object.class));
+	}
+
+	/**
+	 * Compile a <em>name, class, subclass, attributes</em> constructor.
+	 *
+	 * @param construct constructor
+	 * @return factory, or <code>null</code> if the constructor could not be
+	 * 	compiled
+	 */
+	static FullFactory forFull(final Constructor<?> construct) {
+		return compile(construct, FullFactory.class, "create", MethodType.methodType(Object.class,
+				String.class, String.class, String.class, Map.class));
+	}
+
+	/**
+	 * Generate an implementation of a functional interface that calls a
+	 * constructor.
+	 *
+	 * @param construct constructor
+	 * @param factoryType the functional interface
+	 * @param methodName name of the interface method
+	 * @param methodType erased type of the interface method
+	 * @return factory, or <code>null</code> if the constructor could not be
+	 * 	compiled
+	 */
+	private static <F> F compile(final Constructor<?> construct, final Class<F> factoryType,
+			final String methodName, final MethodType methodType) {
+		try {
+			final MethodHandle target = LOOKUP.unreflectConstructor(construct);
+			final CallSite site = LambdaMetafactory.metafactory(LOOKUP, methodName,
+					MethodType.methodType(factoryType), methodType, target, target.type());
+			return factoryType.cast(site.getTarget().invoke());
+		} catch (final Throwable e) {
+			logger.debug("Using reflection for " + construct + ": " + e);
+			return null;
+		}
+	}
+}
@@ -14,6 +14,7 @@ package games.stendhal.server.core.rule.defaultruleset.creator;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.function.Supplier;
 
 import games.stendhal.server.core.rule.defaultruleset.DefaultItem;
 import games.stendhal.server.entity.item.Item;
@@ -23,13 +24,26 @@ import games.stendhal.server.entity.item.Item;
  */
 public class DefaultItemCreator extends AbstractItemCreator {
 
+	/** Compiled constructor, or <code>null</code> if reflection is used. */
+	private final Supplier<Object> factory;
+
 	public DefaultItemCreator(DefaultItem defaultItem, final Constructor< ? > construct) {
 		super(defaultItem, construct);
+		factory = ConstructorFactories.forDefault(construct);
 	}
 
 	@Override
 	protected Item createObject() throws IllegalAccessException,
 			InstantiationException, InvocationTargetException {
-		return (Item) construct.newInstance(new Object[] {});
+		if (factory == null) {
+			return (Item) construct.newInstance(new Object[] {});
+		}
+		final Object item;
+		try {
+			item = factory.get();
+		} catch (final RuntimeException e) {
+			throw new InvocationTargetException(e);
+		}
+		return (Item) item;
 	}
 }
@@ -28,19 +28,35 @@ public class FullItemCreator extends AbstractItemCreator {
 
 	private static final Logger logger = Logger.getLogger(FullItemCreator.class);
 
+	/** Compiled constructor, or <code>null</code> if reflection is used. */
+	private final ConstructorFactories.FullFactory factory;
+
 	public FullItemCreator(DefaultItem defaultItem, final Constructor< ? > construct) {
 		super(defaultItem, construct);
+		factory = ConstructorFactories.forFull(construct);
 	}
 
 	@Override
 	protected Item createObject() throws IllegalAccessException,
 			InstantiationException, InvocationTargetException {
 		try {
-			return (Item) construct.newInstance(new Object[] {
-					this.defaultItem.getItemName(),
-					this.defaultItem.getItemClass(),
-					this.defaultItem.getItemSubclass(),
-					this.defaultItem.getAttributes() });
+			if (factory == null) {
+				return (Item) construct.newInstance(new Object[] {
+						this.defaultItem.getItemName(),
+						this.defaultItem.getItemClass(),
+						this.defaultItem.getItemSubclass(),
+						this.defaultItem.getAttributes() });
+			}
+			final Object item;
+			try {
+				item = factory.create(this.defaultItem.getItemName(),
+						this.defaultItem.getItemClass(),
+						this.defaultItem.getItemSubclass(),
+						this.defaultItem.getAttributes());
+			} catch (final RuntimeException e) {
+				throw new InvocationTargetException(e);
+			}
+			return (Item) item;
 		} catch (IllegalAccessException | InstantiationException | InvocationTargetException | RuntimeException e) {
 			logger.error("Creating item \"" + this.defaultItem.getItemName() + "\" failed.");
 			throw e;
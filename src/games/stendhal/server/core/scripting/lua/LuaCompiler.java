@@ -0,0 +1,294 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.scripting.lua;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaFunction;
+import org.luaj.vm2.luajc.LuaJC;
+
+import marauroa.common.Configuration;
+import marauroa.common.crypto.Hash;
+import marauroa.common.net.InputSerializer;
+import marauroa.common.net.OutputSerializer;
+
+/**
+ * Compiles Lua scripts to Java classes with LuaJC, so that the functions
+ * defined by the scripts run as Java bytecode instead of in the LuaJ
+ * interpreter.
+ * <p>
+ * If a cache directory is configured, the generated classes are stored
+ * there, keyed by the hash of the chunk name and the script. Unchanged
+ * scripts are loaded from the cache on the next start instead of compiling
+ * them again.
+ * <p>
+ * LuaJC generates the classes with Apache BCEL. If it is not available, or
+ * a script cannot be compiled, {@link #load} returns <code>null</code> and
+ * the script is interpreted.
+ */
+final class LuaCompiler {
+	private static final Logger logger = Logger.getLogger(LuaCompiler.class);
+
+	/**
+	 * Version of the cache files. It must be increased when the format of
+	 * the cache files changes, or when LuaJ is updated.
+	 */
+	static final int CACHE_VERSION = 1;
+
+	/** Marks the start of a cache file. */
+	private static final int CACHE_MAGIC = 0x534c4a43;
+
+	/** Directory of the cache files, or <code>null</code> if there is no cache. */
+	private final File cacheDirectory;
+
+	/** Set when LuaJC cannot be used at all. */
+	private boolean unavailable;
+
+	/**
+	 * Creates a new LuaCompiler.
+	 *
+	 * @param cacheDirectory directory for cache files, or <code>null</code> to not use a cache
+	 */
+	LuaCompiler(final File cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	/**
+	 * Creates a LuaCompiler configured by server.ini, if lua_compile is set
+	 * to <code>true</code>. The cache directory is read from lua_cache_dir.
+	 * Without it, no cache is used.
+	 *
+	 * @return LuaCompiler, or <code>null</code> if the scripts should be interpreted
+	 */
+	static LuaCompiler create() {
+		File cacheDirectory = null;
+		try {
+			final Configuration config = Configuration.getConfiguration();
+			if (!Boolean.parseBoolean(config.get("lua_compile", "false"))) {
+				return null;
+			}
+			if (config.has("lua_cache_dir")) {
+				cacheDirectory = new File(config.get("lua_cache_dir"));
+			}
+		} catch (final IOException e) {
+			logger.error(e, e);
+			return null;
+		}
+
+		if ((cacheDirectory != null) && !cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+			logger.warn("Cannot create Lua cache directory " + cacheDirectory + ", not using a cache");
+			cacheDirectory = null;
+		}
+		return new LuaCompiler(cacheDirectory);
+	}
+
+	/**
+	 * Loads a script as a compiled function.
+	 *
+	 * @param script the script source
+	 * @param chunkname name of the script in error messages
+	 * @param globals environment of the script
+	 * @return the main function of the script, or <code>null</code> if the
+	 * 	script could not be compiled
+	 */
+	LuaFunction load(final byte[] script, final String chunkname, final Globals globals) {
+		if (unavailable) {
+			return null;
+		}
+
+		File cacheFile = null;
+		Map<String, byte[]> classes = null;
+		if (cacheDirectory != null) {
+			cacheFile = new File(cacheDirectory, Hash.toHexString(hash(chunkname, script)) + ".luajc");
+			classes = readCache(cacheFile);
+		}
+
+		if (classes == null) {
+			classes = compile(script, chunkname, globals);
+			if (classes == null) {
+				return null;
+			}
+			if (cacheFile != null) {
+				writeCache(cacheFile, classes);
+			}
+		}
+
+		try {
+			final LuaFunction main = (LuaFunction) new ChunkClassLoader(classes).loadClass(
+					getMainClassName(classes)).getDeclaredConstructor().newInstance();
+			main.initupvalue1(globals);
+			return main;
+		} catch (final ReflectiveOperationException | LinkageError | ClassCastException e) {
+			logger.warn("Cannot load compiled Lua script " + chunkname + ", interpreting it: " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * Compiles a script with LuaJC.
+	 *
+	 * @param script the script source
+	 * @param chunkname name of the script
+	 * @param globals environment of the script
+	 * @return generated classes by name, or <code>null</code> if the script
+	 * 	could not be compiled
+	 */
+	private Map<String, byte[]> compile(final byte[] script, final String chunkname, final Globals globals) {
+		try {
+			@SuppressWarnings("unchecked")
+			final Map<String, byte[]> classes = LuaJC.instance.compileAll(new ByteArrayInputStream(script),
+					chunkname, chunkname, globals, false);
+			return classes;
+		} catch (final LinkageError e) {
+			// BCEL missing from the class path
+			unavailable = true;
+			logger.warn("LuaJC is not available, interpreting Lua scripts: " + e);
+		} catch (final IOException | RuntimeException e) {
+			logger.warn("Cannot compile Lua script " + chunkname + ", interpreting it: " + e);
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the name of the class of the main chunk. The classes of the
+	 * functions defined in the script are named after it.
+	 *
+	 * @param classes generated classes by name
+	 * @return class name
+	 */
+	private static String getMainClassName(final Map<String, byte[]> classes) {
+		String main = null;
+		for (final String name : classes.keySet()) {
+			if ((main == null) || (name.length() < main.length())) {
+				main = name;
+			}
+		}
+		return main;
+	}
+
+	private static byte[] hash(final String chunkname, final byte[] script) {
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(chunkname.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			return digest.digest(script);
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Reads the classes of a script from a cache file.
+	 *
+	 * @param file cache file
+	 * @return classes by name, or <code>null</code> if the file does not exist or is not usable
+	 */
+	private static Map<String, byte[]> readCache(final File file) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			final InputStream stream = new BufferedInputStream(new FileInputStream(file));
+			try {
+				final InputSerializer in = new InputSerializer(stream);
+				if ((in.readInt() != CACHE_MAGIC) || (in.readInt() != CACHE_VERSION)) {
+					return null;
+				}
+				final int count = in.readInt();
+				final Map<String, byte[]> classes = new HashMap<String, byte[]>();
+				for (int i = 0; i < count; i++) {
+					classes.put(in.readString(), in.readByteArray());
+				}
+				return classes;
+			} finally {
+				stream.close();
+			}
+		} catch (final IOException e) {
+			logger.warn("Ignoring Lua cache file " + file + ": " + e);
+		}
+		return null;
+	}
+
+	/**
+	 * Writes the classes of a script to a cache file. The file is written
+	 * under a temporary name first, so that other servers sharing the
+	 * directory never see an incomplete file.
+	 *
+	 * @param file cache file
+	 * @param classes classes by name
+	 */
+	private static void writeCache(final File file, final Map<String, byte[]> classes) {
+		File temp = null;
+		try {
+			temp = File.createTempFile("lua", ".tmp", file.getParentFile());
+			final OutputStream stream = new BufferedOutputStream(new FileOutputStream(temp));
+			try {
+				final OutputSerializer out = new OutputSerializer(stream);
+				out.write(CACHE_MAGIC);
+				out.write(CACHE_VERSION);
+				out.write(classes.size());
+				for (final Map.Entry<String, byte[]> entry : classes.entrySet()) {
+					out.write(entry.getKey());
+					out.write(entry.getValue());
+				}
+			} finally {
+				stream.close();
+			}
+			// some systems do not replace existing files, like outdated ones
+			if (temp.renameTo(file) || (file.delete() && temp.renameTo(file))) {
+				temp = null;
+			}
+		} catch (final IOException e) {
+			logger.warn("Cannot write Lua cache file " + file + ": " + e);
+		} finally {
+			if ((temp != null) && !temp.delete()) {
+				temp.deleteOnExit();
+			}
+		}
+	}
+
+	/**
+	 * Defines the generated classes of one script.
+	 */
+	private static final class ChunkClassLoader extends ClassLoader {
+		private final Map<String, byte[]> classes;
+
+		ChunkClassLoader(final Map<String, byte[]> classes) {
+			super(LuaCompiler.class.getClassLoader());
+			this.classes = classes;
+		}
+
+		@Override
+		protected Class<?> findClass(final String name) throws ClassNotFoundException {
+			final byte[] bytes = classes.get(name);
+			if (bytes == null) {
+				throw new ClassNotFoundException(name);
+			}
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+}
@@ -11,9 +11,13 @@
  ***************************************************************************/
 package games.stendhal.server.core.scripting.lua;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -55,6 +59,8 @@ public class LuaLoader {
 	private static LuaFunction dofileOrig;
 	/** Script that is currently loaded. */
 	private LuaScript currentScript;
+	/** Compiler for the scripts, or <code>null</code> if they are interpreted. */
+	private LuaCompiler compiler;
 
 	/** Singleton instance. */
 	private static LuaLoader instance;
@@ -92,6 +98,7 @@ public class LuaLoader {
 		globals.load(new JseBaseLib());
 		globals.load(new PackageLib());
 		globals.load(new LuajavaLib());
+		compiler = LuaCompiler.create();
 
 		// store original 'dofile' function
 		dofileOrig = globals.get("dofile").checkfunction();
@@ -190,6 +197,73 @@ public class LuaLoader {
 		return new LuaScript(filename);
 	}
 
+	/**
+	 * Loads a script file as a function, compiled if scripts are compiled.
+	 *
+	 * @param filename
+	 *     Path to Lua script.
+	 * @return
+	 *     Main function of the script.
+	 */
+	LuaValue loadFile(final String filename) {
+		if (compiler != null) {
+			final InputStream is = globals.finder.findResource(filename);
+			if (is != null) {
+				try {
+					return load(read(is), "@" + filename);
+				} catch (final IOException e) {
+					logger.warn("Cannot read Lua script " + filename + ": " + e);
+				}
+			}
+		}
+		return globals.loadfile(filename);
+	}
+
+	/**
+	 * Loads a script from a stream as a function, compiled if scripts are
+	 * compiled.
+	 *
+	 * @param is
+	 *     Lua data.
+	 * @param chunkname
+	 *     Identifier for the script.
+	 * @return
+	 *     Main function of the script.
+	 * @throws IOException
+	 *     If the stream cannot be read.
+	 */
+	LuaValue loadStream(final InputStream is, final String chunkname) throws IOException {
+		if (compiler != null) {
+			return load(read(is), chunkname);
+		}
+		return globals.load(new BufferedReader(new InputStreamReader(is)), chunkname);
+	}
+
+	/**
+	 * Loads a script, compiling it if possible, and interpreting it otherwise.
+	 */
+	private LuaValue load(final byte[] script, final String chunkname) {
+		final LuaFunction compiled = compiler.load(script, chunkname, globals);
+		if (compiled != null) {
+			return compiled;
+		}
+		return globals.load(new ByteArrayInputStream(script), chunkname, "bt", globals);
+	}
+
+	private static byte[] read(final InputStream in) throws IOException {
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[8192];
+			int count;
+			while ((count = in.read(buffer)) != -1) {
+				out.write(buffer, 0, count);
+			}
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+
 	/**
 	 * Retrieves Lua global objects.
 	 */
@@ -10,10 +10,8 @@
  ***************************************************************************/
 package games.stendhal.server.core.scripting.lua;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
@@ -192,7 +190,7 @@ public class LuaScript extends ScriptingSandbox {
 	 */
 	LuaValue loadFile() {
 		// run script
-		return LuaLoader.get().getGlobals().loadfile(filename).call();
+		return LuaLoader.get().loadFile(filename).call();
 	}
 
 	/**
@@ -204,10 +202,9 @@ public class LuaScript extends ScriptingSandbox {
 	LuaValue loadStream() {
 		LuaValue result = LuaValue.NIL;
 		try {
-			final BufferedReader reader = new BufferedReader(new InputStreamReader(istream));
 			// run data chunk
-			result = LuaLoader.get().getGlobals().load(reader, filename).call();
-			reader.close();
+			result = LuaLoader.get().loadStream(istream, filename).call();
+			istream.close();
 		} catch (final IOException e) {
 			Logger.getLogger(LuaScript.class).error(e, e);
 			result = LuaValue.ONE;
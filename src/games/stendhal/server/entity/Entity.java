@@ -196,6 +196,10 @@ public abstract class Entity extends RPObject implements Killer {
 			area.width = getInt("width");
 		}
 
+		if (zone != null) {
+			zone.updateEntityIndex(this);
+		}
+
 		if (has("resistance")) {
 			resistance = getInt("resistance");
 		}
@@ -658,6 +662,7 @@ public abstract class Entity extends RPObject implements Killer {
 		}
 
 		if (moved && (zone != null)) {
+			zone.updateEntityIndex(this);
 			onMoved(oldX, oldY, x, y);
 		}
 	}
@@ -695,6 +700,10 @@ public abstract class Entity extends RPObject implements Killer {
 
 		this.area.height = height;
 		put("height", height);
+
+		if (zone != null) {
+			zone.updateEntityIndex(this);
+		}
 	}
 
 	/**
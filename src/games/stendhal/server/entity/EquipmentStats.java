@@ -0,0 +1,110 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity;
+
+import java.util.List;
+
+import games.stendhal.server.entity.item.Item;
+import games.stendhal.server.entity.status.StatusAttacker;
+import marauroa.common.game.RPObject;
+import marauroa.common.game.RPSlot;
+
+/**
+ * Combat values derived from the equipment of an entity.
+ * <p>
+ * The values are computed when the equipment has changed since the previous
+ * computation, instead of walking the equipment slots on every attack. The
+ * snapshot remembers which objects were in the equipment slots, the level
+ * of the entity (items with a too high min_level are weaker), and the status
+ * attackers of the entity itself, and it is recomputed when any of those
+ * differ. Changes to the items themselves are not detected, so code changing
+ * equipped items should call {@link RPEntity#updateItemAtkDef()}, which
+ * invalidates the snapshot.
+ */
+final class EquipmentStats {
+	/** Slots whose contents affect the combat values. */
+	private static final String[] SLOTS = { "lhand", "rhand", "armor", "head", "legs", "feet", "cloak", "finger" };
+
+	/** First object of each of the slots when the values were computed. */
+	private final RPObject[] contents = new RPObject[SLOTS.length];
+	/** Level of the entity when the values were computed. */
+	private int level;
+	/** Own status attackers of the entity when the values were computed. */
+	private List<StatusAttacker> ownStatusAttackers;
+	private boolean valid;
+
+	/** Weapons, as returned by RPEntity.getWeapons(). */
+	List<Item> weapons;
+	/** The weapon as returned by RPEntity.getWeapon(), for the attack events. */
+	Item weapon;
+	float itemAtk;
+	float itemRatk;
+	float itemDef;
+	/** Status attackers of the entity and its weapons and ammunition. */
+	List<StatusAttacker> statusAttackers;
+	/**
+	 * Items affecting the susceptibilities to damage. The items are kept
+	 * instead of the values, as the susceptibilities are looked up from the
+	 * items directly.
+	 */
+	List<Item> susceptibilityItems;
+
+	/**
+	 * Check if the values are still valid for an entity.
+	 *
+	 * @param entity the entity whose values these are
+	 * @return <code>true</code> if the equipment, level and status attackers
+	 * 	are the same as when the values were computed
+	 */
+	boolean isCurrent(final RPEntity entity) {
+		if (!valid || (level != entity.getLevel()) || (ownStatusAttackers != entity.statusAttackers)) {
+			return false;
+		}
+		for (int i = 0; i < SLOTS.length; i++) {
+			if (contents[i] != getFirst(entity, SLOTS[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Start a new computation of the values. Records the current state of
+	 * the entity, so that later changes can be detected.
+	 *
+	 * @param entity the entity whose values these are
+	 */
+	void reset(final RPEntity entity) {
+		for (int i = 0; i < SLOTS.length; i++) {
+			contents[i] = getFirst(entity, SLOTS[i]);
+		}
+		level = entity.getLevel();
+		ownStatusAttackers = entity.statusAttackers;
+		valid = true;
+	}
+
+	/**
+	 * Mark the values invalid, so that they get computed again when they
+	 * are needed next time.
+	 */
+	void invalidate() {
+		valid = false;
+	}
+
+	private static RPObject getFirst(final RPEntity entity, final String slotName) {
+		final RPSlot slot = entity.getSlot(slotName);
+		if ((slot == null) || (slot.size() == 0)) {
+			return null;
+		}
+		return slot.getFirst();
+	}
+}
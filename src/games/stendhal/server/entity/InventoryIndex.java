@@ -0,0 +1,174 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import games.stendhal.server.entity.item.Item;
+import games.stendhal.server.entity.slot.EntitySlot;
+import games.stendhal.server.entity.slot.Slots;
+import marauroa.common.game.RPObject;
+import marauroa.common.game.RPSlot;
+
+/**
+ * Index of the items an entity carries, including the contents of carried
+ * containers, by item name.
+ * <p>
+ * The index is built when it is needed after the slot contents changed, and
+ * stack quantity changes are applied to it directly. The changes are reported
+ * by {@link EntitySlot}s, so the index is kept only if all the carrying slots,
+ * and the slots of the carried items, are EntitySlots. Otherwise it is built
+ * again for every query.
+ * <p>
+ * The items of each name are listed in the same order as they are found when
+ * walking the slots, so that dropping items removes them in the same order
+ * regardless of the index.
+ */
+final class InventoryIndex {
+	/** Item lists by name. Item names are matched ignoring the case. */
+	private final Map<String, Entry> entries = new TreeMap<String, Entry>(String.CASE_INSENSITIVE_ORDER);
+	/** Item lists by the items, for applying the quantity changes. */
+	private final Map<Item, Entry> entryOf = new IdentityHashMap<Item, Entry>();
+	/**
+	 * <code>true</code> if the index is up to date, and all the changes
+	 * will be reported.
+	 */
+	private boolean valid;
+	/** Set during building if a slot that does not report changes is found. */
+	private boolean tracked;
+
+	/**
+	 * Check if the index can be used without building it first.
+	 *
+	 * @return <code>true</code> if the index is up to date
+	 */
+	boolean isValid() {
+		return valid;
+	}
+
+	/**
+	 * Mark the index out of date.
+	 */
+	void invalidate() {
+		valid = false;
+	}
+
+	/**
+	 * Build the index from the carrying slots of an entity.
+	 *
+	 * @param entity owner of the slots
+	 */
+	void build(final RPEntity entity) {
+		entries.clear();
+		entryOf.clear();
+		tracked = true;
+		for (final String slotName : Slots.CARRYING.getNames()) {
+			final RPSlot slot = entity.getSlot(slotName);
+			if (slot != null) {
+				addSlot(slot);
+			}
+		}
+		valid = tracked;
+	}
+
+	/**
+	 * Add the items of a slot, and the items contained in them.
+	 *
+	 * @param slot slot
+	 */
+	private void addSlot(final RPSlot slot) {
+		if (!(slot instanceof EntitySlot)) {
+			tracked = false;
+		}
+		for (final RPObject object : slot) {
+			if (object instanceof Item) {
+				final Item item = (Item) object;
+				addItem(item);
+				for (final RPSlot content : item.slots()) {
+					addSlot(content);
+				}
+			}
+		}
+	}
+
+	private void addItem(final Item item) {
+		final String name = item.getName();
+		if (name == null) {
+			return;
+		}
+		Entry entry = entries.get(name);
+		if (entry == null) {
+			entry = new Entry();
+			entries.put(name, entry);
+		}
+		entry.items.add(item);
+		entry.quantity += item.getQuantity();
+		entryOf.put(item, entry);
+	}
+
+	/**
+	 * Apply a change in the quantity of a stack.
+	 *
+	 * @param item changed item
+	 * @param delta change in the quantity
+	 */
+	void onQuantityChanged(final Item item, final int delta) {
+		if (!valid) {
+			return;
+		}
+		final Entry entry = entryOf.get(item);
+		if (entry != null) {
+			entry.quantity += delta;
+		}
+	}
+
+	/**
+	 * Get the total quantity of carried items of a name.
+	 *
+	 * @param name item name
+	 * @return quantity
+	 */
+	int getQuantity(final String name) {
+		final Entry entry = entries.get(name);
+		if (entry == null) {
+			return 0;
+		}
+		return entry.quantity;
+	}
+
+	/**
+	 * Get the carried items of a name. The list must not be modified.
+	 *
+	 * @param name item name
+	 * @return items in the order they are found in the slots
+	 */
+	List<Item> getItems(final String name) {
+		final Entry entry = entries.get(name);
+		if (entry == null) {
+			return Collections.emptyList();
+		}
+		return entry.items;
+	}
+
+	/**
+	 * Items of one name.
+	 */
+	private static final class Entry {
+		private final List<Item> items = new ArrayList<Item>(1);
+		private int quantity;
+	}
+}
@@ -40,10 +40,10 @@ import games.stendhal.common.parser.WordList;
 import games.stendhal.server.actions.equip.DropAction;
 import games.stendhal.server.core.engine.GameEvent;
 import games.stendhal.server.core.engine.ItemLogger;
+import games.stendhal.server.core.engine.KillLogWriter;
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPZone;
 import games.stendhal.server.core.engine.db.StendhalKillLogDAO;
-import games.stendhal.server.core.engine.dbcommand.LogKillEventCommand;
 import games.stendhal.server.core.events.TurnListener;
 import games.stendhal.server.core.events.TutorialNotifier;
 import games.stendhal.server.entity.creature.Creature;
@@ -55,7 +55,6 @@ import games.stendhal.server.entity.item.StackableItem;
 import games.stendhal.server.entity.mapstuff.portal.Portal;
 import games.stendhal.server.entity.player.Player;
 import games.stendhal.server.entity.slot.EntitySlot;
-import games.stendhal.server.entity.slot.Slots;
 import games.stendhal.server.entity.status.Status;
 import games.stendhal.server.entity.status.StatusAttacker;
 import games.stendhal.server.entity.status.StatusList;
@@ -68,8 +67,6 @@ import marauroa.common.game.RPAction;
 import marauroa.common.game.RPObject;
 import marauroa.common.game.RPSlot;
 import marauroa.common.game.SyntaxException;
-import marauroa.server.db.command.DBCommandPriority;
-import marauroa.server.db.command.DBCommandQueue;
 import marauroa.server.game.Statistics;
 import marauroa.server.game.db.DAORegister;
 
@@ -106,6 +103,10 @@ public abstract class RPEntity extends CombatEntity {
 
 	/** Entity uses a status attack */
 	protected ImmutableList<StatusAttacker> statusAttackers = ImmutableList.of();
+	/** Combat values derived from the equipment. Created when first needed */
+	private EquipmentStats equipmentStats;
+	/** Index of the carried items. Created when first needed */
+	private InventoryIndex inventoryIndex;
 	/** a list of current statuses */
 	protected StatusList statusList;
 
@@ -1625,7 +1626,7 @@ public abstract class RPEntity extends CombatEntity {
 				}
 			}
 
-			SingletonRepository.getAchievementNotifier().onKill(killer);
+			SingletonRepository.getAchievementNotifier().onKill(killer, killedName);
 
 			killer.notifyWorldAboutChanges();
 		}
@@ -1737,7 +1738,7 @@ public abstract class RPEntity extends CombatEntity {
 			new GameEvent(killerName, "killed", this.getName(), killLog.entityToType(killer), killLog.entityToType(this)).raise();
 		}
 
-		DBCommandQueue.get().enqueue(new LogKillEventCommand(this, killer), DBCommandPriority.LOW);
+		KillLogWriter.get().add(this, killer);
 
 		die(killer, remove);
 	}
@@ -2138,32 +2139,38 @@ public abstract class RPEntity extends CombatEntity {
 	 * @return true iff dropping the desired amount was successful.
 	 */
 	public boolean drop(final String name, final int amount) {
-		return drop(nameMatches(name), amount);
+		return drop(getInventoryIndex().getItems(name), it -> true, amount);
 	}
 
-	private boolean isEquipped(Predicate<Item> condition, int amount) {
-		Iterable<Item> matching = getAllEquipped(condition)::iterator;
+	/**
+	 * Remove items matching a condition.
+	 *
+	 * @param candidates items to check, in the order they should be dropped
+	 * @param condition condition for the dropped items
+	 * @param amount amount to drop
+	 * @return <code>true</code> if the entity had at least the requested
+	 * 	amount of matching items, and they were dropped
+	 */
+	private boolean drop(List<Item> candidates, Predicate<Item> condition, int amount) {
 		int count = 0;
-		for (Item item : matching) {
-			count += item.getQuantity();
-			if (count >= amount) {
-				return true;
+		for (Item item : candidates) {
+			if (condition.test(item)) {
+				count += item.getQuantity();
 			}
 		}
-		return false;
-	}
-
-	private boolean drop(Predicate<Item> condition, int amount) {
-		if (!isEquipped(condition, amount)) {
+		if (count < amount) {
 			return false;
 		}
 
+		// Dropping invalidates the inventory index, but not the lists it
+		// has returned
 		int toDrop = amount;
-		Iterable<Item> matchingItems = equippedStream().filter(condition)::iterator;
-		for (Item item : matchingItems) {
-			toDrop -= dropItem(item, toDrop);
-			if (toDrop == 0) {
-				return true;
+		for (Item item : candidates) {
+			if (condition.test(item)) {
+				toDrop -= dropItem(item, toDrop);
+				if (toDrop == 0) {
+					return true;
+				}
 			}
 		}
 
@@ -2226,7 +2233,7 @@ public abstract class RPEntity extends CombatEntity {
 	 * @return true iff dropping the item was successful.
 	 */
 	public boolean drop(final Item item) {
-		return drop(it -> item == it, 1);
+		return drop(getInventoryIndex().getItems(item.getName()), it -> item == it, 1);
 	}
 
 	/**
@@ -2245,7 +2252,8 @@ public abstract class RPEntity extends CombatEntity {
 	 * 		<code>true</code> if dropping the item(s) was successful.
 	 */
 	public boolean dropWithItemdata(final String name, final String itemdata, final int amount) {
-		return drop(item -> (name.equals(item.getName()) && itemdata.equals(item.getItemData())), amount);
+		return drop(getInventoryIndex().getItems(name),
+				item -> (name.equals(item.getName()) && itemdata.equals(item.getItemData())), amount);
 	}
 
 	/**
@@ -2277,7 +2285,7 @@ public abstract class RPEntity extends CombatEntity {
 	 *         number.
 	 */
 	public boolean isEquipped(final String name, final int amount) {
-		return isEquipped(nameMatches(name), amount);
+		return getInventoryIndex().getQuantity(name) >= amount;
 	}
 
 	/**
@@ -2305,7 +2313,13 @@ public abstract class RPEntity extends CombatEntity {
 	 * 		<code>true</code> if entity is carrying at least specified amount of items matching name & itemdata.
 	 */
 	public boolean isEquippedWithItemdata(final String name, final String itemdata, final int amount) {
-		return getAllEquippedWithItemdata(name, itemdata).size() >= amount;
+		int count = 0;
+		for (final Item item : getInventoryIndex().getItems(name)) {
+			if (itemdataMatches(item, name, itemdata)) {
+				count++;
+			}
+		}
+		return count >= amount;
 	}
 
 	/**
@@ -2331,8 +2345,7 @@ public abstract class RPEntity extends CombatEntity {
 	 * @return The number of carried items
 	 */
 	public int getNumberOfEquipped(final String name) {
-		return equippedStream().filter(nameMatches(name))
-				.mapToInt(Item::getQuantity).sum();
+		return getInventoryIndex().getQuantity(name);
 	}
 
 	/**
@@ -2358,7 +2371,11 @@ public abstract class RPEntity extends CombatEntity {
 	 *         found
 	 */
 	public Item getFirstEquipped(final String name) {
-		return equippedStream().filter(nameMatches(name)).findFirst().orElse(null);
+		final List<Item> items = getInventoryIndex().getItems(name);
+		if (items.isEmpty()) {
+			return null;
+		}
+		return items.get(0);
 	}
 
 	/**
@@ -2371,11 +2388,7 @@ public abstract class RPEntity extends CombatEntity {
 	 *         found
 	 */
 	public List<Item> getAllEquipped(final String name) {
-		return getAllEquipped(nameMatches(name));
-	}
-
-	private List<Item> getAllEquipped(Predicate<Item> condition) {
-		return equippedStream().filter(condition).collect(Collectors.toList());
+		return new ArrayList<>(getInventoryIndex().getItems(name));
 	}
 
 	/**
@@ -2389,8 +2402,83 @@ public abstract class RPEntity extends CombatEntity {
 	 * 		List<Item>
 	 */
 	public List<Item> getAllEquippedWithItemdata(String name, String itemdata) {
-		return getAllEquipped(item -> name.equals(item.getName())
-				&& itemdata.equalsIgnoreCase(item.getItemData()));
+		final List<Item> items = new ArrayList<>();
+		for (final Item item : getInventoryIndex().getItems(name)) {
+			if (itemdataMatches(item, name, itemdata)) {
+				items.add(item);
+			}
+		}
+		return items;
+	}
+
+	/**
+	 * Check if an item has the given name and info string.
+	 *
+	 * @param item item to check
+	 * @param name required name
+	 * @param itemdata required info string, ignoring case
+	 * @return <code>true</code> if the item matches
+	 */
+	private static boolean itemdataMatches(final Item item, final String name, final String itemdata) {
+		return name.equals(item.getName()) && itemdata.equalsIgnoreCase(item.getItemData());
+	}
+
+	/**
+	 * Get the index of the carried items, building it if the slot contents
+	 * have changed.
+	 *
+	 * @return index
+	 */
+	private InventoryIndex getInventoryIndex() {
+		if (inventoryIndex == null) {
+			inventoryIndex = new InventoryIndex();
+		}
+		if (!inventoryIndex.isValid()) {
+			inventoryIndex.build(this);
+		}
+		return inventoryIndex;
+	}
+
+	/**
+	 * Called when objects are added to or removed from the slots of this
+	 * entity, or from the slots of the items it carries.
+	 */
+	public void onSlotContentChanged() {
+		if (inventoryIndex != null) {
+			inventoryIndex.invalidate();
+		}
+	}
+
+	/**
+	 * Called when the quantity of a stack in the slots of this entity, or in
+	 * the slots of the items it carries, changes.
+	 *
+	 * @param item changed item
+	 * @param delta change in the quantity
+	 */
+	public void onItemQuantityChanged(final Item item, final int delta) {
+		if (inventoryIndex != null) {
+			inventoryIndex.onQuantityChanged(item, delta);
+		}
+	}
+
+	@Override
+	public void addSlot(final String name) {
+		super.addSlot(name);
+		onSlotContentChanged();
+	}
+
+	@Override
+	public void addSlot(final RPSlot slot) {
+		super.addSlot(slot);
+		onSlotContentChanged();
+	}
+
+	@Override
+	public RPSlot removeSlot(final String name) {
+		final RPSlot slot = super.removeSlot(name);
+		onSlotContentChanged();
+		return slot;
 	}
 
 	/**
@@ -2493,6 +2581,15 @@ public abstract class RPEntity extends CombatEntity {
 	}
 
 	public List<Item> getWeapons() {
+		return new ArrayList<>(getEquipmentStats().weapons);
+	}
+
+	/**
+	 * Find the weapons that this entity is holding in its hands.
+	 *
+	 * @return weapons
+	 */
+	private List<Item> findWeapons() {
 		final List<Item> weapons = new ArrayList<>();
 		Item weaponItem = getWeapon();
 		if (weaponItem != null) {
@@ -2741,17 +2838,26 @@ public abstract class RPEntity extends CombatEntity {
 	 * Retrieves total ATK value of held weapons.
 	 */
 	public float getItemAtk() {
+		return getEquipmentStats().itemAtk;
+	}
+
+	/**
+	 * Calculates total ATK value of held weapons.
+	 *
+	 * @param weapons held weapons
+	 * @return ATK value
+	 */
+	private float computeItemAtk(final List<Item> weapons) {
 		int weapon = 0;
 		int ring = 0;
 
-		final List<Item> weapons = getWeapons();
 		for (final Item weaponItem : weapons) {
 			weapon += weaponItem.getAttack();
 		}
 
 		// calculate ammo when not using RATK stat
 		if (!Testing.COMBAT && weapons.size() > 0) {
-			if (getWeapons().get(0).isOfClass("ranged")) {
+			if (weapons.get(0).isOfClass("ranged")) {
 				weapon += getAmmoAtk();
 			}
 		}
@@ -2767,11 +2873,20 @@ public abstract class RPEntity extends CombatEntity {
 	 * Retrieves total range attack value of held weapon & ammunition.
 	 */
 	public float getItemRatk() {
+		return getEquipmentStats().itemRatk;
+	}
+
+	/**
+	 * Calculates total range attack value of held weapon & ammunition.
+	 *
+	 * @param weapons held weapons
+	 * @return RATK value
+	 */
+	private float computeItemRatk(final List<Item> weapons) {
 		float ratk = 0;
-		final List<Item> weapons = getWeapons();
 
 		if (weapons.size() > 0) {
-			final Item held = getWeapons().get(0);
+			final Item held = weapons.get(0);
 			ratk += held.getRangedAttack();
 
 			if (held.isOfClass("ranged")) {
@@ -2801,6 +2916,16 @@ public abstract class RPEntity extends CombatEntity {
 	}
 
 	public float getItemDef() {
+		return getEquipmentStats().itemDef;
+	}
+
+	/**
+	 * Calculates total DEF value of the equipped items.
+	 *
+	 * @param targetWeapons held weapons
+	 * @return DEF value
+	 */
+	private float computeItemDef(final List<Item> targetWeapons) {
 		int shield = 0;
 		int armor = 0;
 		int helmet = 0;
@@ -2847,7 +2972,6 @@ public abstract class RPEntity extends CombatEntity {
 			ring = (int) (item.getDefense() / getItemLevelModifier(item));
 		}
 
-		final List<Item> targetWeapons = getWeapons();
 		for (final Item weaponItem : targetWeapons) {
 			weapon += weaponItem.getDefense() / getItemLevelModifier(weaponItem);
 		}
@@ -2888,6 +3012,9 @@ public abstract class RPEntity extends CombatEntity {
 	 * Recalculates item based atk and def.
 	 */
 	public void updateItemAtkDef() {
+		if (equipmentStats != null) {
+			equipmentStats.invalidate();
+		}
 		put("atk_item", ((int) getItemAtk()));
 		if (Testing.COMBAT) {
 			put("ratk_item", ((int) getItemRatk()));
@@ -2904,21 +3031,102 @@ public abstract class RPEntity extends CombatEntity {
 	 *    List of inflictable statuses.
 	 */
 	public List<StatusAttacker> getAllStatusAttackers() {
+		return new ArrayList<>(getEquipmentStats().statusAttackers);
+	}
+
+	/**
+	 * Collect the statuses this entity and its weapons can try to inflict.
+	 *
+	 * @param weapons held weapons
+	 * @return list of inflictable statuses
+	 */
+	private List<StatusAttacker> computeStatusAttackers(final List<Item> weapons) {
 		final List<StatusAttacker> stattackers = new ArrayList<>();
 		stattackers.addAll(statusAttackers);
-		final List<Item> weapons = getWeapons();
+		final List<Item> items = new ArrayList<>(weapons);
 		final Item ammo = getAmmunition();
 		if (ammo != null) {
-			weapons.add(ammo);
+			items.add(ammo);
 		}
-		for (final Item weapon: weapons) {
+		for (final Item weapon: items) {
 			for (final StatusAttacker statk: weapon.getStatusAttackers()) {
 				if (!stattackers.contains(statk)) {
 					stattackers.add(statk);
 				}
 			}
 		}
-		return stattackers;
+		return Collections.unmodifiableList(stattackers);
+	}
+
+	/**
+	 * Get the combined susceptibility of the worn equipment to a type of
+	 * damage. The weapon and the shield are checked separately from the
+	 * armor slots, so that holding two resistant shields does not help.
+	 *
+	 * @param type type of damage
+	 * @return damage multiplier
+	 */
+	protected double getItemSusceptibility(final Nature type) {
+		double sus = 1.0;
+		for (final Item item : getEquipmentStats().susceptibilityItems) {
+			sus *= item.getSusceptibility(type);
+		}
+
+		return sus;
+	}
+
+	/**
+	 * Find the items affecting the susceptibilities to damage.
+	 *
+	 * @param weapon held weapon
+	 * @return items
+	 */
+	private List<Item> findSusceptibilityItems(final Item weapon) {
+		final List<Item> items = new ArrayList<>();
+		if (weapon != null) {
+			items.add(weapon);
+		}
+		final Item shield = getShield();
+		if (shield != null) {
+			items.add(shield);
+		}
+
+		final String[] armorSlots = { "armor", "head", "legs", "feet", "cloak" };
+		for (final String slot : armorSlots) {
+			if (hasSlot(slot)) {
+				final RPObject object = getSlot(slot).getFirst();
+				if (object instanceof Item) {
+					items.add((Item) object);
+				}
+			}
+		}
+
+		return items;
+	}
+
+	/**
+	 * Get the combat values derived from the equipment, computing them again
+	 * if the equipment has changed.
+	 *
+	 * @return equipment values
+	 */
+	private EquipmentStats getEquipmentStats() {
+		if (equipmentStats == null) {
+			equipmentStats = new EquipmentStats();
+		}
+		final EquipmentStats stats = equipmentStats;
+		if (!stats.isCurrent(this)) {
+			stats.reset(this);
+			final List<Item> weapons = findWeapons();
+			stats.weapons = Collections.unmodifiableList(weapons);
+			stats.weapon = getWeapon();
+			stats.itemAtk = computeItemAtk(weapons);
+			stats.itemRatk = computeItemRatk(weapons);
+			stats.itemDef = computeItemDef(weapons);
+			stats.statusAttackers = computeStatusAttackers(weapons);
+			stats.susceptibilityItems = findSusceptibilityItems(stats.weapon);
+		}
+		return stats;
 	}
 
 	/**
@@ -3097,7 +3305,7 @@ public abstract class RPEntity extends CombatEntity {
 
 		boolean meleeDistance = isAttacking() && nextTo(getAttackTarget());
 
-		final List<Item> weapons = getWeapons();
+		final List<Item> weapons = getEquipmentStats().weapons;
 
 		if (weapons.isEmpty()) {
 			return Item.getDefaultAttackRate();
@@ -3174,13 +3382,14 @@ public abstract class RPEntity extends CombatEntity {
 		}
 
 		// Try to inflict a status effect
-		final List<StatusAttacker> allStatusAttackers = getAllStatusAttackers();
+		final EquipmentStats stats = getEquipmentStats();
+		final List<StatusAttacker> allStatusAttackers = stats.statusAttackers;
 		for (StatusAttacker statusAttacker : allStatusAttackers) {
 			statusAttacker.onAttackAttempt(defender, this);
 		}
 
 		// Weapon for the use in the attack event
-		Item attackWeapon = getWeapon();
+		Item attackWeapon = stats.weapon;
 		String weaponName = null;
 		if (attackWeapon != null) {
 			weaponName = attackWeapon.getWeaponType();
@@ -3198,7 +3407,7 @@ public abstract class RPEntity extends CombatEntity {
 
 				// limit damage to target HP
 				damage = Math.min(damage, defender.getHP());
-				this.handleLifesteal(this, this.getWeapons(), damage);
+				this.handleLifesteal(this, stats.weapons, damage);
 
 				defender.onDamaged(this, damage);
 
@@ -3448,17 +3657,6 @@ public abstract class RPEntity extends CombatEntity {
 		return items.flatMap(this::itemStream);
 	}
 
-	/**
-	 * Get a stream of all equipped items.
-	 *
-	 * @return equipped items
-	 */
-	private Stream<Item> equippedStream() {
-		Stream<String> slotNames = Slots.CARRYING.getNames().stream();
-		Stream<RPSlot> slots = slotNames.map(this::getSlot).filter(Objects::nonNull);
-		return slots.flatMap(this::slotStream);
-	}
-
 	/**
 	 * A convenience method for getting a method for matching item names.
 	 *
@@ -49,6 +49,12 @@ public class AttackableCreature extends Creature {
 		return res;
 	}
 
+	@Override
+	protected boolean canSleep() {
+		// The enemies of the master do not wake it up
+		return false;
+	}
+
 	/**
 	 * Sets the master of this creature.
 	 *
@@ -85,6 +85,12 @@ public class Creature extends NPC {
 	 */
 	private static final double SERVER_DROP_GENEROSITY = 1;
 
+	/**
+	 * Longest distance at which an attack strategy may pick a target. This
+	 * covers the longest archer ranges.
+	 */
+	private static final int MAX_ATTACK_RANGE = 12;
+
 	private HealerBehavior healer = HealerBehaviourFactory.get(null);
 
 	private AttackStrategy strategy;
@@ -137,6 +143,12 @@ public class Creature extends NPC {
 
 	private boolean isIdle;
 
+	/**
+	 * <code>true</code> if the creature is not given logic turns until an
+	 * enemy comes near.
+	 */
+	private boolean sleeping;
+
 	/** The type of the damage this creature does */
 	private Nature damageType = Nature.CUT;
 	/** The type of the damage this creature does in ranged attacks */
@@ -183,7 +195,13 @@ public class Creature extends NPC {
 	 * @param copy template to copy
 	 */
 	public Creature(final Creature copy) {
-		this();
+		// Not this(), as the lists and profiles it creates would be replaced
+		// right away. Creatures are copied for every respawn.
+		super();
+		setRPClass("creature");
+		put("type", "creature");
+		put("title_type", "enemy");
+		dropItemInstances = new ArrayList<Item>();
 
 		this.baseSpeed = copy.baseSpeed;
 		setSize((int) copy.getWidth(), (int) copy.getHeight());
@@ -198,6 +216,8 @@ public class Creature extends NPC {
 		 */
 		if (copy.dropsItems != null) {
 			this.dropsItems = copy.dropsItems;
+		} else {
+			this.dropsItems = new ArrayList<DropItem>();
 		}
 		// this.dropItemInstances is ignored;
 
@@ -933,6 +953,7 @@ public class Creature extends NPC {
 				} else {
 					this.setIdle();
 					this.makeNoiseChance(100, "idle");
+					maybeSleep();
 				}
 			}
 			maybeMakeSound();
@@ -951,7 +972,120 @@ public class Creature extends NPC {
 			if (isAttacking()) {
 				stopAttack();
 			}
+			// Give up chasing the departed enemies
+			if (!isIdle) {
+				setIdle();
+			}
+			maybeSleep();
+		}
+	}
+
+	/**
+	 * Get the distance at which players and their friends can become targets
+	 * of the creature.
+	 *
+	 * @return distance in tiles
+	 */
+	public int getAggroRange() {
+		return Math.max(getPerceptionRange() + 2, MAX_ATTACK_RANGE);
+	}
+
+	/**
+	 * Check if an entity is close enough to become a target of the creature
+	 * without attacking it first.
+	 *
+	 * @param entity player, or a friend of players
+	 * @return <code>true</code> if the entity could be chosen as a target
+	 */
+	public boolean isAggroCandidate(final RPEntity entity) {
+		if ((entity == this) || entity.isInvisibleToCreatures() || (entity.getZone() != getZone())) {
+			return false;
 		}
+		if (!getAIProfiles().containsKey("offensive")) {
+			return false;
+		}
+		final int range = getAggroRange();
+		return squaredDistance(entity) <= range * range;
+	}
+
+	/**
+	 * Check if the creature may sleep when it has nothing to do. Creatures
+	 * whose behaviour depends on something else than the nearby enemies
+	 * should return <code>false</code>.
+	 *
+	 * @return <code>true</code> if the creature can sleep
+	 */
+	protected boolean canSleep() {
+		return true;
+	}
+
+	/**
+	 * Check if the creature is sleeping. Sleeping creatures are skipped by
+	 * the zone logic until an enemy comes near, or something disturbs them.
+	 *
+	 * @return <code>true</code> if the creature is sleeping
+	 */
+	public boolean isSleeping() {
+		return sleeping;
+	}
+
+	/**
+	 * Put the creature to sleep, if it has nothing to do until an enemy
+	 * comes near. Only idle creatures that stand still can sleep, so that
+	 * sleeping never freezes a creature in the middle of a movement.
+	 */
+	private void maybeSleep() {
+		final StendhalRPZone zone = getZone();
+		if (sleeping || (zone == null) || !canSleep() || !isIdle || !stopped() || hasPath()
+				|| isAttacking() || isAttacked() || (getHP() < getBaseHP()) || !idler.isStationary()) {
+			return;
+		}
+		for (final RPEntity enemy : zone.getPlayerAndFriends()) {
+			if (isAggroCandidate(enemy)) {
+				return;
+			}
+		}
+		sleeping = true;
+		zone.addSleepingCreature(this);
+	}
+
+	/**
+	 * Wake up the creature, if it is sleeping.
+	 */
+	public void wakeUp() {
+		if (sleeping) {
+			sleeping = false;
+			final StendhalRPZone zone = getZone();
+			if (zone != null) {
+				zone.removeSleepingCreature(this);
+			}
+		}
+	}
+
+	@Override
+	public void onRemoved(final StendhalRPZone zone) {
+		wakeUp();
+		super.onRemoved(zone);
+	}
+
+	@Override
+	public void setHP(final int hp) {
+		super.setHP(hp);
+		if (hp < getBaseHP()) {
+			wakeUp();
+		}
+	}
+
+	@Override
+	public void setTarget(final RPEntity target) {
+		wakeUp();
+		super.setTarget(target);
+	}
+
+	@Override
+	public void rememberAttacker(final Entity attacker) {
+		wakeUp();
+		super.rememberAttacker(attacker);
 	}
 
 	/**
@@ -122,6 +122,12 @@ public abstract class DomesticAnimal extends Creature {
 		return true;
 	}
 
+	@Override
+	protected boolean canSleep() {
+		// Follows the owner
+		return false;
+	}
+
 	public Player getOwner() {
 		return owner;
 	}
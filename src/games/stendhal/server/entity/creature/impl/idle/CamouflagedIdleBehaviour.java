@@ -27,4 +27,9 @@ class CamouflagedIdleBehaviour implements IdleBehaviour {
 		this.base.perform(creature);
 	}
 
+	@Override
+	public boolean isStationary() {
+		return false;
+	}
+
 }
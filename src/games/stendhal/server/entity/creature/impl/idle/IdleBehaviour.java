@@ -17,4 +17,11 @@ import games.stendhal.server.entity.creature.Creature;
 public interface IdleBehaviour {
 
 	void perform(Creature creature);
+
+	/**
+	 * Check if the behaviour keeps the creature in place.
+	 *
+	 * @return <code>true</code> if the creature does not move on its own
+	 */
+	boolean isStationary();
 }
@@ -33,6 +33,11 @@ class Patroller extends StandOnIdle {
 		maxY = creature.getY() + 2 + (int) (creature.getHeight());
 	}
 
+	@Override
+	public boolean isStationary() {
+		return false;
+	}
+
 	@Override
 	public void perform(final Creature creature) {
 		if (!creature.getZone().getPlayerAndFriends().isEmpty()) {
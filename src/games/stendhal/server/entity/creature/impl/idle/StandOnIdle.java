@@ -23,6 +23,11 @@ public class StandOnIdle implements IdleBehaviour {
 		retreatUnderFire(creature);
 	}
 
+	@Override
+	public boolean isStationary() {
+		return true;
+	}
+
 	/**
 	 * Run away if under ranged fire, and unable to attack back.
 	 *
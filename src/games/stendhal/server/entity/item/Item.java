@@ -702,6 +702,16 @@ public class Item extends PassiveEntity implements TurnListener, EquipListener,
 		statusAttackers = builder.addAll(statusAttackers).add(statusAttacker).build();
 	}
 
+	/**
+	 * Set the status attack types of the item, replacing any previous ones.
+	 *
+	 * @param statusAttackers
+	 *     Inflictable status effects. The list is shared, not copied.
+	 */
+	public void setStatusAttackers(final ImmutableList<StatusAttacker> statusAttackers) {
+		this.statusAttackers = statusAttackers;
+	}
+
 	public List<StatusAttacker> getStatusAttackers() {
 		return statusAttackers;
 	}
@@ -20,6 +20,7 @@ import java.util.Map;
 import org.apache.log4j.Logger;
 
 import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.entity.RPEntity;
 import marauroa.common.game.RPObject;
 import marauroa.server.game.rp.DebugInterface;
 
@@ -81,6 +82,7 @@ public class StackableItem extends Item implements Stackable<StackableItem> {
 
 	@Override
 	public void setQuantity(final int amount) {
+		final int oldQuantity = quantity;
 		if (amount <= 0) {
 			logger.error("Trying to set invalid quantity: " + amount,
 					new Throwable());
@@ -89,6 +91,7 @@ public class StackableItem extends Item implements Stackable<StackableItem> {
 			quantity = amount;
 		}
 		put("quantity", getQuantity());
+		notifyQuantityChanged(oldQuantity);
 	}
 
 	/**
@@ -101,11 +104,27 @@ public class StackableItem extends Item implements Stackable<StackableItem> {
 		if (amount < 0) {
 			return getQuantity();
 		}
+		final int oldQuantity = quantity;
 		quantity = getQuantity() - amount;
 		put("quantity", getQuantity());
+		notifyQuantityChanged(oldQuantity);
 		return getQuantity();
 	}
 
+	/**
+	 * Tell the entity carrying this stack, if any, that the quantity changed.
+	 *
+	 * @param oldQuantity quantity before the change
+	 */
+	private void notifyQuantityChanged(final int oldQuantity) {
+		if (quantity != oldQuantity) {
+			final RPObject base = getBaseContainer();
+			if (base instanceof RPEntity) {
+				((RPEntity) base).onItemQuantityChanged(this, quantity - oldQuantity);
+			}
+		}
+	}
+
 	@Override
 	public int add(final StackableItem other) {
 		if (this.isStackable(other)) {
@@ -87,6 +87,9 @@ public class MessagingUseBehavior implements UseBehavior {
 				Player player = (Player) user;
 				player.put("text", publicMessage);
 				SingletonRepository.getRuleProcessor().removePlayerText(player);
+				if (player.getZone() != null) {
+					player.getZone().notifySpeech(player);
+				}
 			} else if (user instanceof NPC) {
 				((NPC) user).say(publicMessage);
 			}
@@ -11,9 +11,12 @@
  ***************************************************************************/
 package games.stendhal.server.entity.npc;
 
+import java.awt.Rectangle;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -31,6 +34,7 @@ import games.stendhal.common.parser.ExpressionType;
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPWorld;
+import games.stendhal.server.core.engine.StendhalRPZone;
 import games.stendhal.server.entity.CollisionAction;
 import games.stendhal.server.entity.Killer;
 import games.stendhal.server.entity.RPEntity;
@@ -196,6 +200,15 @@ public class SpeakerNPC extends PassiveNPC {
 	/** Keywords unique to this entity available in chat options. */
 	private List<String> knownChatOptions;
 
+	/** Players whose public chat the NPC has heard since its last preLogic. */
+	private final List<Player> pendingSpeakers = new ArrayList<Player>();
+
+	/**
+	 * Players that have come within the perception range. Only kept for NPCs
+	 * with an initChatAction.
+	 */
+	private final List<Player> nearbyPlayers = new ArrayList<Player>();
+
 	/**
 	 * Creates a new SpeakerNPC.
 	 *
@@ -253,32 +266,21 @@ public class SpeakerNPC extends PassiveNPC {
 	 * Gets all players that have recently (this turn?) talked and are standing
 	 * nearby the NPC. Nearby means that they are standing less than <i>range</i>
 	 * squares away horizontally and less than <i>range</i> squares away
-	 * vertically.
+	 * vertically. Only the players the zone reported with <code>hear()</code>
+	 * are checked.
 	 *
-	 * @param npc
 	 * @param range
 	 * @return A list of nearby players who have recently talked.
 	 */
-	private List<Player> getNearbyPlayersThatHaveSpoken(final NPC npc, final double range) {
-		final int x = npc.getX();
-		final int y = npc.getY();
-
+	private List<Player> getNearbyPlayersThatHaveSpoken(final double range) {
 		final List<Player> players = new LinkedList<Player>();
 
-		for (final Player player : getZone().getPlayers()) {
-			final int px = player.getX();
-			final int py = player.getY();
-
-			if (player.has("text")) {
-				int dx = px - x;
-				int dy = py - y;
-
-				if (Math.abs(dx)<range && Math.abs(dy)<range) { // check rectangular area
-//				if (dx*dx + dy*dy < range*range) { // optionally we could check a circular area
-					players.add(player);
-				}
+		for (final Player player : pendingSpeakers) {
+			if ((player.getZone() == getZone()) && player.has("text") && isInRange(player, range)) {
+				players.add(player);
 			}
 		}
+		pendingSpeakers.clear();
 
 		return players;
 	}
@@ -288,7 +290,9 @@ public class SpeakerNPC extends PassiveNPC {
 	 * player is standing nearby. Nearby means that they are standing less than
 	 * <i>range</i> squares away horizontally and less than <i>range</i>
 	 * squares away vertically. Note, however, that the Euclidian distance is
-	 * used to compare which player is standing closest.
+	 * used to compare which player is standing closest. Only the players the
+	 * zone reported with <code>onPlayerNearby()</code> are checked, and those
+	 * that have left the range are forgotten.
 	 *
 	 * @param range
 	 * @return The nearest player, or null if no player is standing on the same
@@ -302,24 +306,86 @@ public class SpeakerNPC extends PassiveNPC {
 
 		int squaredDistanceOfNearestPlayer = Integer.MAX_VALUE;
 
-		for (final Player player : getZone().getPlayers()) {
+		final Iterator<Player> it = nearbyPlayers.iterator();
+		while (it.hasNext()) {
+			final Player player = it.next();
+			if ((player.getZone() != getZone()) || !isInRange(player, range)) {
+				it.remove();
+				continue;
+			}
 			final int px = player.getX();
 			final int py = player.getY();
+			final int squaredDistanceOfThisPlayer =
+					(px - x) * (px - x) + (py - y) * (py - y);
 
-			if ((Math.abs(px - x) < range) && (Math.abs(py - y) < range)) {
-				final int squaredDistanceOfThisPlayer =
-						(px - x) * (px - x) + (py - y) * (py - y);
-
-				if (squaredDistanceOfThisPlayer < squaredDistanceOfNearestPlayer) {
-					squaredDistanceOfNearestPlayer = squaredDistanceOfThisPlayer;
-					nearest = player;
-				}
+			if (squaredDistanceOfThisPlayer < squaredDistanceOfNearestPlayer) {
+				squaredDistanceOfNearestPlayer = squaredDistanceOfThisPlayer;
+				nearest = player;
 			}
 		}
 
 		return nearest;
 	}
 
+	/**
+	 * Check if a player is less than <i>range</i> squares away horizontally
+	 * and vertically.
+	 *
+	 * @param player player
+	 * @param range range
+	 * @return <code>true</code> if the player is in range
+	 */
+	private boolean isInRange(final Player player, final double range) {
+		return (Math.abs(player.getX() - getX()) < range) && (Math.abs(player.getY() - getY()) < range);
+	}
+
+	/**
+	 * Called by the zone when a player in range has said something. The NPC
+	 * reacts to it in its next <code>preLogic()</code>.
+	 *
+	 * @param speaker talking player
+	 */
+	public void hear(final Player speaker) {
+		addIfMissing(pendingSpeakers, speaker);
+	}
+
+	/**
+	 * Called by the zone when a player has moved near to the NPC.
+	 *
+	 * @param player player
+	 */
+	public void onPlayerNearby(final Player player) {
+		if ((initChatAction != null) && isInRange(player, getPerceptionRange())) {
+			addIfMissing(nearbyPlayers, player);
+		}
+	}
+
+	/**
+	 * Check for players near the NPC after it has moved, or its greeting
+	 * changed.
+	 */
+	public void lookForNearbyPlayers() {
+		final StendhalRPZone zone = getZone();
+		if ((initChatAction == null) || (zone == null)) {
+			return;
+		}
+		final int range = getPerceptionRange();
+		final Rectangle area = new Rectangle(getX() - range + 1, getY() - range + 1, 2 * range - 1, 2 * range - 1);
+		for (final Player player : zone.getEntitiesIn(area, Player.class)) {
+			onPlayerNearby(player);
+		}
+	}
+
+	private static void addIfMissing(final List<Player> list, final Player player) {
+		// players are compared by identity, not by their attributes
+		for (final Player listed : list) {
+			if (listed == player) {
+				return;
+			}
+		}
+		list.add(player);
+	}
+
 	/**
 	 * The entity who is currently talking to the NPC, or null if the NPC is
 	 * currently not taking part in a conversation.
@@ -403,6 +469,11 @@ public class SpeakerNPC extends PassiveNPC {
 	public void setPerceptionRange(int perceptionRange) {
 		super.setPerceptionRange(perceptionRange);
 		squaredGoodByeRange = getSquaredGoodByeRange();
+		final StendhalRPZone zone = getZone();
+		if (zone != null) {
+			zone.updateSpeakerRange(perceptionRange);
+			lookForNearbyPlayers();
+		}
 	}
 
 	private long secondsToTurns(final long seconds) {
@@ -424,6 +495,8 @@ public class SpeakerNPC extends PassiveNPC {
 	public void preLogic() {
 
 		if (this.getZone().getPlayerAndFriends().isEmpty() && !isTalking() && !actingAlone) {
+			pendingSpeakers.clear();
+			nearbyPlayers.clear();
 			return;
 		}
 
@@ -468,7 +541,7 @@ public class SpeakerNPC extends PassiveNPC {
 		}
 
 		// and finally react on anybody talking to us
-		final List<Player> speakers = getNearbyPlayersThatHaveSpoken(this, getPerceptionRange());
+		final List<Player> speakers = getNearbyPlayersThatHaveSpoken(getPerceptionRange());
 		for (final Player speaker : speakers) {
 			tell(speaker, speaker.get("text"));
 		}
@@ -563,6 +636,7 @@ public class SpeakerNPC extends PassiveNPC {
 	public void addInitChatMessage(final ChatCondition condition, final ChatAction action) {
 		initChatCondition = condition;
 		initChatAction = action;
+		lookForNearbyPlayers();
 	}
 
 	/**
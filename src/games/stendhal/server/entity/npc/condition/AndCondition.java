@@ -13,6 +13,7 @@
 package games.stendhal.server.entity.npc.condition;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 import com.google.common.collect.ImmutableList;
@@ -20,6 +21,8 @@ import com.google.common.collect.ImmutableList;
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.Dependencies;
+import games.stendhal.server.core.rp.achievement.DependentCondition;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
@@ -29,7 +32,7 @@ import games.stendhal.server.entity.player.Player;
  * It evaluates to <code>true</code>, iff each condition evaluates to true.
  */
 @Dev(category=Category.LOGIC, label="And")
-public class AndCondition implements ChatCondition {
+public class AndCondition implements DependentCondition {
 
 	private final List<ChatCondition> conditions;
 
@@ -73,6 +76,11 @@ public class AndCondition implements ChatCondition {
 		return true;
 	}
 
+	@Override
+	public Collection<String> getDependencies() {
+		return Dependencies.of(conditions);
+	}
+
 	@Override
 	public String toString() {
 		return conditions.toString();
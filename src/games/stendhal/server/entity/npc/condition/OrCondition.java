@@ -13,6 +13,7 @@
 package games.stendhal.server.entity.npc.condition;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 import com.google.common.collect.ImmutableList;
@@ -20,6 +21,8 @@ import com.google.common.collect.ImmutableList;
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.Dependencies;
+import games.stendhal.server.core.rp.achievement.DependentCondition;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
@@ -28,7 +31,7 @@ import games.stendhal.server.entity.player.Player;
  * An or condition.
  */
 @Dev(category=Category.LOGIC, label="Or")
-public class OrCondition implements ChatCondition {
+public class OrCondition implements DependentCondition {
 
 	private final List<ChatCondition> conditions;
 
@@ -63,6 +66,11 @@ public class OrCondition implements ChatCondition {
 		return false;
 	}
 
+	@Override
+	public Collection<String> getDependencies() {
+		return Dependencies.of(conditions);
+	}
+
 	@Override
 	public String toString() {
 		return "or <" + conditions.toString() + ">";
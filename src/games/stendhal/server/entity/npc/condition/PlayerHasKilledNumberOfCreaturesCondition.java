@@ -13,7 +13,9 @@
 package games.stendhal.server.entity.npc.condition;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -22,8 +24,9 @@ import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.constants.KillType;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.Dependencies;
+import games.stendhal.server.core.rp.achievement.DependentCondition;
 import games.stendhal.server.entity.Entity;
-import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
 
 /**
@@ -34,7 +37,7 @@ import games.stendhal.server.entity.player.Player;
  * @author madmetzger
  */
 @Dev(category=Category.KILLS, label="Kills?")
-public class PlayerHasKilledNumberOfCreaturesCondition implements ChatCondition {
+public class PlayerHasKilledNumberOfCreaturesCondition implements DependentCondition {
 
 	private final Map<String, Integer> creatures;
 
@@ -154,6 +157,15 @@ public class PlayerHasKilledNumberOfCreaturesCondition implements ChatCondition
 		return true;
 	}
 
+	@Override
+	public Collection<String> getDependencies() {
+		final List<String> res = new LinkedList<String>();
+		for (final String creature : creatures.keySet()) {
+			res.add(Dependencies.kill(creature));
+		}
+		return res;
+	}
+
 	@Override
 	public int hashCode() {
 		return 43913 * (creatures.hashCode() + killType.hashCode());
@@ -14,11 +14,14 @@ package games.stendhal.server.entity.npc.condition;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Collection;
+
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.Dependencies;
+import games.stendhal.server.core.rp.achievement.DependentCondition;
 import games.stendhal.server.entity.Entity;
-import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.npc.ConditionBuilder;
 import games.stendhal.server.entity.player.Player;
 
@@ -26,7 +29,7 @@ import games.stendhal.server.entity.player.Player;
  * Was this quest completed?
  */
 @Dev(category=Category.QUEST_SLOT, label="Completed?")
-public class QuestCompletedCondition implements ChatCondition {
+public class QuestCompletedCondition implements DependentCondition {
 
 	private final String questname;
 
@@ -53,6 +56,11 @@ public class QuestCompletedCondition implements ChatCondition {
 		return (player.isQuestCompleted(questname));
 	}
 
+	@Override
+	public Collection<String> getDependencies() {
+		return Dependencies.ofQuest(questname);
+	}
+
 	@Override
 	public String toString() {
 		return "QuestCompleted <" + questname + ">";
@@ -14,18 +14,21 @@ package games.stendhal.server.entity.npc.condition;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Collection;
+
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.Dependencies;
+import games.stendhal.server.core.rp.achievement.DependentCondition;
 import games.stendhal.server.entity.Entity;
-import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
 
 /**
  * Is this quest not in this state?
  */
 @Dev(category=Category.IGNORE, label="State?")
-public class QuestNotInStateCondition implements ChatCondition {
+public class QuestNotInStateCondition implements DependentCondition {
 
 	private final String questname;
 	private final String state;
@@ -73,6 +76,11 @@ public class QuestNotInStateCondition implements ChatCondition {
 		}
 	}
 
+	@Override
+	public Collection<String> getDependencies() {
+		return Dependencies.ofQuest(questname);
+	}
+
 	@Override
 	public String toString() {
 		return "QuestNotInState <" + questname + "[" + index + "] = " + state + ">";
@@ -14,12 +14,15 @@ package games.stendhal.server.entity.npc.condition;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Collection;
+
 import games.stendhal.common.MathHelper;
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.Dependencies;
+import games.stendhal.server.core.rp.achievement.DependentCondition;
 import games.stendhal.server.entity.Entity;
-import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
 /**
  * Condition to check if the value in a quest slot is greater than an expected value. If the value is not a number, it is treated as 0.
@@ -27,7 +30,7 @@ import games.stendhal.server.entity.player.Player;
  * @author madmetzger
  */
 @Dev(category=Category.QUEST_SLOT, label="State?")
-public class QuestStateGreaterThanCondition implements ChatCondition {
+public class QuestStateGreaterThanCondition implements DependentCondition {
 
 	/**
 	 * expected value to compare against
@@ -70,6 +73,11 @@ public class QuestStateGreaterThanCondition implements ChatCondition {
 		return false;
 	}
 
+	@Override
+	public Collection<String> getDependencies() {
+		return Dependencies.ofQuest(questname);
+	}
+
 	@Override
 	public int hashCode() {
 		return 45943 * questname.hashCode() + 45949 * index + 45953 * expectedSmallerValue;
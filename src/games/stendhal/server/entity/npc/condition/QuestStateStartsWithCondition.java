@@ -14,11 +14,14 @@ package games.stendhal.server.entity.npc.condition;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Collection;
+
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.Dependencies;
+import games.stendhal.server.core.rp.achievement.DependentCondition;
 import games.stendhal.server.entity.Entity;
-import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.npc.ConditionBuilder;
 import games.stendhal.server.entity.player.Player;
 
@@ -26,7 +29,7 @@ import games.stendhal.server.entity.player.Player;
  * Does the quest state start with the specified String?
  */
 @Dev(category=Category.CHAT, label="State?")
-public class QuestStateStartsWithCondition implements ChatCondition {
+public class QuestStateStartsWithCondition implements DependentCondition {
 
 	private final String questname;
 	private final String state;
@@ -49,6 +52,11 @@ public class QuestStateStartsWithCondition implements ChatCondition {
 		return (player.hasQuest(questname) && player.getQuest(questname).startsWith(state));
 	}
 
+	@Override
+	public Collection<String> getDependencies() {
+		return Dependencies.ofQuest(questname);
+	}
+
 	@Override
 	public String toString() {
 		return "QuestStateStartsWith <" + questname + "," + state + ">";
@@ -48,6 +48,9 @@ public class Engine {
 	// FSM state transition table
 	private final List<Transition> stateTransitionTable = new LinkedList<Transition>();
 
+	// lookup index of the transition table, built on demand
+	private TransitionIndex transitionIndex;
+
 	// current FSM state
 	private ConversationStates currentState = ConversationStates.IDLE;
 
@@ -289,6 +292,7 @@ public class Engine {
 			boolean secondary, final ConversationStates nextState, final String reply, final ChatAction action, final String label) {
 		if (triggerExpressions!=null && !triggerExpressions.isEmpty()) {
 			stateTransitionTable.add(new Transition(state, triggerExpressions, condition, secondary, nextState, reply, action, label));
+			transitionIndex = null;
 		}
 	}
 
@@ -314,6 +318,7 @@ public class Engine {
 			boolean secondary, final ConversationStates nextState, final String reply, final ChatAction action) {
 		if (triggerExpressions!=null && !triggerExpressions.isEmpty()) {
 			stateTransitionTable.add(new Transition(state, triggerExpressions, condition, secondary, nextState, reply, action));
+			transitionIndex = null;
 		}
 	}
 
@@ -335,6 +340,7 @@ public class Engine {
 			Transition transition = itr.next();
 			if (transition.checkLabel(label)) {
 				itr.remove();
+				transitionIndex = null;
 				res = true;
 			}
 		}
@@ -526,17 +532,28 @@ public class Engine {
 
 	private boolean matchTransition(final MatchType type, final Player player,
 			final Sentence sentence) {
+		if (transitionIndex == null) {
+			transitionIndex = new TransitionIndex(stateTransitionTable);
+		}
+
 		// We are using sets instead of plain lists to merge identical transitions.
-		final TransitionSet preferredTransitions = new TransitionSet();
-		final TransitionSet secondaryTransitions = new TransitionSet();
+		// They are created only when needed, as most transitions do not match.
+		TransitionSet preferredTransitions = null;
+		TransitionSet secondaryTransitions = null;
 
-		// match with all the registered transitions
-		for (final Transition transition : stateTransitionTable) {
+		// match with the registered transitions that can match the input
+		for (final Transition transition : transitionIndex.getCandidates(type, currentState, sentence)) {
 			if (matchesTransition(type, sentence, transition)) {
 				if (transition.isConditionFulfilled(player, sentence, speakerNPC)) {
 					if (transition.isPreferred()) {
+						if (preferredTransitions == null) {
+							preferredTransitions = new TransitionSet();
+						}
 						preferredTransitions.add(transition);
 					} else {
+						if (secondaryTransitions == null) {
+							secondaryTransitions = new TransitionSet();
+						}
 						secondaryTransitions.add(transition);
 					}
 				}
@@ -546,7 +563,7 @@ public class Engine {
 		Iterator<Transition> it = null;
 
 		// First we try to use one of the a preferred transitions (mainly with existing condition).
-		if (preferredTransitions.size() > 0) {
+		if (preferredTransitions != null) {
 			it = preferredTransitions.iterator();
 
 			if (preferredTransitions.size() > 1) {
@@ -559,7 +576,7 @@ public class Engine {
 		}
 
 		// Then look for the remaining transitions.
-		if ((it == null) && (secondaryTransitions.size() > 0)) {
+		if ((it == null) && (secondaryTransitions != null)) {
 			it = secondaryTransitions.iterator();
 
 			if (secondaryTransitions.size() > 1) {
@@ -0,0 +1,196 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity.npc.fsm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import games.stendhal.common.parser.Expression;
+import games.stendhal.common.parser.Sentence;
+import games.stendhal.server.entity.npc.ConversationStates;
+
+/**
+ * Lookup index of a transition table. It finds the transitions that can
+ * possibly match an input for a match type, so that the engine does not need
+ * to test every transition of the NPC.
+ * <p>
+ * The transitions are grouped by their source state. Within a state, the
+ * triggers without an ExpressionMatcher are indexed by their original and
+ * normalized strings. Transitions with matcher triggers, and similarity
+ * matching, can not be looked up by a key, so they fall back to testing all
+ * the transitions of the state. The returned candidates are always in the
+ * order of the transition table, and still need to be checked with
+ * {@link MatchType#match(Transition, ConversationStates, Sentence)}.
+ */
+final class TransitionIndex {
+	/** Transitions grouped by source state. */
+	private final Map<ConversationStates, StateBucket> states = new EnumMap<ConversationStates, StateBucket>(ConversationStates.class);
+
+	/**
+	 * Create an index of a transition table.
+	 *
+	 * @param table transition table. The index must be rebuilt if the table
+	 * 	changes
+	 */
+	TransitionIndex(final List<Transition> table) {
+		final Map<Transition, Integer> positions = new IdentityHashMap<Transition, Integer>();
+		for (final Transition transition : table) {
+			if (!positions.containsKey(transition)) {
+				positions.put(transition, Integer.valueOf(positions.size()));
+			}
+		}
+		for (final Transition transition : table) {
+			StateBucket bucket = states.get(transition.getState());
+			if (bucket == null) {
+				bucket = new StateBucket(positions);
+				states.put(transition.getState(), bucket);
+			}
+			bucket.add(transition);
+		}
+	}
+
+	/**
+	 * Get the transitions that may match an input.
+	 *
+	 * @param type match type
+	 * @param currentState current state of the engine
+	 * @param sentence input
+	 * @return candidate transitions in table order
+	 */
+	List<Transition> getCandidates(final MatchType type, final ConversationStates currentState, final Sentence sentence) {
+		switch (type) {
+		case EXACT_MATCH:
+			return getCandidates(currentState, sentence, true);
+		case NORMALIZED_MATCH:
+			return getCandidates(currentState, sentence, false);
+		case ABSOLUTE_JUMP:
+			return getCandidates(ConversationStates.ANY, sentence, true);
+		case NORMALIZED_JUMP:
+			return getCandidates(ConversationStates.ANY, sentence, false);
+		case SIMILAR_JUMP:
+			return getAll(ConversationStates.ANY);
+		default:
+			return getAll(currentState);
+		}
+	}
+
+	private List<Transition> getAll(final ConversationStates state) {
+		final StateBucket bucket = states.get(state);
+		if (bucket == null) {
+			return Collections.emptyList();
+		}
+		return bucket.all;
+	}
+
+	private List<Transition> getCandidates(final ConversationStates state, final Sentence sentence, final boolean original) {
+		final StateBucket bucket = states.get(state);
+		if (bucket == null) {
+			return Collections.emptyList();
+		}
+		final Expression trigger = sentence.getTriggerExpression();
+		final String key = original ? trigger.getOriginal() : trigger.getNormalized();
+		if (key == null) {
+			return bucket.all;
+		}
+		final List<Transition> keyed = (original ? bucket.byOriginal : bucket.byNormalized).get(key);
+		if (keyed == null) {
+			return bucket.unindexed;
+		}
+		return bucket.merge(keyed, bucket.unindexed);
+	}
+
+	/**
+	 * The transitions of one source state.
+	 */
+	private static final class StateBucket {
+		/** Positions of the transitions in the table. */
+		private final Map<Transition, Integer> positions;
+		/** All transitions of the state. */
+		private final List<Transition> all = new ArrayList<Transition>();
+		/** Transitions with triggers that need to be tested in any case. */
+		private final List<Transition> unindexed = new ArrayList<Transition>();
+		/** Transitions by the original strings of their triggers. */
+		private final Map<String, List<Transition>> byOriginal = new HashMap<String, List<Transition>>();
+		/** Transitions by the normalized strings of their triggers. */
+		private final Map<String, List<Transition>> byNormalized = new HashMap<String, List<Transition>>();
+
+		StateBucket(final Map<Transition, Integer> positions) {
+			this.positions = positions;
+		}
+
+		void add(final Transition transition) {
+			all.add(transition);
+			boolean needsTesting = false;
+			for (final Expression trigger : transition.getTriggers()) {
+				if ((trigger.getMatcher() != null) || (trigger.getOriginal() == null)
+						|| (trigger.getNormalized() == null)) {
+					needsTesting = true;
+				} else {
+					put(byOriginal, trigger.getOriginal(), transition);
+					put(byNormalized, trigger.getNormalized(), transition);
+				}
+			}
+			if (needsTesting) {
+				unindexed.add(transition);
+			}
+		}
+
+		private static void put(final Map<String, List<Transition>> map, final String key, final Transition transition) {
+			List<Transition> list = map.get(key);
+			if (list == null) {
+				list = new ArrayList<Transition>(1);
+				map.put(key, list);
+			}
+			// several triggers of a transition can have the same key
+			if (list.isEmpty() || (list.get(list.size() - 1) != transition)) {
+				list.add(transition);
+			}
+		}
+
+		/**
+		 * Merge two lists of transitions, keeping the table order.
+		 */
+		List<Transition> merge(final List<Transition> list1, final List<Transition> list2) {
+			if (list2.isEmpty()) {
+				return list1;
+			}
+			final List<Transition> result = new ArrayList<Transition>(list1.size() + list2.size());
+			int i = 0;
+			int j = 0;
+			while ((i < list1.size()) && (j < list2.size())) {
+				final Transition t1 = list1.get(i);
+				final Transition t2 = list2.get(j);
+				final int p1 = positions.get(t1).intValue();
+				final int p2 = positions.get(t2).intValue();
+				if (p1 < p2) {
+					result.add(t1);
+					i++;
+				} else if (p2 < p1) {
+					result.add(t2);
+					j++;
+				} else {
+					result.add(t1);
+					i++;
+					j++;
+				}
+			}
+			result.addAll(list1.subList(i, list1.size()));
+			result.addAll(list2.subList(j, list2.size()));
+			return result;
+		}
+	}
+}
@@ -12,6 +12,8 @@
  ***************************************************************************/
 package games.stendhal.server.entity.player;
 
+import java.util.Set;
+
 import games.stendhal.common.MathHelper;
 
 /**
@@ -26,6 +28,13 @@ class KillRecording {
 
 	private final Player player;
 
+	/** Creatures the counts below refer to, or <code>null</code> if they have not been counted. */
+	private Set<String> countedCreatures;
+	/** Number of the counted creatures killed solo. */
+	private int soloCreatures;
+	/** Number of the counted creatures killed shared. */
+	private int sharedCreatures;
+
 	public KillRecording(final Player player) {
 		this.player = player;
 	}
@@ -76,6 +85,13 @@ class KillRecording {
 		final String count = player.getKeyedSlot(KILL_SLOT_NAME, key);
 		final int oldValue = MathHelper.parseIntDefault(count, 0);
 		player.setKeyedSlot(KILL_SLOT_NAME, key, Integer.toString(oldValue + 1));
+		if ((oldValue == 0) && (countedCreatures != null) && countedCreatures.contains(name)) {
+			if ("solo".equals(mode)) {
+				soloCreatures++;
+			} else if ("shared".equals(mode)) {
+				sharedCreatures++;
+			}
+		}
 	}
 
 	/**
@@ -107,6 +123,7 @@ class KillRecording {
 	public void setKillCount(final String name, final String mode, final int count) {
 		final String key = mode + "." + name;
 		player.setKeyedSlot(KILL_SLOT_NAME, key, Integer.toString(count));
+		countedCreatures = null;
 	}
 
 	/**
@@ -159,4 +176,47 @@ class KillRecording {
 		return(getKill(name, "shared"));
 	}
 
+
+	/**
+	 * Gets the number of creatures out of a set, that the player has killed
+	 * solo. The result is counted once per set, and then kept up to date on
+	 * each kill.
+	 *
+	 * @param creatures names of creatures. The set must not be changed.
+	 * @return number of creatures killed solo
+	 */
+	public int getNumberOfKilledSolo(final Set<String> creatures) {
+		countKills(creatures);
+		return soloCreatures;
+	}
+
+	/**
+	 * Gets the number of creatures out of a set, that the player has killed
+	 * with the help of others. The result is counted once per set, and then
+	 * kept up to date on each kill.
+	 *
+	 * @param creatures names of creatures. The set must not be changed.
+	 * @return number of creatures killed shared
+	 */
+	public int getNumberOfKilledShared(final Set<String> creatures) {
+		countKills(creatures);
+		return sharedCreatures;
+	}
+
+	private void countKills(final Set<String> creatures) {
+		if (creatures == countedCreatures) {
+			return;
+		}
+		soloCreatures = 0;
+		sharedCreatures = 0;
+		for (final String name : creatures) {
+			if (hasKilledSolo(name)) {
+				soloCreatures++;
+			}
+			if (hasKilledShared(name)) {
+				sharedCreatures++;
+			}
+		}
+		countedCreatures = creatures;
+	}
 }
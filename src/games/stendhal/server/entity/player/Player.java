@@ -1000,6 +1000,10 @@ public class Player extends DressedEntity implements UseListener {
 			put(INVISIBLE, "");
 		} else if (has(INVISIBLE)) {
 			remove(INVISIBLE);
+			final StendhalRPZone zone = getZone();
+			if (zone != null) {
+				zone.wakeCreaturesNear(this);
+			}
 		}
 	}
 
@@ -1377,6 +1381,18 @@ public class Player extends DressedEntity implements UseListener {
 		return quests.getQuest(name, index);
 	}
 
+	/**
+	 * Gets the player's current status in the given quest in parsed form.
+	 *
+	 * @param name
+	 *            The quest's name
+	 * @return the player's status in the quest, or <code>null</code> if the
+	 *         player has not started the quest
+	 */
+	public QuestState getQuestState(final String name) {
+		return quests.getQuestState(name);
+	}
+
 	/**
 	 * Allows to store the player's current status in a quest in a string. This
 	 * string may, for instance, be "started", "done", a semicolon- separated
@@ -1495,6 +1511,34 @@ public class Player extends DressedEntity implements UseListener {
 		return killRec.hasKilledShared(name);
 	}
 
+	/**
+	 * Gets the number of creatures out of a set, that the player has killed
+	 * solo. The number is counted once per set and kept up to date on each
+	 * kill, so the same set should be passed each time.
+	 *
+	 * @param creatures
+	 *     Names of creatures. The set must not be changed.
+	 * @return
+	 *     Number of these creatures killed solo.
+	 */
+	public int getNumberOfKilledSolo(final Set<String> creatures) {
+		return killRec.getNumberOfKilledSolo(creatures);
+	}
+
+	/**
+	 * Gets the number of creatures out of a set, that the player has killed
+	 * with help. The number is counted once per set and kept up to date on
+	 * each kill, so the same set should be passed each time.
+	 *
+	 * @param creatures
+	 *     Names of creatures. The set must not be changed.
+	 * @return
+	 *     Number of these creatures killed with help.
+	 */
+	public int getNumberOfKilledShared(final Set<String> creatures) {
+		return killRec.getNumberOfKilledShared(creatures);
+	}
+
 	/**
 	 * Stores that the player has killed 'name' solo. Overwrites shared kills of
 	 * 'name'.
@@ -1682,25 +1726,31 @@ public class Player extends DressedEntity implements UseListener {
 	 *            The player who initiated the teleporting, or null if no player
 	 *            is responsible. This is only to give feedback if something
 	 *            goes wrong. If no feedback is wanted, use null.
-	 * @return <code>true</code> if teleporting was successful.
+	 * @return <code>true</code> if teleporting was successful. Teleporting
+	 * 	from parallel zone logic is done after the zone logic, and
+	 * 	<code>true</code> is returned before that. The direction and the
+	 * 	feedback are applied when the player has actually been placed.
 	 */
 	public boolean teleport(final StendhalRPZone zone, final int x,
 			final int y, final Direction dir, final Player teleporter) {
-		if (StendhalRPAction.placeat(zone, this, x, y)) {
-			if (dir != null) {
-				this.setDirection(dir);
-			}
-			notifyWorldAboutChanges();
-			return true;
-		} else {
-			final String text = "Position [" + x + "," + y + "] is occupied";
-			if (teleporter != null) {
-				teleporter.sendPrivateText(text);
-			} else {
-				this.sendPrivateText(text);
+		return StendhalRPAction.placeat(zone, this, x, y, null, new StendhalRPAction.PlacementListener() {
+			@Override
+			public void onPlaced(final boolean placed) {
+				if (placed) {
+					if (dir != null) {
+						setDirection(dir);
+					}
+					notifyWorldAboutChanges();
+				} else {
+					final String text = "Position [" + x + "," + y + "] is occupied";
+					if (teleporter != null) {
+						teleporter.sendPrivateText(text);
+					} else {
+						sendPrivateText(text);
+					}
+				}
 			}
-			return false;
-		}
+		});
 	}
 
 	/**
@@ -2477,29 +2527,7 @@ public class Player extends DressedEntity implements UseListener {
 
 	@Override
 	protected double getSusceptibility(Nature type) {
-		double sus = 1.0;
-		/*
-		 * check weapon and shield separately, so that holding 2 resistant
-		 * shields does not help
-		 */
-		Item weapon = getWeapon();
-		if (weapon != null) {
-			sus *= weapon.getSusceptibility(type);
-		}
-		Item shield = getShield();
-		if (shield != null) {
-			sus *= shield.getSusceptibility(type);
-		}
-
-		String[] armorSlots = { "armor", "head", "legs", "feet", "cloak" };
-		for (String slot : armorSlots) {
-			RPObject object = getSlot(slot).getFirst();
-			if (object instanceof Item) {
-				sus *= ((Item) object).getSusceptibility(type);
-			}
-		}
-
-		return sus;
+		return getItemSusceptibility(type);
 	}
 
 	/**
@@ -2841,7 +2869,7 @@ public class Player extends DressedEntity implements UseListener {
 	public void incLootForItem(String item, int count) {
 		itemCounter.incLootForItem(item, count);
 		// check achievements in item category
-		AchievementNotifier.get().onItemLoot(this);
+		AchievementNotifier.get().onItemLoot(this, item);
 	}
 
 	/**
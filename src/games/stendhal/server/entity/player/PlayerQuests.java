@@ -1,5 +1,5 @@
 /***************************************************************************
- *                   (C) Copyright 2003-2020 - Stendhal                    *
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
  ***************************************************************************
  ***************************************************************************
  *                                                                         *
@@ -11,8 +11,10 @@
  ***************************************************************************/
 package games.stendhal.server.entity.player;
 
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 
@@ -25,12 +27,19 @@ import marauroa.common.game.RPSlot;
 
 /**
  * Accesses the player quest states.
+ * <p>
+ * Parsed quest states are cached per quest slot. A cached state is used as
+ * long as the quest slot still contains the string it was parsed from, so
+ * that changes made to the slot without this class are picked up as well.
  *
  * @author hendrik
  */
 class PlayerQuests {
 	private final Player player;
 
+	/** Parsed quest states by quest slot name. */
+	private final Map<String, QuestState> cache = new HashMap<String, QuestState>();
+
 	private static Logger logger = Logger.getLogger(PlayerQuests.class);
 
 
@@ -65,7 +74,7 @@ class PlayerQuests {
 	 * @return true iff the player has made any progress in the quest
 	 */
 	public boolean hasQuest(final String name) {
-		return (player.getKeyedSlot("!quests", QuestUtils.evaluateQuestSlotName(name)) != null);
+		return (getQuest(name) != null);
 	}
 
 	/**
@@ -79,6 +88,30 @@ class PlayerQuests {
 		return player.getKeyedSlot("!quests", QuestUtils.evaluateQuestSlotName(name));
 	}
 
+	/**
+	 * Gets the player's current status in the given quest in parsed form.
+	 *
+	 * @param name
+	 *            The quest's name
+	 * @return the player's status in the quest, or <code>null</code> if the
+	 *         player has not started the quest
+	 */
+	public QuestState getQuestState(final String name) {
+		final String slotName = QuestUtils.evaluateQuestSlotName(name);
+		final String state = player.getKeyedSlot("!quests", slotName);
+		if (state == null) {
+			cache.remove(slotName);
+			return null;
+		}
+
+		QuestState questState = cache.get(slotName);
+		if ((questState == null) || !state.equals(questState.getState())) {
+			questState = new QuestState(state);
+			cache.put(slotName, questState);
+		}
+		return questState;
+	}
+
 	/**
 	 * Allows to store the player's current status in a quest in a string. This
 	 * string may, for instance, be "started", "done", a semicolon- separated
@@ -93,13 +126,15 @@ class PlayerQuests {
 	 *            reset the player's status for the quest.
 	 */
 	public void setQuest(final String name, final String status) {
-		final String oldStatus = player.getKeyedSlot("!quests", QuestUtils.evaluateQuestSlotName(name));
-		player.setKeyedSlot("!quests", QuestUtils.evaluateQuestSlotName(name), status);
+		final String slotName = QuestUtils.evaluateQuestSlotName(name);
+		final String oldStatus = player.getKeyedSlot("!quests", slotName);
 		if ((status == null) || !status.equals(oldStatus)) {
-			new GameEvent(player.getName(), "quest", QuestUtils.evaluateQuestSlotName(name), status).raise();
+			cache.remove(slotName);
+			player.setKeyedSlot("!quests", slotName, status);
+			new GameEvent(player.getName(), "quest", slotName, status).raise();
 		}
 		// check for reached achievements
-		SingletonRepository.getAchievementNotifier().onFinishQuest(player);
+		SingletonRepository.getAchievementNotifier().onFinishQuest(player, slotName);
 	}
 
 
@@ -113,20 +148,11 @@ class PlayerQuests {
 	 * @return the player's status in the quest
 	 */
 	public String getQuest(final String name, final int index) {
-		String state = getQuest(name);
+		final QuestState state = getQuestState(name);
 		if (state == null) {
 			return null;
 		}
-
-		if(index == -1) {
-			return state;
-		}
-
-		String[] elements = state.split(";");
-		if (index < elements.length) {
-			return elements[index];
-		}
-		return "";
+		return state.get(index);
 	}
 
 	/**
@@ -145,28 +171,11 @@ class PlayerQuests {
 	 *            reset the player's status for the quest.
 	 */
 	public void setQuest(final String name, final int index, final String subStatus) {
-		String state = getQuest(name);
+		QuestState state = getQuestState(name);
 		if (state == null) {
-			state = "";
+			state = new QuestState("");
 		}
-		String[] elements = state.split(";");
-		if (elements.length <= index) {
-			String[] temp = new String[index + 1];
-			System.arraycopy(elements, 0, temp, 0, elements.length);
-			elements = temp;
-		}
-
-		elements[index] = subStatus;
-		StringBuilder res = new StringBuilder();
-		for (int i = 0; i < elements.length; i++) {
-			if (i > 0) {
-				res.append(";");
-			}
-			if (elements[i] != null) {
-				res.append(elements[i]);
-			}
-		}
-		setQuest(name, res.toString());
+		setQuest(name, state.with(index, subStatus));
 	}
 
 	public List<String> getQuests() {
@@ -183,7 +192,9 @@ class PlayerQuests {
 	}
 
 	public void removeQuest(final String name) {
-		player.setKeyedSlot("!quests", QuestUtils.evaluateQuestSlotName(name), null);
+		final String slotName = QuestUtils.evaluateQuestSlotName(name);
+		cache.remove(slotName);
+		player.setKeyedSlot("!quests", slotName, null);
 	}
 
 	/**
@@ -221,17 +232,8 @@ class PlayerQuests {
 	 * @return true, if the quest is in one of theses states, false otherwise
 	 */
 	public boolean isQuestInState(final String name, final int index, final String... states) {
-		final String questState = getQuest(name, index);
-
-		if (questState != null) {
-			for (final String state : states) {
-				if (questState.equals(state)) {
-					return true;
-				}
-			}
-		}
-
-		return false;
+		final QuestState questState = getQuestState(name);
+		return (questState != null) && questState.isInState(index, states);
 	}
 
 	/**
@@ -244,14 +246,12 @@ class PlayerQuests {
 	 * @return the name of the required item (no formatting)
 	 */
 	public String getRequiredItemName(final String name, final int index) {
-		if (!player.hasQuest(name)) {
+		final QuestState state = getQuestState(name);
+		if (state == null) {
 			logger.error(player.getName() + " does not have quest " + name);
 			return "";
 		}
-		String questSubString = getQuest(name, index);
-		final String[] elements = questSubString.split("=");
-		String questItem = elements[0];
-		return questItem;
+		return state.getItemName(index);
 	}
 
 	/**
@@ -264,18 +264,12 @@ class PlayerQuests {
 	 * @return required item quantity
 	 */
 	public int getRequiredItemQuantity(final String name, final int index) {
-		int amount = 1;
-		if (!player.hasQuest(name)) {
+		final QuestState state = getQuestState(name);
+		if (state == null) {
 			logger.error(player.getName() + " does not have quest " + name);
-			return amount;
-		}
-		String questSubString = getQuest(name, index);
-		final String[] elements = questSubString.split("=");
-		if(elements.length > 1) {
-			amount=MathHelper.parseIntDefault(elements[1], 1);
+			return 1;
 		}
-		return amount;
-
+		return state.getItemQuantity(index, 1);
 	}
 
 	/**
@@ -288,12 +282,12 @@ class PlayerQuests {
 	 * @return the integer value in the index of the quest slot, used to represent a number of repetitions
 	 */
 	public int getNumberOfRepetitions(final String name, final int index) {
-		if (!player.hasQuest(name)) {
+		final QuestState state = getQuestState(name);
+		if (state == null) {
 			logger.error(player.getName() + " does not have quest " + name);
 			return 0;
 		}
-		String questState = player.getQuest(name, index);
-		return MathHelper.parseIntDefault(questState, 0);
+		return MathHelper.parseIntDefault(state.get(index), 0);
 	}
 
 }
@@ -0,0 +1,170 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity.player;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import games.stendhal.common.MathHelper;
+
+/**
+ * An immutable, parsed quest state. The state is split into its sub states
+ * (separated by ";") once, so that the sub states can be looked up without
+ * parsing the quest slot again.
+ */
+public final class QuestState {
+	private final String state;
+	private final String[] elements;
+
+	/**
+	 * Creates a new QuestState.
+	 *
+	 * @param state quest state as stored in the quest slot
+	 */
+	QuestState(final String state) {
+		this.state = state;
+		this.elements = state.split(";");
+	}
+
+	/**
+	 * Gets the complete quest state.
+	 *
+	 * @return quest state as stored in the quest slot
+	 */
+	public String getState() {
+		return state;
+	}
+
+	/**
+	 * Gets a sub state.
+	 *
+	 * @param index the index of the sub state, or -1 for the complete state
+	 * @return sub state, or an empty string if the state does not have that many sub states
+	 */
+	public String get(final int index) {
+		if (index == -1) {
+			return state;
+		}
+		if (index < elements.length) {
+			return elements[index];
+		}
+		return "";
+	}
+
+	/**
+	 * Gets the number of sub states.
+	 *
+	 * @return number of sub states
+	 */
+	public int size() {
+		return elements.length;
+	}
+
+	/**
+	 * Gets all sub states.
+	 *
+	 * @return unmodifiable list of sub states
+	 */
+	public List<String> getSubStates() {
+		return Collections.unmodifiableList(Arrays.asList(elements));
+	}
+
+	/**
+	 * Checks if the complete state equals one of the listed states.
+	 *
+	 * @param states valid states
+	 * @return true, if the state is one of the listed states
+	 */
+	public boolean isInState(final String... states) {
+		return isInState(-1, states);
+	}
+
+	/**
+	 * Checks if a sub state equals one of the listed states.
+	 *
+	 * @param index index of the sub state, or -1 for the complete state
+	 * @param states valid states
+	 * @return true, if the sub state is one of the listed states
+	 */
+	public boolean isInState(final int index, final String... states) {
+		final String subState = get(index);
+		for (final String candidate : states) {
+			if (subState.equals(candidate)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the item name of an "item=quantity" sub state.
+	 *
+	 * @param index index of the sub state
+	 * @return item name
+	 */
+	public String getItemName(final int index) {
+		return get(index).split("=")[0];
+	}
+
+	/**
+	 * Gets the quantity of an "item=quantity" sub state.
+	 *
+	 * @param index index of the sub state
+	 * @param defaultValue value to use, if the sub state has no valid quantity
+	 * @return quantity
+	 */
+	public int getItemQuantity(final int index, final int defaultValue) {
+		final String[] parts = get(index).split("=");
+		if (parts.length > 1) {
+			return MathHelper.parseIntDefault(parts[1], defaultValue);
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * Gets the state that results from replacing a sub state.
+	 *
+	 * @param index index of the sub state
+	 * @param subState new sub state, <code>null</code> for an empty one
+	 * @return new quest state
+	 */
+	String with(final int index, final String subState) {
+		String[] temp = elements;
+		if (temp.length <= index) {
+			temp = new String[index + 1];
+			System.arraycopy(elements, 0, temp, 0, elements.length);
+		}
+
+		final StringBuilder res = new StringBuilder();
+		for (int i = 0; i < temp.length; i++) {
+			if (i > 0) {
+				res.append(";");
+			}
+			final String element;
+			if (i == index) {
+				element = subState;
+			} else {
+				element = temp[i];
+			}
+			if (element != null) {
+				res.append(element);
+			}
+		}
+		return res.toString();
+	}
+
+	@Override
+	public String toString() {
+		return state;
+	}
+}
@@ -13,7 +13,10 @@
 package games.stendhal.server.entity.slot;
 
 import games.stendhal.server.entity.Entity;
+import games.stendhal.server.entity.RPEntity;
+import marauroa.common.game.RPObject;
 import marauroa.common.game.RPSlot;
+import marauroa.common.game.SlotOwner;
 
 /**
  * Stendhal specific information about this slot.
@@ -43,6 +46,42 @@ public class EntitySlot extends RPSlot implements Slot {
 		this.contentSlotName = contentSlotName;
 	}
 
+	@Override
+	protected int add(final RPObject object, final boolean assignId) {
+		final int id = super.add(object, assignId);
+		notifyContentChanged();
+		return id;
+	}
+
+	@Override
+	public RPObject remove(final RPObject.ID id) {
+		final RPObject removed = super.remove(id);
+		if (removed != null) {
+			notifyContentChanged();
+		}
+		return removed;
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		notifyContentChanged();
+	}
+
+	/**
+	 * Tell the entity owning this slot, directly or through the items it
+	 * carries, that the slot contents changed.
+	 */
+	private void notifyContentChanged() {
+		final SlotOwner owner = getOwner();
+		if (owner instanceof RPObject) {
+			final RPObject base = ((RPObject) owner).getBaseContainer();
+			if (base instanceof RPEntity) {
+				((RPEntity) base).onSlotContentChanged();
+			}
+		}
+	}
+
 	@Override
 	public boolean isReachableForTakingThingsOutOfBy(final Entity entity) {
 		setErrorMessage("The " + getName() + " of " + ((Entity) getOwner()).getDescriptionName(true) + " is too far away.");
@@ -722,6 +722,7 @@ public class SimulateCombat {
 
 		total_turns = 0;
 
+		final long start = System.nanoTime();
 		int ridx;
 		for (ridx = 0; ridx < rounds; ridx++) {
 			final Pair<Integer, Integer> result = simulateRound();
@@ -751,6 +752,9 @@ public class SimulateCombat {
 			}
 		}
 
+		// simulation throughput, for comparing the speed of the combat code
+		final double elapsed = (System.nanoTime() - start) / 1000000000.0;
+
 		final long win_ratio = Math.round((Double.valueOf(wins) / rounds) * 100);
 		final long loss_ratio = Math.round((Double.valueOf(losses) / rounds) * 100);
 		final long tie_ratio = Math.round((Double.valueOf(ties) / rounds) * 100);
@@ -883,7 +887,9 @@ public class SimulateCombat {
 			+ "\n  Ties:              " + ties + " (" + tie_ratio + "%)"
 			+ "\n  Incomplete rounds: " + incomplete_rounds
 			+ "\n  Total turns:       " + total_turns
-			+ "\n  Turns per round:   " + (total_turns / (double) rounds));
+			+ "\n  Turns per round:   " + (total_turns / (double) rounds)
+			+ "\n  Simulation time:   " + String.format("%.3f", elapsed) + " s"
+			+ " (" + Math.round(total_turns / Math.max(elapsed, 0.001)) + " turns/s)");
 
 		long diff_ratio = 0;
 		String beneficiary = "none";
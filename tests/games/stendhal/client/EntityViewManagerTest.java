@@ -0,0 +1,315 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.client.entity.ActionType;
+import games.stendhal.client.entity.Entity;
+import games.stendhal.client.entity.IEntity;
+import games.stendhal.client.entity.Inspector;
+import games.stendhal.client.gui.j2d.entity.EntityView;
+import games.stendhal.client.gui.styled.cursor.StendhalCursor;
+import marauroa.common.game.RPObject;
+
+/**
+ * Tests for the view culling and sorting of EntityViewManager.
+ */
+public class EntityViewManagerTest {
+	private EntityViewManager manager;
+	/** Views added to the manager, and not removed. */
+	private List<TestView> views;
+	private int nextID;
+
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		// the manager reads the character name of the client
+		new MockStendhalClient();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() {
+		StendhalClient.client = null;
+	}
+
+	@Before
+	public void setUp() {
+		manager = new EntityViewManager();
+		views = new ArrayList<TestView>();
+		nextID = 1;
+	}
+
+	/**
+	 * Tests moving, adding and removing views across grid cells.
+	 */
+	@Test
+	public void testCulling() {
+		final Rectangle screen = new Rectangle(0, 0, 640, 480);
+		final TestView inside = add(100, 100, 0);
+		final TestView outside = add(2000, 100, 0);
+		prepare(screen);
+		assertEquals(Collections.singletonList(inside), manager.getVisibleViews());
+
+		// move into the visible area from a distant cell
+		outside.area.setLocation(200, 50);
+		prepare(screen);
+		assertEquals(2, manager.getVisibleViews().size());
+
+		// and out again
+		inside.area.setLocation(100, 3000);
+		prepare(screen);
+		assertEquals(Collections.singletonList(outside), manager.getVisibleViews());
+
+		// views overlapping the edge of the area are visible
+		final TestView edge = add(630, 470, 0);
+		prepare(screen);
+		assertTrue(manager.getVisibleViews().contains(edge));
+
+		// removed views are dropped in the next frame
+		remove(outside);
+		remove(edge);
+		prepare(screen);
+		assertTrue(manager.getVisibleViews().isEmpty());
+
+		// scrolling the screen
+		prepare(new Rectangle(0, 2900, 640, 480));
+		assertEquals(Collections.singletonList(inside), manager.getVisibleViews());
+	}
+
+	/**
+	 * Tests that the views are kept in drawing order when they move.
+	 */
+	@Test
+	public void testOrder() {
+		final Rectangle screen = new Rectangle(0, 0, 640, 480);
+		final TestView a = add(100, 100, 0);
+		final TestView b = add(100, 200, 0);
+		final TestView top = add(100, 50, 100);
+		prepare(screen);
+		assertEquals(expected(screen), manager.getVisibleViews());
+		assertEquals(top, manager.getVisibleViews().get(2));
+
+		// a walks below b
+		a.area.setLocation(100, 300);
+		prepare(screen);
+		assertEquals(expected(screen), manager.getVisibleViews());
+		assertEquals(b, manager.getVisibleViews().get(0));
+
+		// same bottom edge, sorted by the object id
+		b.area.setLocation(300, 300);
+		prepare(screen);
+		assertEquals(expected(screen), manager.getVisibleViews());
+		assertEquals(a, manager.getVisibleViews().get(0));
+	}
+
+	/**
+	 * Compares the visible views with a full scan over many frames of random
+	 * movement, additions and removals.
+	 */
+	@Test
+	public void testRandomFrames() {
+		final Random random = new Random(42);
+		for (int i = 0; i < 300; i++) {
+			addRandom(random);
+		}
+		final Rectangle screen = new Rectangle(0, 0, 640, 480);
+		for (int frame = 0; frame < 200; frame++) {
+			// scroll the screen, sometimes by a jump
+			if (random.nextInt(20) == 0) {
+				screen.setLocation(random.nextInt(3000) - 200, random.nextInt(3000) - 200);
+			} else {
+				screen.translate(random.nextInt(65) - 32, random.nextInt(65) - 32);
+			}
+			for (final TestView view : views) {
+				if (random.nextInt(4) == 0) {
+					view.area.translate(random.nextInt(97) - 48, random.nextInt(97) - 48);
+				}
+				if (random.nextInt(50) == 0) {
+					view.zIndex = random.nextInt(3) * 1000;
+				}
+			}
+			for (int i = random.nextInt(5); i > 0; i--) {
+				remove(views.get(random.nextInt(views.size())));
+			}
+			for (int i = random.nextInt(5); i > 0; i--) {
+				addRandom(random);
+			}
+			prepare(screen);
+			assertEquals("frame " + frame, expected(screen), manager.getVisibleViews());
+		}
+	}
+
+	private void prepare(final Rectangle screen) {
+		manager.prepareViews(screen, false);
+	}
+
+	/**
+	 * Get the visible views by checking every view.
+	 *
+	 * @param screen visible area
+	 * @return views intersecting the area, in drawing order
+	 */
+	private List<EntityView<IEntity>> expected(final Rectangle screen) {
+		final List<EntityView<IEntity>> list = new ArrayList<EntityView<IEntity>>();
+		for (final TestView view : views) {
+			if (screen.intersects(view.getArea())) {
+				list.add(view);
+			}
+		}
+		Collections.sort(list, new EntityViewManager.EntityViewComparator());
+		return list;
+	}
+
+	private TestView add(final int x, final int y, final int zIndex) {
+		final RPObject object = new RPObject();
+		object.setID(new RPObject.ID(nextID++, "zone"));
+		final Entity entity = new Entity();
+		entity.initialize(object);
+		final TestView view = new TestView(entity, new Rectangle(x, y, 32, 32), zIndex);
+		views.add(view);
+		manager.addEntityView(view);
+		return view;
+	}
+
+	private void addRandom(final Random random) {
+		final TestView view = add(random.nextInt(3000), random.nextInt(3000), random.nextInt(3) * 1000);
+		view.area.setSize(16 + random.nextInt(300), 16 + random.nextInt(300));
+	}
+
+	private void remove(final TestView view) {
+		views.remove(view);
+		manager.removeEntityView(view);
+	}
+
+	/**
+	 * A view with a freely settable area.
+	 */
+	private static class TestView implements EntityView<IEntity> {
+		private final IEntity entity;
+		private final Rectangle area;
+		private int zIndex;
+
+		TestView(final IEntity entity, final Rectangle area, final int zIndex) {
+			this.entity = entity;
+			this.area = area;
+			this.zIndex = zIndex;
+		}
+
+		@Override
+		public Rectangle getArea() {
+			return new Rectangle(area);
+		}
+
+		@Override
+		public int getZIndex() {
+			return zIndex;
+		}
+
+		@Override
+		public IEntity getEntity() {
+			return entity;
+		}
+
+		@Override
+		public String[] getActions() {
+			return new String[0];
+		}
+
+		@Override
+		public boolean isMovable() {
+			return false;
+		}
+
+		@Override
+		public void onAction() {
+			// not needed
+		}
+
+		@Override
+		public void onAction(final ActionType at) {
+			// not needed
+		}
+
+		@Override
+		public boolean onHarmlessAction() {
+			return false;
+		}
+
+		@Override
+		public void release() {
+			// not needed
+		}
+
+		@Override
+		public void draw(final Graphics2D g2d) {
+			// not needed
+		}
+
+		@Override
+		public void drawTop(final Graphics2D g2d) {
+			// not needed
+		}
+
+		@Override
+		public void setContained(final boolean b) {
+			// not needed
+		}
+
+		@Override
+		public void setVisibleScreenArea(final Rectangle area) {
+			// not needed
+		}
+
+		@Override
+		public void initialize(final IEntity entity) {
+			// not needed
+		}
+
+		@Override
+		public boolean isInteractive() {
+			return false;
+		}
+
+		@Override
+		public StendhalCursor getCursor() {
+			return null;
+		}
+
+		@Override
+		public void applyChanges() {
+			// not needed
+		}
+
+		@Override
+		public void setInspector(final Inspector inspector) {
+			// not needed
+		}
+
+		@Override
+		public String toString() {
+			return "view " + entity.getID().getObjectID() + " " + area + " z " + zIndex;
+		}
+	}
+}
@@ -0,0 +1,164 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.client;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import games.stendhal.client.sprite.EmptySprite;
+import games.stendhal.client.sprite.ImageSprite;
+import games.stendhal.client.sprite.Sprite;
+
+/**
+ * Tests for drawing TileRenderers using pre-rendered chunks.
+ */
+public class TileRendererTest {
+	private static final int WIDTH = TileRenderer.CHUNK_SIZE + 5;
+	private static final int HEIGHT = TileRenderer.CHUNK_SIZE + 3;
+	private static final int SIZE = IGameScreen.SIZE_UNIT_PIXELS;
+
+	private TileRenderer renderer;
+	private ColorSprite animated;
+
+	@Before
+	public void setUp() {
+		final Sprite red = createTile(Color.RED);
+		final Sprite blue = createTile(Color.BLUE);
+		final Sprite empty = new EmptySprite(SIZE, SIZE, null);
+		animated = new ColorSprite(Color.GREEN);
+
+		renderer = new TileRenderer();
+		renderer.width = WIDTH;
+		renderer.height = HEIGHT;
+		renderer.spriteMap = new Sprite[WIDTH * HEIGHT];
+		for (int i = 0; i < renderer.spriteMap.length; i++) {
+			if (i % 7 == 0) {
+				renderer.spriteMap[i] = animated;
+			} else if (i % 5 == 0) {
+				renderer.spriteMap[i] = empty;
+			} else if (i % 2 == 0) {
+				renderer.spriteMap[i] = red;
+			} else {
+				renderer.spriteMap[i] = blue;
+			}
+		}
+	}
+
+	private Sprite createTile(Color color) {
+		BufferedImage img = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+		Graphics g = img.getGraphics();
+		g.setColor(color);
+		g.fillRect(0, 0, SIZE, SIZE);
+		g.dispose();
+		return new ImageSprite(img);
+	}
+
+	/**
+	 * Check that drawing using chunks results in the same image as drawing
+	 * the tiles one by one, and that animated tiles are drawn on every frame.
+	 */
+	@Test
+	public void testDraw() {
+		assertSameImage(draw(0, 0, WIDTH, HEIGHT), expected(0, 0, WIDTH, HEIGHT));
+		assertSameImage(draw(3, 2, 17, 16), expected(3, 2, 17, 16));
+
+		// The next "frame" of the animated tiles
+		animated.color = Color.YELLOW;
+		assertSameImage(draw(0, 0, WIDTH, HEIGHT), expected(0, 0, WIDTH, HEIGHT));
+		// Areas larger than the layer
+		assertSameImage(draw(10, 10, WIDTH, HEIGHT), expected(10, 10, WIDTH, HEIGHT));
+	}
+
+	/**
+	 * Draw an area with the renderer, clipped like the game screen does.
+	 */
+	private BufferedImage draw(int x, int y, int w, int h) {
+		BufferedImage img = new BufferedImage(WIDTH * SIZE, HEIGHT * SIZE, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = img.createGraphics();
+		g.setClip(x * SIZE, y * SIZE, w * SIZE, h * SIZE);
+		renderer.draw(g, x, y, w, h);
+		g.dispose();
+		return img;
+	}
+
+	/**
+	 * Draw an area tile by tile.
+	 */
+	private BufferedImage expected(int x, int y, int w, int h) {
+		BufferedImage img = new BufferedImage(WIDTH * SIZE, HEIGHT * SIZE, BufferedImage.TYPE_INT_ARGB);
+		Graphics g = img.getGraphics();
+		for (int j = y; j < Math.min(y + h, HEIGHT); j++) {
+			for (int i = x; i < Math.min(x + w, WIDTH); i++) {
+				renderer.spriteMap[j * WIDTH + i].draw(g, i * SIZE, j * SIZE);
+			}
+		}
+		g.dispose();
+		return img;
+	}
+
+	private void assertSameImage(BufferedImage actual, BufferedImage expected) {
+		for (int y = 0; y < expected.getHeight(); y++) {
+			for (int x = 0; x < expected.getWidth(); x++) {
+				assertEquals("x=" + x + ", y=" + y, expected.getRGB(x, y), actual.getRGB(x, y));
+			}
+		}
+	}
+
+	/**
+	 * A non constant sprite, that can change its color.
+	 */
+	private static class ColorSprite implements Sprite {
+		Color color;
+
+		ColorSprite(Color color) {
+			this.color = color;
+		}
+
+		@Override
+		public Sprite createRegion(int x, int y, int width, int height, Object ref) {
+			return this;
+		}
+
+		@Override
+		public void draw(Graphics g, int x, int y) {
+			g.setColor(color);
+			g.fillRect(x, y, SIZE, SIZE);
+		}
+
+		@Override
+		public void draw(Graphics g, int destx, int desty, int x, int y, int w, int h) {
+			draw(g, destx, desty);
+		}
+
+		@Override
+		public int getHeight() {
+			return SIZE;
+		}
+
+		@Override
+		public Object getReference() {
+			return null;
+		}
+
+		@Override
+		public int getWidth() {
+			return SIZE;
+		}
+	}
+}
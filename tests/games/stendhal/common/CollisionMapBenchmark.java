@@ -0,0 +1,136 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.common;
+
+import java.lang.management.ManagementFactory;
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Microbenchmark comparing CollisionMap against the previous BitSet column
+ * implementation. Both are first checked to give the same answers for the
+ * same queries; then each is measured over several timed iterations after a
+ * warm up phase, reporting time and allocated bytes per query.
+ */
+public class CollisionMapBenchmark {
+	private static final int WIDTH = 200;
+	private static final int HEIGHT = 200;
+	private static final int QUERIES = 200000;
+	private static final int WARMUP_ITERATIONS = 5;
+	private static final int ITERATIONS = 10;
+
+	private interface Query {
+		boolean collides(int x, int y, int w, int h);
+	}
+
+	public static void main(final String[] args) {
+		final Random random = new Random(1);
+		final CollisionMap map = new CollisionMap(WIDTH, HEIGHT);
+		final LegacyCollisionMap legacy = new LegacyCollisionMap(WIDTH, HEIGHT);
+		for (int i = 0; i < WIDTH * HEIGHT / 5; i++) {
+			final int x = random.nextInt(WIDTH);
+			final int y = random.nextInt(HEIGHT);
+			map.set(x, y);
+			legacy.set(x, y);
+		}
+
+		final int[] queries = new int[QUERIES * 4];
+		for (int i = 0; i < QUERIES; i++) {
+			// mostly entity sized rectangles, with some large ones
+			final int w = 1 + random.nextInt(i % 10 == 0 ? 40 : 2);
+			final int h = 1 + random.nextInt(i % 10 == 0 ? 40 : 2);
+			queries[4 * i] = random.nextInt(WIDTH - w + 1);
+			queries[4 * i + 1] = random.nextInt(HEIGHT - h + 1);
+			queries[4 * i + 2] = w;
+			queries[4 * i + 3] = h;
+		}
+
+		for (int i = 0; i < QUERIES; i++) {
+			final int x = queries[4 * i];
+			final int y = queries[4 * i + 1];
+			final int w = queries[4 * i + 2];
+			final int h = queries[4 * i + 3];
+			if (map.collides(x, y, w, h) != legacy.collides(x, y, w, h)) {
+				throw new IllegalStateException("Results differ for " + x + "," + y + " " + w + "x" + h);
+			}
+		}
+		System.out.println("Results match for " + QUERIES + " queries");
+
+		measure("BitSet columns", queries, legacy::collides);
+		measure("packed rows", queries, map::collides);
+	}
+
+	private static void measure(final String name, final int[] queries, final Query query) {
+		int hits = 0;
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			hits += run(queries, query);
+		}
+		final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final long threadId = Thread.currentThread().getId();
+		final long allocatedBefore = bean.getThreadAllocatedBytes(threadId);
+		final long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			hits += run(queries, query);
+		}
+		final long time = System.nanoTime() - start;
+		final long allocated = bean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+		final double count = (double) ITERATIONS * QUERIES;
+		System.out.printf("%-15s %8.1f ns/query %8.1f bytes/query (%d hits)%n", name, time / count,
+				allocated / count, hits);
+	}
+
+	private static int run(final int[] queries, final Query query) {
+		int hits = 0;
+		for (int i = 0; i < queries.length; i += 4) {
+			if (query.collides(queries[i], queries[i + 1], queries[i + 2], queries[i + 3])) {
+				hits++;
+			}
+		}
+		return hits;
+	}
+
+	/**
+	 * The previous CollisionMap implementation.
+	 */
+	private static class LegacyCollisionMap {
+		private final int width;
+		private final int height;
+		private final BitSet[] colls;
+
+		LegacyCollisionMap(final int width, final int height) {
+			this.width = width;
+			this.height = height;
+			colls = new BitSet[width];
+			for (int i = 0; i < width; i++) {
+				colls[i] = new BitSet();
+			}
+		}
+
+		void set(final int i, final int j) {
+			colls[i].set(j);
+		}
+
+		boolean collides(final int x, final int y, final int width, final int height) {
+			if (x < 0 || x - 1 + width >= this.width) {
+				return true;
+			}
+			if (y < 0 || y - 1 + height >= this.height) {
+				return true;
+			}
+			final BitSet result = new BitSet();
+			for (int i = x; i < x + width; i++) {
+				result.or(colls[i]);
+			}
+			return !result.get(y, y + height).isEmpty();
+		}
+	}
+}
@@ -18,6 +18,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.awt.geom.Rectangle2D;
 import java.util.BitSet;
+import java.util.Random;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -240,6 +241,39 @@ public class CollisionMapTest {
 	}
 
 
+	/**
+	 * Tests that rectangle checks agree with checking each tile, both for
+	 * small rectangles and for ones using the summed area table.
+	 */
+	@Test
+	public void testCollidesMatchesTiles() {
+		final Random random = new Random(42);
+		final int width = 150;
+		final int height = 90;
+		final CollisionMap map = new CollisionMap(width, height);
+		for (int i = 0; i < 400; i++) {
+			map.set(random.nextInt(width), random.nextInt(height));
+		}
+		for (int i = 0; i < 5000; i++) {
+			final int w = 1 + random.nextInt(i % 2 == 0 ? 3 : 80);
+			final int h = 1 + random.nextInt(i % 2 == 0 ? 3 : 20);
+			final int x = random.nextInt(width - w + 1);
+			final int y = random.nextInt(height - h + 1);
+			boolean expected = false;
+			for (int tx = x; tx < x + w; tx++) {
+				for (int ty = y; ty < y + h; ty++) {
+					expected |= map.get(tx, ty);
+				}
+			}
+			assertThat(x + ";" + y + " " + w + "x" + h, map.collides(x, y, w, h), is(expected));
+			if (i % 100 == 0) {
+				// changes must invalidate the summed area table
+				map.unset(x, y);
+				map.set(random.nextInt(width), random.nextInt(height));
+			}
+		}
+	}
+
 	/**
 	 * Tests for createLayerDefintion.
 	 */
@@ -265,6 +299,40 @@ public class CollisionMapTest {
 
 	}
 
+	/**
+	 * Tests that tiles below the map are ignored, like the BitSet based map
+	 * did.
+	 */
+	@Test
+	public void testSetBelowMap() {
+		final CollisionMap map = new CollisionMap(4, 4);
+		map.set(1, 4);
+		map.set(1, 100);
+		map.unset(1, 100);
+		assertFalse(map.get(1, 4));
+		assertFalse(map.collides(0, 0, 4, 4));
+		map.set(new Rectangle2D.Double(2.0, 3.0, 1.0, 5.0));
+		assertTrue(map.get(2, 3));
+		assertTrue(map.collides(0, 0, 4, 4));
+	}
+
+	/**
+	 * Tests that rectangles without area never collide.
+	 */
+	@Test
+	public void testCollidesEmpty() {
+		final CollisionMap map = new CollisionMap(100, 10);
+		map.set(0, 0);
+		map.set(64, 3);
+		assertFalse(map.collides(64, 3, 0, 1));
+		assertFalse(map.collides(0, 0, 0, 1));
+		assertFalse(map.collides(0, 0, 1, 0));
+		assertFalse(map.collides(0, 0, 0, 10));
+		assertFalse(map.collides(64, 0, -1, 5));
+		assertTrue(map.collides(64, 3, 1, 1));
+		assertTrue(map.collides(0, 0, 1, 1));
+	}
+
 	/**
 	 * Tests for collidesEntity.
 	 */
@@ -0,0 +1,135 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.config.zone;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import games.stendhal.common.tiled.LayerDefinition;
+import games.stendhal.common.tiled.StendhalMapStructure;
+import games.stendhal.server.core.engine.StendhalRPWorld;
+
+/**
+ * Tests for ZoneMapLoader.
+ */
+public class ZoneMapLoaderTest {
+	private static final String MAP = StendhalRPWorld.MAPS_FOLDER + "Level 0/semos/city.tmx";
+	private static final String OTHER_MAP = StendhalRPWorld.MAPS_FOLDER + "interiors/semos/townhall.tmx";
+
+	private File cacheDirectory;
+
+	@Before
+	public void setUp() throws Exception {
+		cacheDirectory = File.createTempFile("zonecache", "");
+		cacheDirectory.delete();
+		cacheDirectory.mkdirs();
+	}
+
+	@After
+	public void tearDown() {
+		final File[] files = cacheDirectory.listFiles();
+		if (files != null) {
+			for (final File file : files) {
+				file.delete();
+			}
+		}
+		cacheDirectory.delete();
+	}
+
+	/**
+	 * Tests that maps are returned in the order they were added.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testOrder() throws Exception {
+		final ZoneMapLoader loader = new ZoneMapLoader(2, null);
+		try {
+			loader.add(MAP);
+			loader.add(OTHER_MAP);
+			loader.add(MAP);
+			assertSameMap(TMXLoader.load(MAP), loader.take());
+			assertSameMap(TMXLoader.load(OTHER_MAP), loader.take());
+			assertSameMap(TMXLoader.load(MAP), loader.take());
+			assertEquals(0, loader.getCacheHits());
+		} finally {
+			loader.shutdown();
+		}
+	}
+
+	/**
+	 * Tests that cached maps are the same as parsed ones.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testCache() throws Exception {
+		final StendhalMapStructure expected = TMXLoader.load(MAP);
+
+		ZoneMapLoader loader = new ZoneMapLoader(1, cacheDirectory);
+		assertSameMap(expected, loader.load(MAP));
+		assertEquals(0, loader.getCacheHits());
+		assertEquals(1, cacheDirectory.listFiles().length);
+		loader.shutdown();
+
+		loader = new ZoneMapLoader(1, cacheDirectory);
+		assertSameMap(expected, loader.load(MAP));
+		assertEquals(1, loader.getCacheHits());
+		loader.shutdown();
+	}
+
+	/**
+	 * Tests that unusable cache files are ignored.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testInvalidCache() throws Exception {
+		ZoneMapLoader loader = new ZoneMapLoader(1, cacheDirectory);
+		loader.load(MAP);
+		loader.shutdown();
+
+		final File file = cacheDirectory.listFiles()[0];
+		final FileOutputStream out = new FileOutputStream(file);
+		out.write(new byte[] { 1, 2, 3 });
+		out.close();
+
+		loader = new ZoneMapLoader(1, cacheDirectory);
+		assertSameMap(TMXLoader.load(MAP), loader.load(MAP));
+		assertEquals(0, loader.getCacheHits());
+		loader.shutdown();
+	}
+
+	private void assertSameMap(final StendhalMapStructure expected, final StendhalMapStructure map) throws Exception {
+		assertEquals(expected.getWidth(), map.getWidth());
+		assertEquals(expected.getHeight(), map.getHeight());
+		assertEquals(expected.getTilesets(), map.getTilesets());
+
+		final List<LayerDefinition> layers = map.getLayers();
+		assertEquals(expected.getLayers().size(), layers.size());
+		for (int i = 0; i < layers.size(); i++) {
+			final LayerDefinition expectedLayer = expected.getLayers().get(i);
+			final LayerDefinition layer = layers.get(i);
+			assertEquals(expectedLayer.getName(), layer.getName());
+			assertArrayEquals(expectedLayer.encode(), layer.encode());
+			assertArrayEquals(expectedLayer.exposeRaw(), layer.exposeRaw());
+		}
+	}
+}
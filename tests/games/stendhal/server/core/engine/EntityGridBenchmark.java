@@ -0,0 +1,136 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.game.RPObject;
+
+/**
+ * Compares the grid backed entity lookups of StendhalRPZone against the
+ * linear scans over all zone objects that were used before.
+ */
+public class EntityGridBenchmark {
+	private static final int ZONE_SIZE = 256;
+	private static final int QUERIES = 20000;
+
+	public static void main(final String[] args) {
+		MockStendlRPWorld.get();
+		System.out.println("entities\tquery\tscan ms\tgrid ms\tspeed-up");
+		for (final int count : new int[] { 100, 1000, 10000 }) {
+			run(count);
+		}
+	}
+
+	private static void run(final int count) {
+		final Random random = new Random(count);
+		final StendhalRPZone zone = new StendhalRPZone("benchmark_" + count, ZONE_SIZE, ZONE_SIZE);
+		for (int i = 0; i < count; i++) {
+			final Entity entity = new Entity() {};
+			entity.setPosition(random.nextInt(ZONE_SIZE), random.nextInt(ZONE_SIZE));
+			zone.add(entity);
+		}
+		final Entity walker = new Entity() {};
+		walker.setResistance(100);
+
+		final int[] xs = new int[QUERIES];
+		final int[] ys = new int[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			xs[i] = random.nextInt(ZONE_SIZE);
+			ys[i] = random.nextInt(ZONE_SIZE);
+		}
+
+		// warm up, and check that both answer the same
+		for (int i = 0; i < QUERIES; i++) {
+			final boolean scan = scanEntityAt(zone, xs[i], ys[i]) != null;
+			final boolean grid = zone.getEntityAt(xs[i], ys[i]) != null;
+			final Rectangle2D area = walker.getArea(xs[i], ys[i]);
+			if ((scan != grid) || (scanCollides(zone, walker, area) != zone.collidesObjects(walker, area))) {
+				throw new IllegalStateException("Results differ at " + xs[i] + "," + ys[i]);
+			}
+		}
+
+		long start = System.nanoTime();
+		int hits = 0;
+		for (int i = 0; i < QUERIES; i++) {
+			if (scanEntityAt(zone, xs[i], ys[i]) != null) {
+				hits++;
+			}
+		}
+		final long scanAt = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < QUERIES; i++) {
+			if (zone.getEntityAt(xs[i], ys[i]) != null) {
+				hits--;
+			}
+		}
+		final long gridAt = System.nanoTime() - start;
+		print(count, "getEntityAt", scanAt, gridAt);
+
+		start = System.nanoTime();
+		for (int i = 0; i < QUERIES; i++) {
+			if (scanCollides(zone, walker, walker.getArea(xs[i], ys[i]))) {
+				hits++;
+			}
+		}
+		final long scanCollides = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < QUERIES; i++) {
+			if (zone.collidesObjects(walker, walker.getArea(xs[i], ys[i]))) {
+				hits--;
+			}
+		}
+		final long gridCollides = System.nanoTime() - start;
+		print(count, "collidesObjects", scanCollides, gridCollides);
+
+		if (hits != 0) {
+			throw new IllegalStateException("Results differ");
+		}
+	}
+
+	private static void print(final int count, final String query, final long scan, final long grid) {
+		System.out.printf("%d\t%s\t%.2f\t%.2f\t%.1fx%n", count, query, scan / 1e6, grid / 1e6,
+				(double) scan / Math.max(1, grid));
+	}
+
+	/**
+	 * The previous implementation of StendhalRPZone.getEntityAt().
+	 */
+	private static Entity scanEntityAt(final StendhalRPZone zone, final double x, final double y) {
+		for (final RPObject other : zone) {
+			final Entity otherEntity = (Entity) other;
+			if (otherEntity.getArea().contains(x, y)) {
+				return otherEntity;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * The previous implementation of StendhalRPZone.collidesObjects().
+	 */
+	private static boolean scanCollides(final StendhalRPZone zone, final Entity entity, final Rectangle2D area) {
+		for (final RPObject other : zone) {
+			if (entity != other) {
+				final Entity otherEntity = (Entity) other;
+				if (area.intersects(otherEntity.getX(), otherEntity.getY(), otherEntity.getWidth(), otherEntity.getHeight())
+						&& otherEntity.isObstacle(entity)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
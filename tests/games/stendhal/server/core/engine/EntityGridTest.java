@@ -0,0 +1,136 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.maps.MockStendlRPWorld;
+
+/**
+ * Tests for EntityGrid.
+ */
+public class EntityGridTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		MockStendlRPWorld.get();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() {
+		MockStendlRPWorld.reset();
+	}
+
+	/**
+	 * Tests for point queries.
+	 */
+	@Test
+	public void testGetEntityAt() {
+		final EntityGrid grid = new EntityGrid();
+		grid.resize(64, 64);
+		final Entity entity = new Entity() {};
+		entity.setPosition(10, 20);
+		entity.setSize(2, 2);
+		grid.add(entity);
+
+		assertSame(entity, grid.getEntityAt(10, 20));
+		assertSame(entity, grid.getEntityAt(11, 21));
+		assertNull(grid.getEntityAt(12, 20));
+		assertNull(grid.getEntityAt(9, 20));
+
+		grid.remove(entity);
+		assertNull(grid.getEntityAt(10, 20));
+		assertEquals(0, grid.size());
+	}
+
+	/**
+	 * Tests that entities moved over cell borders are found at the new
+	 * location.
+	 */
+	@Test
+	public void testUpdate() {
+		final EntityGrid grid = new EntityGrid();
+		grid.resize(64, 64);
+		final Entity entity = new Entity() {};
+		grid.add(entity);
+
+		entity.setPosition(40, 50);
+		grid.update(entity);
+		assertNull(grid.getEntityAt(0, 0));
+		assertSame(entity, grid.getEntityAt(40, 50));
+
+		// outside the zone bounds
+		entity.setPosition(-5, 100);
+		grid.update(entity);
+		assertNull(grid.getEntityAt(40, 50));
+		assertSame(entity, grid.getEntityAt(-5, 100));
+	}
+
+	/**
+	 * Tests that entities spanning several cells are reported only once.
+	 */
+	@Test
+	public void testGetEntitiesIn() {
+		final EntityGrid grid = new EntityGrid();
+		grid.resize(64, 64);
+		final Entity big = new Entity() {};
+		big.setPosition(4, 4);
+		big.setSize(20, 20);
+		grid.add(big);
+		final Entity small = new Entity() {};
+		small.setPosition(30, 30);
+		grid.add(small);
+
+		List<Entity> found = grid.getEntitiesIn(new Rectangle2D.Double(0, 0, 64, 64), Entity.class);
+		assertEquals(2, found.size());
+		assertTrue(found.contains(big));
+		assertTrue(found.contains(small));
+
+		found = grid.getEntitiesIn(new Rectangle2D.Double(20, 20, 5, 5), Entity.class);
+		assertEquals(1, found.size());
+		assertSame(big, found.get(0));
+	}
+
+	/**
+	 * Tests finding obstacles.
+	 */
+	@Test
+	public void testGetObstacle() {
+		final EntityGrid grid = new EntityGrid();
+		grid.resize(64, 64);
+		final Entity blocker = new Entity() {};
+		blocker.setPosition(8, 8);
+		grid.add(blocker);
+		final Entity ghost = new Entity() {};
+		ghost.setPosition(16, 16);
+		ghost.setResistance(0);
+		grid.add(ghost);
+		final Entity walker = new Entity() {};
+		grid.add(walker);
+
+		assertSame(blocker, grid.getObstacle(walker, walker.getArea(7.5, 7.5)));
+		assertNull(grid.getObstacle(walker, walker.getArea(16, 16)));
+		assertNull(grid.getObstacle(walker, walker.getArea(0, 0)));
+		assertNull(grid.getObstacle(blocker, blocker.getArea()));
+	}
+}
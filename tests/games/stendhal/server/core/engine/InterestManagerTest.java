@@ -0,0 +1,187 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.entity.item.Item;
+import games.stendhal.server.entity.mapstuff.portal.Portal;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.game.Perception;
+import marauroa.common.game.RPObject;
+import utilities.PlayerTestHelper;
+import utilities.RPClass.ItemTestHelper;
+
+/**
+ * Tests for InterestManager.
+ */
+public class InterestManagerTest {
+	private StendhalRPZone zone;
+	private InterestManager manager;
+	private Player player;
+	private Item near;
+	private Item far;
+	private Portal portal;
+
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		MockStendlRPWorld.get();
+	}
+
+	@Before
+	public void setUp() {
+		zone = new StendhalRPZone("interest_test", 200, 200);
+		manager = new InterestManager(zone, 10, 3);
+		player = PlayerTestHelper.createPlayer("bob");
+		player.setPosition(50, 50);
+		zone.add(player);
+		near = ItemTestHelper.createItem("cheese");
+		near.setPosition(55, 45);
+		zone.add(near);
+		far = ItemTestHelper.createItem("cheese");
+		far.setPosition(150, 150);
+		zone.add(far);
+		portal = new Portal();
+		portal.setPosition(190, 190);
+		zone.add(portal);
+	}
+
+	private Perception sync() {
+		final Perception perception = new Perception(Perception.SYNC, zone.getID());
+		perception.addedList.addAll(Arrays.<RPObject>asList(player, near, far, portal));
+		return manager.filter(player, perception);
+	}
+
+	private Perception delta() {
+		return manager.filter(player, new Perception(Perception.DELTA, zone.getID()));
+	}
+
+	private static RPObject changes(final RPObject object) {
+		final RPObject changes = new RPObject();
+		changes.setID(object.getID());
+		return changes;
+	}
+
+	/**
+	 * Tests for sync perceptions.
+	 */
+	@Test
+	public void testSync() {
+		final Perception perception = sync();
+		assertEquals(Perception.SYNC, perception.type);
+		assertEquals(Arrays.asList(player, near, portal), perception.addedList);
+		// Each filtered perception has its own zone ID with the zone name
+		assertEquals(zone.getName(), perception.zoneid.getID());
+		assertFalse(perception.zoneid.equals(zone.getID()));
+		assertFalse(perception.zoneid.equals(sync().zoneid));
+	}
+
+	/**
+	 * Tests for entities entering and leaving the area of interest.
+	 */
+	@Test
+	public void testEnterAndLeave() {
+		sync();
+		assertEquals(0, delta().size());
+
+		// Within the hysteresis: still kept
+		near.setPosition(62, 50);
+		assertEquals(0, delta().size());
+		// Out of range
+		near.setPosition(64, 50);
+		Perception perception = delta();
+		assertEquals(Arrays.asList(near), perception.deletedList);
+		assertEquals(0, perception.addedList.size());
+
+		// Within the hysteresis, but not known: not added
+		far.setPosition(62, 50);
+		assertEquals(0, delta().size());
+		far.setPosition(60, 50);
+		perception = delta();
+		assertEquals(Arrays.asList(far), perception.addedList);
+		assertEquals(0, perception.deletedList.size());
+
+		// The player moves
+		player.setPosition(150, 150);
+		perception = delta();
+		assertEquals(Arrays.asList(far), perception.deletedList);
+		assertEquals(0, perception.addedList.size());
+	}
+
+	/**
+	 * Tests for changes of zone objects.
+	 */
+	@Test
+	public void testChanges() {
+		sync();
+		final Perception zonePerception = new Perception(Perception.DELTA, zone.getID());
+		final List<RPObject> changes = Arrays.asList(changes(player), changes(near), changes(far), changes(portal));
+		zonePerception.modifiedAddedList.addAll(changes);
+		zonePerception.modifiedDeletedList.addAll(changes);
+		Perception perception = manager.filter(player, zonePerception);
+		final List<RPObject> expected = Arrays.asList(changes.get(0), changes.get(1), changes.get(3));
+		assertEquals(expected, perception.modifiedAddedList);
+		assertEquals(expected, perception.modifiedDeletedList);
+
+		// An entity coming into range is sent whole, without the changes
+		far.setPosition(51, 51);
+		perception = manager.filter(player, zonePerception);
+		assertEquals(Arrays.asList(far), perception.addedList);
+		assertEquals(expected, perception.modifiedAddedList);
+
+		// Removed objects
+		zone.remove(near);
+		zone.remove(portal);
+		final Item other = ItemTestHelper.createItem("cheese");
+		other.setPosition(150, 150);
+		zone.add(other);
+		zone.remove(other);
+		final Perception removals = new Perception(Perception.DELTA, zone.getID());
+		removals.deletedList.addAll(Arrays.<RPObject>asList(near, portal, other));
+		perception = manager.filter(player, removals);
+		assertEquals(Arrays.asList(near, portal), perception.deletedList);
+	}
+
+	/**
+	 * Tests for new objects in the zone.
+	 */
+	@Test
+	public void testAdded() {
+		sync();
+		final Item added = ItemTestHelper.createItem("cheese");
+		added.setPosition(48, 48);
+		zone.add(added);
+		final Item addedFar = ItemTestHelper.createItem("cheese");
+		addedFar.setPosition(100, 100);
+		zone.add(addedFar);
+		final Portal addedPortal = new Portal();
+		addedPortal.setPosition(100, 101);
+		zone.add(addedPortal);
+
+		final Perception zonePerception = new Perception(Perception.DELTA, zone.getID());
+		zonePerception.addedList.addAll(Arrays.<RPObject>asList(added, addedFar, addedPortal));
+		final Perception perception = manager.filter(player, zonePerception);
+		assertEquals(2, perception.addedList.size());
+		assertTrue(perception.addedList.contains(added));
+		assertTrue(perception.addedList.contains(addedPortal));
+	}
+}
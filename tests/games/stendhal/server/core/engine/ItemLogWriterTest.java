@@ -0,0 +1,150 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.dbcommand.AbstractLogItemEventCommand;
+import games.stendhal.server.core.engine.dbcommand.LogItemEventBatchCommand;
+import games.stendhal.server.core.engine.dbcommand.LogSimpleItemEventCommand;
+import marauroa.common.game.RPObject;
+
+/**
+ * Tests for ItemLogWriter.
+ */
+public class ItemLogWriterTest {
+	private List<LogItemEventBatchCommand> batches;
+	private ItemLogWriter writer;
+
+	@Before
+	public void setUp() {
+		batches = new ArrayList<LogItemEventBatchCommand>();
+		writer = new ItemLogWriter(8, 3, 60000) {
+			@Override
+			void enqueue(final LogItemEventBatchCommand command) {
+				batches.add(command);
+			}
+		};
+	}
+
+	private LogSimpleItemEventCommand createEvent() {
+		return new LogSimpleItemEventCommand(new RPObject(), null, "create", "dagger", "1", "test", "");
+	}
+
+	/**
+	 * Tests for flushing after a batch has been collected.
+	 */
+	@Test
+	public void testBatchSize() {
+		final LogSimpleItemEventCommand event = createEvent();
+		writer.add(event);
+		writer.add(createEvent());
+		assertNotNull(event.getEnqueueTime());
+		assertEquals(0, batches.size());
+		assertEquals(2, writer.getBuffered());
+
+		writer.add(createEvent());
+		assertEquals(1, batches.size());
+		assertEquals(0, writer.getBuffered());
+		assertEquals(1, writer.getPendingBatches());
+
+		writer.onBatchWritten(3, 1000);
+		assertEquals(0, writer.getPendingBatches());
+		assertEquals(1, writer.getWrittenBatches());
+		assertEquals(3, writer.getEvents());
+	}
+
+	/**
+	 * Tests for coalescing events while the database is busy.
+	 */
+	@Test
+	public void testBackpressure() {
+		for (int i = 0; i < 3; i++) {
+			writer.add(createEvent());
+		}
+		assertEquals(1, batches.size());
+
+		// the first batch has not been written, so the events are kept
+		for (int i = 0; i < 8; i++) {
+			writer.add(createEvent());
+		}
+		assertEquals(1, batches.size());
+		assertEquals(8, writer.getBuffered());
+		assertEquals(0, writer.getOverflows());
+
+		// full ring, the events are handed over anyway
+		writer.add(createEvent());
+		assertEquals(2, batches.size());
+		assertEquals(1, writer.getOverflows());
+		assertEquals(1, writer.getBuffered());
+		assertEquals(8, writer.getMaxBuffered());
+		assertEquals(2, writer.getPendingBatches());
+
+		writer.onBatchWritten(3, 1000);
+		writer.onBatchWritten(8, 1000);
+		writer.flushIfDue();
+		assertEquals(2, batches.size());
+		writer.flush();
+		assertEquals(3, batches.size());
+		assertEquals(12, writer.getEvents());
+	}
+
+	/**
+	 * Tests for retrying the events of a failed batch one by one.
+	 */
+	@Test
+	public void testRetry() {
+		for (int i = 0; i < 3; i++) {
+			writer.add(createEvent());
+		}
+		assertEquals(1, batches.size());
+
+		final List<AbstractLogItemEventCommand> events = new ArrayList<AbstractLogItemEventCommand>();
+		for (int i = 0; i < 3; i++) {
+			events.add(createEvent());
+		}
+		writer.retry(events);
+		writer.onBatchWritten(3, 1000);
+		assertEquals(4, batches.size());
+		assertEquals(1, writer.getFailedBatches());
+		assertEquals(0, writer.getPendingBatches());
+		for (int i = 1; i < 4; i++) {
+			assertEquals("LogItemEventBatchCommand [events=1]", batches.get(i).toString());
+		}
+	}
+
+	/**
+	 * Tests for flushing after the flush interval.
+	 */
+	@Test
+	public void testFlushInterval() {
+		writer = new ItemLogWriter(8, 3, 0) {
+			@Override
+			void enqueue(final LogItemEventBatchCommand command) {
+				batches.add(command);
+			}
+		};
+		writer.flushIfDue();
+		assertEquals(0, batches.size());
+		writer.add(createEvent());
+		writer.flushIfDue();
+		assertEquals(1, batches.size());
+		assertEquals(0, writer.getBuffered());
+	}
+}
@@ -0,0 +1,143 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.db.StendhalKillLogDAO;
+import games.stendhal.server.core.engine.db.StendhalKillLogDAO.KillKey;
+import games.stendhal.server.core.engine.dbcommand.LogKillBatchCommand;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.game.db.DAORegister;
+
+/**
+ * Tests for KillLogWriter.
+ */
+public class KillLogWriterTest {
+	private List<LogKillBatchCommand> batches;
+	private KillLogWriter writer;
+
+	@Before
+	public void setUp() {
+		batches = new ArrayList<LogKillBatchCommand>();
+		writer = new KillLogWriter(60000) {
+			@Override
+			void enqueue(final LogKillBatchCommand command) {
+				batches.add(command);
+			}
+		};
+	}
+
+	/**
+	 * Tests for counting kills.
+	 */
+	@Test
+	public void testPendingKills() {
+		writer.add(new KillKey("rat", "C", "bob", "P", "2024-01-01"));
+		writer.add(new KillKey("rat", "C", "bob", "P", "2024-01-01"));
+		writer.add(new KillKey("rat", "C", "bob", "P", "2024-01-02"));
+		assertEquals(3, writer.getBufferedKills());
+		assertEquals(3, writer.getPendingKills());
+
+		// not due yet
+		writer.flushIfDue();
+		assertEquals(0, batches.size());
+
+		writer.flush();
+		assertEquals(1, batches.size());
+		assertEquals("LogKillBatchCommand [combinations=2, kills=3]", batches.get(0).toString());
+		assertEquals(0, writer.getBufferedKills());
+		assertEquals(3, writer.getPendingKills());
+
+		writer.add(new KillKey("bob", "P", "rat", "C", "2024-01-02"));
+		assertEquals(4, writer.getPendingKills());
+		writer.onBatchWritten(3);
+		assertEquals(1, writer.getPendingKills());
+
+		// nothing left to flush twice
+		writer.flush();
+		writer.flush();
+		assertEquals(2, batches.size());
+	}
+
+	/**
+	 * Tests that a failed batch is retried once, and the pending kills are
+	 * counted down only once per batch.
+	 */
+	@Test
+	public void testFailedBatch() {
+		DAORegister.get().register(StendhalKillLogDAO.class, new StendhalKillLogDAO());
+		writer.add(new KillKey("rat", "C", "bob", "P", "2024-01-01"));
+		writer.add(new KillKey("rat", "C", "bob", "P", "2024-01-02"));
+		writer.flush();
+		assertEquals(2, writer.getPendingKills());
+
+		// the database queue may execute a failed command again
+		final DBTransaction transaction = new FailingTransaction();
+		for (int i = 0; i < 2; i++) {
+			try {
+				batches.get(0).execute(transaction);
+				fail("SQLException expected");
+			} catch (final SQLException e) {
+				assertEquals("test", e.getMessage());
+			}
+		}
+		assertEquals(2, batches.size());
+		assertEquals("LogKillBatchCommand [combinations=2, kills=2]", batches.get(1).toString());
+		assertEquals(2, writer.getPendingKills());
+
+		// the retry is not retried again
+		try {
+			batches.get(1).execute(transaction);
+			fail("SQLException expected");
+		} catch (final SQLException e) {
+			assertEquals("test", e.getMessage());
+		}
+		assertEquals(2, batches.size());
+		assertEquals(0, writer.getPendingKills());
+	}
+
+	/**
+	 * A transaction that fails all statements.
+	 */
+	private static class FailingTransaction extends DBTransaction {
+		FailingTransaction() {
+			super(null);
+		}
+
+		@Override
+		public PreparedStatement prepareStatement(final String query, final Map<String, Object> params)
+				throws SQLException {
+			throw new SQLException("test");
+		}
+
+		@Override
+		public boolean isDeadlockError(final SQLException e) {
+			return false;
+		}
+
+		@Override
+		public boolean isConnectionError(final Exception e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import games.stendhal.server.entity.creature.Creature;
+import games.stendhal.server.entity.item.Item;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.game.DetailLevel;
+import marauroa.common.game.Perception;
+import marauroa.common.game.RPObject;
+import marauroa.common.net.OutputSerializer;
+import utilities.PlayerTestHelper;
+import utilities.RPClass.ItemTestHelper;
+
+/**
+ * Replays a busy exterior zone, and compares the size of the perceptions
+ * sent to the players with and without area of interest filtering.
+ */
+public class PerceptionBandwidthBenchmark {
+	private static final int ZONE_SIZE = 256;
+	private static final int CREATURES = 600;
+	private static final int ITEMS = 300;
+	private static final int PLAYERS = 40;
+	private static final int TURNS = 200;
+
+	public static void main(final String[] args) throws IOException {
+		MockStendlRPWorld.get();
+		System.out.println("radius\tfull bytes/turn\tfiltered bytes/turn\tratio");
+		for (final int radius : new int[] { 15, 20, 30 }) {
+			run(radius);
+		}
+	}
+
+	private static void run(final int radius) throws IOException {
+		final Random random = new Random(radius);
+		final StendhalRPZone zone = new StendhalRPZone("benchmark_" + radius, ZONE_SIZE, ZONE_SIZE);
+		final InterestManager manager = new InterestManager(zone, radius, 5);
+
+		final List<Creature> creatures = new ArrayList<Creature>();
+		for (int i = 0; i < CREATURES; i++) {
+			final Creature creature = new Creature();
+			creature.setPosition(random.nextInt(ZONE_SIZE), random.nextInt(ZONE_SIZE));
+			zone.add(creature);
+			creatures.add(creature);
+		}
+		for (int i = 0; i < ITEMS; i++) {
+			final Item item = ItemTestHelper.createItem("cheese");
+			item.setPosition(random.nextInt(ZONE_SIZE), random.nextInt(ZONE_SIZE));
+			zone.add(item);
+		}
+		final List<Player> players = new ArrayList<Player>();
+		for (int i = 0; i < PLAYERS; i++) {
+			final Player player = PlayerTestHelper.createPlayer("player" + i);
+			player.setPosition(random.nextInt(ZONE_SIZE), random.nextInt(ZONE_SIZE));
+			zone.add(player);
+			players.add(player);
+		}
+
+		long full = 0;
+		long filtered = 0;
+		final Perception sync = zone.getPerception(players.get(0), Perception.SYNC);
+		for (final Player player : players) {
+			full += size(sync);
+			filtered += size(manager.filter(player, sync));
+		}
+		zone.nextTurn();
+
+		for (int turn = 0; turn < TURNS; turn++) {
+			for (final Creature creature : creatures) {
+				if (random.nextInt(4) == 0) {
+					final int x = Math.max(0, Math.min(ZONE_SIZE - 1, creature.getX() + random.nextInt(3) - 1));
+					final int y = Math.max(0, Math.min(ZONE_SIZE - 1, creature.getY() + random.nextInt(3) - 1));
+					creature.setPosition(x, y);
+					creature.notifyWorldAboutChanges();
+				}
+			}
+			for (final Player player : players) {
+				final int x = Math.max(0, Math.min(ZONE_SIZE - 1, player.getX() + random.nextInt(3) - 1));
+				final int y = Math.max(0, Math.min(ZONE_SIZE - 1, player.getY() + random.nextInt(3) - 1));
+				player.setPosition(x, y);
+				player.notifyWorldAboutChanges();
+			}
+
+			final Perception delta = zone.getPerception(players.get(0), Perception.DELTA);
+			for (final Player player : players) {
+				full += size(delta);
+				filtered += size(manager.filter(player, delta));
+			}
+			zone.nextTurn();
+		}
+
+		System.out.println(radius + "\t" + full / (TURNS + 1) + "\t" + filtered / (TURNS + 1)
+				+ "\t" + String.format("%.2f", (double) filtered / full));
+	}
+
+	/**
+	 * Get the serialized size of a perception.
+	 *
+	 * @param perception perception
+	 * @return size in bytes
+	 */
+	private static long size(final Perception perception) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final OutputSerializer out = new OutputSerializer(bytes);
+		write(out, perception.addedList);
+		write(out, perception.modifiedAddedList);
+		write(out, perception.modifiedDeletedList);
+		write(out, perception.deletedList);
+		return bytes.size();
+	}
+
+	private static void write(final OutputSerializer out, final List<RPObject> objects) throws IOException {
+		for (final RPObject object : objects) {
+			object.writeObject(out, DetailLevel.NORMAL);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for TickProfiler and TimingHistogram.
+ */
+public class TickProfilerTest {
+	/**
+	 * Tests for the bucket boundaries of the histogram.
+	 */
+	@Test
+	public void testBuckets() {
+		for (long value = 0; value < 100000; value++) {
+			final int index = TimingHistogram.bucketIndex(value);
+			assertTrue(TimingHistogram.bucketStart(index) <= value);
+			assertTrue(TimingHistogram.bucketStart(index + 1) > value);
+		}
+		assertEquals(8, TimingHistogram.bucketIndex(8));
+		assertEquals(16, TimingHistogram.bucketIndex(16));
+		assertEquals(16, TimingHistogram.bucketIndex(17));
+	}
+
+	/**
+	 * Tests for the statistics of the histogram.
+	 */
+	@Test
+	public void testHistogram() {
+		final TimingHistogram histogram = new TimingHistogram();
+		assertEquals(0, histogram.getPercentile(99));
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i * 1000000L);
+		}
+		assertEquals(100, histogram.getCount());
+		assertEquals(5050000000L, histogram.getTotal());
+		assertEquals(50500000L, histogram.getMean());
+		assertEquals(100000000L, histogram.getMax());
+		// within the bucket precision
+		final long p50 = histogram.getPercentile(50);
+		assertTrue(p50 >= 50000000L);
+		assertTrue(p50 < 50000000L * 9 / 8);
+		assertEquals(100000000L, histogram.getPercentile(100));
+	}
+
+	/**
+	 * Tests for the summaries.
+	 */
+	@Test
+	public void testSummary() throws IOException {
+		final File csv = File.createTempFile("tickprofile", ".csv");
+		csv.delete();
+		try {
+			final TickProfiler profiler = new TickProfiler(0, csv);
+			profiler.beginTurn();
+			long start = System.nanoTime();
+			start = profiler.phase("player logic", start);
+			profiler.zone("int_semos_townhall", 5000000L);
+			profiler.zone("0_semos_city", 2000000L);
+			profiler.listener(String.class, start);
+			profiler.endTurn(1);
+
+			final String summary = profiler.getSummary(null, 1);
+			assertThat(summary, containsString("1 turns, 0 over budget"));
+			assertThat(summary, containsString("player logic"));
+			assertThat(summary, containsString("int_semos_townhall: count 1, total 5.000 ms"));
+			assertThat(summary, not(containsString("0_semos_city")));
+			assertThat(summary, containsString("java.lang.String"));
+			assertThat(profiler.getSummary(TickProfiler.ZONES, 5), not(containsString("player logic")));
+
+			profiler.dump();
+			final List<String> lines = Files.readAllLines(csv.toPath());
+			assertEquals("time,category,name,count,total_ms,mean_ms,p50_ms,p99_ms,max_ms", lines.get(0));
+			// header, turn total, phase, two zones and the listener
+			assertEquals(6, lines.size());
+			assertThat(profiler.getSummary(null, 5), containsString("0 turns"));
+		} finally {
+			csv.delete();
+		}
+	}
+
+	/**
+	 * Tests that the number of tracked zones is bounded, when the summaries
+	 * are disabled.
+	 */
+	@Test
+	public void testBoundedNames() {
+		final TickProfiler profiler = new TickProfiler(0, null);
+		for (int i = 0; i < TickProfiler.MAX_NAMES + 50; i++) {
+			profiler.zone("maze" + i, 1000000L);
+		}
+		final String summary = profiler.getSummary(TickProfiler.ZONES, 1);
+		assertThat(summary, containsString(TickProfiler.OTHER + ": count 50, total 50.000 ms"));
+	}
+}
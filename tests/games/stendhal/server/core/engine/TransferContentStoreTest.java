@@ -0,0 +1,102 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import games.stendhal.common.CRC;
+import games.stendhal.common.tiled.TileSetDefinition;
+import marauroa.common.net.message.TransferContent;
+
+/**
+ * Tests for TransferContentStore.
+ */
+public class TransferContentStoreTest {
+	/**
+	 * Tests for sharing identical data.
+	 */
+	@Test
+	public void testCreate() {
+		final TransferContentStore store = TransferContentStore.get();
+		final int hits = store.getHits();
+		final int misses = store.getMisses();
+
+		final byte[] data = new byte[] { 17, 42, 3, 1, 4, 1, 5, 9 };
+		final TransferContent first = store.create("zone1.0_floor", data, true);
+		final TransferContent second = store.create("zone2.0_floor", data.clone(), false);
+
+		assertEquals(misses + 1, store.getMisses());
+		assertEquals(hits + 1, store.getHits());
+		assertNotSame(first, second);
+		assertSame(first.data, second.data);
+		assertEquals("zone1.0_floor", first.name);
+		assertEquals("zone2.0_floor", second.name);
+		assertTrue(first.cacheable);
+		assertFalse(second.cacheable);
+		assertEquals(CRC.cmpCRC(data), first.timestamp);
+		assertEquals(first.timestamp, second.timestamp);
+
+		final TransferContent other = store.create("zone3.0_floor", new byte[] { 17, 42, 3, 1, 4, 1, 5, 8 }, true);
+		assertEquals(misses + 2, store.getMisses());
+		assertNotSame(first.data, other.data);
+	}
+
+	/**
+	 * Tests for encoding tileset lists.
+	 */
+	@Test
+	public void testEncodeTilesets() throws IOException {
+		final TransferContentStore store = TransferContentStore.get();
+		final List<TileSetDefinition> sets = Arrays.asList(
+				new TileSetDefinition("ground", "../../tileset/ground/ground.png", 1),
+				new TileSetDefinition("collision", "../../tileset/logic/collision.png", 100));
+		final List<TileSetDefinition> copy = Arrays.asList(
+				new TileSetDefinition("ground", "../../tileset/ground/ground.png", 1),
+				new TileSetDefinition("collision", "../../tileset/logic/collision.png", 100));
+		final List<TileSetDefinition> visible = Arrays.asList(
+				new TileSetDefinition("ground", "../../tileset/ground/ground.png", 1));
+
+		final byte[] encoded = store.encodeTilesets(sets);
+		assertSame(encoded, store.encodeTilesets(copy));
+		// logic tilesets are not sent
+		assertArrayEquals(encoded, store.encodeTilesets(visible));
+	}
+
+	/**
+	 * Tests that data no longer used by any content is forgotten.
+	 */
+	@Test
+	public void testRelease() {
+		// a store of its own, so that data of other tests is not collected
+		// at the same time
+		final TransferContentStore store = new TransferContentStore();
+		TransferContent content = store.create("maze.0_floor", new byte[] { 99, 98, 97, 96, 95 }, true);
+		assertEquals(1, store.getSize());
+
+		content = null;
+		for (int i = 0; (i < 50) && (store.getSize() > 0); i++) {
+			System.gc();
+		}
+		assertEquals(0, store.getSize());
+	}
+}
@@ -0,0 +1,171 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.Log4J;
+import marauroa.common.game.IRPZone;
+
+/**
+ * Tests for ZoneIndex, and the zone lookups of StendhalRPWorld using it.
+ */
+public class ZoneIndexTest {
+	private StendhalRPWorld world;
+	private Entity entity;
+
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		Log4J.init();
+	}
+
+	@Before
+	public void setUp() {
+		MockStendlRPWorld.reset();
+		world = MockStendlRPWorld.get();
+		entity = new Entity() {};
+	}
+
+	@After
+	public void tearDown() {
+		MockStendlRPWorld.reset();
+	}
+
+	private StendhalRPZone addZone(final String name, final int level, final int x, final int y) {
+		final StendhalRPZone zone = new StendhalRPZone(name, 100, 100);
+		zone.setPosition(level, x, y);
+		world.addRPZone("test", zone);
+		return zone;
+	}
+
+	/**
+	 * Tests for getZoneAt.
+	 */
+	@Test
+	public void testGetZoneAt() {
+		final StendhalRPZone zone = addZone("0_test", 0, 0, 0);
+		final StendhalRPZone east = addZone("0_test_e", 0, 100, 0);
+		final StendhalRPZone below = addZone("-1_test", -1, 0, 0);
+		final StendhalRPZone interior = new StendhalRPZone("int_test", 100, 100);
+		interior.setPosition();
+		world.addRPZone("test", interior);
+
+		assertSame(zone, world.getZoneAt(0, 50, 50, entity));
+		assertSame(zone, world.getZoneAt(0, 99, 99, entity));
+		assertSame(east, world.getZoneAt(0, 100, 0, entity));
+		assertSame(east, world.getZoneAt(0, 150, 50, entity));
+		assertSame(below, world.getZoneAt(-1, 50, 50, entity));
+		assertNull(world.getZoneAt(0, 200, 50, entity));
+		assertNull(world.getZoneAt(0, -1, 50, entity));
+		assertNull(world.getZoneAt(1, 50, 50, entity));
+	}
+
+	/**
+	 * Tests for updating the index when zones are added, moved or removed.
+	 */
+	@Test
+	public void testChangeZones() {
+		final StendhalRPZone zone = addZone("0_test", 0, 0, 0);
+		assertNull(world.getZoneAt(0, 150, 50, entity));
+
+		final StendhalRPZone east = addZone("0_test_e", 0, 100, 0);
+		assertSame(east, world.getZoneAt(0, 150, 50, entity));
+
+		east.setPosition(0, 300, 0);
+		assertNull(world.getZoneAt(0, 150, 50, entity));
+		assertSame(east, world.getZoneAt(0, 350, 50, entity));
+
+		world.removeZone(zone);
+		assertNull(world.getZoneAt(0, 50, 50, entity));
+		assertEquals(1, world.getAllZonesFromRegion("test", null, null, null).size());
+
+		east.setPosition();
+		assertNull(world.getZoneAt(0, 350, 50, entity));
+	}
+
+	/**
+	 * Tests that overlapping zones are resolved in the iteration order of the
+	 * world, like scanning all zones does.
+	 */
+	@Test
+	public void testOverlap() {
+		addZone("0_test", 0, 0, 0);
+		addZone("0_test_overlap", 0, 50, 0);
+		addZone("0_test_e", 0, 100, 0);
+
+		final List<StendhalRPZone> zones = new ArrayList<StendhalRPZone>();
+		for (final IRPZone zone : world) {
+			zones.add((StendhalRPZone) zone);
+		}
+		final ZoneIndex index = new ZoneIndex(world);
+		for (int x = -10; x < 210; x += 5) {
+			StendhalRPZone expected = null;
+			for (final StendhalRPZone zone : zones) {
+				if (zone.intersects(entity.getArea(x, 10))) {
+					expected = zone;
+					break;
+				}
+			}
+			assertSame("x=" + x, expected, index.find(0, entity.getArea(x, 10)));
+			assertSame("x=" + x, expected, world.getZoneAt(0, x, 10, entity));
+		}
+	}
+
+	/**
+	 * Tests for zones larger than a cell of the index.
+	 */
+	@Test
+	public void testLargeZone() {
+		final StendhalRPZone zone = new StendhalRPZone("0_test_large", 3 * ZoneIndex.CELL_SIZE + 7, 10);
+		zone.setPosition(0, -ZoneIndex.CELL_SIZE - 3, 1000);
+		world.addRPZone(zone);
+
+		assertSame(zone, world.getZoneAt(0, -ZoneIndex.CELL_SIZE - 3, 1000, entity));
+		assertSame(zone, world.getZoneAt(0, 2 * ZoneIndex.CELL_SIZE + 3, 1009, entity));
+		assertNull(world.getZoneAt(0, 2 * ZoneIndex.CELL_SIZE + 4, 1000, entity));
+		assertNull(world.getZoneAt(0, 0, 1010, entity));
+	}
+
+	/**
+	 * Tests for getAllZonesFromRegion.
+	 */
+	@Test
+	public void testGetAllZonesFromRegion() {
+		final StendhalRPZone zone = addZone("0_test", 0, 0, 0);
+		final StendhalRPZone below = addZone("-1_test", -1, 0, 0);
+		final StendhalRPZone interior = new StendhalRPZone("int_test", 100, 100);
+		world.addRPZone("test", interior);
+		zone.setPublicAccessible(true);
+		interior.setPublicAccessible(true);
+
+		assertEquals(3, world.getAllZonesFromRegion("test", null, null, null).size());
+		assertEquals(2, world.getAllZonesFromRegion("test", true, null, null).size());
+		assertSame(zone, world.getAllZonesFromRegion("test", true, true, null).iterator().next());
+		assertSame(below, world.getAllZonesFromRegion("test", true, false, null).iterator().next());
+		assertSame(interior, world.getAllZonesFromRegion("test", false, false, null).iterator().next());
+		assertEquals(2, world.getAllZonesFromRegion("test", null, null, true).size());
+		assertSame(below, world.getAllZonesFromRegion("test", null, null, false).iterator().next());
+		assertEquals(0, world.getAllZonesFromRegion("unknown", null, null, null).size());
+	}
+}
@@ -0,0 +1,217 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.events.TurnListener;
+import games.stendhal.server.core.events.TurnNotifier;
+import games.stendhal.server.core.rp.StendhalRPAction;
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.entity.mapstuff.sign.Sign;
+import games.stendhal.server.maps.MockStendlRPWorld;
+
+/**
+ * Tests for ZoneLogicExecutor.
+ */
+public class ZoneLogicExecutorTest {
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		MockStendlRPWorld.get();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() {
+		MockStendlRPWorld.reset();
+	}
+
+	/**
+	 * Tests that nothing is deferred outside parallel zone logic.
+	 */
+	@Test
+	public void testSerial() {
+		final List<String> log = new ArrayList<String>();
+		final List<StendhalRPZone> zones = createZones(5, log);
+		new ZoneLogicExecutor(1).logic(zones);
+		assertEquals(10, log.size());
+		assertFalse(ZoneLogicExecutor.defer(new Runnable() {
+			@Override
+			public void run() {
+				// not run
+			}
+		}));
+		assertNull(ZoneLogicExecutor.getRunningZone());
+	}
+
+	/**
+	 * Tests that the deferred actions of a zone whose logic failed are
+	 * skipped, and the other zones are committed.
+	 */
+	@Test
+	public void testFailure() {
+		final List<String> log = Collections.synchronizedList(new ArrayList<String>());
+		final List<StendhalRPZone> zones = createZones(3, log);
+		zones.add(1, new LoggingZone("failing", log) {
+			@Override
+			public void logic() {
+				super.logic();
+				throw new IllegalStateException("test");
+			}
+		});
+		final ZoneLogicExecutor executor = new ZoneLogicExecutor(4);
+		executor.logic(zones);
+		executor.shutdown();
+
+		assertTrue(log.contains("logic failing"));
+		assertFalse(log.contains("commit failing"));
+		assertEquals(Arrays.asList("commit zone0", "commit zone1", "commit zone2"), log.subList(4, 7));
+		for (final StendhalRPZone zone : zones) {
+			TurnNotifier.get().dontNotify((TurnListener) zone);
+		}
+	}
+
+	/**
+	 * Tests that parallel zone logic places entities within its own zone
+	 * directly, and moves entities to other zones after the zone logic.
+	 */
+	@Test
+	public void testPlaceat() {
+		final List<String> log = Collections.synchronizedList(new ArrayList<String>());
+		final StendhalRPZone target = new StendhalRPZone("target", 20, 20);
+		final PlacingZone zone = new PlacingZone("source", target, log);
+		final List<StendhalRPZone> zones = new ArrayList<StendhalRPZone>();
+		zones.add(zone);
+		zones.addAll(createZones(3, log));
+		new ZoneLogicExecutor(4).logic(zones);
+
+		assertSame(zone, zone.spawned.getZone());
+		assertSame(target, zone.traveller.getZone());
+		assertEquals(5, zone.traveller.getX());
+		assertTrue(log.contains("running true"));
+		assertTrue(log.contains("spawned true"));
+		assertTrue(log.contains("stayed true"));
+		assertEquals("placed true", log.get(log.size() - 4));
+		for (final StendhalRPZone other : zones) {
+			if (other instanceof TurnListener) {
+				TurnNotifier.get().dontNotify((TurnListener) other);
+			}
+		}
+	}
+
+	/**
+	 * Tests that the actions deferred by parallel zone logic are run after the
+	 * zone logic, in zone order.
+	 */
+	@Test
+	public void testParallel() {
+		final List<String> log = Collections.synchronizedList(new ArrayList<String>());
+		final List<StendhalRPZone> zones = createZones(20, log);
+		final ZoneLogicExecutor executor = new ZoneLogicExecutor(4);
+		executor.logic(zones);
+
+		assertEquals(40, log.size());
+		for (int i = 0; i < 20; i++) {
+			assertTrue(log.get(i).startsWith("logic "));
+			assertEquals("commit zone" + i, log.get(20 + i));
+		}
+		for (final StendhalRPZone zone : zones) {
+			assertTrue(TurnNotifier.get().getRemainingTurns((TurnListener) zone) > 0);
+			TurnNotifier.get().dontNotify((TurnListener) zone);
+		}
+	}
+
+	private List<StendhalRPZone> createZones(final int count, final List<String> log) {
+		final List<StendhalRPZone> zones = new ArrayList<StendhalRPZone>();
+		for (int i = 0; i < count; i++) {
+			zones.add(new LoggingZone("zone" + i, log));
+		}
+		return zones;
+	}
+
+	/**
+	 * A zone that places a new entity in itself, and sends an entity to
+	 * another zone.
+	 */
+	private static class PlacingZone extends StendhalRPZone {
+		private final StendhalRPZone target;
+		private final List<String> log;
+		private final Entity spawned = new Sign();
+		private final Entity traveller = new Sign();
+
+		PlacingZone(final String name, final StendhalRPZone target, final List<String> log) {
+			super(name, 20, 20);
+			this.target = target;
+			this.log = log;
+			StendhalRPAction.placeat(this, traveller, 1, 1);
+		}
+
+		@Override
+		public void logic() {
+			// failed assertions would be lost in the worker threads
+			log.add("running " + (ZoneLogicExecutor.getRunningZone() == this));
+			StendhalRPAction.placeat(this, spawned, 2, 2);
+			log.add("spawned " + (spawned.getZone() == this));
+
+			StendhalRPAction.placeat(target, traveller, 5, 5, null, new StendhalRPAction.PlacementListener() {
+				@Override
+				public void onPlaced(final boolean placed) {
+					log.add("placed " + placed);
+				}
+			});
+			log.add("stayed " + (traveller.getZone() == this));
+		}
+	}
+
+	/**
+	 * A zone that logs its logic, and defers logging of the commit.
+	 */
+	private static class LoggingZone extends StendhalRPZone implements TurnListener {
+		private final List<String> log;
+
+		LoggingZone(final String name, final List<String> log) {
+			super(name);
+			this.log = log;
+		}
+
+		@Override
+		public void logic() {
+			log.add("logic " + getName());
+			TurnNotifier.get().notifyInTurns(5, this);
+			if (!ZoneLogicExecutor.defer(new Runnable() {
+				@Override
+				public void run() {
+					log.add("commit " + getName());
+				}
+			})) {
+				log.add("commit " + getName());
+			}
+		}
+
+		@Override
+		public void onTurnReached(final int currentTurn) {
+			// not needed
+		}
+	}
+}
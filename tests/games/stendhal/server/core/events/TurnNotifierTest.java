@@ -0,0 +1,131 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for TurnNotifier.
+ */
+public class TurnNotifierTest {
+	private TurnNotifier notifier;
+	private int turn;
+
+	@Before
+	public void setUp() {
+		notifier = TurnNotifier.get();
+		notifier.getEventListForDebugging().clear();
+		turn = notifier.getCurrentTurnForDebugging();
+	}
+
+	@After
+	public void tearDown() {
+		notifier.getEventListForDebugging().clear();
+	}
+
+	/**
+	 * Tests that listeners are notified at the requested turn, and only once.
+	 */
+	@Test
+	public void testNotifyAtTurn() {
+		final List<Integer> reached = new ArrayList<Integer>();
+		final TurnListener listener = new RecordingListener(reached);
+		notifier.notifyAtTurn(turn + 3, listener);
+		// same slot of the timing wheel, but a different turn
+		notifier.notifyAtTurn(turn + 3 + 1024, listener);
+
+		for (int i = 1; i <= 3; i++) {
+			notifier.logic(turn + i);
+		}
+		assertEquals(1, reached.size());
+		assertEquals(Integer.valueOf(turn + 3), reached.get(0));
+		assertEquals(1024, notifier.getRemainingTurns(listener));
+
+		notifier.logic(turn + 3 + 1024);
+		assertEquals(2, reached.size());
+		assertEquals(-1, notifier.getRemainingTurns(listener));
+		assertTrue(notifier.getEventListForDebugging().isEmpty());
+	}
+
+	/**
+	 * Tests that the earliest registration decides the remaining turns.
+	 */
+	@Test
+	public void testGetRemainingTurns() {
+		final TurnListener listener = new RecordingListener(new ArrayList<Integer>());
+		assertEquals(-1, notifier.getRemainingTurns(listener));
+		notifier.notifyAtTurn(turn + 20, listener);
+		notifier.notifyAtTurn(turn + 5, listener);
+		notifier.notifyAtTurn(turn + 10, listener);
+		assertEquals(5, notifier.getRemainingTurns(listener));
+		assertEquals(3, notifier.getEventListForDebugging().size());
+	}
+
+	/**
+	 * Tests that cancelling removes all registrations of a listener, and
+	 * leaves others alone.
+	 */
+	@Test
+	public void testDontNotify() {
+		final List<Integer> reached = new ArrayList<Integer>();
+		final TurnListener listener = new RecordingListener(reached);
+		final TurnListener other = new RecordingListener(reached);
+		notifier.notifyAtTurn(turn + 1, listener);
+		notifier.notifyAtTurn(turn + 2, listener);
+		notifier.notifyAtTurn(turn + 2, other);
+
+		notifier.dontNotify(listener);
+		assertEquals(-1, notifier.getRemainingTurns(listener));
+		assertEquals(2, notifier.getRemainingTurns(other));
+		assertNull(notifier.getEventListForDebugging().get(Integer.valueOf(turn + 1)));
+		assertEquals(1, notifier.getEventListForDebugging().get(Integer.valueOf(turn + 2)).size());
+
+		notifier.logic(turn + 1);
+		notifier.logic(turn + 2);
+		assertEquals(1, reached.size());
+	}
+
+	/**
+	 * Tests that registrations in the past are refused.
+	 */
+	@Test
+	public void testNotifyInPast() {
+		notifier.logic(turn + 1);
+		final TurnListener listener = new RecordingListener(new ArrayList<Integer>());
+		notifier.notifyAtTurn(turn + 1, listener);
+		assertFalse(notifier.getEventListForDebugging().containsKey(Integer.valueOf(turn + 1)));
+		assertEquals(-1, notifier.getRemainingTurns(listener));
+	}
+
+	private static class RecordingListener implements TurnListener {
+		private final List<Integer> reached;
+
+		RecordingListener(final List<Integer> reached) {
+			this.reached = reached;
+		}
+
+		@Override
+		public void onTurnReached(final int currentTurn) {
+			reached.add(Integer.valueOf(currentTurn));
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.maps.MockStendlRPWorld;
+
+/**
+ * Tests for FloodFill.
+ */
+public class FloodFillTest {
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		MockStendlRPWorld.get();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		MockStendlRPWorld.reset();
+	}
+
+	/**
+	 * Tests for reachability behind a wall.
+	 */
+	@Test
+	public void testWall() {
+		final StendhalRPZone zone = new StendhalRPZone("test", 10, 10);
+		// a wall with a gap at the bottom
+		for (int y = 0; y < 9; y++) {
+			zone.collisionMap.setCollide(5, y);
+		}
+		final Entity entity = new Entity() {
+			// just to create an instance
+		};
+
+		FloodFill fill = new FloodFill(entity, zone, 2, 2, 400);
+		assertTrue(fill.isReachable(2, 3));
+		assertTrue(fill.isReachable(7, 2));
+		assertFalse(fill.isReachable(5, 2));
+		assertFalse(fill.isReachable(-1, 2));
+
+		// the way around the wall is 16 steps
+		fill = new FloodFill(entity, zone, 4, 2, 15);
+		assertTrue(fill.isReachable(4, 8));
+		assertFalse(fill.isReachable(6, 2));
+		fill = new FloodFill(entity, zone, 4, 2, 16);
+		assertTrue(fill.isReachable(6, 2));
+
+		// closing the gap
+		zone.collisionMap.setCollide(5, 9);
+		fill = new FloodFill(entity, zone, 2, 2, 400);
+		assertFalse(fill.isReachable(7, 2));
+		assertTrue(fill.isReachable(0, 9));
+	}
+
+	/**
+	 * Tests for entities larger than a tile.
+	 */
+	@Test
+	public void testLargeEntity() {
+		final StendhalRPZone zone = new StendhalRPZone("test", 10, 10);
+		// a wall with a one tile gap
+		for (int y = 1; y < 10; y++) {
+			zone.collisionMap.setCollide(5, y);
+		}
+		final Entity entity = new Entity() {
+			// just to create an instance
+		};
+
+		assertTrue(new FloodFill(entity, zone, 2, 2, 400).isReachable(7, 2));
+		entity.setSize(2, 2);
+		assertFalse(new FloodFill(entity, zone, 2, 2, 400).isReachable(7, 2));
+	}
+}
@@ -0,0 +1,118 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import java.awt.Rectangle;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+
+import games.stendhal.server.core.config.zone.TMXLoader;
+import games.stendhal.server.core.engine.StendhalRPWorld;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.maps.MockStendlRPWorld;
+
+/**
+ * Runs path searches between random walkable positions on real maps, and
+ * reports the searches per second and the allocated bytes per search. The
+ * printed checksum of the found paths can be used to verify that changes to
+ * the path finder do not change the results.
+ * <p>
+ * Usage: PathfinderBenchmark [map file relative to data/maps ...]
+ */
+public class PathfinderBenchmark {
+	private static final String[] DEFAULT_MAPS = {
+		"Level 0/semos/city.tmx",
+		"Level 0/ados/city.tmx",
+		"Level -1/semos/dungeon.tmx",
+		"Level 0/nalwor/forest_n.tmx",
+		"interiors/semos/bank.tmx"
+	};
+	private static final int SEARCHES = 2000;
+	private static final int MAX_DISTANCE = 100;
+
+	public static void main(final String[] args) throws Exception {
+		MockStendlRPWorld.get();
+		final String[] maps = (args.length > 0) ? args : DEFAULT_MAPS;
+		System.out.println("map\tsearches/s\tbytes/search\tfound\tchecksum");
+		for (final String map : maps) {
+			run(map);
+		}
+	}
+
+	private static void run(final String map) throws Exception {
+		final StendhalRPZone zone = new StendhalRPZone("benchmark");
+		zone.addCollisionLayer("benchmark.collision",
+				TMXLoader.load(StendhalRPWorld.MAPS_FOLDER + map).getLayer("collision"));
+		final Entity entity = new Entity() {};
+		zone.add(entity);
+
+		final Random random = new Random(map.hashCode());
+		final int[] searches = new int[4 * SEARCHES];
+		for (int i = 0; i < searches.length; i += 2) {
+			int x;
+			int y;
+			do {
+				x = random.nextInt(zone.getWidth());
+				y = random.nextInt(zone.getHeight());
+			} while (zone.collides(x, y));
+			searches[i] = x;
+			searches[i + 1] = y;
+		}
+
+		// warm up
+		search(zone, entity, searches);
+
+		final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final long threadId = Thread.currentThread().getId();
+		final long allocatedBefore = bean.getThreadAllocatedBytes(threadId);
+		final long start = System.nanoTime();
+		final long[] result = search(zone, entity, searches);
+		final long time = System.nanoTime() - start;
+		final long allocated = bean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+		System.out.printf("%s\t%.0f\t%d\t%d\t%x%n", map, SEARCHES / (time / 1e9), allocated / SEARCHES,
+				result[0], result[1]);
+	}
+
+	/**
+	 * Run the searches, alternating between entity and collision map only
+	 * searches.
+	 *
+	 * @return number of found paths, and a checksum of the paths
+	 */
+	private static long[] search(final StendhalRPZone zone, final Entity entity, final int[] searches) {
+		long found = 0;
+		long checksum = 0;
+		for (int i = 0; i < searches.length; i += 4) {
+			final int startX = searches[i];
+			final int startY = searches[i + 1];
+			final int goalX = searches[i + 2];
+			final int goalY = searches[i + 3];
+			final List<Node> path;
+			if (i % 8 == 0) {
+				path = Path.searchPath(zone, startX, startY, goalX, goalY, MAX_DISTANCE);
+			} else {
+				path = Path.searchPath(entity, zone, startX, startY, new Rectangle(goalX, goalY, 1, 1),
+						MAX_DISTANCE, true);
+			}
+			if (!path.isEmpty()) {
+				found++;
+			}
+			for (final Node node : path) {
+				checksum = 31 * checksum + node.getX() * 1009 + node.getY();
+			}
+		}
+		return new long[] { found, checksum };
+	}
+}
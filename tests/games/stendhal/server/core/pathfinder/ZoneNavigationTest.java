@@ -0,0 +1,116 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.lang.ref.WeakReference;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.common.CollisionDetection;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.maps.MockStendlRPWorld;
+
+/**
+ * Tests for ZoneNavigation.
+ */
+public class ZoneNavigationTest {
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		MockStendlRPWorld.get();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() {
+		MockStendlRPWorld.reset();
+	}
+
+	/**
+	 * Build a wall at x = 20, with an optional gap at the bottom.
+	 */
+	private static CollisionDetection createWalledMap(final boolean gap) {
+		final CollisionDetection collision = new CollisionDetection();
+		collision.init(40, 40);
+		for (int y = 0; y < (gap ? 39 : 40); y++) {
+			collision.setCollide(20, y);
+		}
+		return collision;
+	}
+
+	/**
+	 * Tests reachability over a closed wall.
+	 */
+	@Test
+	public void testWall() {
+		final CollisionDetection collision = createWalledMap(false);
+		assertTrue(ZoneNavigation.mayReach(collision, 2, 2, new Rectangle(18, 30, 1, 1)));
+		assertFalse(ZoneNavigation.mayReach(collision, 2, 2, new Rectangle(30, 2, 1, 1)));
+		// goal area partially on the reachable side
+		assertTrue(ZoneNavigation.mayReach(collision, 2, 2, new Rectangle(19, 2, 3, 1)));
+		// starting on collision can not be decided
+		assertTrue(ZoneNavigation.mayReach(collision, 20, 2, new Rectangle(30, 2, 1, 1)));
+	}
+
+	/**
+	 * Tests that regions are joined over cluster borders, and that changes in
+	 * the collision map are noticed.
+	 */
+	@Test
+	public void testGapAndUpdate() {
+		final CollisionDetection collision = createWalledMap(true);
+		assertTrue(ZoneNavigation.mayReach(collision, 2, 2, new Rectangle(30, 2, 1, 1)));
+
+		collision.setCollide(20, 39);
+		assertFalse(ZoneNavigation.mayReach(collision, 2, 2, new Rectangle(30, 2, 1, 1)));
+	}
+
+	/**
+	 * Tests that the navigation data does not keep unused collision maps
+	 * alive.
+	 */
+	@Test
+	public void testCollisionMapCollected() {
+		CollisionDetection collision = createWalledMap(false);
+		ZoneNavigation.mayReach(collision, 2, 2, new Rectangle(30, 2, 1, 1));
+		final WeakReference<CollisionDetection> reference = new WeakReference<CollisionDetection>(collision);
+		collision = null;
+		for (int i = 0; (i < 50) && (reference.get() != null); i++) {
+			System.gc();
+		}
+		assertNull(reference.get());
+	}
+
+	/**
+	 * Tests that path searches give up on unreachable destinations.
+	 */
+	@Test
+	public void testSearchPath() {
+		final StendhalRPZone zone = new StendhalRPZone("test", 40, 40);
+		for (int y = 0; y < 40; y++) {
+			zone.collisionMap.setCollide(20, y);
+		}
+		final Entity entity = new Entity() {};
+		zone.add(entity);
+
+		assertTrue(Path.searchPath(entity, 30, 2).isEmpty());
+		assertTrue(Path.searchPath(zone, 0, 0, 30, 2, 200).isEmpty());
+		assertFalse(Path.searchPath(entity, 10, 10).isEmpty());
+		assertFalse(Path.searchPath(zone, 0, 0, 10, 10, 200).isEmpty());
+	}
+}
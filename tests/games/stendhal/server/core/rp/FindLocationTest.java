@@ -0,0 +1,149 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.config.zone.TMXLoader;
+import games.stendhal.server.core.engine.StendhalRPWorld;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.core.pathfinder.Path;
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.entity.mapstuff.area.WalkBlocker;
+import games.stendhal.server.maps.MockStendlRPWorld;
+
+/**
+ * Compares the locations chosen by StendhalRPAction.findLocation with the
+ * locations chosen by checking a path to each candidate spot, on real maps.
+ */
+public class FindLocationTest {
+	private static final String[] MAPS = {
+		"Level 0/semos/city.tmx",
+		"Level -1/semos/dungeon.tmx",
+		"interiors/semos/bank.tmx"
+	};
+	private static final int MAX_DISPLACEMENT = 36;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		MockStendlRPWorld.get();
+	}
+
+	/**
+	 * Tests for the chosen locations on real maps, with random obstacles.
+	 */
+	@Test
+	public void testSameChoices() throws Exception {
+		for (final String map : MAPS) {
+			final StendhalRPZone zone = new StendhalRPZone("findlocation");
+			zone.addCollisionLayer("findlocation.collision",
+					TMXLoader.load(StendhalRPWorld.MAPS_FOLDER + map).getLayer("collision"));
+			final Random random = new Random(map.hashCode());
+			// crowd the zone
+			final int blockers = zone.getWidth() * zone.getHeight() / 10;
+			for (int i = 0; i < blockers; i++) {
+				final WalkBlocker blocker = new WalkBlocker();
+				blocker.setPosition(random.nextInt(zone.getWidth()), random.nextInt(zone.getHeight()));
+				zone.add(blocker);
+			}
+
+			final Entity entity = new Entity() {
+				// just to create an instance
+			};
+			for (int i = 0; i < 200; i++) {
+				final int x = random.nextInt(zone.getWidth());
+				final int y = random.nextInt(zone.getHeight());
+				final int size = 1 + (i % 2);
+				entity.setSize(size, size);
+				Shape allowedArea = null;
+				if (i % 3 == 0) {
+					allowedArea = new Rectangle(x - 5, y - 5, 10, 10);
+				}
+				final String message = map + " (" + x + ", " + y + ") size " + size;
+				assertEquals(message, findByPathSearch(zone, entity, allowedArea, x, y),
+						StendhalRPAction.findLocation(zone, entity, allowedArea, x, y, true));
+				assertEquals(message, findFirstFree(zone, entity, allowedArea, x, y),
+						StendhalRPAction.findLocation(zone, entity, allowedArea, x, y, false));
+			}
+		}
+	}
+
+	/**
+	 * Find a location by searching a path to each free candidate spot.
+	 */
+	private Point findByPathSearch(final StendhalRPZone zone, final Entity entity,
+			final Shape allowedArea, final int x, final int y) {
+		for (final Point p : getCandidates(x, y)) {
+			if (isFree(zone, entity, allowedArea, p)
+					&& !Path.searchPath(entity, zone, x, y, new Rectangle(p.x, p.y, 1, 1), 400, false).isEmpty()) {
+				return p;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Find the first free candidate spot.
+	 */
+	private Point findFirstFree(final StendhalRPZone zone, final Entity entity,
+			final Shape allowedArea, final int x, final int y) {
+		for (final Point p : getCandidates(x, y)) {
+			if (isFree(zone, entity, allowedArea, p)) {
+				return p;
+			}
+		}
+		return null;
+	}
+
+	private boolean isFree(final StendhalRPZone zone, final Entity entity, final Shape allowedArea,
+			final Point p) {
+		return !zone.collides(entity, p.x, p.y) && ((allowedArea == null) || allowedArea.contains(p.x, p.y));
+	}
+
+	/**
+	 * Get the candidate spots in the order of preference: minimum Euclidean
+	 * distance within minimum walking distance.
+	 */
+	private List<Point> getCandidates(final int x, final int y) {
+		final List<Point> list = new ArrayList<Point>();
+		for (int totalShift = 1; totalShift <= MAX_DISPLACEMENT; totalShift++) {
+			for (int tilt = (totalShift + 1) / 2; tilt > 0; tilt--) {
+				final int spread = totalShift - tilt;
+				list.add(new Point(x - tilt, y - spread));
+				list.add(new Point(x + tilt, y - spread));
+				list.add(new Point(x + tilt, y + spread));
+				list.add(new Point(x - tilt, y + spread));
+				if (spread != tilt) {
+					list.add(new Point(x - spread, y - tilt));
+					list.add(new Point(x + spread, y - tilt));
+					list.add(new Point(x + spread, y + tilt));
+					list.add(new Point(x - spread, y + tilt));
+				}
+			}
+			list.add(new Point(x, y - totalShift));
+			list.add(new Point(x, y + totalShift));
+			list.add(new Point(x - totalShift, y));
+			list.add(new Point(x + totalShift, y));
+		}
+		return list;
+	}
+}
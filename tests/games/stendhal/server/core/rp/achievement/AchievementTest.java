@@ -0,0 +1,84 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp.achievement;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import games.stendhal.server.core.rp.achievement.condition.KilledSoloAllCreaturesCondition;
+import games.stendhal.server.entity.npc.condition.AndCondition;
+import games.stendhal.server.entity.npc.condition.NotCondition;
+import games.stendhal.server.entity.npc.condition.PlayerHasKilledNumberOfCreaturesCondition;
+import games.stendhal.server.entity.npc.condition.PlayerLootedNumberOfItemsCondition;
+import games.stendhal.server.entity.npc.condition.QuestCompletedCondition;
+
+/**
+ * Tests for the dependencies of achievements.
+ */
+public class AchievementTest {
+
+	/**
+	 * Tests for dependsOn with specific dependencies.
+	 */
+	@Test
+	public void testDependsOn() {
+		final Achievement achievement = new Achievement("test", "Test", Category.FIGHTING, "", 1, true,
+				new AndCondition(
+						new PlayerHasKilledNumberOfCreaturesCondition(1, "rat", "wolf"),
+						new QuestCompletedCondition("test_quest")));
+
+		assertTrue(achievement.dependsOn(Dependencies.kill("rat")));
+		assertTrue(achievement.dependsOn(Dependencies.kill("wolf")));
+		assertTrue(achievement.dependsOn(Dependencies.quest("test_quest")));
+		assertFalse(achievement.dependsOn(Dependencies.kill("deer")));
+		assertFalse(achievement.dependsOn(Dependencies.quest("other_quest")));
+		assertFalse(achievement.dependsOn(Dependencies.loot("money")));
+
+		// unknown changes are always checked
+		assertTrue(achievement.dependsOn(null));
+	}
+
+	/**
+	 * Tests for dependsOn with dependencies on any progress of a kind.
+	 */
+	@Test
+	public void testDependsOnAny() {
+		final Achievement achievement = new Achievement("test", "Test", Category.FIGHTING, "", 1, true,
+				new KilledSoloAllCreaturesCondition());
+		assertTrue(achievement.dependsOn(Dependencies.kill("rat")));
+		assertFalse(achievement.dependsOn(Dependencies.quest("test_quest")));
+
+		final Achievement loot = new Achievement("test", "Test", Category.ITEM, "", 1, true,
+				new PlayerLootedNumberOfItemsCondition(1, "money"));
+		assertTrue(loot.dependsOn(Dependencies.loot("money")));
+		assertFalse(loot.dependsOn(Dependencies.loot("dagger")));
+	}
+
+	/**
+	 * Tests that conditions without declared dependencies are always checked.
+	 */
+	@Test
+	public void testUndeclaredDependencies() {
+		final Achievement achievement = new Achievement("test", "Test", Category.QUEST, "", 1, true,
+				new AndCondition(
+						new QuestCompletedCondition("test_quest"),
+						new NotCondition(new QuestCompletedCondition("other_quest"))));
+		assertTrue(achievement.dependsOn(Dependencies.quest("any_quest")));
+		assertTrue(achievement.dependsOn(Dependencies.kill("rat")));
+
+		final Achievement slotVariable = new Achievement("test", "Test", Category.QUEST, "", 1, true,
+				new QuestCompletedCondition("test_quest_[player]"));
+		assertTrue(slotVariable.dependsOn(Dependencies.quest("test_quest")));
+	}
+}
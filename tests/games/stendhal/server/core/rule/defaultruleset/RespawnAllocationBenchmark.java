@@ -0,0 +1,122 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rule.defaultruleset;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.rule.EntityManager;
+import games.stendhal.server.entity.creature.Creature;
+import games.stendhal.server.maps.MockStendlRPWorld;
+
+/**
+ * Measures the time and the memory allocated for creating every kind of
+ * creature and item many times, like respawns and loot drops do. Creatures
+ * are created both by copying the prototype, as the respawn points do, and
+ * by building them from the definition.
+ * <p>
+ * Usage: RespawnAllocationBenchmark [rounds]
+ */
+public class RespawnAllocationBenchmark {
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private interface Round {
+		int run();
+	}
+
+	public static void main(final String[] args) throws Exception {
+		final int rounds = (args.length > 0) ? Integer.parseInt(args[0]) : 20;
+
+		MockStendlRPWorld.get();
+		final EntityManager manager = SingletonRepository.getEntityManager();
+		Logger.getRootLogger().setLevel(Level.OFF);
+
+		final List<String> creatureNames = new ArrayList<String>();
+		final List<DefaultCreature> definitions = new ArrayList<DefaultCreature>();
+		for (final DefaultCreature definition : manager.getDefaultCreatures()) {
+			creatureNames.add(definition.getCreatureName());
+			definitions.add(definition);
+		}
+		final List<String> itemNames = new ArrayList<String>();
+		for (final DefaultItem item : manager.getDefaultItems()) {
+			itemNames.add(item.getItemName());
+		}
+		System.out.println(creatureNames.size() + " creatures, " + itemNames.size() + " items, "
+				+ rounds + " rounds");
+
+		measure("creatures (respawn)", rounds, new Round() {
+			@Override
+			public int run() {
+				int created = 0;
+				for (final String name : creatureNames) {
+					final Creature creature = manager.getCreature(name);
+					if (creature != null) {
+						created++;
+					}
+				}
+				return created;
+			}
+		});
+		measure("creatures (definition)", rounds, new Round() {
+			@Override
+			public int run() {
+				int created = 0;
+				for (final DefaultCreature definition : definitions) {
+					if (definition.getCreature() != null) {
+						created++;
+					}
+				}
+				return created;
+			}
+		});
+		measure("items", rounds, new Round() {
+			@Override
+			public int run() {
+				int created = 0;
+				for (final String name : itemNames) {
+					if (manager.getItem(name) != null) {
+						created++;
+					}
+				}
+				return created;
+			}
+		});
+
+		// the turn notifier thread would keep running
+		System.exit(0);
+	}
+
+	private static void measure(final String label, final int rounds, final Round round) {
+		// warm up
+		for (int i = 0; i < rounds; i++) {
+			round.run();
+		}
+
+		final long thread = Thread.currentThread().getId();
+		final long allocated = THREADS.getThreadAllocatedBytes(thread);
+		final long start = System.nanoTime();
+		long created = 0;
+		for (int i = 0; i < rounds; i++) {
+			created += round.run();
+		}
+		final long time = System.nanoTime() - start;
+		final long bytes = THREADS.getThreadAllocatedBytes(thread) - allocated;
+		System.out.printf("%s: %d created, %.0f ns/object, %d bytes/object%n", label, created,
+				(double) time / created, bytes / created);
+	}
+}
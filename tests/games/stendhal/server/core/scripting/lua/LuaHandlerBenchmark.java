@@ -0,0 +1,115 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.scripting.lua;
+
+import java.nio.charset.StandardCharsets;
+
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaFunction;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+
+import games.stendhal.common.parser.ConversationParser;
+import games.stendhal.common.parser.Sentence;
+import games.stendhal.server.entity.npc.ChatAction;
+import games.stendhal.server.entity.npc.ChatCondition;
+import games.stendhal.server.entity.npc.EventRaiser;
+import games.stendhal.server.entity.npc.SpeakerNPC;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import utilities.PlayerTestHelper;
+
+/**
+ * Fires a ChatCondition and a ChatAction defined in Lua, like the ones of the
+ * quest scripts, with the script interpreted and compiled by LuaJC.
+ * <p>
+ * Compiling needs Apache BCEL on the class path. Without it only the
+ * interpreted script is measured.
+ * <p>
+ * Usage: LuaHandlerBenchmark [rounds]
+ */
+public class LuaHandlerBenchmark {
+	private static final String SCRIPT = String.join("\n",
+			"local quest_slot = \"lua_benchmark\"",
+			"local locations = { {49, 30}, {123, 3}, {115, 122}, {49, 106} }",
+			"local condition = conditions:create(function(player, sentence, npc)",
+			"	local visited = 0",
+			"	for i, location in ipairs(locations) do",
+			"		if (location[1] + location[2]) % 2 == 0 then",
+			"			visited = visited + 1",
+			"		end",
+			"	end",
+			"	return visited > 0 and player:getLevel() >= 0",
+			"end)",
+			"local action = actions:create(function(player, sentence, npc)",
+			"	local selected = locations[(player:getLevel() % #locations) + 1]",
+			"	local text = selected[1] .. \";\" .. selected[2]",
+			"	local slots = string.split(text, \";\")",
+			"	if string.isNumber(slots[1]) then",
+			"		player:setQuest(quest_slot, slots[1] .. \";\" .. slots[2])",
+			"	end",
+			"end)",
+			"return { condition = condition, action = action }");
+
+	public static void main(final String[] args) throws Exception {
+		final int rounds = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+
+		MockStendlRPWorld.get();
+		final Globals globals = LuaLoader.get().getGlobals();
+		final Player player = PlayerTestHelper.createPlayer("player");
+		final SpeakerNPC npc = new SpeakerNPC("npc");
+		final Sentence sentence = ConversationParser.parse("hi");
+
+		final LuaValue interpreted = globals.load(SCRIPT, "benchmark").call();
+		measure("interpreted", interpreted, player, sentence, npc, rounds);
+
+		final LuaFunction compiled = new LuaCompiler(null).load(SCRIPT.getBytes(StandardCharsets.UTF_8),
+				"benchmark", globals);
+		if (compiled != null) {
+			measure("compiled", compiled.call(), player, sentence, npc, rounds);
+		} else {
+			System.out.println("compiled: LuaJC is not available");
+		}
+
+		// the turn notifier thread would keep running
+		System.exit(0);
+	}
+
+	private static void measure(final String label, final LuaValue handlers, final Player player,
+			final Sentence sentence, final SpeakerNPC npc, final int rounds) {
+		final LuaTable table = handlers.checktable();
+		final ChatCondition condition = (ChatCondition) table.get("condition").checkuserdata(ChatCondition.class);
+		final ChatAction action = (ChatAction) table.get("action").checkuserdata(ChatAction.class);
+
+		// warm up
+		fire(condition, action, player, sentence, npc, rounds);
+
+		final long start = System.nanoTime();
+		final int fired = fire(condition, action, player, sentence, npc, rounds);
+		final long time = System.nanoTime() - start;
+		System.out.printf("%s: %d rounds, %d true, %.0f ns/round%n", label, rounds, fired,
+				(double) time / rounds);
+	}
+
+	private static int fire(final ChatCondition condition, final ChatAction action, final Player player,
+			final Sentence sentence, final SpeakerNPC npc, final int rounds) {
+		final EventRaiser raiser = new EventRaiser(npc);
+		int fired = 0;
+		for (int i = 0; i < rounds; i++) {
+			if (condition.fire(player, sentence, npc)) {
+				fired++;
+				action.fire(player, sentence, raiser);
+			}
+		}
+		return fired;
+	}
+}
@@ -21,11 +21,14 @@ import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 
 import org.junit.BeforeClass;
@@ -38,6 +41,7 @@ import games.stendhal.server.entity.item.CaptureTheFlagFlag;
 import games.stendhal.server.entity.item.Container;
 import games.stendhal.server.entity.item.Corpse;
 import games.stendhal.server.entity.item.Item;
+import games.stendhal.server.entity.item.StackableItem;
 import games.stendhal.server.entity.player.Player;
 import games.stendhal.server.entity.slot.PlayerSlot;
 import games.stendhal.server.events.AttackEvent;
@@ -205,6 +209,50 @@ public class RPEntityTest {
 		assertEquals(1, entity.getNumberOfEquipped("carrot"));
 	}
 
+	/**
+	 * Tests for the equipped item queries following changes done directly
+	 * to the slots and stacks.
+	 */
+	@Test
+	public void testEquippedAfterChanges() {
+		final RPEntity entity = new MockRPEntity();
+		entity.addSlot(new PlayerSlot("bag"));
+		final StackableItem money = (StackableItem) ItemTestHelper.createItem("money", 4);
+		entity.getSlot("bag").add(money);
+		assertEquals(4, entity.getNumberOfEquipped("money"));
+		assertTrue(entity.isEquipped("Money", 4));
+
+		money.setQuantity(10);
+		assertEquals(10, entity.getNumberOfEquipped("money"));
+		money.sub(3);
+		assertEquals(7, entity.getNumberOfEquipped("money"));
+		assertFalse(entity.isEquipped("money", 8));
+
+		final Item bag = new Container("testbag", "container", "testbag", Collections.emptyMap());
+		entity.getSlot("bag").add(bag);
+		final StackableItem nested = (StackableItem) ItemTestHelper.createItem("money", 5);
+		bag.getSlot("content").add(nested);
+		assertEquals(12, entity.getNumberOfEquipped("money"));
+		nested.setQuantity(6);
+		assertEquals(13, entity.getNumberOfEquipped("money"));
+		assertSame(money, entity.getFirstEquipped("money"));
+
+		entity.getSlot("bag").remove(money.getID());
+		assertEquals(6, entity.getNumberOfEquipped("money"));
+		assertSame(nested, entity.getFirstEquipped("money"));
+		// not carried anymore
+		money.setQuantity(100);
+		assertEquals(6, entity.getNumberOfEquipped("money"));
+
+		// slots that do not report changes
+		entity.addSlot(new RPSlot("belt"));
+		entity.getSlot("belt").add(ItemTestHelper.createItem("carrot"));
+		assertEquals(1, entity.getNumberOfEquipped("carrot"));
+		entity.getSlot("belt").add(ItemTestHelper.createItem("carrot"));
+		assertEquals(2, entity.getNumberOfEquipped("carrot"));
+		assertNull(entity.getFirstEquipped("cheese"));
+	}
+
 	/**
 	 * Tests for getItemAtkforsimpleweapon.
 	 */
@@ -289,6 +337,53 @@ public class RPEntityTest {
 
 	}
 
+	/**
+	 * Tests for the equipment values following the equipment and level
+	 * changes.
+	 */
+	@Test
+	public void testGetItemDefAfterChanges() {
+		final RPEntity entity = new MockRPEntity();
+		entity.addSlot(new PlayerSlot("lhand"));
+		entity.addSlot(new PlayerSlot("rhand"));
+		entity.addSlot(new PlayerSlot("armor"));
+		entity.setLevel(10);
+
+		assertThat(entity.getItemDef(), is(0f));
+		final Item shield = new Item("test shield", "shield", "subclass", new HashMap<String, String>());
+		shield.put("def", 3);
+		entity.getSlot("lhand").add(shield);
+		assertThat(entity.getItemDef(), is(3f));
+		assertTrue(entity.getWeapons().isEmpty());
+
+		final Item armor = new Item("test armor", "armor", "subclass", new HashMap<String, String>());
+		armor.put("def", 10);
+		armor.put("min_level", 20);
+		entity.getSlot("armor").add(armor);
+		final float weakened = entity.getItemDef();
+		assertTrue(weakened < 13f);
+		entity.setLevel(20);
+		assertThat(entity.getItemDef(), is(13f));
+
+		// changes to the items themselves need an explicit update
+		armor.put("def", 12);
+		assertThat(entity.getItemDef(), is(13f));
+		entity.updateItemAtkDef();
+		assertThat(entity.getItemDef(), is(15f));
+
+		entity.getSlot("lhand").remove(shield.getID());
+		entity.getSlot("armor").remove(armor.getID());
+		assertThat(entity.getItemDef(), is(0f));
+
+		final Item sword = new Item("test sword", "sword", "subclass", new HashMap<String, String>());
+		sword.put("atk", 7);
+		sword.put("def", 1);
+		entity.getSlot("rhand").add(sword);
+		assertThat(entity.getWeapons(), is(Collections.singletonList(sword)));
+		assertThat(entity.getItemAtk(), is(7f));
+		assertThat(entity.getItemDef(), is(1f));
+	}
+
 	/**
 	 * Tests for attackCanHitreturnTruedamageZero.
 	 */
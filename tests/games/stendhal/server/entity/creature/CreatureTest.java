@@ -13,19 +13,25 @@
 package games.stendhal.server.entity.creature;
 
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.core.pathfinder.FixedPath;
+import games.stendhal.server.core.pathfinder.Node;
+import games.stendhal.server.core.rp.StendhalRPAction;
 import games.stendhal.server.entity.RPEntity;
 import games.stendhal.server.entity.player.Player;
 import games.stendhal.server.maps.MockStendlRPWorld;
@@ -111,4 +117,137 @@ public class CreatureTest {
 		assertThat(counter, is(2));
 	}
 
+	/**
+	 * Tests for sleeping when no enemies are near.
+	 */
+	@Test
+	public void testSleep() {
+		final StendhalRPZone zone = new StendhalRPZone("sleepzone", 60, 60);
+		final Creature creature = new Creature();
+		final Map<String, String> profiles = new HashMap<String, String>();
+		profiles.put("offensive", "");
+		creature.setAIProfiles(profiles);
+		creature.setBaseHP(100);
+		creature.setHP(100);
+		final Player player = PlayerTestHelper.createPlayer("bob");
+		player.setPosition(50, 50);
+		zone.add(creature);
+		zone.add(player);
+
+		creature.logic();
+		assertTrue(creature.isSleeping());
+		assertEquals(1, zone.getSleepingCreatureCount());
+
+		// an enemy coming near wakes it up
+		player.setPosition(10, 0);
+		assertFalse(creature.isSleeping());
+		assertEquals(0, zone.getSleepingCreatureCount());
+		creature.logic();
+		assertFalse(creature.isSleeping());
+
+		// as does damage
+		player.setPosition(50, 50);
+		creature.logic();
+		assertTrue(creature.isSleeping());
+		creature.setHP(90);
+		assertFalse(creature.isSleeping());
+		creature.logic();
+		assertFalse(creature.isSleeping());
+
+		// and an attack
+		creature.setHP(100);
+		creature.logic();
+		assertTrue(creature.isSleeping());
+		creature.rememberAttacker(player);
+		assertFalse(creature.isSleeping());
+
+		// a creature chasing a player that left stops before it sleeps
+		creature.getAttackSources().clear();
+		creature.wakeUp();
+		final List<Node> nodes = new LinkedList<Node>();
+		nodes.add(new Node(0, 0));
+		nodes.add(new Node(0, 20));
+		creature.setBusy();
+		creature.setPath(new FixedPath(nodes, false));
+		creature.setSpeed(1.0);
+		zone.remove(player);
+		creature.logic();
+		assertTrue(creature.isSleeping());
+		assertTrue(creature.stopped());
+		assertFalse(creature.hasPath());
+		zone.add(player);
+
+		// leaving the zone clears the state
+		creature.logic();
+		assertTrue(creature.isSleeping());
+		zone.remove(creature);
+		assertFalse(creature.isSleeping());
+		assertEquals(0, zone.getSleepingCreatureCount());
+	}
+
+	/**
+	 * Tests that creatures that do not attack on sight are not woken by
+	 * players.
+	 */
+	@Test
+	public void testSleepNonOffensive() {
+		final StendhalRPZone zone = new StendhalRPZone("sleepzone2", 60, 60);
+		final Creature creature = new Creature();
+		creature.setBaseHP(100);
+		creature.setHP(100);
+		final Player player = PlayerTestHelper.createPlayer("bob");
+		player.setPosition(1, 0);
+		zone.add(creature);
+		zone.add(player);
+
+		creature.logic();
+		assertTrue(creature.isSleeping());
+		player.setPosition(1, 1);
+		assertTrue(creature.isSleeping());
+	}
+
+	/**
+	 * Tests that placing a player in its current zone wakes the creatures
+	 * near the new position, also when the sleeping creatures have been
+	 * moved.
+	 */
+	@Test
+	public void testWakeOnPlacement() {
+		final StendhalRPZone zone = new StendhalRPZone("sleepzone3", 200, 200);
+		final Creature near = createOffensive();
+		near.setPosition(100, 100);
+		final Creature far = createOffensive();
+		far.setPosition(180, 20);
+		final Player player = PlayerTestHelper.createPlayer("bob");
+		player.setPosition(10, 190);
+		zone.add(near);
+		zone.add(far);
+		zone.add(player);
+
+		near.logic();
+		far.logic();
+		assertEquals(2, zone.getSleepingCreatureCount());
+
+		assertTrue(StendhalRPAction.placeat(zone, player, 100, 104));
+		assertFalse(near.isSleeping());
+		assertTrue(far.isSleeping());
+
+		// a sleeping creature moved next to the player, and the player placed
+		// at its current position
+		far.setPosition(player.getX() + 3, player.getY());
+		assertTrue(far.isSleeping());
+		assertTrue(StendhalRPAction.placeat(zone, player, player.getX(), player.getY()));
+		assertFalse(far.isSleeping());
+		assertEquals(0, zone.getSleepingCreatureCount());
+	}
+
+	private Creature createOffensive() {
+		final Creature creature = new Creature();
+		final Map<String, String> profiles = new HashMap<String, String>();
+		profiles.put("offensive", "");
+		creature.setAIProfiles(profiles);
+		creature.setBaseHP(100);
+		creature.setHP(100);
+		return creature;
+	}
 }
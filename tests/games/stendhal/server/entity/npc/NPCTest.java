@@ -17,10 +17,15 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static utilities.SpeakerNPCTestHelper.getReply;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.entity.npc.fsm.Engine;
+import games.stendhal.server.entity.player.Player;
 import games.stendhal.server.maps.ados.felinashouse.CatSellerNPC;
 import utilities.QuestHelper;
 import utilities.ZonePlayerAndNPCTestImpl;
@@ -118,4 +123,59 @@ public class NPCTest extends ZonePlayerAndNPCTestImpl {
 			assertEquals("npc should not answer to _" + hello, ConversationStates.IDLE, en.getCurrentState());
 		}
 	}
+
+	/**
+	 * Tests that public chat of players is delivered to NPCs in range.
+	 */
+	@Test
+	public void testHearPublicChat() {
+		final SpeakerNPC npc = getNPC("Felina");
+		npc.getZone().add(player);
+
+		player.setPosition(npc.getX() + 10, npc.getY());
+		player.put("text", "hi");
+		npc.getZone().notifySpeech(player);
+		npc.preLogic();
+		assertEquals(ConversationStates.IDLE, npc.getEngine().getCurrentState());
+
+		player.setPosition(npc.getX() + 1, npc.getY());
+		npc.getZone().notifySpeech(player);
+		npc.preLogic();
+		assertEquals("Greetings! How may I help you?", getReply(npc));
+
+		// the chat is delivered only once
+		npc.getEngine().setCurrentState(ConversationStates.IDLE);
+		npc.preLogic();
+		assertEquals(ConversationStates.IDLE, npc.getEngine().getCurrentState());
+		player.remove("text");
+	}
+
+	/**
+	 * Tests that NPCs with an initial chat action notice players coming near.
+	 */
+	@Test
+	public void testInitChatOnApproach() {
+		final SpeakerNPC npc = getNPC("Felina");
+		npc.getZone().add(player);
+		player.setPosition(npc.getX() + 10, npc.getY());
+
+		final List<Player> greeted = new ArrayList<Player>();
+		npc.addInitChatMessage(null, new ChatAction() {
+			@Override
+			public void fire(final Player player, final Sentence sentence, final EventRaiser raiser) {
+				greeted.add(player);
+			}
+		});
+		npc.preLogic();
+		assertTrue(greeted.isEmpty());
+
+		player.setPosition(npc.getX() + 1, npc.getY());
+		npc.preLogic();
+		assertEquals(1, greeted.size());
+
+		player.setPosition(npc.getX() + 10, npc.getY());
+		npc.preLogic();
+		assertEquals(1, greeted.size());
+		npc.addInitChatMessage(null, null);
+	}
 }
@@ -209,4 +209,24 @@ public class EngineTest {
 		assertEquals(reply, getReply(bob));
 	}
 
+	/**
+	 * Tests for changing the transitions after the engine has been used.
+	 */
+	@Test
+	public void testChangeTransitionsAfterStep() {
+		final SpeakerNPC bob = new SpeakerNPC("bob");
+		final Engine en = new Engine(bob);
+		final Player pete = PlayerTestHelper.createPlayer("player");
+
+		en.add(IDLE, "boo", null, false, ATTENDING, "first", null, "label");
+		assertTrue(en.step(pete, "boo"));
+		assertEquals("first", getReply(bob));
+
+		en.setCurrentState(IDLE);
+		assertTrue(en.remove("label"));
+		en.add(IDLE, "boo", null, false, ATTENDING, "second", null);
+		assertTrue(en.step(pete, "boo"));
+		assertEquals("second", getReply(bob));
+	}
+
 }
@@ -0,0 +1,205 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity.npc.fsm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import games.stendhal.common.parser.ConversationParser;
+import games.stendhal.common.parser.Expression;
+import games.stendhal.common.parser.Sentence;
+import games.stendhal.server.core.config.ShopGroupsXMLLoader;
+import games.stendhal.server.core.config.zone.ConfiguratorDescriptor;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.npc.ConversationStates;
+import games.stendhal.server.entity.npc.NPC;
+import games.stendhal.server.entity.npc.SpeakerNPC;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import utilities.NpcLoader;
+
+/**
+ * Replays conversations against the NPCs with the largest transition tables,
+ * and compares the transition selection by scanning the whole table to the
+ * selection using {@link TransitionIndex}. Each utterance is either a trigger
+ * of the NPC in the state the trigger belongs to, or text the NPC does not
+ * understand. The benchmark fails if the two selections differ.
+ * <p>
+ * Usage: TransitionIndexBenchmark [number of NPCs]
+ */
+public class TransitionIndexBenchmark {
+	private static final String[] ZONES = {
+		"ados", "amazon", "athor", "fado", "kalavan", "kikareukin", "kirdneh",
+		"nalwor", "orril", "semos"
+	};
+	private static final String[] UNKNOWN = {
+		"what is this", "gibberish", "tell me a story", "xyz"
+	};
+	private static final MatchType[] STEP_ORDER = {
+		MatchType.EXACT_MATCH, MatchType.NORMALIZED_MATCH, MatchType.SIMILAR_MATCH,
+		MatchType.ABSOLUTE_JUMP, MatchType.NORMALIZED_JUMP, MatchType.SIMILAR_JUMP
+	};
+	private static final int ROUNDS = 200;
+
+	public static void main(final String[] args) {
+		final int count = (args.length > 0) ? Integer.parseInt(args[0]) : 10;
+		final List<SpeakerNPC> npcs = loadNPCs();
+		Collections.sort(npcs, new Comparator<SpeakerNPC>() {
+			@Override
+			public int compare(final SpeakerNPC npc1, final SpeakerNPC npc2) {
+				return npc2.getEngine().getTransitions().size() - npc1.getEngine().getTransitions().size();
+			}
+		});
+
+		System.out.println("npc\ttransitions\tutterances\tscan ns/utterance\tindex ns/utterance");
+		for (final SpeakerNPC npc : npcs.subList(0, Math.min(count, npcs.size()))) {
+			run(npc);
+		}
+	}
+
+	private static List<SpeakerNPC> loadNPCs() {
+		MockStendlRPWorld.get();
+		// shop inventories only, the merchants configured in XML are not needed
+		new ShopGroupsXMLLoader("/data/conf/shops.xml").load(new String[0]);
+		final StendhalRPZone zone = new StendhalRPZone("int_semos_house");
+		MockStendlRPWorld.get().addRPZone(zone);
+		final NpcLoader loader = new NpcLoader();
+		for (final String name : ZONES) {
+			for (final ConfiguratorDescriptor cd : loader.loadNpcZoneConfiguratorDescriptors("/data/conf/zones/" + name + ".xml")) {
+				cd.setup(zone);
+			}
+		}
+
+		final List<SpeakerNPC> npcs = new ArrayList<SpeakerNPC>();
+		for (final NPC npc : zone.getNPCList()) {
+			if (npc instanceof SpeakerNPC) {
+				npcs.add((SpeakerNPC) npc);
+			}
+		}
+		return npcs;
+	}
+
+	private static void run(final SpeakerNPC npc) {
+		final List<Transition> table = npc.getEngine().getTransitions();
+
+		// record the conversation
+		final List<ConversationStates> states = new ArrayList<ConversationStates>();
+		final List<Sentence> sentences = new ArrayList<Sentence>();
+		for (final Transition transition : table) {
+			ConversationStates state = transition.getState();
+			if (state == ConversationStates.ANY) {
+				state = ConversationStates.ATTENDING;
+			}
+			for (final Expression trigger : transition.getTriggers()) {
+				if (trigger.getMatcher() == null) {
+					states.add(state);
+					sentences.add(ConversationParser.parse(trigger.getOriginal()));
+				}
+			}
+			for (final String text : UNKNOWN) {
+				states.add(state);
+				sentences.add(ConversationParser.parse(text));
+			}
+		}
+
+		final TransitionIndex index = new TransitionIndex(table);
+		for (int i = 0; i < sentences.size(); i++) {
+			final List<Transition> expected = selectByScan(table, states.get(i), sentences.get(i));
+			final List<Transition> actual = selectByIndex(index, states.get(i), sentences.get(i));
+			if (!expected.equals(actual)) {
+				throw new IllegalStateException(npc.getName() + ": different transitions for '"
+						+ sentences.get(i) + "' in state " + states.get(i) + ": " + expected + " / " + actual);
+			}
+		}
+
+		// warm up
+		replay(table, null, states, sentences);
+		replay(table, index, states, sentences);
+
+		final long scanTime = replay(table, null, states, sentences);
+		final long indexTime = replay(table, index, states, sentences);
+		final long utterances = (long) ROUNDS * sentences.size();
+		System.out.printf("%s\t%d\t%d\t%.0f\t%.0f%n", npc.getName(), table.size(), sentences.size(),
+				(double) scanTime / utterances, (double) indexTime / utterances);
+	}
+
+	/**
+	 * Replay the conversation either by scanning the table, or by using the
+	 * index. Building the index is not timed, as it changes only when
+	 * transitions are added or removed.
+	 *
+	 * @param table transition table
+	 * @param index index of the table, or <code>null</code> to scan the table
+	 * @return time in nanoseconds
+	 */
+	private static long replay(final List<Transition> table, final TransitionIndex index,
+			final List<ConversationStates> states, final List<Sentence> sentences) {
+		int matched = 0;
+		final long start = System.nanoTime();
+		for (int round = 0; round < ROUNDS; round++) {
+			for (int i = 0; i < sentences.size(); i++) {
+				final List<Transition> result;
+				if (index == null) {
+					result = selectByScan(table, states.get(i), sentences.get(i));
+				} else {
+					result = selectByIndex(index, states.get(i), sentences.get(i));
+				}
+				matched += result.size();
+			}
+		}
+		final long time = System.nanoTime() - start;
+		if (matched < 0) {
+			System.out.println(matched);
+		}
+		return time;
+	}
+
+	/**
+	 * Find the transitions the engine would choose from, by testing all
+	 * transitions like the engine did before the index was added.
+	 */
+	private static List<Transition> selectByScan(final List<Transition> table, final ConversationStates state,
+			final Sentence sentence) {
+		final List<Transition> result = new ArrayList<Transition>();
+		for (final MatchType type : STEP_ORDER) {
+			for (final Transition transition : table) {
+				if (type.match(transition, state, sentence)) {
+					result.add(transition);
+				}
+			}
+			if (!result.isEmpty()) {
+				break;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Find the transitions the engine would choose from, using the index.
+	 */
+	private static List<Transition> selectByIndex(final TransitionIndex index, final ConversationStates state,
+			final Sentence sentence) {
+		final List<Transition> result = new ArrayList<Transition>();
+		for (final MatchType type : STEP_ORDER) {
+			for (final Transition transition : index.getCandidates(type, state, sentence)) {
+				if (type.match(transition, state, sentence)) {
+					result.add(transition);
+				}
+			}
+			if (!result.isEmpty()) {
+				break;
+			}
+		}
+		return result;
+	}
+}
@@ -22,7 +22,10 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.junit.After;
 import org.junit.Before;
@@ -363,6 +366,71 @@ public class PlayerTest {
 
 	}
 
+	/**
+	 * Tests for the parsed quest states.
+	 */
+	@Test
+	public void testQuestState() {
+		Player player = PlayerTestHelper.createPlayer("questStateTestPlayer");
+		assertThat(player.getQuestState("testquest"), nullValue());
+
+		player.setQuest("testquest", "start;cheese=3;2");
+		QuestState state = player.getQuestState("testquest");
+		assertThat(state.getState(), equalTo("start;cheese=3;2"));
+		assertThat(state.size(), is(3));
+		assertThat(state.get(0), equalTo("start"));
+		assertThat(state.get(3), equalTo(""));
+		assertThat(state.getItemName(1), equalTo("cheese"));
+		assertThat(state.getItemQuantity(1, 1), is(3));
+		assertThat(state.getItemQuantity(0, 1), is(1));
+		assertTrue(state.isInState(0, "rejected", "start"));
+		assertTrue(player.getQuestState("testquest") == state);
+
+		// states are immutable, changes result in new ones
+		player.setQuest("testquest", 0, "done");
+		assertThat(state.get(0), equalTo("start"));
+		assertThat(player.getQuestState("testquest").get(0), equalTo("done"));
+		assertTrue(player.isQuestInState("testquest", 0, "done"));
+
+		// changes to the slot without using the quest methods
+		KeyedSlotUtil.setKeyedSlot(player, "!quests", "testquest", "rejected");
+		assertThat(player.getQuest("testquest", 0), equalTo("rejected"));
+		assertThat(player.getQuestState("testquest").size(), is(1));
+
+		player.removeQuest("testquest");
+		assertThat(player.getQuestState("testquest"), nullValue());
+		assertThat(player.getQuest("testquest", 0), nullValue());
+	}
+
+	/**
+	 * Tests for counting the killed creatures out of a set.
+	 */
+	@Test
+	public void testNumberOfKilledCreatures() {
+		Player player = PlayerTestHelper.createPlayer("killCountTestPlayer");
+		Set<String> creatures = new HashSet<String>(Arrays.asList("rat", "cave rat", "wolf"));
+		player.setSoloKill("rat");
+		assertThat(player.getNumberOfKilledSolo(creatures), is(1));
+		assertThat(player.getNumberOfKilledShared(creatures), is(0));
+
+		// counts are updated on kills
+		player.setSoloKill("rat");
+		player.setSoloKill("wolf");
+		player.setSharedKill("cave rat");
+		player.setSoloKill("deer");
+		assertThat(player.getNumberOfKilledSolo(creatures), is(2));
+		assertThat(player.getNumberOfKilledShared(creatures), is(1));
+
+		// and when the kill counts are changed directly
+		player.setSoloKillCount("cave rat", 2);
+		assertThat(player.getNumberOfKilledSolo(creatures), is(3));
+
+		// a different set is counted again
+		Set<String> others = new HashSet<String>(Arrays.asList("deer", "wolf"));
+		assertThat(player.getNumberOfKilledSolo(others), is(2));
+		assertThat(player.getNumberOfKilledShared(others), is(0));
+	}
+
 	/**
 	 * Test that the damage done by a player is of right type.
 	 */
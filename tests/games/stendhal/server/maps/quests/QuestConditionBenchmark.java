@@ -0,0 +1,129 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.maps.quests;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import games.stendhal.common.parser.ConversationParser;
+import games.stendhal.common.parser.Sentence;
+import games.stendhal.server.core.config.ZoneGroupsXMLLoader;
+import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.core.rp.StendhalQuestSystem;
+import games.stendhal.server.entity.npc.SpeakerNPC;
+import games.stendhal.server.entity.npc.fsm.PreTransitionCondition;
+import games.stendhal.server.entity.npc.fsm.Transition;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.server.game.db.DatabaseFactory;
+import utilities.PlayerTestHelper;
+
+/**
+ * Evaluates the chat conditions of all NPC transitions, after loading the world
+ * and the quests, for players with different quest states. Conditions that
+ * fail for the made up quest states are skipped.
+ * <p>
+ * Usage: QuestConditionBenchmark [rounds]
+ */
+public class QuestConditionBenchmark {
+	private static final String[] STATES = {
+		null, "done", "start", "rejected", "start;cheese=5,meat=2;0",
+		"done;1700000000000;3", "3", "killed;1700000000000;5;rat,0,1,0,0"
+	};
+	private static final int PLAYERS = STATES.length;
+
+	public static void main(final String[] args) throws Exception {
+		final int rounds = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+
+		new DatabaseFactory().initializeDatabase();
+		MockStendlRPWorld.get();
+		new ZoneGroupsXMLLoader(new URI("/data/conf/zones.xml")).load();
+		final StendhalRPZone zone = SingletonRepository.getRPWorld().getZone("int_semos_house");
+		StendhalQuestSystem.get().init();
+		final List<String> slots = StendhalQuestSystem.get().getLoadedSlots();
+
+		final List<Player> players = new ArrayList<Player>();
+		for (int i = 0; i < PLAYERS; i++) {
+			final Player player = PlayerTestHelper.createPlayer("player" + i);
+			zone.add(player);
+			for (int j = 0; j < slots.size(); j++) {
+				final String state = STATES[(i + j) % STATES.length];
+				if (state != null) {
+					player.setQuest(slots.get(j), state);
+				}
+			}
+			players.add(player);
+		}
+
+		// some conditions log complaints about the made up quest states
+		Logger.getRootLogger().setLevel(Level.OFF);
+
+		// collect the conditions, that work with the made up quest states
+		final Sentence sentence = ConversationParser.parse("hi");
+		final List<PreTransitionCondition> conditions = new ArrayList<PreTransitionCondition>();
+		final List<SpeakerNPC> owners = new ArrayList<SpeakerNPC>();
+		int skipped = 0;
+		for (final SpeakerNPC npc : SingletonRepository.getNPCList()) {
+			for (final Transition transition : npc.getEngine().getTransitions()) {
+				final PreTransitionCondition condition = transition.getCondition();
+				if (condition == null) {
+					continue;
+				}
+				try {
+					for (final Player player : players) {
+						condition.fire(player, sentence, npc);
+					}
+					conditions.add(condition);
+					owners.add(npc);
+				} catch (final RuntimeException e) {
+					skipped++;
+				}
+			}
+		}
+		System.out.println(slots.size() + " quests, " + conditions.size() + " conditions, " + skipped + " skipped");
+
+		// warm up
+		evaluate(conditions, owners, players, sentence, rounds);
+
+		final long start = System.nanoTime();
+		final int fired = evaluate(conditions, owners, players, sentence, rounds);
+		final long time = System.nanoTime() - start;
+		final long evaluations = (long) rounds * conditions.size() * players.size();
+		System.out.printf("%d evaluations, %d true, %.0f ns/evaluation%n", evaluations, fired,
+				(double) time / evaluations);
+
+		// the database and turn notifier threads would keep running
+		System.exit(0);
+	}
+
+	private static int evaluate(final List<PreTransitionCondition> conditions, final List<SpeakerNPC> owners,
+			final List<Player> players, final Sentence sentence, final int rounds) {
+		int fired = 0;
+		for (int round = 0; round < rounds; round++) {
+			for (int i = 0; i < conditions.size(); i++) {
+				final PreTransitionCondition condition = conditions.get(i);
+				final SpeakerNPC npc = owners.get(i);
+				for (final Player player : players) {
+					if (condition.fire(player, sentence, npc)) {
+						fired++;
+					}
+				}
+			}
+		}
+		return fired;
+	}
+}